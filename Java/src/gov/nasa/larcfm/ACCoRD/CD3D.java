@@ -60,6 +60,16 @@ public class CD3D {
    * The returned t_in and t_out values are truncated to be within [B,T]
    */
   public static LossData detection(Vect3 s, Vect3 vo, Vect3 vi, double D, double H, double B, double T) { 
+    MutableConflictData ld = new MutableConflictData();
+    detection(s,vo,vi,D,H,B,T,ld);
+    return ld.toLossData();
+  }
+
+  /**
+   * Same as detection(s,vo,vi,D,H,B,T), but the conflict time interval is written into out
+   * (only the time in and time out of out are modified).
+   */
+  public static void detection(Vect3 s, Vect3 vo, Vect3 vi, double D, double H, double B, double T, MutableConflictData out) { 
     double t_in  = T+1;
     double t_out = B;
     if (B >= 0 && B < T) {
@@ -92,7 +102,7 @@ public class CD3D {
         } 
       }
     }
-    return new LossData(t_in, t_out);
+    out.setLoss(t_in, t_out);
   }
 
   /**
@@ -7,6 +7,7 @@
 package gov.nasa.larcfm.ACCoRD;
 
 import gov.nasa.larcfm.Util.ParameterData;
+import gov.nasa.larcfm.Util.ParameterSnapshot;
 import gov.nasa.larcfm.Util.Units;
 import gov.nasa.larcfm.Util.f;
 
@@ -14,6 +15,12 @@ import gov.nasa.larcfm.Util.f;
 public class CD3DTable implements ParameterTable {
   double D;
   double H;
+
+  /** Layout of the parameter snapshots of this table */
+  public static final ParameterSnapshot.Layout SNAPSHOT_LAYOUT = 
+      new ParameterSnapshot.Layout(new String[] {"D","H"}, new String[] {"nmi","ft"});
+  private static final int D_idx = SNAPSHOT_LAYOUT.offset("D");
+  private static final int H_idx = SNAPSHOT_LAYOUT.offset("H");
   
   public CD3DTable() {
     D = Units.from("nmi",5);
@@ -94,11 +101,23 @@ public class CD3DTable implements ParameterTable {
 
   
   public void setParameters(ParameterData p) {
-    if (p.contains("D")) {
-      D = p.getValue("D");
+    setParameterSnapshot(SNAPSHOT_LAYOUT.compile(p));
+  }
+
+  public ParameterSnapshot getParameterSnapshot() {
+    double[] values = new double[SNAPSHOT_LAYOUT.size()];
+    values[D_idx] = D;
+    values[H_idx] = H;
+    return SNAPSHOT_LAYOUT.make(values, new boolean[SNAPSHOT_LAYOUT.size()]);
+  }
+
+  public void setParameterSnapshot(ParameterSnapshot s) {
+    s.checkLayout(SNAPSHOT_LAYOUT,"CD3DTable.setParameterSnapshot");
+    if (s.contains(D_idx)) {
+      D = s.getValue(D_idx);
     }
-    if (p.contains("H")) {
-      H = p.getValue("H");
+    if (s.contains(H_idx)) {
+      H = s.getValue(H_idx);
     }
   }
   
@@ -54,6 +54,7 @@ package gov.nasa.larcfm.ACCoRD;
 
 import gov.nasa.larcfm.Util.LossData;
 import gov.nasa.larcfm.Util.ParameterData;
+import gov.nasa.larcfm.Util.ParameterSnapshot;
 import gov.nasa.larcfm.Util.Vect3;
 import gov.nasa.larcfm.Util.Velocity;
 
@@ -232,6 +233,22 @@ public class CDCylinder implements Detection3D {
     return conflictDetection(so,vo,si,vi,table.getHorizontalSeparation(), table.getVerticalSeparation(), B, T); 
   }
 
+  public boolean conflictDetection(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData out) {
+    double D = table.getHorizontalSeparation();
+    double H = table.getVerticalSeparation();
+    Vect3 s = so.Sub(si);
+    Velocity v = vo.Sub(vi);
+    double t_tca = CD3D.tccpa(s, vo, vi, D, H, B, T);
+    double dist_tca = MutableConflictData.cyl_norm_at(s,v,Vect3.ZERO,Vect3.ZERO,t_tca,D,H);
+    CD3D.detection(s,vo,vi,D,H,B,T,out);
+    out.set(out.getTimeIn(),out.getTimeOut(),t_tca,dist_tca,s,v);
+    return out.conflict();
+  }
+
+  public boolean conflict(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData work) {
+    return conflict(so, vo, si, vi, B, T);
+  }
+
   public double timeOfClosestApproach(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double D, double H, double B, double T) {
     return CD3D.tccpa(so.Sub(si), vo, vi, D, H, B, T);
   }
@@ -258,6 +275,22 @@ public class CDCylinder implements Detection3D {
     }
   }
 
+  /**
+   * Set the parameters of the internal table that are defined in the snapshot s. 
+   * The snapshot must have been built with the table's SNAPSHOT_LAYOUT, otherwise
+   * an IllegalArgumentException is thrown.
+   */
+  public void setParameterSnapshot(ParameterSnapshot s) {
+    table.setParameterSnapshot(s);
+  }
+
+  /**
+   * Return an immutable snapshot of the parameters of the internal table.
+   */
+  public ParameterSnapshot getParameterSnapshot() {
+    return table.getParameterSnapshot();
+  }
+
   /**
    * Returns a fresh instance of this type of Detection3D with default parameter data.
    */
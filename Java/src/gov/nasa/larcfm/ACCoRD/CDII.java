@@ -16,6 +16,7 @@ import gov.nasa.larcfm.Util.Units;
 import gov.nasa.larcfm.Util.ErrorReporter;
 import gov.nasa.larcfm.Util.ErrorLog;
 import gov.nasa.larcfm.Util.Plan;
+import gov.nasa.larcfm.Util.CompactPlan;
 
 import java.text.*;           // for DecimalFormat
 import java.util.ArrayList;
@@ -366,6 +367,22 @@ public final class CDII implements ErrorReporter, Detection3DAcceptor {
     return detection(ownship,traffic,startT,endT,true);
   }
 
+  /**
+   * Same as detection(ownship.toPlan(), traffic.toPlan(), startT, endT, false), but the aircraft are read
+   * from the arrays of the compact plans. Virtual points are not added to the ownship plan.
+   */
+  public boolean detection(CompactPlan ownship, CompactPlan traffic, double startT, double endT) {
+    if (ownship.isLatLon() != traffic.isLatLon()) {
+      error.addError("Ownship and traffic flight plans are not both Euclidean or Lat/Lon");
+      return false;
+    }
+    if (startT > endT) {
+      error.addWarning("startT > endT in detection()");
+      return false;
+    }
+    return cdiicore.detection(ownship, traffic, startT, endT);
+  }
+
   /**
    * Returns if there is a conflict between two aircraft: the ownship and 
    * the traffic aircraft.  This version can be less efficient than the normal detection() call,
@@ -20,6 +20,7 @@ import gov.nasa.larcfm.Util.Vect3;
 import gov.nasa.larcfm.Util.Util;
 import gov.nasa.larcfm.Util.Velocity;
 import gov.nasa.larcfm.Util.Plan;
+import gov.nasa.larcfm.Util.CompactPlan;
 import gov.nasa.larcfm.Util.LatLonAlt;
 import gov.nasa.larcfm.Util.f;
 
@@ -56,6 +57,7 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 	private ArrayList<Integer> segin;
 	private ArrayList<Integer> segout;
 	private CDSICore cdsi;
+	private long skipped = 0; // number of ownship segments skipped by the bounding test in detection
 
 	/**
 	 * Create a new conflict detection (intent information for both the ownship
@@ -322,9 +324,30 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 			return false;
 		}
 		if (ownship.isLatLon()) {
-			return detectionLL(ownship, traffic, B, T);
+			return detectionLL(new CDSICore.PreparedPlan(ownship, false), new CDSICore.PreparedPlan(traffic, false), B, T);
 		} else {
-			return detectionXYZ(ownship, traffic, B, T);
+			return detectionXYZ(new CDSICore.PreparedPlan(ownship, false), new CDSICore.PreparedPlan(traffic, false), B, T);
+		}
+	}
+
+	/**
+	 * Same as detection(ownship.toPlan(), traffic.toPlan(), B, T), but the aircraft are read from the 
+	 * arrays of the compact plans.
+	 */
+	public boolean detection(CompactPlan ownship, CompactPlan traffic, double B, double T) {
+		tin.clear();
+		tout.clear();
+		segin.clear();
+		segout.clear();
+		tcpa.clear();
+		dist_tca.clear();
+		if (ownship.isLatLon() != traffic.isLatLon()) {
+			return false;
+		}
+		if (ownship.isLatLon()) {
+			return detectionLL(new CDSICore.PreparedPlan(ownship), new CDSICore.PreparedPlan(traffic), B, T);
+		} else {
+			return detectionXYZ(new CDSICore.PreparedPlan(ownship), new CDSICore.PreparedPlan(traffic), B, T);
 		}
 	}
 	
@@ -472,10 +495,9 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 	 *            the absolute time to end looking for conflicts.
 	 * @return true if there is a conflict
 	 */
-	private boolean detectionXYZ(Plan ownship, Plan traffic, double B, double T) {
+	private boolean detectionXYZ(CDSICore.PreparedPlan ownship, CDSICore.PreparedPlan traffic, double B, double T) {
 //f.pln("cdiicore.detectionXYZ B="+B+" T="+T);		
 		boolean cont = false; // what is this?
-		boolean linear = true;     // was Plan.PlanType.LINEAR);
 		int start = B > ownship.getLastTime() ? ownship.size() - 1 : Math.max(0, ownship.getSegment(B));
 		// calculated end segment. Only continue search if we are currently in a
 		// conflict
@@ -483,8 +505,8 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 		for (int i = start; i < ownship.size(); i++) {
 			// truncate the search at Tend if not in a conflict
 			if (i <= end || cont) {
-				Vect3 so = ownship.point(i).point();
-				Velocity vo = ownship.initialVelocity(i,linear); 
+				Vect3 so = ownship.vertex(i).point();
+				Velocity vo = ownship.initialVelocity(i); 
 				double t_base = ownship.getTime(i); // ownship start of leg
 				// GEH : special case!!!
 				if (t_base < B) {
@@ -519,8 +541,12 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 				// System.out.println("$$CDIICore4 xyz: "+r.cyl_norm(cdsi.getDistance(),
 				// cdsi.getHeight()));
 				// System.out.println("$$CDIICore5 xyz: "+cdsi.size());
-				cdsi.detectionXYZ(so, vo, t_base, HT, traffic, BT, NT);
-				captureOutput(cdsi, i);
+				if (outsideProtectedVolumeXYZ(so, vo, t_base, NT, traffic)) {
+					skipped++;
+				} else {
+					cdsi.detectionXYZ(so, vo, t_base, HT, traffic, BT, NT);
+					captureOutput(cdsi, i);
+				}
 				cont = size() > 0 ? tout.get(tout.size() - 1) == HT + t_base
 						: false;
 			}
@@ -551,9 +577,8 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 	 *            the absolute time to end looking for conflicts.
 	 * @return true if there is a conflict
 	 */
-	private boolean detectionLL(Plan ownship, Plan traffic, double B, double T) {
+	private boolean detectionLL(CDSICore.PreparedPlan ownship, CDSICore.PreparedPlan traffic, double B, double T) {
 		boolean cont = false;
-		boolean linear = true;     // was Plan.PlanType.LINEAR);
 
 		// double d = getDistance();
 		// double h = getHeight();
@@ -565,11 +590,11 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 		for (int i = start; i < ownship.size(); i++) {
 			// truncate the search at Tend if not in a conflict
 			if (i <= end || cont) {
-				LatLonAlt llo = ownship.point(i).lla();
+				LatLonAlt llo = ownship.vertex(i).lla();
 				double t_base = ownship.getTime(i);
 				// GEH : special case!!!
 				if (t_base < B) {
-					llo = ownship.position(B,linear).lla();
+					llo = ownship.position(B).lla();
 					t_base = B;
 				}
 
@@ -589,11 +614,15 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 				if (NT < 0.0) {
 					continue;
 				}
-				Velocity vo = ownship.velocity(t_base, linear); // CHANGED!!!
+				Velocity vo = ownship.velocity(t_base); // CHANGED!!!
 				//f.pln("$$CDIICore times: i="+i+" BT = "+BT+"  NT = "+NT+" HT = "+HT+" B = "+B);
 				//f.pln("$$CDIICore LL: "+llo+" "+vo+" "+t_base);
-				cdsi.detectionLL(llo, vo, t_base, HT, traffic, BT, NT);
-				captureOutput(cdsi, i);
+				if (outsideProtectedVolumeLL(llo, vo, t_base, NT, traffic)) {
+					skipped++;
+				} else {
+					cdsi.detectionLL(llo, vo, t_base, HT, traffic, BT, NT);
+					captureOutput(cdsi, i);
+				}
 				cont = size() > 0 ? tout.get(tout.size() - 1) == HT + t_base : false;
 			}
 		}
@@ -607,6 +636,113 @@ public final class CDIICore implements ErrorReporter, Detection3DAcceptor {
 		return conflict();
 	}
 
+	/*
+	 * Bounding tests for one ownship segment, used to skip the call to CDSICore.  If CDSICore finds 
+	 * any conflict for the ownship state (so,vo) at time t0 and relative lookahead time NT, the first one 
+	 * starts at a time in [max(t0,first),min(t0+NT,last)], where first and last are the times of the traffic
+	 * plan, and at that time the ownship is on the line so+(t-t0)*vo.  The tests check that, over that
+	 * time interval, the ownship and the traffic plan are separated by more than the dimensions of
+	 * the core detection (only when it is a CDCylinder).  
+	 */
+
+	private CDCylinder cylinder(CDSICore.PreparedPlan traffic) {
+		Detection3D cd = cdsi.getCoreDetection();
+		if (!(cd instanceof CDCylinder) || traffic.size() < 2) {
+			return null;
+		}
+		return (CDCylinder)cd;
+	}
+
+	private boolean outsideProtectedVolumeXYZ(Vect3 so, Velocity vo, double t0, double NT, CDSICore.PreparedPlan traffic) {
+		CDCylinder cyl = cylinder(traffic);
+		if (cyl == null) {
+			return false;
+		}
+		double ta = Math.max(t0, traffic.getFirstTime());
+		double tb = Math.min(t0+NT, traffic.getLastTime());
+		if (ta > tb) {
+			return false;
+		}
+		double D = cyl.getHorizontalSeparation()*CDSICore.CULL_FACTOR + CDSICore.CULL_TOL;
+		double H = cyl.getVerticalSeparation()*CDSICore.CULL_FACTOR + CDSICore.CULL_TOL;
+		Vect3 oa = so.AddScal(ta-t0, vo);
+		Vect3 ob = so.AddScal(tb-t0, vo);
+		Vect3 p = traffic.position(ta).point();
+		double xlo = p.x, xhi = p.x, ylo = p.y, yhi = p.y, zlo = p.z, zhi = p.z;
+		for (int j = traffic.getSegment(ta)+1; j >= 1 && j < traffic.size() && traffic.getTime(j) < tb; j++) {
+			p = traffic.vertex(j).point();
+			xlo = Math.min(xlo, p.x); xhi = Math.max(xhi, p.x);
+			ylo = Math.min(ylo, p.y); yhi = Math.max(yhi, p.y);
+			zlo = Math.min(zlo, p.z); zhi = Math.max(zhi, p.z);
+		}
+		p = traffic.position(tb).point();
+		xlo = Math.min(xlo, p.x); xhi = Math.max(xhi, p.x);
+		ylo = Math.min(ylo, p.y); yhi = Math.max(yhi, p.y);
+		zlo = Math.min(zlo, p.z); zhi = Math.max(zhi, p.z);
+		return separated(Math.min(oa.x, ob.x), Math.max(oa.x, ob.x), xlo, xhi, D) ||
+				separated(Math.min(oa.y, ob.y), Math.max(oa.y, ob.y), ylo, yhi, D) ||
+				separated(Math.min(oa.z, ob.z), Math.max(oa.z, ob.z), zlo, zhi, H);
+	}
+
+	/**
+	 * Geodetic version. Only vertical separation is tested: the projections used by CDSICore keep altitudes 
+	 * and vertical speeds, but their horizontal distortion grows with the distance from the ownship, so 
+	 * great circle distances do not bound the projected ones (e.g., with a 5 nmi cylinder, an ownship flying 
+	 * 594 nmi toward traffic 600 nmi away is in conflict in the projection).
+	 */
+	private boolean outsideProtectedVolumeLL(LatLonAlt so, Velocity vo, double t0, double NT, CDSICore.PreparedPlan traffic) {
+		CDCylinder cyl = cylinder(traffic);
+		if (cyl == null) {
+			return false;
+		}
+		double ta = Math.max(t0, traffic.getFirstTime());
+		double tb = Math.min(t0+NT, traffic.getLastTime());
+		if (ta > tb) {
+			return false;
+		}
+		double H = cyl.getVerticalSeparation()*CDSICore.CULL_FACTOR + CDSICore.CULL_TOL;
+		double za = so.alt() + (ta-t0)*vo.z;
+		double zb = so.alt() + (tb-t0)*vo.z;
+		double zlo = traffic.position(ta).alt();
+		double zhi = zlo;
+		for (int j = traffic.getSegment(ta)+1; j >= 1 && j < traffic.size() && traffic.getTime(j) < tb; j++) {
+			double z = traffic.vertex(j).alt();
+			zlo = Math.min(zlo, z);
+			zhi = Math.max(zhi, z);
+		}
+		double z = traffic.position(tb).alt();
+		zlo = Math.min(zlo, z);
+		zhi = Math.max(zhi, z);
+		return separated(Math.min(za, zb), Math.max(za, zb), zlo, zhi, H);
+	}
+
+	// true if the intervals [lo1,hi1] and [lo2,hi2] are at least gap apart
+	private static boolean separated(double lo1, double hi1, double lo2, double hi2, double gap) {
+		return lo2 - hi1 >= gap || lo1 - hi2 >= gap;
+	}
+
+	/**
+	 * Returns the number of ownship segments, over all calls to detection since this object was created or
+	 * resetSkippedSegments() was called, that were not checked because a bounding test showed they
+	 * could not be in conflict. The test is only applied when the core detection is a CDCylinder.
+	 * Segments of the traffic plan skipped by the underlying CDSICore are counted separately, see 
+	 * getSkippedIntentSegments().
+	 */
+	public long getSkippedSegments() {
+		return skipped;
+	}
+
+	/** Returns the number of traffic segments skipped by the underlying CDSICore object, see CDSICore.getSkippedSegments() */
+	public long getSkippedIntentSegments() {
+		return cdsi.getSkippedSegments();
+	}
+
+	/** Sets the number of skipped segments (ownship and traffic) to zero */
+	public void resetSkippedSegments() {
+		skipped = 0;
+		cdsi.resetSkippedSegments();
+	}
+
 	void captureOutput(CDSICore cdsi, int seg) {
 		// System.out.println("size "+cdsi.size());
 		for (int index = 0; index < cdsi.size(); index++) {
@@ -130,6 +130,18 @@ public class CDPolycarp implements DetectionPolygon {
 	}
 
 
+	/**
+	 * Prepare a polygon for repeated containment queries (nearEdge, definitelyInside, violation).
+	 * Niceness is checked once (if this object checks niceness) instead of on every query.
+	 * @param poly input poly, may be either clockwise or counterclockwise
+	 * @return prepared polygon
+	 */
+	public PolycarpPreparedPolygon prepare(Poly3D poly) {
+		PolycarpPreparedPolygon pp = new PolycarpPreparedPolygon(poly, checkNice);
+		pp.isNice(buff);
+		return pp;
+	}
+
 	/**
 	 * Return true if ownship is near an edge
 	 * @param so ownship position
@@ -156,6 +168,28 @@ public class CDPolycarp implements DetectionPolygon {
 		return !Polycarp3D.definitely_outside(so, si, buff, checkNice);
 	}
 
+	/**
+	 * Same as nearEdge(so,si,h,v) for a prepared polygon.  The niceness check of si
+	 * is the one selected when si was prepared.
+	 */
+	public boolean nearEdge(Vect3 so, PolycarpPreparedPolygon si, double h, double v) {
+		return si.nearEdge(so, h, v);
+	}
+
+	/**
+	 * Same as definitelyInside(so,si) for a prepared polygon
+	 */
+	public boolean definitelyInside(Vect3 so, PolycarpPreparedPolygon si) {
+		return si.definitely_inside(so, buff);
+	}
+
+	/**
+	 * Same as violation(so,vo,si) for a prepared polygon
+	 */
+	public boolean violation(Vect3 so, Velocity vo, PolycarpPreparedPolygon si) {
+		return !si.definitely_outside(so, buff);
+	}
+
 
 	// note: T cannot be "near" Double.MAX_VALUE (or infinity)
 	public boolean conflict(Vect3 so, Velocity vo, MovingPolygon3D si, double B, double T) {
@@ -25,6 +25,7 @@ import gov.nasa.larcfm.Util.LatLonAlt;
 import gov.nasa.larcfm.Util.Util;
 import gov.nasa.larcfm.Util.GreatCircle;
 import gov.nasa.larcfm.Util.Plan;
+import gov.nasa.larcfm.Util.CompactPlan;
 import gov.nasa.larcfm.Util.ErrorLog;
 import gov.nasa.larcfm.Util.ErrorReporter;
 import gov.nasa.larcfm.Util.f;
@@ -62,6 +63,11 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 	private ArrayList<Integer> segout;
 	private CDSSCore cdsscore;
 	private ErrorLog error;
+	private long skipped = 0; // number of segments skipped by the bounding test in detection
+
+	// relative and absolute expansion of the protected volume in the segment bounding test
+	static final double CULL_FACTOR = 1.0 + 1.0e-6;
+	static final double CULL_TOL = 1.0e-6;
 
 	//  private static final boolean allowVariableDistanceBuffer = true; // set to true to allow a per-leg variation on D,H, based on values in the plan(s)
 
@@ -327,6 +333,145 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 		}
 	}
 
+	/**
+	 * Same as detection(so, vo, t0, state_horizon, intent.getPlan(), B, T), but the positions and
+	 * velocities of the intent aircraft at the vertices of its plan are taken from intent instead
+	 * of being recomputed from the plan at every call.
+	 */
+	public boolean detection(Position so, Velocity vo, double t0, double state_horizon, PreparedPlan intent, double B, double T) {
+		if (so.isLatLon()) {
+			return detectionLL(so.lla(), vo, t0, state_horizon, intent, B, T);
+		} else {
+			return detectionXYZ(so.point(), vo, t0, state_horizon, intent, B, T);
+		}
+	}
+
+	/**
+	 * Same as detection(so, vo, t0, state_horizon, intent.toPlan(), B, T), but the intent aircraft 
+	 * is read from the arrays of the compact plan. If the same plan is checked many times, 
+	 * use a PreparedPlan instead.
+	 */
+	public boolean detection(Position so, Velocity vo, double t0, double state_horizon, CompactPlan intent, double B, double T) {
+		return detection(so, vo, t0, state_horizon, new PreparedPlan(intent), B, T);
+	}
+
+	/**
+	 * The positions and velocities used by the segment loop of detection, evaluated once for
+	 * each vertex of a plan. This is useful when the same traffic plan is checked against many
+	 * ownship states, e.g., by the candidate maneuvers of bands. A prepared plan is immutable and
+	 * may be shared between threads, but it does not track later changes to the plan.<p>
+	 * 
+	 * A prepared plan can be built from a Plan or from a CompactPlan. In the latter case, all values 
+	 * are read from the arrays of the compact plan, and no Plan is built.
+	 */
+	public static final class PreparedPlan {
+		private final Plan plan;           // null if built from a compact plan
+		private final CompactPlan compact; // null if built from a plan
+		private final Position[] pos; // position at the time of vertex j (null if values are not cached)
+		private final Velocity[] vel; // initial velocity of segment j
+		private final Velocity[] vtx; // velocity at the time of vertex j
+
+		public PreparedPlan(Plan p) {
+			this(p, true);
+		}
+
+		/** If cache is false, values are computed from the plan when needed, as detection(..., Plan, ...) does. */
+		PreparedPlan(Plan p, boolean cache) {
+			boolean linear = true;
+			plan = p;
+			compact = null;
+			if (cache) {
+				pos = new Position[p.size()];
+				vel = new Velocity[p.size()];
+				vtx = new Velocity[p.size()];
+				for (int j = 0; j < p.size(); j++) {
+					pos[j] = p.position(p.getTime(j), linear);
+					vel[j] = p.initialVelocity(j, linear);
+					vtx[j] = p.velocity(p.getTime(j), linear);
+				}
+			} else {
+				pos = null;
+				vel = null;
+				vtx = null;
+			}
+		}
+
+		public PreparedPlan(CompactPlan p) {
+			boolean linear = true;
+			plan = null;
+			compact = p;
+			pos = new Position[p.size()];
+			vel = new Velocity[p.size()];
+			vtx = new Velocity[p.size()];
+			for (int j = 0; j < p.size(); j++) {
+				Pair<Position,Velocity> pv = p.positionVelocity(p.getTime(j), linear);
+				pos[j] = pv.first;
+				vel[j] = p.initialVelocity(j, linear);
+				vtx[j] = pv.second;
+			}
+		}
+
+		/** Returns the plan of this prepared plan, or a new Plan if it was built from a compact plan */
+		public Plan getPlan() {
+			return plan != null ? plan : compact.toPlan();
+		}
+
+		/** Position of the intent aircraft at the time of vertex j */
+		public Position position(int j) {
+			return pos != null ? pos[j] : plan.position(plan.getTime(j), true);
+		}
+
+		/** Initial velocity of segment j */
+		public Velocity initialVelocity(int j) {
+			return vel != null ? vel[j] : plan.initialVelocity(j, true);
+		}
+
+		public int size() {
+			return plan != null ? plan.size() : compact.size();
+		}
+
+		public double getTime(int j) {
+			return plan != null ? plan.getTime(j) : compact.getTime(j);
+		}
+
+		public double getFirstTime() {
+			return plan != null ? plan.getFirstTime() : compact.getFirstTime();
+		}
+
+		public double getLastTime() {
+			return plan != null ? plan.getLastTime() : compact.getLastTime();
+		}
+
+		/** See Plan.getSegment */
+		public int getSegment(double t) {
+			return plan != null ? plan.getSegment(t) : compact.getSegment(t);
+		}
+
+		public boolean isLatLon() {
+			return plan != null ? plan.isLatLon() : compact.isLatLon();
+		}
+
+		/** True if the values at the vertices are cached */
+		boolean isCached() {
+			return pos != null;
+		}
+
+		/** Position of vertex j (as given in the plan) */
+		Position vertex(int j) {
+			return plan != null ? plan.point(j).position() : compact.position(j);
+		}
+
+		/** Position at time t, with the plan interpreted in a linear manner */
+		Position position(double t) {
+			return plan != null ? plan.position(t, true) : compact.positionVelocity(t, true).first;
+		}
+
+		/** Velocity at time t, with the plan interpreted in a linear manner */
+		Velocity velocity(double t) {
+			return plan != null ? plan.velocity(t, true) : compact.positionVelocity(t, true).second;
+		}
+	}
+
 
 	/**
 	 * Returns if there is a conflict between two aircraft: the state
@@ -346,6 +491,10 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 	 * @return true if there is a conflict
 	 */
 	public boolean detectionXYZ(Vect3 so, Velocity vo, double t0, double state_horizon, Plan intent, double B, double T) {
+		return detectionXYZ(so, vo, t0, state_horizon, new PreparedPlan(intent, false), B, T);
+	}
+
+	boolean detectionXYZ(Vect3 so, Velocity vo, double t0, double state_horizon, PreparedPlan intent, double B, double T) {
 		//	  f.pln("cdsicore.detectionXYZ B="+B+" T="+T);
 		tin.clear();
 		tout.clear();
@@ -354,7 +503,6 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 		tca.clear();
 		dist_tca.clear();
 
-		boolean linear = true;     // was Plan.PlanType.LINEAR);
 
 		double t_base;
 		int start_seg;
@@ -382,7 +530,7 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 			// invariant: t0 <= t_base
 
 			Vect3 sop = so.AddScal((t_base - t0),vo);
-			Vect3 sip = intent.position(t_base,linear).point(); // intent.positionXYZ(j).AddScal((t_base - intent.getTime(j)),vi);
+			Vect3 sip = (intent.isCached() && j > start_seg) ? intent.pos[j].point() : intent.position(t_base).point(); // intent.positionXYZ(j).AddScal((t_base - intent.getTime(j)),vi);
 			//      Vect3 s = sop.Sub(sip);
 
 			//      if (allowVariableDistanceBuffer) {
@@ -408,7 +556,10 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 				//        System.out.println("CDSICore.detectionXYZ: vo="+vo+" vi="+intent.initialVelocity(j));
 				if (NT >= 0) {
 					//cdsscore.setTimeHorizon(HT);
-					if (cdsscore.detectionBetween(sop, vo, sip, intent.initialVelocity(j, linear), BT, NT, HT) ) {
+					Velocity vi = intent.initialVelocity(j);
+					if (outsideProtectedVolume(sop, vo, sip, vi, Math.min(HT, NT))) {
+						skipped++;
+					} else if (cdsscore.detectionBetween(sop, vo, sip, vi, BT, NT, HT) ) {
 						// filter out when the start time for searching is the the end time of the conflict
 						if (Math.abs((t0+B) - (cdsscore.getTimeOut()+t_base)) > 0.0000001) { 
 							captureOutput(t_base, j);
@@ -450,6 +601,10 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 	 * @return true if there is a conflict
 	 */
 	public boolean detectionLL(LatLonAlt so, Velocity vo, double t0, double state_horizon, Plan intent, double B, double T) {
+		return detectionLL(so, vo, t0, state_horizon, new PreparedPlan(intent, false), B, T);
+	}
+
+	boolean detectionLL(LatLonAlt so, Velocity vo, double t0, double state_horizon, PreparedPlan intent, double B, double T) {
 		tin.clear();
 		tout.clear();
 		segin.clear();
@@ -457,7 +612,6 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 		tca.clear();
 		dist_tca.clear();
 
-		boolean linear = true;     // was Plan.PlanType.LINEAR);
 
 		double t_base;
 		int start_seg;
@@ -483,7 +637,8 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 			// invariant: t0 <= t_base
 			//System.out.println("GET THIS!!!!! ---> "+so+"  "+vo+"  "+(t_base-t0));      
 			LatLonAlt so2p = GreatCircle.linear_initial(so, vo, t_base-t0);  //CHANGED!!!
-			LatLonAlt sip = intent.position(t_base,linear).lla();
+			boolean cached = intent.isCached() && j > start_seg;
+			LatLonAlt sip = cached ? intent.pos[j].lla() : intent.position(t_base).lla();
 			EuclideanProjection proj = Projection.createProjection(so.zeroAlt()); // CHECK THIS!!!  Should it be so2p?
 			Vect3 so3 = proj.project(so2p);
 			Vect3 si3 = proj.project(sip);      
@@ -496,13 +651,15 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 				//      Velocity vop = vo;
 				//      Velocity vip = intent.initialVelocity(t_base);
 				Velocity vop = proj.projectVelocity(so2p, vo);  //CHANGED!!!
-				Velocity vip = proj.projectVelocity(sip, intent.velocity(t_base, linear));
+				Velocity vip = proj.projectVelocity(sip, cached ? intent.vtx[j] : intent.velocity(t_base));
 				//f.pln("$$ CDSICore LL2 positions: "+so2p+" "+sip);
 				//f.pln("$$ CDSICore LL5 times: BT="+BT+" NT="+NT+" HT="+HT+" cont="+cont);
 				if (NT >= 0) {
 					//f.pln(" $$$$ CDSICore: HT = "+HT+" BT = "+BT+" NT = "+NT);
 					//cd.setTimeHorizon(HT);
-					if ( cdsscore.detectionBetween(so3, vop, si3, vip, BT, NT, HT) ) {  // CHANGED!!!
+					if (outsideProtectedVolume(so3, vop, si3, vip, Math.min(HT, NT))) {
+						skipped++;
+					} else if ( cdsscore.detectionBetween(so3, vop, si3, vip, BT, NT, HT) ) {  // CHANGED!!!
 						// filter out when the start time for searching is the the end time of the conflict
 						if (Math.abs((t0+B) - (cdsscore.getTimeOut()+t_base)) > 0.0000001) { 
 							captureOutput(t_base, j);
@@ -525,6 +682,44 @@ public final class CDSICore implements ErrorReporter, Detection3DAcceptor {
 	}
 
 
+	/**
+	 * Returns true if the core detection is a cylinder and the relative position (so-si)+t*(vo-vi),
+	 * for t in [0,tmax], stays outside a box that encloses the (slightly expanded) cylinder.  In this 
+	 * case detectionBetween(so,vo,si,vi,B,T,HT), with T,HT >= tmax, cannot report a conflict: any 
+	 * reported conflict starts at a time in [0,min(T,HT)]. For other detectors this method returns false.
+	 */
+	private boolean outsideProtectedVolume(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double tmax) {
+		Detection3D cd = cdsscore.getCoreDetection();
+		if (!(cd instanceof CDCylinder)) {
+			return false;
+		}
+		double D = ((CDCylinder)cd).getHorizontalSeparation()*CULL_FACTOR + CULL_TOL;
+		double H = ((CDCylinder)cd).getVerticalSeparation()*CULL_FACTOR + CULL_TOL;
+		double t = Math.max(0.0, tmax);
+		return outside(so.x-si.x, vo.x-vi.x, t, D) || outside(so.y-si.y, vo.y-vi.y, t, D) || outside(so.z-si.z, vo.z-vi.z, t, H);
+	}
+
+	// true if s+t*v, for t in [0,tmax], stays outside the open interval (-d,d)
+	private static boolean outside(double s, double v, double tmax, double d) {
+		double e = s+tmax*v;
+		return Math.min(s, e) >= d || Math.max(s, e) <= -d;
+	}
+
+	/**
+	 * Returns the number of segments, over all calls to detection since this object was created or
+	 * resetSkippedSegments() was called, that were not checked by the core detection because a bounding 
+	 * test showed they could not be in conflict. The test is only applied when the core detection 
+	 * is a CDCylinder.
+	 */
+	public long getSkippedSegments() {
+		return skipped;
+	}
+
+	/** Sets the number of skipped segments to zero */
+	public void resetSkippedSegments() {
+		skipped = 0;
+	}
+
 	private void captureOutput(double t_base, int seg) {
 		segin.add(seg);
 		segout.add(seg);
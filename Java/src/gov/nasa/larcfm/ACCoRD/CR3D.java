@@ -274,9 +274,12 @@ public class CR3D {
    *    @param step     track step [rad] (positive)
    *    @param epsh     horizontal epsilon
    *    
+   * The search performs at most maxtrk/step+1 iterations.
    */
   public static Horizontal losr_trk_iter(Vect3 s, Vect3 vo, Vect3 vi, 
       double minrelgs, double maxtrk, double step, int epsh) {
+    if (step <= 0) 
+      return Horizontal.NoHorizontalSolution;
     Vect2 s2 = s.vect2();
     Vect2 vo2 = vo.vect2();
     Vect2 vi2 = vi.vect2();
@@ -286,7 +289,8 @@ public class CR3D {
     else {
       Vect2 nvo = CriteriaCore.incr_trk_vect(vo2,step,dir);
       if (CriteriaCore.horizontal_repulsive_criterion(s2,vo2,vi2,nvo,epsh)) {
-        for (int i = 1;;i++) {
+        int max_iter = (int)Math.ceil(maxtrk/step)+1;
+        for (int i = 1; i <= max_iter; i++) {
           Vect2 nvop = CriteriaCore.incr_trk_vect(nvo,step,dir);
           boolean repCrit2D = CriteriaCore.horizontal_repulsive_criterion(s2,nvo,vi2,nvop,epsh);
           if (i*step >= maxtrk || !repCrit2D) {
@@ -296,6 +300,7 @@ public class CR3D {
             return new Horizontal(nvop);
           } nvo = nvop; 
         }
+        return new Horizontal(nvo);
       } else {
         return Horizontal.NoHorizontalSolution; 
       }
@@ -304,6 +309,8 @@ public class CR3D {
 
   static Horizontal losr_gs_iter_aux(Vect3 s, Vect3 vo, Vect3 vi, 
       double minrelgs, double mings, double maxgs, double step, int epsh) {
+    if (step <= 0) 
+      return Horizontal.NoHorizontalSolution;
     Vect2 s2 = s.vect2();
     Vect2 vo2 = vo.vect2();
     Vect2 vi2 = vi.vect2();
@@ -313,8 +320,10 @@ public class CR3D {
     else {
       Vect2 nvo = CriteriaCore.incr_gs_vect(vo2,step,dir);
       if (CriteriaCore.horizontal_repulsive_criterion(s2,vo2,vi2,nvo,epsh)) {
-        //        for (int i = 1;;i++) { // replace with while(true) to avoid warnings
-        while (true) {
+        // the ground speed changes by step at each iteration, so the search leaves [mings,maxgs] 
+        // after at most (maxgs-mings)/step+2 iterations
+        int max_iter = (int)Math.ceil((maxgs-mings)/step)+2;
+        for (int i = 1; i <= max_iter; i++) {
           Vect2 nvop = CriteriaCore.incr_gs_vect(nvo,step,dir);
           double nnorm = nvo.norm()+dir*step;
           boolean repCrit2D = CriteriaCore.horizontal_repulsive_criterion(s2,nvo,vi2,nvop,epsh);
@@ -328,6 +337,7 @@ public class CR3D {
           } 
           nvo = nvop; 
         }  
+        return new Horizontal(nvo);
       } else {
         return Horizontal.NoHorizontalSolution; 
       }
@@ -20,6 +20,9 @@ package gov.nasa.larcfm.ACCoRD;
 import static gov.nasa.larcfm.ACCoRD.Consts.*;
 import gov.nasa.larcfm.Util.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Conflict resolution.<p>
  * 
@@ -40,6 +43,9 @@ public class CRSS {
   /** The minimum vertical distance */
   private double H;
 
+  /** Factor applied to D and H when checking maneuvers that lie on the boundary of a conflict region */
+  private static final double FEASIBLE_FACTOR = 0.9999;
+
   //  private double Th_los = -1.0;    // RWB   if negative not used; use CR3D rather than CR3D_RWB
   //  private double Tv_los = -1.0;    // RWB
 
@@ -302,6 +308,191 @@ public class CRSS {
     return resolution(s,vo,vi,epsh,epsv);
   }
 
+  /**
+   * Computes resolution maneuvers for the ownship that are feasible with respect to all the given 
+   * intruders. For each intruder that is not in loss of separation, the tangent maneuvers on both sides 
+   * of its conflict region, and the maneuvers that reach its protected zone at time T, are computed. These are the boundaries of the set of maneuvers that are in 
+   * conflict with that intruder, so the closest maneuver to the current ownship velocity in the combined 
+   * feasible set is among them. For each intruder in loss of separation, the coordinated loss of 
+   * separation maneuvers are computed as in the pairwise case. A maneuver is feasible if it is 
+   * conflict free, within [0,T], with every intruder that is not in loss of separation, and satisfies 
+   * the repulsive criteria with every intruder that is in loss of separation. Since tangent maneuvers 
+   * lie on the boundary of a conflict region, conflicts are checked against slightly reduced distances.
+   * For each kind of maneuver (track, ground speed, optimal, vertical speed, speed), the feasible maneuver 
+   * closest to the current ownship velocity is selected, and it is available through the same methods 
+   * as in the pairwise case (hasTrkOnly, trkOnly, etc.). The optimal maneuver is selected among all 
+   * feasible horizontal maneuvers. 
+   * 
+   * @param so      the ownship's position
+   * @param vo      the ownship's velocity
+   * @param si      the intruders' positions
+   * @param vi      the intruders' velocities
+   * @param ownship the ownship id
+   * @param traffic the intruders' ids
+   * @param T       lookahead time [s]
+   * 
+   * @return type of resolution maneuvers as follows:
+   * <ul>
+   * <li> LoSDivg (3)-- Loss of separation resolution, the ownship is diverging from every intruder in loss of separation
+   * <li> LoSConv (2) -- Loss of separation resolution
+   * <li> None (-1)-- No resolution available
+   * <li> Conflict (1) -- Conflict resolution
+   * <li> Unnecessary (0) -- Conflict resolution is not needed
+   * </ul>
+   */
+  public int resolution(Vect3 so, Velocity vo, List<Vect3> si, List<Velocity> vi, 
+      String ownship, List<String> traffic, double T) {
+    trk_only = gs_only  = opt_trk  = opt_gs = vs_only = 0;
+    vel_gs = vel_vs = 0;
+    cr.trk = cr.gs = cr.opt = Horizontal.NoHorizontalSolution;
+    cr.vs = Vertical.NoVerticalSolution;
+    cr.vel = HorizontalAndVertical.NoHorizontalAndVerticalSolution;
+    int n = si.size();
+    Vect2 vo2 = vo.vect2();
+    Vect3[] s = new Vect3[n];
+    int[] epsh = new int[n];
+    int[] epsv = new int[n];
+    boolean[] los = new boolean[n];
+    boolean anylos = false;
+    boolean divergent = true;
+    boolean conflict = false;
+    List<Horizontal> trks = new ArrayList<Horizontal>();
+    List<Horizontal> gss = new ArrayList<Horizontal>();
+    List<Horizontal> opts = new ArrayList<Horizontal>();
+    List<Vertical> vss = new ArrayList<Vertical>();
+    List<HorizontalAndVertical> vels = new ArrayList<HorizontalAndVertical>();
+    CDCylinder cd = new CDCylinder();
+    CR3D cri = new CR3D();
+    for (int j = 0; j < n; j++) {
+      Velocity vij = vi.get(j);
+      s[j] = so.Sub(si.get(j));
+      Vect3 v = vo.Sub(vij);
+      epsh[j] = CriteriaCore.horizontalCoordination(s[j],v);
+      epsv[j] = CriteriaCore.verticalCoordination(s[j],vo,vij,D,H,ownship,traffic.get(j));
+      los[j] = CD3D.LoS(s[j],D,H);
+      if (los[j]) {
+        anylos = conflict = true;
+        divergent = divergent && s[j].dot(v) > 0;
+        cri.cr3d_repulsive(s[j],vo,vij,D,H,minHorizExitSpeedLoS,minVertExitSpeedLoS,minGs,maxGs,maxVs,epsh[j],epsv[j]);
+        addCandidates(cri,trks,gss,opts,vss,vels);
+      } else {
+        conflict = conflict || cd.conflict(so,vo,si.get(j),vij,D,H,0,T);
+        // Boundaries of the conflict region of this intruder, on both sides. Both roots of the 
+        // track equations are kept, since the conflict region may split the track circle in several arcs.
+        for (int eh = -1; eh <= 1; eh += 2) {
+          TangentLine nv = new TangentLine(s[j].vect2(),D,eh);
+          for (int irt = -1; irt <= 1; irt += 2) {
+            addHorizontal(trks,Horizontal.trk_line_irt(nv,vo2,vij.vect2(),irt));
+            // Maneuvers that reach the horizontal boundary, entering or exiting, at lookahead time
+            addHorizontal(trks,Horizontal.trk_only_circle(s[j].vect2(),vo2,vij.vect2(),T,eh,irt,D));
+            addHorizontal(gss,Horizontal.gs_only_circle(s[j].vect2(),vo2,vij.vect2(),T,eh,irt,D));
+          }
+          for (int ev = -1; ev <= 1; ev += 2) {
+            cri.cr(s[j],vo,vij,D,H,eh,ev);
+            addCandidates(cri,trks,gss,opts,vss,vels);
+            for (int irt = -1; irt <= 1; irt += 2) {
+              addHorizontal(trks,Horizontal.trk_vertical_irt(s[j],vo,vij,nv,ev,irt,D,H));
+            }
+          }
+        }
+      }
+    }
+    if (!conflict) {
+      cr.trk = cr.gs = cr.opt = new Horizontal(vo2);
+      cr.vs = new Vertical(vo.z);
+      trk_only = opt_trk = vo.compassAngle();
+      gs_only = opt_gs = vo.gs();
+      vs_only = vo.z;
+      return Unnecessary;
+    }
+    for (Horizontal h : trks) {
+      if (feasible(so,vo,Velocity.mkVxyz(h.x,h.y,vo.z),si,vi,s,epsh,epsv,los,cd,T)) {
+        cr.trk = Horizontal.best_horizontal(vo2,cr.trk,h);
+        cr.opt = Horizontal.best_horizontal(vo2,cr.opt,h);
+      }
+    }
+    for (Horizontal h : gss) {
+      if (feasible(so,vo,Velocity.mkVxyz(h.x,h.y,vo.z),si,vi,s,epsh,epsv,los,cd,T)) {
+        cr.gs = Horizontal.best_horizontal(vo2,cr.gs,h);
+        cr.opt = Horizontal.best_horizontal(vo2,cr.opt,h);
+      }
+    }
+    for (Horizontal h : opts) {
+      if (feasible(so,vo,Velocity.mkVxyz(h.x,h.y,vo.z),si,vi,s,epsh,epsv,los,cd,T)) {
+        cr.opt = Horizontal.best_horizontal(vo2,cr.opt,h);
+      }
+    }
+    for (Vertical vz : vss) {
+      if ((cr.vs.undef() || Math.abs(vz.z-vo.z) < Math.abs(cr.vs.z-vo.z)) && 
+          feasible(so,vo,Velocity.mkVxyz(vo.x,vo.y,vz.z),si,vi,s,epsh,epsv,los,cd,T)) {
+        cr.vs = vz;
+      }
+    }
+    for (HorizontalAndVertical hv : vels) {
+      if ((cr.vel.undef() || hv.Sub(vo).norm() < cr.vel.Sub(vo).norm()) && 
+          feasible(so,vo,Velocity.make(hv),si,vi,s,epsh,epsv,los,cd,T)) {
+        cr.vel = hv;
+      }
+    }
+    if (!cr.trk.undef())
+      trk_only = cr.trk.compassAngle();
+    if (!cr.gs.undef()) 
+      gs_only = cr.gs.norm();
+    if (!cr.opt.undef()) {
+      opt_trk = cr.opt.compassAngle();
+      opt_gs  = cr.opt.norm();
+    } 
+    if (!cr.vs.undef()) {
+      vs_only = Util.discretizeDir(vo.z,cr.vs.z,vsDiscretization);
+    }
+    if (!cr.vel.undef()) {
+      vel_gs = cr.vel.vect2().norm();
+      vel_vs = cr.vel.z;
+    }
+    if (cr.trk.undef() && cr.gs.undef() && cr.opt.undef() && cr.vs.undef() && 
+        (!ACCoRDConfig.allowSpeedOnlyResolutions || cr.vel.undef())) {
+      return None;
+    }
+    if (anylos) {
+      return divergent ? LoSDivg : LoSConv;
+    }
+    return Conflict;
+  }
+
+  private static void addHorizontal(List<Horizontal> hs, Horizontal h) {
+    if (!h.undef()) hs.add(h);
+  }
+
+  private static void addCandidates(CR3D cri, List<Horizontal> trks, List<Horizontal> gss, List<Horizontal> opts,
+      List<Vertical> vss, List<HorizontalAndVertical> vels) {
+    if (!cri.trk.undef()) trks.add(cri.trk);
+    if (!cri.gs.undef()) gss.add(cri.gs);
+    if (!cri.opt.undef()) opts.add(cri.opt);
+    if (!cri.vs.undef()) vss.add(cri.vs);
+    if (!cri.vel.undef()) vels.add(cri.vel);
+  }
+
+  /**
+   * Returns true if the new ownship velocity nvo is conflict free with every intruder not in loss of separation, 
+   * and satisfies the repulsive criteria with every intruder in loss of separation. Conflicts are checked 
+   * against distances reduced by the factor FEASIBLE_FACTOR, so that tangent maneuvers are feasible.
+   */
+  private boolean feasible(Vect3 so, Velocity vo, Velocity nvo, List<Vect3> si, List<Velocity> vi, 
+      Vect3[] s, int[] epsh, int[] epsv, boolean[] los, CDCylinder cd, double T) {
+    double Dr = FEASIBLE_FACTOR*D;
+    double Hr = FEASIBLE_FACTOR*H;
+    for (int j = 0; j < s.length; j++) {
+      if (los[j]) {
+        if (!CriteriaCore.criteria(s[j],vo,vi.get(j),nvo,minVertExitSpeedLoS,D,H,epsh[j],epsv[j])) {
+          return false;
+        }
+      } else if (cd.conflict(so,nvo,si.get(j),vi.get(j),Dr,Hr,0,T)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Checks if a track maneuver was found.
    * 
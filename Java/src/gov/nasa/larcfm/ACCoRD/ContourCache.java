@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import gov.nasa.larcfm.Util.ParameterData;
+import gov.nasa.larcfm.Util.Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Memo of horizontal contours (see Daidalus.horizontalContours), keyed by intruder identifier and alert level.<p>
+ *
+ * An entry is only used if the ownship and intruder states are the same objects (TrafficState objects are immutable,
+ * and new ones are created whenever states change), and if the detector (class and parameters), track step,
+ * lookahead time, and horizontal contour threshold are the same. Entries that have not been used with the current
+ * or the previous ownship state are dropped.<p>
+ *
+ * In incremental mode, when an entry cannot be used, the tracks that were in conflict in the previous computation
+ * of the same intruder and alert level are used to skip part of the search for contours away from the current track:
+ * tracks that are more than getIncrementalMargin() track steps away from every previous conflict track
+ * are assumed to be conflict free. The whole search is done when there were no previous conflict tracks, and after
+ * getIncrementalRefresh() consecutive incremental computations. This is an approximation: contours that appear
+ * away from the previous ones may be missed until the next whole search. The contour that contains the current
+ * track is always computed.<p>
+ *
+ * Objects of this class are not thread safe.
+ */
+public final class ContourCache {
+
+  private static final class Key {
+    final String id;
+    final int alert_level;
+
+    Key(String id, int alert_level) {
+      this.id = id;
+      this.alert_level = alert_level;
+    }
+
+    public int hashCode() {
+      return 31*id.hashCode() + alert_level;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key k = (Key)o;
+      return alert_level == k.alert_level && id.equals(k.id);
+    }
+  }
+
+  private static final class Entry {
+    final TrafficState own;
+    final TrafficState ac;
+    final String detector_class;
+    final ParameterData detector_params;
+    final double step;
+    final double lookahead;
+    final double threshold;
+    final List<List<Position>> blobs;
+    final double[] conflict_trks; // Sorted conflict tracks [0,2pi) of the contours
+    final int incremental_count; // Number of consecutive incremental computations
+
+    Entry(TrafficState own, TrafficState ac, String detector_class, ParameterData detector_params,
+        double step, double lookahead, double threshold, List<List<Position>> blobs, double[] conflict_trks,
+        int incremental_count) {
+      this.own = own;
+      this.ac = ac;
+      this.detector_class = detector_class;
+      this.detector_params = detector_params;
+      this.step = step;
+      this.lookahead = lookahead;
+      this.threshold = threshold;
+      this.blobs = blobs;
+      this.conflict_trks = conflict_trks;
+      this.incremental_count = incremental_count;
+    }
+
+    boolean sameParameters(String detector_class, ParameterData detector_params,
+        double step, double lookahead, double threshold) {
+      return this.step == step && this.lookahead == lookahead && this.threshold == threshold &&
+          this.detector_class.equals(detector_class) && this.detector_params.equals(detector_params);
+    }
+  }
+
+  private final HashMap<Key,Entry> memo = new HashMap<Key,Entry>();
+  private TrafficState ownship = TrafficState.INVALID;
+  private TrafficState prev_ownship = TrafficState.INVALID;
+  private boolean incremental = false;
+  private int margin = 3;
+  private int refresh = 10;
+  private long hits = 0;
+  private long misses = 0;
+
+  /** Return true if incremental mode is enabled */
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /** Enable or disable incremental mode (disabled by default) */
+  public void setIncremental(boolean flag) {
+    incremental = flag;
+  }
+
+  /** Number of track steps around previous conflict tracks that are searched in incremental mode */
+  public int getIncrementalMargin() {
+    return margin;
+  }
+
+  /** Set number of track steps around previous conflict tracks that are searched in incremental mode (at least 1) */
+  public void setIncrementalMargin(int steps) {
+    margin = Math.max(1,steps);
+  }
+
+  /** Maximum number of consecutive incremental computations of the contours of an aircraft */
+  public int getIncrementalRefresh() {
+    return refresh;
+  }
+
+  /** Set maximum number of consecutive incremental computations of the contours of an aircraft (at least 1) */
+  public void setIncrementalRefresh(int n) {
+    refresh = Math.max(1,n);
+  }
+
+  // Track the ownship state, and drop entries that were not used with the current or the previous ownship state
+  private void updateOwnship(TrafficState own) {
+    if (own == ownship) {
+      return;
+    }
+    prev_ownship = ownship;
+    ownship = own;
+    Iterator<Entry> it = memo.values().iterator();
+    while (it.hasNext()) {
+      Entry e = it.next();
+      if (e.own != ownship && e.own != prev_ownship) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Copy into blobs the contours of ac for the given alert level, and return true, if they are in the cache.
+   * Otherwise, return false and leave blobs unchanged.
+   */
+  boolean lookup(List<List<Position>> blobs, TrafficState own, TrafficState ac, int alert_level, Detection3D detector,
+      ParameterData detector_params, double step, double lookahead, double threshold) {
+    updateOwnship(own);
+    Entry e = memo.get(new Key(ac.getId(),alert_level));
+    if (e != null && e.own == own && e.ac == ac &&
+        e.sameParameters(detector.getCanonicalClassName(),detector_params,step,lookahead,threshold)) {
+      ++hits;
+      for (List<Position> blob : e.blobs) {
+        blobs.add(new ArrayList<Position>(blob));
+      }
+      return true;
+    }
+    ++misses;
+    return false;
+  }
+
+  /**
+   * In incremental mode, return the sorted conflict tracks of the previous contours of ac for the given alert level,
+   * if they were computed with the same parameters, there was at least one, and the limit of consecutive incremental
+   * computations has not been reached. Otherwise, return null.
+   */
+  double[] previousConflictTracks(TrafficState ac, int alert_level, Detection3D detector,
+      ParameterData detector_params, double step, double lookahead, double threshold) {
+    if (!incremental) {
+      return null;
+    }
+    Entry e = memo.get(new Key(ac.getId(),alert_level));
+    if (e != null && e.conflict_trks.length > 0 && e.incremental_count < refresh &&
+        e.sameParameters(detector.getCanonicalClassName(),detector_params,step,lookahead,threshold)) {
+      return e.conflict_trks;
+    }
+    return null;
+  }
+
+  /**
+   * Store the contours of ac for the given alert level, and the tracks [0,2pi) that were found in conflict.
+   * The contours were computed incrementally when incremental is true.
+   */
+  void store(List<List<Position>> blobs, List<Double> conflict_trks, boolean incremental, TrafficState own, 
+      TrafficState ac, int alert_level, Detection3D detector, ParameterData detector_params, double step,
+      double lookahead, double threshold) {
+    updateOwnship(own);
+    Key key = new Key(ac.getId(),alert_level);
+    Entry prev = memo.get(key);
+    int count = incremental && prev != null ? prev.incremental_count+1 : 0;
+    List<List<Position>> copy = new ArrayList<List<Position>>(blobs.size());
+    for (List<Position> blob : blobs) {
+      copy.add(new ArrayList<Position>(blob));
+    }
+    double[] trks = new double[conflict_trks.size()];
+    for (int i=0; i < trks.length; ++i) {
+      trks[i] = conflict_trks.get(i);
+    }
+    Arrays.sort(trks);
+    memo.put(key,new Entry(own,ac,detector.getCanonicalClassName(),detector_params,
+        step,lookahead,threshold,copy,trks,count));
+  }
+
+  /**
+   * Return true if track trk [0,2pi) is within distance d [rad] of some track in the sorted array trks.
+   */
+  static boolean nearTrack(double[] trks, double trk, double d) {
+    if (trks.length == 0) {
+      return false;
+    }
+    int i = Arrays.binarySearch(trks,trk);
+    if (i >= 0) {
+      return true;
+    }
+    i = -i-1; // trks[i-1] < trk < trks[i], indices modulo length
+    double above = i < trks.length ? trks[i]-trk : trks[0]+2*Math.PI-trk;
+    double below = i > 0 ? trk-trks[i-1] : trk+2*Math.PI-trks[trks.length-1];
+    return Math.min(above,below) <= d;
+  }
+
+  /**
+   * Drop all entries. Hit and miss counters are not changed.
+   */
+  public void clear() {
+    memo.clear();
+    ownship = TrafficState.INVALID;
+    prev_ownship = TrafficState.INVALID;
+  }
+
+  /** Number of contours found in the cache */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Number of contours computed */
+  public long getMisses() {
+    return misses;
+  }
+
+  public void resetCounters() {
+    hits = 0;
+    misses = 0;
+  }
+
+  /** Number of entries in the cache */
+  public int size() {
+    return memo.size();
+  }
+
+  public String toString() {
+    return "ContourCache: entries = "+memo.size()+" hits = "+hits+" misses = "+misses+
+        (incremental ? " (incremental, margin = "+margin+", refresh = "+refresh+")" : "");
+  }
+
+}
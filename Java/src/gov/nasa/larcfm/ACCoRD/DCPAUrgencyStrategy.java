@@ -23,6 +23,15 @@ public class DCPAUrgencyStrategy implements UrgencyStrategy {
    */
 
   public TrafficState mostUrgentAircraft(Detection3D detector, TrafficState ownship, List<TrafficState> traffic, double T) {
+    return mostUrgentAircraft(detector,ownship,traffic,T,null);
+  }
+
+  /**
+   * @return most urgent traffic aircraft given for ownship, traffic and lookahead time T. Conflict detections
+   * are taken from cache, when it is not null.
+   */
+  public TrafficState mostUrgentAircraft(Detection3D detector, TrafficState ownship, List<TrafficState> traffic, double T, 
+      DetectionCache cache) {
     TrafficState repac = TrafficState.INVALID;
     if (!ownship.isValid() || traffic.isEmpty()) {
       return repac;
@@ -38,7 +47,8 @@ public class DCPAUrgencyStrategy implements UrgencyStrategy {
       Velocity vi = traffic.get(ac).get_v();
       Vect3 s = so.Sub(si);
       Velocity v = vo.Sub(vi);
-      ConflictData det = detector.conflictDetection(so,vo,si,vi,0,T); 
+      ConflictData det = cache != null ? cache.conflictDetection(detector,ownship,traffic.get(ac),0,T) : 
+        detector.conflictDetection(so,vo,si,vi,0,T); 
       if (det.conflict()) {  
         double tcpa = CD3D.tccpa(s,vo,vi,D,H);
         double dcpa = v.ScalAdd(tcpa,s).cyl_norm(D,H); 
@@ -20,12 +20,15 @@ import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import gov.nasa.larcfm.Util.Constants;
 import gov.nasa.larcfm.Util.ErrorLog;
 import gov.nasa.larcfm.Util.ErrorReporter;
-import gov.nasa.larcfm.Util.LossData;
+import gov.nasa.larcfm.Util.ParameterData;
 import gov.nasa.larcfm.Util.Position;
+import gov.nasa.larcfm.Util.Util;
 import gov.nasa.larcfm.Util.Vect3;
 import gov.nasa.larcfm.Util.Velocity;
 
@@ -36,8 +39,15 @@ public class Daidalus implements ErrorReporter {
 	private double current_time_; // Current time
 	private Velocity wind_vector_; // Wind information
 	private UrgencyStrategy urgency_strat_; // Strategy for most urgent aircraft
+	private DetectionCache detection_cache_; // Memo of conflict detections for current states (null if disabled)
+	private ContourCache contour_cache_; // Memo of horizontal contours (null if disabled)
 	private ErrorLog error = new ErrorLog("Daidalus");
 
+	/**
+	 * Minimum number of traffic aircraft per processor for alertingAll to process aircraft in parallel
+	 */
+	public static final int PARALLEL_ALERTING_TRAFFIC = 16;
+
 	/**
 	 * Parameter values for Daidalus object
 	 */
@@ -56,6 +66,8 @@ public class Daidalus implements ErrorReporter {
 		current_time_ = 0;
 		ownship_ = TrafficState.INVALID;
 		traffic_ = new ArrayList<TrafficState>();
+		detection_cache_ = null;
+		contour_cache_ = null;
 		set_WC_SC_228_MOPS();
 	}
 
@@ -71,6 +83,15 @@ public class Daidalus implements ErrorReporter {
 		ownship_ = daa.ownship_;
 		traffic_ = new ArrayList<TrafficState>();
 		traffic_.addAll(daa.traffic_);
+		detection_cache_ = daa.detection_cache_ != null ? new DetectionCache() : null;
+		if (daa.contour_cache_ != null) {
+			contour_cache_ = new ContourCache();
+			contour_cache_.setIncremental(daa.contour_cache_.isIncremental());
+			contour_cache_.setIncrementalMargin(daa.contour_cache_.getIncrementalMargin());
+			contour_cache_.setIncrementalRefresh(daa.contour_cache_.getIncrementalRefresh());
+		} else {
+			contour_cache_ = null;
+		}
 	}
 	
 	/*  
@@ -112,6 +133,70 @@ public class Daidalus implements ErrorReporter {
 		traffic_.clear();
 		wind_vector_ = Velocity.ZERO;
 		current_time_ = 0;
+		if (detection_cache_ != null) {
+			detection_cache_.clear();
+		}
+	}
+
+	/**
+	 * Enable or disable the memo of conflict detections. When enabled, a detection between the ownship 
+	 * and an aircraft, for a given detector and time interval, is computed once for the current states and 
+	 * reused by alerting, detection, most urgent aircraft, and bands. The memo is invalidated when
+	 * aircraft states change. Detectors of the alertor should not be modified while the memo is enabled,
+	 * unless clearDetectionCache() is called afterwards.
+	 */
+	public void setDetectionCache(boolean flag) {
+		if (!flag) {
+			detection_cache_ = null;
+		} else if (detection_cache_ == null) {
+			detection_cache_ = new DetectionCache();
+		}
+	}
+
+	/**
+	 * @return memo of conflict detections (for hit and miss counters), or null if it is disabled.
+	 */
+	public DetectionCache getDetectionCache() {
+		return detection_cache_;
+	}
+
+	/**
+	 * Drop all entries of the memo of conflict detections, if it is enabled.
+	 */
+	public void clearDetectionCache() {
+		if (detection_cache_ != null) {
+			detection_cache_.clear();
+		}
+	}
+
+	/**
+	 * Enable or disable the memo of horizontal contours. When enabled, the contours of an aircraft for a given 
+	 * alert level are computed once for the current states and parameters, and are reused by later calls to 
+	 * horizontalContours. The memo is kept by reset(), so that contours of the previous states can be used 
+	 * by the incremental mode, see ContourCache.
+	 */
+	public void setContourCache(boolean flag) {
+		if (!flag) {
+			contour_cache_ = null;
+		} else if (contour_cache_ == null) {
+			contour_cache_ = new ContourCache();
+		}
+	}
+
+	/**
+	 * @return memo of horizontal contours (for incremental mode and hit and miss counters), or null if it is disabled.
+	 */
+	public ContourCache getContourCache() {
+		return contour_cache_;
+	}
+
+	/**
+	 * Drop all entries of the memo of horizontal contours, if it is enabled.
+	 */
+	public void clearContourCache() {
+		if (contour_cache_ != null) {
+			contour_cache_.clear();
+		}
 	}
 
 	/**
@@ -335,6 +420,46 @@ public class Daidalus implements ErrorReporter {
 		return alerting(ac_idx,0,0,0);
 	}
 
+	/** 
+	 * Computes alert levels, times to violation, and conflict detections for all alert levels, of all 
+	 * traffic aircraft for current aircraft states, in the order of their indices, see TrafficAlert.
+	 * The result is the same as calling alerting(ac_idx,turning,accelerating,climbing), timeToViolation(ac_idx),
+	 * and detection(ac_idx,alert_level) for every aircraft, but alert levels with identical detectors share 
+	 * detections and, when there are at least PARALLEL_ALERTING_TRAFFIC traffic aircraft per available processor,
+	 * aircraft are processed in parallel.
+	 */
+	public List<TrafficAlert> alertingAll(int turning, int accelerating, int climbing) {
+		if (lastTrafficIndex() < 0) {
+			error.addError("alertingAll: ownship has not been set");
+			return new ArrayList<TrafficAlert>();
+		}
+		KinematicMultiBands kb = getKinematicMultiBands();
+		int tasks = Math.min(Runtime.getRuntime().availableProcessors(),traffic_.size()/PARALLEL_ALERTING_TRAFFIC);
+		if (tasks <= 1) {
+			return kb.trafficAlerts(traffic_,1,turning,accelerating,climbing);
+		}
+		List<List<TrafficAlert>> parts = IntStream.range(0,tasks).parallel().mapToObj(task -> {
+			int from = task*traffic_.size()/tasks;
+			int to = (task+1)*traffic_.size()/tasks;
+			KinematicMultiBands kbt = new KinematicMultiBands(kb);
+			kbt.setDetectionCache(null); // The detection cache is not thread safe
+			return kbt.trafficAlerts(traffic_.subList(from,to),from+1,turning,accelerating,climbing);
+		}).collect(Collectors.toList());
+		List<TrafficAlert> alerts = new ArrayList<TrafficAlert>(traffic_.size());
+		for (List<TrafficAlert> part : parts) {
+			alerts.addAll(part);
+		}
+		return alerts;
+	}
+
+	/** 
+	 * Computes alert levels, times to violation, and conflict detections for all alert levels, of all 
+	 * traffic aircraft for current aircraft states. See alertingAll(int,int,int).
+	 */
+	public List<TrafficAlert> alertingAll() {
+		return alertingAll(0,0,0);
+	}
+
 	/**
 	 * Detects conflict with aircraft at index ac_idx for given alert level. 
 	 * Conflict data provides time to first violation and time to last violation 
@@ -344,6 +469,9 @@ public class Daidalus implements ErrorReporter {
 		Optional<Detection3D> detector = parameters.alertor.detector(alert_level);
 		if (1 <= ac_idx && ac_idx <= lastTrafficIndex() && detector.isPresent()) {
 			TrafficState ac = traffic_.get(ac_idx-1);
+			if (detection_cache_ != null) {
+				return detection_cache_.conflictDetection(detector.get(),ownship_,ac,0,parameters.getLookaheadTime());
+			}
 			return detector.get().conflictDetection(ownship_.get_s(),ownship_.get_v(),ac.get_s(),ac.get_v(),
 					0,parameters.getLookaheadTime());
 		} else {
@@ -390,6 +518,7 @@ public class Daidalus implements ErrorReporter {
 			KinematicMultiBands bands = new KinematicMultiBands(parameters); 
 			bands.setOwnship(ownship_);
 			bands.setTraffic(traffic_);
+			bands.setDetectionCache(detection_cache_);
 			bands.setMostUrgentAircraft(mostUrgentAircraft());
 			return bands;
 		}
@@ -438,7 +567,7 @@ public class Daidalus implements ErrorReporter {
 	public TrafficState mostUrgentAircraft(int alert_level) {
 		Optional<Detection3D> detector = parameters.alertor.detector(alert_level);    
 		if (lastTrafficIndex() > 0 && detector.isPresent()) {
-			return urgency_strat_.mostUrgentAircraft(detector.get(),ownship_,traffic_,parameters.getLookaheadTime());
+			return urgency_strat_.mostUrgentAircraft(detector.get(),ownship_,traffic_,parameters.getLookaheadTime(),detection_cache_);
 		} else {
 			return TrafficState.INVALID;
 		}
@@ -466,7 +595,8 @@ public class Daidalus implements ErrorReporter {
 	/**
 	 * Computes horizontal contours contributed by aircraft at index ac_idx, for 
 	 * given alert level. A contour is a non-empty list of points in counter-clockwise 
-	 * direction representing a polygon.   
+	 * direction representing a polygon. When the contour cache is enabled, contours are
+	 * computed once for the current aircraft states and parameters (see ContourCache).
 	 * @param blobs list of track contours returned by reference.
 	 * @param ac_idx is the index of the aircraft used to compute the contours.
 	 */
@@ -474,88 +604,133 @@ public class Daidalus implements ErrorReporter {
 		Optional<Detection3D> detector = parameters.alertor.detector(alert_level);    
 		blobs.clear();
 		if (1 <= ac_idx && ac_idx <= lastTrafficIndex() && detector.isPresent()) {
-			Deque<Position> vin = new ArrayDeque<Position>();
-			Position po = ownship_.getPosition();
-			Velocity vo = ownship_.getVelocity();
 			TrafficState intruder = traffic_.get(ac_idx-1);
-			Vect3 si = intruder.get_s();
-			Velocity vi = intruder.get_v();
-			double current_trk = vo.trk();
-			Deque<Position> vout = new ArrayDeque<Position>();
-			/* First step: Computes conflict contour (contour in the current path of the aircraft).
-			 * Get contour portion to the right.  If los.getTimeIn() == 0, a 360 degree
-			 * contour will be computed. Otherwise, stops at the first non-conflict degree.
-			 */
-			double right = 0; // Contour conflict limit to the right relative to current track  [0-2pi rad]
-			double two_pi = 2*Math.PI;
-			for (; right < two_pi; right += parameters.getTrackStep()) {
-				Velocity vop = vo.mkTrk(current_trk+right);
-				LossData los = detector.get().conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
-						0,parameters.getLookaheadTime());
+			if (contour_cache_ == null) {
+				horizontal_contours(blobs,intruder,detector.get(),null,null);
+				return;
+			}
+			ParameterData detector_params = detector.get().getParameters();
+			double step = parameters.getTrackStep();
+			double T = parameters.getLookaheadTime();
+			double threshold = parameters.getHorizontalContourThreshold();
+			if (!contour_cache_.lookup(blobs,ownship_,intruder,alert_level,detector.get(),detector_params,step,T,threshold)) {
+				double[] previous = contour_cache_.previousConflictTracks(intruder,alert_level,detector.get(),
+						detector_params,step,T,threshold);
+				List<Double> conflict_trks = new ArrayList<Double>();
+				horizontal_contours(blobs,intruder,detector.get(),previous,conflict_trks);
+				contour_cache_.store(blobs,conflict_trks,previous != null,ownship_,intruder,alert_level,detector.get(),
+						detector_params,step,T,threshold);
+			}
+		} else {
+			error.addError("trackContour: aircraft index "+ac_idx+" is out of bounds");
+		}
+	}
+
+	/**
+	 * Adds to blobs the horizontal contours of intruder for the given detector. Tracks [0,2pi) in conflict are added to
+	 * conflict_trks, if it is not null. If previous is not null, the search for contours away from the current track
+	 * skips tracks that are far from the (sorted) tracks in previous, see ContourCache.
+	 */
+	private void horizontal_contours(List<List<Position>>blobs, TrafficState intruder, Detection3D detector,
+			double[] previous, List<Double> conflict_trks) {
+		Deque<Position> vin = new ArrayDeque<Position>();
+		Position po = ownship_.getPosition();
+		Velocity vo = ownship_.getVelocity();
+		Vect3 si = intruder.get_s();
+		Velocity vi = intruder.get_v();
+		double current_trk = vo.trk();
+		Deque<Position> vout = new ArrayDeque<Position>();
+		MutableConflictData los = new MutableConflictData();
+		double margin = previous == null ? 0 : contour_cache_.getIncrementalMargin()*parameters.getTrackStep();
+		/* First step: Computes conflict contour (contour in the current path of the aircraft).
+		 * Get contour portion to the right.  If los.getTimeIn() == 0, a 360 degree
+		 * contour will be computed. Otherwise, stops at the first non-conflict degree.
+		 */
+		double right = 0; // Contour conflict limit to the right relative to current track  [0-2pi rad]
+		double two_pi = 2*Math.PI;
+		for (; right < two_pi; right += parameters.getTrackStep()) {
+			Velocity vop = vo.mkTrk(current_trk+right);
+			detector.conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
+					0,parameters.getLookaheadTime(),los);
+			if ( !los.conflict() ) {
+				break;
+			}
+			add_conflict_trk(conflict_trks,current_trk+right);
+			if (los.getTimeIn() != 0 ) {
+				// if not in los, add position at time in (counter clock-wise)
+				vin.addLast(po.linear(vop,los.getTimeIn()));
+			}
+			// in any case, add position ad time out (counter clock-wise)
+			vout.addFirst(po.linear(vop,los.getTimeOut()));
+		}
+		/* Second step: Compute conflict contour to the left */
+		double left = 0;  // Contour conflict limit to the left relative to current track [0-2pi rad]
+		if (0 < right && right < two_pi) {
+			/* There is a conflict contour, but not a violation */
+			for (left = parameters.getTrackStep(); left < two_pi; left += parameters.getTrackStep()) {
+				Velocity vop = vo.mkTrk(current_trk-left);
+				detector.conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
+						0,parameters.getLookaheadTime(),los);
 				if ( !los.conflict() ) {
 					break;
 				}
-				if (los.getTimeIn() != 0 ) {
-					// if not in los, add position at time in (counter clock-wise)
-					vin.addLast(po.linear(vop,los.getTimeIn()));
-				}
-				// in any case, add position ad time out (counter clock-wise)
-				vout.addFirst(po.linear(vop,los.getTimeOut()));
+				add_conflict_trk(conflict_trks,current_trk-left);
+				vin.addFirst(po.linear(vop,los.getTimeIn()));
+				vout.addLast(po.linear(vop,los.getTimeOut()));
 			}
-			/* Second step: Compute conflict contour to the left */
-			double left = 0;  // Contour conflict limit to the left relative to current track [0-2pi rad]
-			if (0 < right && right < two_pi) {
-				/* There is a conflict contour, but not a violation */
-				for (left = parameters.getTrackStep(); left < two_pi; left += parameters.getTrackStep()) {
-					Velocity vop = vo.mkTrk(current_trk-left);
-					LossData los = detector.get().conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
-							0,parameters.getLookaheadTime());
-					if ( !los.conflict() ) {
+		}
+		add_blob(blobs,vin,vout);
+		// Third Step: Look for other blobs to the right within track threshold
+		if (right < parameters.getHorizontalContourThreshold()) {
+			for (; right < two_pi-left; right += parameters.getTrackStep()) {
+				Velocity vop = vo.mkTrk(current_trk+right);
+				boolean conflict = false;
+				if (previous == null || !vout.isEmpty() || ContourCache.nearTrack(previous,Util.to_2pi(current_trk+right),margin)) {
+					detector.conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
+							0,parameters.getLookaheadTime(),los);
+					conflict = los.conflict();
+				}
+				if (conflict) {
+					add_conflict_trk(conflict_trks,current_trk+right);
+					vin.addLast(po.linear(vop,los.getTimeIn()));
+					vout.addFirst(po.linear(vop,los.getTimeOut()));
+				} else {
+					add_blob(blobs,vin,vout);
+					if (right >= parameters.getHorizontalContourThreshold()) {
 						break;
 					}
-					vin.addFirst(po.linear(vop,los.getTimeIn()));
-					vout.addLast(po.linear(vop,los.getTimeOut()));
 				}
 			}
 			add_blob(blobs,vin,vout);
-			// Third Step: Look for other blobs to the right within track threshold
-			if (right < parameters.getHorizontalContourThreshold()) {
-				for (; right < two_pi-left; right += parameters.getTrackStep()) {
-					Velocity vop = vo.mkTrk(current_trk+right);
-					LossData los = detector.get().conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
-							0,parameters.getLookaheadTime());
-					if (los.conflict()) {
-						vin.addLast(po.linear(vop,los.getTimeIn()));
-						vout.addFirst(po.linear(vop,los.getTimeOut()));
-					} else {
-						add_blob(blobs,vin,vout);
-						if (right >= parameters.getHorizontalContourThreshold()) {
-							break;
-						}
-					}
+		}
+		// Fourth Step: Look for other blobs to the left within track threshold
+		if (left < parameters.getHorizontalContourThreshold()) {
+			for (; left < two_pi-right; left += parameters.getTrackStep()) {
+				Velocity vop = vo.mkTrk(current_trk-left);
+				boolean conflict = false;
+				if (previous == null || !vout.isEmpty() || ContourCache.nearTrack(previous,Util.to_2pi(current_trk-left),margin)) {
+					detector.conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
+							0,parameters.getLookaheadTime(),los);
+					conflict = los.conflict();
 				}
-				add_blob(blobs,vin,vout);
-			}
-			// Fourth Step: Look for other blobs to the left within track threshold
-			if (left < parameters.getHorizontalContourThreshold()) {
-				for (; left < two_pi-right; left += parameters.getTrackStep()) {
-					Velocity vop = vo.mkTrk(current_trk-left);
-					LossData los = detector.get().conflictDetection(ownship_.get_s(),ownship_.vel_to_v(po,vop),si,vi,
-							0,parameters.getLookaheadTime());
-					if (los.conflict()) {
-						vin.addFirst(po.linear(vop,los.getTimeIn()));
-						vout.addLast(po.linear(vop,los.getTimeOut()));
-					} else {
-						add_blob(blobs,vin,vout);
-						if (left >= parameters.getHorizontalContourThreshold()) {
-							break;
-						}
+				if (conflict) {
+					add_conflict_trk(conflict_trks,current_trk-left);
+					vin.addFirst(po.linear(vop,los.getTimeIn()));
+					vout.addLast(po.linear(vop,los.getTimeOut()));
+				} else {
+					add_blob(blobs,vin,vout);
+					if (left >= parameters.getHorizontalContourThreshold()) {
+						break;
 					}
 				}
-				add_blob(blobs,vin,vout);
 			}
-		} else {
-			error.addError("trackContour: aircraft index "+ac_idx+" is out of bounds");
+			add_blob(blobs,vin,vout);
+		}
+	}
+
+	private static void add_conflict_trk(List<Double> conflict_trks, double trk) {
+		if (conflict_trks != null) {
+			conflict_trks.add(Util.to_2pi(trk));
 		}
 	}
 	
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import gov.nasa.larcfm.Util.ErrorLog;
+import gov.nasa.larcfm.Util.ErrorReporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Replays encounter files (as read by DaidalusFileWalker) and computes alerts and bands at every time step.<p>
+ *
+ * Since DaidalusFileWalker.readState resets the Daidalus object, time steps are independent of each other.
+ * Files are read sequentially by the calling thread, and the time steps are computed by a pool of worker threads,
+ * each one with its own copy of the Daidalus object given to the constructor. Results are passed to the sink
+ * by the calling thread, in the order of the files and, for each file, in the order of the time steps.
+ * At most getMaxPending() time steps are in memory at any time.<p>
+ *
+ * The configuration of the Daidalus object given to the constructor is copied when a replay starts, so it
+ * can be modified between replays. Objects of this class are not thread safe.
+ */
+public class DaidalusBatchReplay implements ErrorReporter {
+
+  /**
+   * Alerts and bands of a time step.
+   */
+  public static final class StepResult {
+    private final String file_;
+    private final int step_;
+    private final double time_;
+    private final TrafficState ownship_;
+    private final List<TrafficState> traffic_;
+    private final int[] alerts_;
+    private final KinematicMultiBands bands_;
+
+    private StepResult(String file, int step, double time, TrafficState ownship, List<TrafficState> traffic,
+        int[] alerts, KinematicMultiBands bands) {
+      file_ = file;
+      step_ = step;
+      time_ = time;
+      ownship_ = ownship;
+      traffic_ = traffic;
+      alerts_ = alerts;
+      bands_ = bands;
+    }
+
+    /** Name of the encounter file */
+    public String getFileName() {
+      return file_;
+    }
+
+    /** Index of the time step in the file, starting at 0 */
+    public int getStep() {
+      return step_;
+    }
+
+    /** Time of the step */
+    public double getTime() {
+      return time_;
+    }
+
+    public TrafficState getOwnship() {
+      return ownship_;
+    }
+
+    /** Traffic aircraft, in the order of the file. Aircraft at index i has index i+1 in Daidalus. */
+    public List<TrafficState> getTraffic() {
+      return traffic_;
+    }
+
+    /** Alert level of traffic aircraft at index i (see getTraffic()), 0 means no alert */
+    public int getAlert(int i) {
+      return alerts_[i];
+    }
+
+    /** Most severe alert level of all traffic aircraft, 0 means no alert */
+    public int getMaxAlert() {
+      int max = 0;
+      for (int alert : alerts_) {
+        max = Math.max(max,alert);
+      }
+      return max;
+    }
+
+    /**
+     * Kinematic bands of the step. Track, ground speed, vertical speed, and altitude bands have
+     * already been computed.
+     */
+    public KinematicMultiBands getBands() {
+      return bands_;
+    }
+  }
+
+  private final Daidalus daa_;
+  private int threads_;
+  private int max_pending_;
+  private ErrorLog error = new ErrorLog("DaidalusBatchReplay");
+
+  /**
+   * Replay with the configuration (parameters, urgency strategy, detection cache) of daa.
+   * The number of threads is the number of available processors.
+   */
+  public DaidalusBatchReplay(Daidalus daa) {
+    daa_ = daa;
+    threads_ = Runtime.getRuntime().availableProcessors();
+    max_pending_ = 0;
+  }
+
+  /** Number of worker threads */
+  public int getThreads() {
+    return threads_;
+  }
+
+  /** Set the number of worker threads. If not positive, the number of available processors is used. */
+  public void setThreads(int n) {
+    threads_ = n > 0 ? n : Runtime.getRuntime().availableProcessors();
+  }
+
+  /** Maximum number of time steps read but not yet passed to the sink */
+  public int getMaxPending() {
+    return max_pending_ > 0 ? max_pending_ : 8*threads_;
+  }
+
+  /** Set the maximum number of time steps read but not yet passed to the sink. If not positive, 8 times the number of threads is used. */
+  public void setMaxPending(int n) {
+    max_pending_ = n;
+  }
+
+  /**
+   * Replay one encounter file. Returns the number of time steps passed to the sink.
+   */
+  public int replay(String filename, Consumer<StepResult> sink) {
+    return replay(Collections.singletonList(filename),sink);
+  }
+
+  /**
+   * Replay a list of encounter files, in order. Returns the number of time steps passed to the sink.
+   * Files that cannot be read, and time steps that fail, are reported as errors and skipped.
+   */
+  public int replay(List<String> filenames, Consumer<StepResult> sink) {
+    final Daidalus config = new Daidalus(daa_);
+    final ThreadLocal<Daidalus> worker = ThreadLocal.withInitial(() -> new Daidalus(config));
+    ExecutorService pool = Executors.newFixedThreadPool(threads_, r -> {
+      Thread t = new Thread(r,"DaidalusBatchReplay");
+      t.setDaemon(true);
+      return t;
+    });
+    ArrayDeque<Future<StepResult>> pending = new ArrayDeque<Future<StepResult>>();
+    Daidalus reader = new Daidalus();
+    int count = 0;
+    try {
+      for (String filename : filenames) {
+        DaidalusFileWalker walker = new DaidalusFileWalker(filename);
+        if (walker.hasError()) {
+          error.addError("replay: "+walker.getMessage());
+          continue;
+        }
+        for (int step = 0; !walker.atEnd(); ++step) {
+          final double time = walker.getTime();
+          walker.readState(reader);
+          final TrafficState ownship = reader.getOwnshipState();
+          final List<TrafficState> traffic = new ArrayList<TrafficState>(reader.numberOfAircraft()-1);
+          for (int ac = 1; ac <= reader.lastTrafficIndex(); ++ac) {
+            traffic.add(reader.getAircraftState(ac));
+          }
+          final String file = filename;
+          final int index = step;
+          if (pending.size() >= getMaxPending()) {
+            count += emit(pending.poll(),sink);
+          }
+          pending.add(pool.submit(() -> computeStep(worker.get(),file,index,time,ownship,traffic)));
+        }
+      }
+      while (!pending.isEmpty()) {
+        count += emit(pending.poll(),sink);
+      }
+    } catch (InterruptedException e) {
+      error.addError("replay: interrupted");
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+    }
+    return count;
+  }
+
+  // Alerts and bands of one time step, computed by a worker thread with its own Daidalus object
+  private static StepResult computeStep(Daidalus daa, String file, int step, double time, TrafficState ownship,
+      List<TrafficState> traffic) {
+    daa.reset();
+    daa.setOwnshipState(ownship,time);
+    for (TrafficState ac : traffic) {
+      daa.addTrafficState(ac);
+    }
+    int[] alerts = new int[traffic.size()];
+    for (int ac = 1; ac <= daa.lastTrafficIndex(); ++ac) {
+      alerts[ac-1] = daa.alerting(ac);
+    }
+    KinematicMultiBands bands = daa.getKinematicMultiBands();
+    bands.forceTrackBandsComputation();
+    bands.forceGroundSpeedBandsComputation();
+    bands.forceVerticalSpeedBandsComputation();
+    bands.forceAltitudeBandsComputation();
+    bands.setDetectionCache(null); // the cache belongs to the worker, bands are used by the sink
+    return new StepResult(file,step,time,daa.getOwnshipState(),traffic,alerts,bands);
+  }
+
+  private int emit(Future<StepResult> fut, Consumer<StepResult> sink) throws InterruptedException {
+    try {
+      sink.accept(fut.get());
+      return 1;
+    } catch (ExecutionException e) {
+      error.addError("replay: "+e.getCause().toString());
+      return 0;
+    }
+  }
+
+  public boolean hasError() {
+    return error.hasError();
+  }
+
+  public boolean hasMessage() {
+    return error.hasMessage();
+  }
+
+  public String getMessage() {
+    return error.getMessage();
+  }
+
+  public String getMessageNoClear() {
+    return error.getMessageNoClear();
+  }
+
+}
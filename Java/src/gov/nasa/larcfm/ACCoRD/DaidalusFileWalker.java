@@ -12,6 +12,7 @@ import gov.nasa.larcfm.Util.Position;
 import gov.nasa.larcfm.Util.Velocity;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 
 public class DaidalusFileWalker {
@@ -109,11 +110,9 @@ public class DaidalusFileWalker {
   public int indexOfTime(double t) {
     int i = -1;
     if (t >= firstTime() && t <= lastTime()) {
-      i = 0;
-      for (; i < times_.size()-1; ++i) {
-        if (t >= times_.get(i) && t < times_.get(i+1)) {
-          break;
-        }
+      i = Collections.binarySearch(times_,t); // times_ is sorted
+      if (i < 0) {
+        i = -i-2; // last time before t
       }
     }
     return i;
@@ -134,4 +133,12 @@ public class DaidalusFileWalker {
     goNext();
   }
 
+  public boolean hasError() {
+    return sr_.hasError();
+  }
+
+  public String getMessage() {
+    return sr_.getMessage();
+  }
+
 }
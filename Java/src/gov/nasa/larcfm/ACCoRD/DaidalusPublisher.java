@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single-writer, multiple-reader access to the outputs of a Daidalus object.<p>
+ *
+ * The writer thread owns a Daidalus object, which it updates as usual (setOwnshipState,
+ * addTrafficState, etc.). When the states for a cycle are complete, it calls {@link #publish()},
+ * which computes a {@link DaidalusSnapshot} off to the side and then makes it visible to readers
+ * with a single atomic reference swap. Reader threads call {@link #getSnapshot()} and query
+ * the returned snapshot. Readers never block the writer, and they never see a partially
+ * updated state: a snapshot obtained by a reader stays valid and unchanged after newer
+ * snapshots are published.<p>
+ *
+ * The Daidalus object returned by {@link #getDaidalus()} must only be used by the writer thread.
+ */
+public class DaidalusPublisher {
+
+	private final Daidalus daa_;
+	private final AtomicReference<DaidalusSnapshot> snapshot_;
+
+	/**
+	 * Create a publisher with a fresh Daidalus object
+	 */
+	public DaidalusPublisher() {
+		this(new Daidalus());
+	}
+
+	/**
+	 * Create a publisher that owns daa. The caller must not use daa from any thread other
+	 * than the writer thread.
+	 */
+	public DaidalusPublisher(Daidalus daa) {
+		daa_ = daa;
+		snapshot_ = new AtomicReference<DaidalusSnapshot>(DaidalusSnapshot.EMPTY);
+	}
+
+	/**
+	 * @return the Daidalus object updated by the writer thread.
+	 */
+	public Daidalus getDaidalus() {
+		return daa_;
+	}
+
+	/**
+	 * Compute a snapshot of the current Daidalus state and make it available to readers.
+	 * Only the writer thread may call this method.
+	 * @return the published snapshot
+	 */
+	public DaidalusSnapshot publish() {
+		DaidalusSnapshot snapshot = new DaidalusSnapshot(daa_);
+		snapshot_.set(snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * @return the last published snapshot, or DaidalusSnapshot.EMPTY if nothing has been published.
+	 * This method may be called from any thread.
+	 */
+	public DaidalusSnapshot getSnapshot() {
+		return snapshot_.get();
+	}
+
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gov.nasa.larcfm.Util.Interval;
+import gov.nasa.larcfm.Util.Units;
+
+/**
+ * An immutable view of the outputs of a Daidalus object at a given time: aircraft states,
+ * alerting, detection, and kinematic bands.<p>
+ *
+ * All values are computed when the snapshot is built. After that, the snapshot never changes
+ * and does not reference the Daidalus object it was built from, so it can be queried by any
+ * number of threads without synchronization. See {@link DaidalusPublisher}.<p>
+ *
+ * Aircraft indices follow the Daidalus conventions: 0 is the ownship and traffic aircraft
+ * have indices between 1 and lastTrafficIndex(). All values are in internal units, unless
+ * units are explicitly given.
+ */
+public final class DaidalusSnapshot {
+
+	/** Snapshot where the ownship has not been set */
+	public static final DaidalusSnapshot EMPTY = new DaidalusSnapshot();
+
+	private final double current_time_;
+	private final TrafficState ownship_;
+	private final List<TrafficState> traffic_;
+	private final TrafficState most_urgent_;
+	private final int[] alerting_;               // indexed by ac_idx-1
+	private final ConflictData[] detection_;     // indexed by ac_idx-1, conflict alert level
+	private final List<List<TrafficState>> conflict_aircraft_; // indexed by alert_level-1
+	private final Bands trk_;
+	private final Bands gs_;
+	private final Bands vs_;
+	private final Bands alt_;
+
+	/** Bands intervals, regions, and resolutions of one dimension */
+	private static final class Bands {
+		final Interval[] intervals;
+		final BandsRegion[] regions;
+		final double resolution_up;
+		final double resolution_down;
+		final boolean preferred_dir;
+		final double time_to_recovery;
+
+		Bands() {
+			intervals = new Interval[0];
+			regions = new BandsRegion[0];
+			resolution_up = Double.NaN;
+			resolution_down = Double.NaN;
+			preferred_dir = false;
+			time_to_recovery = Double.NaN;
+		}
+
+		Bands(Interval[] intervals, BandsRegion[] regions, double resolution_up, double resolution_down,
+				boolean preferred_dir, double time_to_recovery) {
+			this.intervals = intervals;
+			this.regions = regions;
+			this.resolution_up = resolution_up;
+			this.resolution_down = resolution_down;
+			this.preferred_dir = preferred_dir;
+			this.time_to_recovery = time_to_recovery;
+		}
+	}
+
+	private DaidalusSnapshot() {
+		current_time_ = 0;
+		ownship_ = TrafficState.INVALID;
+		traffic_ = Collections.emptyList();
+		most_urgent_ = TrafficState.INVALID;
+		alerting_ = new int[0];
+		detection_ = new ConflictData[0];
+		conflict_aircraft_ = Collections.emptyList();
+		trk_ = gs_ = vs_ = alt_ = new Bands();
+	}
+
+	/**
+	 * Build a snapshot of the current outputs of daa. This computes all bands, so it should
+	 * be called by the thread that updates daa, which must not modify daa until this
+	 * constructor returns.
+	 */
+	public DaidalusSnapshot(Daidalus daa) {
+		current_time_ = daa.getCurrentTime();
+		int last = daa.lastTrafficIndex();
+		if (last < 0) {
+			ownship_ = TrafficState.INVALID;
+			traffic_ = Collections.emptyList();
+			most_urgent_ = TrafficState.INVALID;
+			alerting_ = new int[0];
+			detection_ = new ConflictData[0];
+			conflict_aircraft_ = Collections.emptyList();
+			trk_ = gs_ = vs_ = alt_ = new Bands();
+			return;
+		}
+		ownship_ = daa.getOwnshipState();
+		// A single bands object is shared by all queries, so that bands are computed only once
+		KinematicMultiBands kb = daa.getKinematicMultiBands();
+		List<TrafficState> traffic = new ArrayList<TrafficState>(last);
+		alerting_ = new int[last];
+		detection_ = new ConflictData[last];
+		for (int ac = 1; ac <= last; ++ac) {
+			TrafficState ac_state = daa.getAircraftState(ac);
+			traffic.add(ac_state);
+			alerting_[ac-1] = kb.alerting(ac_state,0,0,0);
+			detection_[ac-1] = daa.detection(ac);
+		}
+		traffic_ = Collections.unmodifiableList(traffic);
+		most_urgent_ = kb.getMostUrgentAircraft();
+		List<List<TrafficState>> conflict_aircraft = new ArrayList<List<TrafficState>>();
+		for (int level = 1; level <= daa.parameters.alertor.mostSevereAlertLevel(); ++level) {
+			conflict_aircraft.add(Collections.unmodifiableList(new ArrayList<TrafficState>(kb.conflictAircraft(level))));
+		}
+		conflict_aircraft_ = Collections.unmodifiableList(conflict_aircraft);
+
+		int n = kb.trackLength();
+		Interval[] ints = new Interval[Math.max(n,0)];
+		BandsRegion[] regs = new BandsRegion[Math.max(n,0)];
+		for (int i = 0; i < n; ++i) {
+			ints[i] = kb.track(i);
+			regs[i] = kb.trackRegion(i);
+		}
+		trk_ = new Bands(ints,regs,kb.trackResolution(true),kb.trackResolution(false),
+				kb.preferredTrackDirection(),kb.timeToTrackRecovery());
+
+		n = kb.groundSpeedLength();
+		ints = new Interval[Math.max(n,0)];
+		regs = new BandsRegion[Math.max(n,0)];
+		for (int i = 0; i < n; ++i) {
+			ints[i] = kb.groundSpeed(i);
+			regs[i] = kb.groundSpeedRegion(i);
+		}
+		gs_ = new Bands(ints,regs,kb.groundSpeedResolution(true),kb.groundSpeedResolution(false),
+				kb.preferredGroundSpeedDirection(),kb.timeToGroundSpeedRecovery());
+
+		n = kb.verticalSpeedLength();
+		ints = new Interval[Math.max(n,0)];
+		regs = new BandsRegion[Math.max(n,0)];
+		for (int i = 0; i < n; ++i) {
+			ints[i] = kb.verticalSpeed(i);
+			regs[i] = kb.verticalSpeedRegion(i);
+		}
+		vs_ = new Bands(ints,regs,kb.verticalSpeedResolution(true),kb.verticalSpeedResolution(false),
+				kb.preferredVerticalSpeedDirection(),kb.timeToVerticalSpeedRecovery());
+
+		n = kb.altitudeLength();
+		ints = new Interval[Math.max(n,0)];
+		regs = new BandsRegion[Math.max(n,0)];
+		for (int i = 0; i < n; ++i) {
+			ints[i] = kb.altitude(i);
+			regs[i] = kb.altitudeRegion(i);
+		}
+		alt_ = new Bands(ints,regs,kb.altitudeResolution(true),kb.altitudeResolution(false),
+				kb.preferredAltitudeDirection(),kb.timeToAltitudeRecovery());
+	}
+
+	/**
+	 * @return time of the states in this snapshot [s]
+	 */
+	public double getCurrentTime() {
+		return current_time_;
+	}
+
+	/**
+	 * @return last traffic index, negative if the ownship was not set (see Daidalus.lastTrafficIndex).
+	 */
+	public int lastTrafficIndex() {
+		return ownship_.isValid() ? traffic_.size() : -1;
+	}
+
+	/**
+	 * @return number of aircraft, including ownship.
+	 */
+	public int numberOfAircraft() {
+		return ownship_.isValid() ? traffic_.size()+1 : 0;
+	}
+
+	/**
+	 * Returns state of ownship.
+	 */
+	public TrafficState getOwnshipState() {
+		return ownship_;
+	}
+
+	/**
+	 * Returns state of aircraft at index ac_idx, or TrafficState.INVALID if the index is out of bounds.
+	 */
+	public TrafficState getAircraftState(int ac_idx) {
+		if (ac_idx == 0) {
+			return ownship_;
+		}
+		if (1 <= ac_idx && ac_idx <= lastTrafficIndex()) {
+			return traffic_.get(ac_idx-1);
+		}
+		return TrafficState.INVALID;
+	}
+
+	/**
+	 * @return the index of the aircraft with the given id, or -1 if it is not in this snapshot.
+	 */
+	public int aircraftIndex(String id) {
+		if (ownship_.isValid() && ownship_.getId().equals(id)) {
+			return 0;
+		}
+		for (int i = 0; i < traffic_.size(); ++i) {
+			if (traffic_.get(i).getId().equals(id)) {
+				return i+1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns most urgent aircraft for conflict alert level.
+	 */
+	public TrafficState mostUrgentAircraft() {
+		return most_urgent_;
+	}
+
+	/**
+	 * Alerting type of ownship and aircraft at index ac_idx. The number 0 means no alert.
+	 * A negative number means that aircraft index is not valid.
+	 */
+	public int alerting(int ac_idx) {
+		if (1 <= ac_idx && ac_idx <= lastTrafficIndex()) {
+			return alerting_[ac_idx-1];
+		}
+		return -1;
+	}
+
+	/**
+	 * Conflict data with aircraft at index ac_idx for conflict alert level.
+	 */
+	public ConflictData detection(int ac_idx) {
+		if (1 <= ac_idx && ac_idx <= lastTrafficIndex()) {
+			return detection_[ac_idx-1];
+		}
+		return new ConflictData();
+	}
+
+	/**
+	 * @return time to violation, in seconds, between ownship and aircraft at index ac_idx, for the
+	 * lookahead time. NaN means no conflict within lookahead time or aircraft index is out of range.
+	 */
+	public double timeToViolation(int ac_idx) {
+		if (1 <= ac_idx && ac_idx <= lastTrafficIndex() && detection_[ac_idx-1].conflict()) {
+			return detection_[ac_idx-1].getTimeIn();
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 *  Return list of conflict aircraft for a given alert level (1-indexed).
+	 */
+	public List<TrafficState> conflictAircraft(int alert_level) {
+		if (1 <= alert_level && alert_level <= conflict_aircraft_.size()) {
+			return conflict_aircraft_.get(alert_level-1);
+		}
+		return Collections.emptyList();
+	}
+
+	private static Interval interval(Bands b, int i, String u) {
+		if (0 <= i && i < b.intervals.length) {
+			Interval ia = b.intervals[i];
+			if (u == null || ia.isEmpty()) {
+				return ia;
+			}
+			return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
+		}
+		return Interval.EMPTY;
+	}
+
+	private static BandsRegion region(Bands b, int i) {
+		if (0 <= i && i < b.regions.length) {
+			return b.regions[i];
+		}
+		return BandsRegion.UNKNOWN;
+	}
+
+	/** @return the number of track band intervals */
+	public int trackLength() {
+		return trk_.intervals.length;
+	}
+
+	/** @return the i-th interval, in internal units [rad], of the track bands. */
+	public Interval track(int i) {
+		return interval(trk_,i,null);
+	}
+
+	/** @return the i-th interval, in specified units [u], of the track bands. */
+	public Interval track(int i, String u) {
+		return interval(trk_,i,u);
+	}
+
+	/** @return the i-th region of the track bands. */
+	public BandsRegion trackRegion(int i) {
+		return region(trk_,i);
+	}
+
+	/** @return track resolution [rad] in direction dir (true is right), for the conflict alert level */
+	public double trackResolution(boolean dir) {
+		return dir ? trk_.resolution_up : trk_.resolution_down;
+	}
+
+	/** @return preferred track direction (true is right), for the conflict alert level */
+	public boolean preferredTrackDirection() {
+		return trk_.preferred_dir;
+	}
+
+	/** @return time to track recovery [s] */
+	public double timeToTrackRecovery() {
+		return trk_.time_to_recovery;
+	}
+
+	/** @return the number of ground speed band intervals */
+	public int groundSpeedLength() {
+		return gs_.intervals.length;
+	}
+
+	/** @return the i-th interval, in internal units [m/s], of the ground speed bands. */
+	public Interval groundSpeed(int i) {
+		return interval(gs_,i,null);
+	}
+
+	/** @return the i-th interval, in specified units [u], of the ground speed bands. */
+	public Interval groundSpeed(int i, String u) {
+		return interval(gs_,i,u);
+	}
+
+	/** @return the i-th region of the ground speed bands. */
+	public BandsRegion groundSpeedRegion(int i) {
+		return region(gs_,i);
+	}
+
+	/** @return ground speed resolution [m/s] in direction dir (true is up), for the conflict alert level */
+	public double groundSpeedResolution(boolean dir) {
+		return dir ? gs_.resolution_up : gs_.resolution_down;
+	}
+
+	/** @return preferred ground speed direction (true is up), for the conflict alert level */
+	public boolean preferredGroundSpeedDirection() {
+		return gs_.preferred_dir;
+	}
+
+	/** @return time to ground speed recovery [s] */
+	public double timeToGroundSpeedRecovery() {
+		return gs_.time_to_recovery;
+	}
+
+	/** @return the number of vertical speed band intervals */
+	public int verticalSpeedLength() {
+		return vs_.intervals.length;
+	}
+
+	/** @return the i-th interval, in internal units [m/s], of the vertical speed bands. */
+	public Interval verticalSpeed(int i) {
+		return interval(vs_,i,null);
+	}
+
+	/** @return the i-th interval, in specified units [u], of the vertical speed bands. */
+	public Interval verticalSpeed(int i, String u) {
+		return interval(vs_,i,u);
+	}
+
+	/** @return the i-th region of the vertical speed bands. */
+	public BandsRegion verticalSpeedRegion(int i) {
+		return region(vs_,i);
+	}
+
+	/** @return vertical speed resolution [m/s] in direction dir (true is up), for the conflict alert level */
+	public double verticalSpeedResolution(boolean dir) {
+		return dir ? vs_.resolution_up : vs_.resolution_down;
+	}
+
+	/** @return preferred vertical speed direction (true is up), for the conflict alert level */
+	public boolean preferredVerticalSpeedDirection() {
+		return vs_.preferred_dir;
+	}
+
+	/** @return time to vertical speed recovery [s] */
+	public double timeToVerticalSpeedRecovery() {
+		return vs_.time_to_recovery;
+	}
+
+	/** @return the number of altitude band intervals */
+	public int altitudeLength() {
+		return alt_.intervals.length;
+	}
+
+	/** @return the i-th interval, in internal units [m], of the altitude bands. */
+	public Interval altitude(int i) {
+		return interval(alt_,i,null);
+	}
+
+	/** @return the i-th interval, in specified units [u], of the altitude bands. */
+	public Interval altitude(int i, String u) {
+		return interval(alt_,i,u);
+	}
+
+	/** @return the i-th region of the altitude bands. */
+	public BandsRegion altitudeRegion(int i) {
+		return region(alt_,i);
+	}
+
+	/** @return altitude resolution [m] in direction dir (true is up), for the conflict alert level */
+	public double altitudeResolution(boolean dir) {
+		return dir ? alt_.resolution_up : alt_.resolution_down;
+	}
+
+	/** @return preferred altitude direction (true is up), for the conflict alert level */
+	public boolean preferredAltitudeDirection() {
+		return alt_.preferred_dir;
+	}
+
+	/** @return time to altitude recovery [s] */
+	public double timeToAltitudeRecovery() {
+		return alt_.time_to_recovery;
+	}
+
+}
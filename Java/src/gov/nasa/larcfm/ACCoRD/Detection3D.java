@@ -55,7 +55,27 @@ public interface Detection3D extends ParameterAcceptor {
    */
   public ConflictData conflictDetection(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T);
 
- 
+  /**
+   * Same as conflictDetection(so,vo,si,vi,B,T), but the result is written into the caller-owned object out
+   * instead of a newly allocated ConflictData. The default implementation copies the result of
+   * conflictDetection(so,vo,si,vi,B,T); detectors may override it to avoid the allocation.
+   * @return out.conflict()
+   */
+  public default boolean conflictDetection(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData out) {
+    out.set(conflictDetection(so,vo,si,vi,B,T));
+    return out.conflict();
+  }
+
+  /**
+   * Same as conflict(so,vo,si,vi,B,T). Detectors that need intermediate results may use work
+   * as scratch space instead of allocating new objects; its contents are unspecified afterwards.
+   * The default implementation calls conflict(so,vo,si,vi,B,T).
+   */
+  public default boolean conflict(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData work) {
+    return conflict(so,vo,si,vi,B,T);
+  }
+
+
   /**
    * Returns a fresh instance of this type of Detection3D with default parameter data.
    */
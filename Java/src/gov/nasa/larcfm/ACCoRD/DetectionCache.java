@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import gov.nasa.larcfm.Util.ParameterData;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Memo of conflict detections between the ownship and traffic aircraft, for the states of one cycle.
+ * Entries are keyed by intruder identifier, detector, and times B and T. Detectors are compared by class and
+ * parameters, so that copies of the same detector (for instance, the detectors of alert levels with identical
+ * thresholds) share entries.<p>
+ *
+ * An entry is only used if the ownship and intruder states are the same objects (TrafficState objects are immutable,
+ * and new ones are created whenever states change). All entries are dropped when the ownship state changes.
+ * Detectors must not be modified while they are used with this cache, unless clear() is called afterwards.<p>
+ *
+ * Objects of this class are not thread safe.
+ */
+public final class DetectionCache {
+
+  // Class and parameters of a detector. Only one instance is kept for equivalent detectors (see detectorKey).
+  private static final class DetectorKey {
+    final String cls;
+    final ParameterData params;
+
+    DetectorKey(Detection3D detector) {
+      cls = detector.getCanonicalClassName();
+      params = detector.getParameters();
+    }
+
+    public int hashCode() {
+      return 31*cls.hashCode() + params.hashCode();
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof DetectorKey)) return false;
+      DetectorKey k = (DetectorKey)o;
+      return cls.equals(k.cls) && params.equals(k.params);
+    }
+  }
+
+  private static final class Key {
+    final String id;
+    final DetectorKey detector;
+    final double B;
+    final double T;
+
+    Key(String id, DetectorKey detector, double B, double T) {
+      this.id = id;
+      this.detector = detector;
+      this.B = B;
+      this.T = T;
+    }
+
+    public int hashCode() {
+      int h = id.hashCode();
+      h = 31*h + System.identityHashCode(detector);
+      h = 31*h + Double.hashCode(B);
+      h = 31*h + Double.hashCode(T);
+      return h;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key k = (Key)o;
+      return detector == k.detector && Double.compare(B,k.B) == 0 && Double.compare(T,k.T) == 0 && id.equals(k.id);
+    }
+  }
+
+  private static final class Entry {
+    final TrafficState ac;
+    final ConflictData det;
+
+    Entry(TrafficState ac, ConflictData det) {
+      this.ac = ac;
+      this.det = det;
+    }
+  }
+
+  private final HashMap<Key,Entry> memo = new HashMap<Key,Entry>();
+  private final IdentityHashMap<Detection3D,DetectorKey> detectors = new IdentityHashMap<Detection3D,DetectorKey>();
+  private final HashMap<DetectorKey,DetectorKey> detector_keys = new HashMap<DetectorKey,DetectorKey>();
+  private TrafficState ownship = TrafficState.INVALID;
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * Returns detector.conflictDetection between ownship and ac, from times B to T, computing it only
+   * if it is not in the cache.
+   */
+  public ConflictData conflictDetection(Detection3D detector, TrafficState own, TrafficState ac, double B, double T) {
+    if (own != ownship) {
+      clear();
+      ownship = own;
+    }
+    Key key = new Key(ac.getId(),detectorKey(detector),B,T);
+    Entry e = memo.get(key);
+    if (e != null && e.ac == ac) {
+      ++hits;
+      return e.det;
+    }
+    ++misses;
+    ConflictData det = detector.conflictDetection(own.get_s(),own.get_v(),ac.get_s(),ac.get_v(),B,T);
+    memo.put(key,new Entry(ac,det));
+    return det;
+  }
+
+  // The parameters of a detector instance are only read the first time it is seen
+  private DetectorKey detectorKey(Detection3D detector) {
+    DetectorKey key = detectors.get(detector);
+    if (key == null) {
+      key = new DetectorKey(detector);
+      DetectorKey prev = detector_keys.putIfAbsent(key,key);
+      if (prev != null) {
+        key = prev;
+      }
+      detectors.put(detector,key);
+    }
+    return key;
+  }
+
+  /**
+   * Drop all entries. Hit and miss counters are not changed.
+   */
+  public void clear() {
+    memo.clear();
+    detectors.clear();
+    detector_keys.clear();
+    ownship = TrafficState.INVALID;
+  }
+
+  /** Number of detections found in the cache */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Number of detections computed */
+  public long getMisses() {
+    return misses;
+  }
+
+  public void resetCounters() {
+    hits = 0;
+    misses = 0;
+  }
+
+  /** Number of entries in the cache */
+  public int size() {
+    return memo.size();
+  }
+
+  public String toString() {
+    return "DetectionCache: entries = "+memo.size()+" hits = "+hits+" misses = "+misses;
+  }
+
+}
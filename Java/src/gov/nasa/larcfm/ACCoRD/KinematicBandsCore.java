@@ -29,6 +29,8 @@ public class KinematicBandsCore {
 	public KinematicBandsParameters parameters;
 	/* Most urgent aircraft */
 	public TrafficState most_urgent_ac; 
+	/* Memo of conflict detections (null if detections are not cached) */
+	public DetectionCache detection_cache;
 
 	/* Boolean to control re-computation of cached values */
 	private boolean outdated_; 
@@ -49,6 +51,7 @@ public class KinematicBandsCore {
 		traffic = new ArrayList<TrafficState>(); 
 		parameters = new KinematicBandsParameters(params);
 		most_urgent_ac = TrafficState.INVALID;
+		detection_cache = null;
 		conflict_acs_ = new ArrayList<List<TrafficState>>();
 		tiov_ = new ArrayList<Interval>();
 		last_conflict_level_ = 0;
@@ -68,6 +71,7 @@ public class KinematicBandsCore {
 		traffic.addAll(core.traffic);
 		parameters = new KinematicBandsParameters(core.parameters);
 		most_urgent_ac = core.most_urgent_ac;
+		detection_cache = core.detection_cache;
 		conflict_acs_ = new ArrayList<List<TrafficState>>();
 		tiov_ = new ArrayList<Interval>();
 		last_conflict_level_ = 0;
@@ -199,6 +203,17 @@ public class KinematicBandsCore {
 		return traffic.get(i).get_v();
 	}
 
+	/**
+	 * Returns conflict detection between ownship and aircraft ac, from times B to T, using the detection cache
+	 * when there is one.
+	 */
+	public ConflictData conflictDetection(Detection3D detector, TrafficState ac, double B, double T) {
+		if (detection_cache != null) {
+			return detection_cache.conflictDetection(detector,ownship,ac,B,T);
+		}
+		return detector.conflictDetection(own_s(),own_v(),ac.get_s(),ac.get_v(),B,T);
+	}
+
 	/**
 	 * Put in conflict_acs_ the list of aircraft predicted to be in conflict for the given alert level.
 	 * Requires: 1 <= alert_level <= alertor.mostSevereAlertLevel()
@@ -208,11 +223,18 @@ public class KinematicBandsCore {
 		double tout = Double.NEGATIVE_INFINITY;
 	        boolean conflict_band = parameters.alertor.getLevel(alert_level).getRegion().isConflictBand();
 		Detection3D detector = parameters.alertor.getLevel(alert_level).getDetector();
+		MutableConflictData det = new MutableConflictData();
 		for (int i = 0; i < traffic.size(); ++i) {
 		    TrafficState ac = traffic.get(i);
-		    ConflictData det = detector.conflictDetection(own_s(),own_v(),ac.get_s(),ac.get_v(),
-								  0,parameters.getLookaheadTime());
-		    if (det.conflict()) {
+		    boolean conflict;
+		    if (detection_cache != null) {
+			det.set(detection_cache.conflictDetection(detector,ownship,ac,0,parameters.getLookaheadTime()));
+			conflict = det.conflict();
+		    } else {
+			conflict = detector.conflictDetection(own_s(),own_v(),ac.get_s(),ac.get_v(),
+							      0,parameters.getLookaheadTime(),det);
+		    }
+		    if (conflict) {
 			if (conflict_band &&
 			    det.getTimeIn() <= parameters.alertor.getLevel(alert_level).getAlertingTime()) {
 			    conflict_acs_.get(alert_level-1).add(ac);
@@ -14,6 +14,7 @@ import gov.nasa.larcfm.Util.ErrorLog;
 import gov.nasa.larcfm.Util.ErrorReporter;
 import gov.nasa.larcfm.Util.ParameterAcceptor;
 import gov.nasa.larcfm.Util.ParameterData;
+import gov.nasa.larcfm.Util.ParameterSnapshot;
 import gov.nasa.larcfm.Util.Units;
 import gov.nasa.larcfm.Util.f;
 
@@ -56,6 +57,7 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 	private double turn_rate_; // Turn rate
 	private double bank_angle_; // Bank angles (only used when turn_rate is 0)
 	private double vertical_rate_; // Vertical rate
+	private int bands_refinement_; // Number of steps of the coarse search of kinematic bands. 1 means every step is checked
 
 	// Recovery bands
 	private double horizontal_nmac_; // Horizontal Near Mid-Air Collision
@@ -77,6 +79,61 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 	private double contour_thr_; // Horizontal threshold, specified as an angle to the left/right of current aircraft direction,
 	// for computing horizontal contours. A value of 0 means only conflict contours. A value of pi means all contours.
 
+	/**
+	 * Layout of the parameter snapshots of this class (see getParameterSnapshot). 
+	 */
+	public static final ParameterSnapshot.Layout SNAPSHOT_LAYOUT = new ParameterSnapshot.Layout(
+			new String[] {
+					"lookahead_time", "left_trk", "right_trk", "min_gs", "max_gs", "min_vs", "max_vs", "min_alt", "max_alt",
+					"trk_step", "gs_step", "vs_step", "alt_step", "horizontal_accel", "vertical_accel", "turn_rate", 
+					"bank_angle", "vertical_rate", "bands_refinement", "horizontal_nmac", "vertical_nmac",
+					"recovery_stability_time", "min_horizontal_recovery", "min_vertical_recovery", 
+					"conflict_crit", "recovery_crit", "recovery_trk", "recovery_gs", "recovery_vs", "recovery_alt", 
+					"ca_bands", "ca_factor", 
+					"contour_thr"},
+			new String[] {
+					"s", "deg", "deg", "kts", "kts", "fpm", "fpm", "ft", "ft",
+					"deg", "kts", "fpm", "ft", "m/s^2", "m/s^2", "deg/s", 
+					"deg", "fpm", "unitless", "ft", "ft",
+					"s", "nmi", "ft", 
+					null, null, null, null, null, null, 
+					null, "unitless", 
+					"deg"});
+
+	private static final int lookahead_time_idx = SNAPSHOT_LAYOUT.offset("lookahead_time");
+	private static final int left_trk_idx = SNAPSHOT_LAYOUT.offset("left_trk");
+	private static final int right_trk_idx = SNAPSHOT_LAYOUT.offset("right_trk");
+	private static final int min_gs_idx = SNAPSHOT_LAYOUT.offset("min_gs");
+	private static final int max_gs_idx = SNAPSHOT_LAYOUT.offset("max_gs");
+	private static final int min_vs_idx = SNAPSHOT_LAYOUT.offset("min_vs");
+	private static final int max_vs_idx = SNAPSHOT_LAYOUT.offset("max_vs");
+	private static final int min_alt_idx = SNAPSHOT_LAYOUT.offset("min_alt");
+	private static final int max_alt_idx = SNAPSHOT_LAYOUT.offset("max_alt");
+	private static final int trk_step_idx = SNAPSHOT_LAYOUT.offset("trk_step");
+	private static final int gs_step_idx = SNAPSHOT_LAYOUT.offset("gs_step");
+	private static final int vs_step_idx = SNAPSHOT_LAYOUT.offset("vs_step");
+	private static final int alt_step_idx = SNAPSHOT_LAYOUT.offset("alt_step");
+	private static final int horizontal_accel_idx = SNAPSHOT_LAYOUT.offset("horizontal_accel");
+	private static final int vertical_accel_idx = SNAPSHOT_LAYOUT.offset("vertical_accel");
+	private static final int turn_rate_idx = SNAPSHOT_LAYOUT.offset("turn_rate");
+	private static final int bank_angle_idx = SNAPSHOT_LAYOUT.offset("bank_angle");
+	private static final int vertical_rate_idx = SNAPSHOT_LAYOUT.offset("vertical_rate");
+	private static final int bands_refinement_idx = SNAPSHOT_LAYOUT.offset("bands_refinement");
+	private static final int horizontal_nmac_idx = SNAPSHOT_LAYOUT.offset("horizontal_nmac");
+	private static final int vertical_nmac_idx = SNAPSHOT_LAYOUT.offset("vertical_nmac");
+	private static final int recovery_stability_time_idx = SNAPSHOT_LAYOUT.offset("recovery_stability_time");
+	private static final int min_horizontal_recovery_idx = SNAPSHOT_LAYOUT.offset("min_horizontal_recovery");
+	private static final int min_vertical_recovery_idx = SNAPSHOT_LAYOUT.offset("min_vertical_recovery");
+	private static final int conflict_crit_idx = SNAPSHOT_LAYOUT.offset("conflict_crit");
+	private static final int recovery_crit_idx = SNAPSHOT_LAYOUT.offset("recovery_crit");
+	private static final int recovery_trk_idx = SNAPSHOT_LAYOUT.offset("recovery_trk");
+	private static final int recovery_gs_idx = SNAPSHOT_LAYOUT.offset("recovery_gs");
+	private static final int recovery_vs_idx = SNAPSHOT_LAYOUT.offset("recovery_vs");
+	private static final int recovery_alt_idx = SNAPSHOT_LAYOUT.offset("recovery_alt");
+	private static final int ca_bands_idx = SNAPSHOT_LAYOUT.offset("ca_bands");
+	private static final int ca_factor_idx = SNAPSHOT_LAYOUT.offset("ca_factor");
+	private static final int contour_thr_idx = SNAPSHOT_LAYOUT.offset("contour_thr");
+
 	/* NOTE: By default, no alert levels are configured */
 	public KinematicBandsParameters() {
 		// Bands
@@ -100,6 +157,7 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		turn_rate_        = Units.from("deg/s",3.0); // Section 1.2.3, DAA MOPS V3.6
 		bank_angle_       = 0.0;    
 		vertical_rate_    = Units.from("fpm",500);   // Section 1.2.3, DAA MOPS V3.6                     
+		bands_refinement_ = 1;
 
 		// Recovery bands
 		horizontal_nmac_ = ACCoRDConfig.NMAC_D;      // Defined in RTCA SC-147
@@ -152,6 +210,7 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		turn_rate_        = parameters.turn_rate_; 
 		bank_angle_       = parameters.bank_angle_; 
 		vertical_rate_    = parameters.vertical_rate_; 
+		bands_refinement_ = parameters.bands_refinement_;
 
 		// Recovery bands
 		horizontal_nmac_         = parameters.horizontal_nmac_;
@@ -189,6 +248,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getLookaheadTime());
 	}
 
+	/** 
+	 * Same as getLookaheadTime(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getLookaheadTime(double u) {
+		return Units.to(u,getLookaheadTime());
+	}
+
 	/** 
 	 * @return left track in radians [0 - pi] [rad] from current ownship's track
 	 */
@@ -203,6 +269,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getLeftTrack());
 	}
 
+	/** 
+	 * Same as getLeftTrack(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getLeftTrack(double u) {
+		return Units.to(u,getLeftTrack());
+	}
+
 	/** 
 	 * @return right track in radians [0 - pi] [rad] from current ownship's track
 	 */
@@ -217,6 +290,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getRightTrack());
 	}
 
+	/** 
+	 * Same as getRightTrack(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getRightTrack(double u) {
+		return Units.to(u,getRightTrack());
+	}
+
 	/** 
 	 * @return minimum ground speed in internal units [m/s].
 	 */
@@ -231,6 +311,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMinGroundSpeed());
 	}
 
+	/** 
+	 * Same as getMinGroundSpeed(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMinGroundSpeed(double u) {
+		return Units.to(u,getMinGroundSpeed());
+	}
+
 	/** 
 	 * @return maximum ground speed in internal units [m/s].
 	 */
@@ -245,6 +332,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMaxGroundSpeed());
 	}
 
+	/** 
+	 * Same as getMaxGroundSpeed(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMaxGroundSpeed(double u) {
+		return Units.to(u,getMaxGroundSpeed());
+	}
+
 	/** 
 	 * @return minimum vertical speed in internal units [m/s].
 	 */
@@ -259,6 +353,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMinVerticalSpeed());
 	}
 
+	/** 
+	 * Same as getMinVerticalSpeed(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMinVerticalSpeed(double u) {
+		return Units.to(u,getMinVerticalSpeed());
+	}
+
 	/** 
 	 * @return maximum vertical speed in internal units [m/s].
 	 */
@@ -273,6 +374,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMaxVerticalSpeed());
 	}
 
+	/** 
+	 * Same as getMaxVerticalSpeed(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMaxVerticalSpeed(double u) {
+		return Units.to(u,getMaxVerticalSpeed());
+	}
+
 	/** 
 	 * @return minimum altitude in internal units [m].
 	 */
@@ -287,6 +395,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMinAltitude());
 	}
 
+	/** 
+	 * Same as getMinAltitude(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMinAltitude(double u) {
+		return Units.to(u,getMinAltitude());
+	}
+
 	/** 
 	 * @return maximum altitude in internal units [m].
 	 */
@@ -301,6 +416,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMaxAltitude());
 	}
 
+	/** 
+	 * Same as getMaxAltitude(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMaxAltitude(double u) {
+		return Units.to(u,getMaxAltitude());
+	}
+
 	/** 
 	 * @return track step in internal units [rad].
 	 */
@@ -315,6 +437,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getTrackStep());
 	}
 
+	/** 
+	 * Same as getTrackStep(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getTrackStep(double u) {
+		return Units.to(u,getTrackStep());
+	}
+
 	/** 
 	 * @return ground speed step in internal units [m/s].
 	 */
@@ -329,6 +458,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getGroundSpeedStep());
 	}
 
+	/** 
+	 * Same as getGroundSpeedStep(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getGroundSpeedStep(double u) {
+		return Units.to(u,getGroundSpeedStep());
+	}
+
 	/** 
 	 * @return vertical speed step in internal units [m/s].
 	 */
@@ -343,6 +479,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getVerticalSpeedStep());
 	}
 
+	/** 
+	 * Same as getVerticalSpeedStep(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getVerticalSpeedStep(double u) {
+		return Units.to(u,getVerticalSpeedStep());
+	}
+
 	/** 
 	 * @return altitude step in internal units [m].
 	 */
@@ -357,6 +500,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getAltitudeStep());
 	}
 
+	/** 
+	 * Same as getAltitudeStep(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getAltitudeStep(double u) {
+		return Units.to(u,getAltitudeStep());
+	}
+
 	/** 
 	 * @return horizontal acceleration in internal units [m/s^2].
 	 */
@@ -371,6 +521,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getHorizontalAcceleration());
 	}
 
+	/** 
+	 * Same as getHorizontalAcceleration(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getHorizontalAcceleration(double u) {
+		return Units.to(u,getHorizontalAcceleration());
+	}
+
 	/** 
 	 * @return vertical acceleration in internal units [m/s^2].
 	 */
@@ -385,6 +542,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getVerticalAcceleration());
 	}
 
+	/** 
+	 * Same as getVerticalAcceleration(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getVerticalAcceleration(double u) {
+		return Units.to(u,getVerticalAcceleration());
+	}
+
 	/** 
 	 * @return turn rate in internal units [rad/s].
 	 */
@@ -399,6 +563,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getTurnRate());
 	}
 
+	/** 
+	 * Same as getTurnRate(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getTurnRate(double u) {
+		return Units.to(u,getTurnRate());
+	}
+
 	/** 
 	 * @return bank angle in internal units [rad].
 	 */
@@ -413,6 +584,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getBankAngle());
 	}
 
+	/** 
+	 * Same as getBankAngle(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getBankAngle(double u) {
+		return Units.to(u,getBankAngle());
+	}
+
 	/** 
 	 * @return vertical rate in internal units [m/s].
 	 */
@@ -427,6 +605,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getVerticalRate());
 	}
 
+	/** 
+	 * Same as getVerticalRate(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getVerticalRate(double u) {
+		return Units.to(u,getVerticalRate());
+	}
+
 	/** 
 	 * @return horizontal NMAC distance in internal units [m].
 	 */
@@ -441,6 +626,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getHorizontalNMAC());
 	}
 
+	/** 
+	 * Same as getHorizontalNMAC(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getHorizontalNMAC(double u) {
+		return Units.to(u,getHorizontalNMAC());
+	}
+
 	/** 
 	 * @return vertical NMAC distance in internal units [m].
 	 */
@@ -455,6 +647,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getVerticalNMAC());
 	}
 
+	/** 
+	 * Same as getVerticalNMAC(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getVerticalNMAC(double u) {
+		return Units.to(u,getVerticalNMAC());
+	}
+
 	/** 
 	 * @return recovery stability time in seconds.
 	 */
@@ -469,6 +668,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getRecoveryStabilityTime());
 	}
 
+	/** 
+	 * Same as getRecoveryStabilityTime(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getRecoveryStabilityTime(double u) {
+		return Units.to(u,getRecoveryStabilityTime());
+	}
+
 	/** 
 	 * @return minimum horizontal recovery distance in internal units [m].
 	 */
@@ -483,6 +689,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMinHorizontalRecovery());
 	}
 
+	/** 
+	 * Same as getMinHorizontalRecovery(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMinHorizontalRecovery(double u) {
+		return Units.to(u,getMinHorizontalRecovery());
+	}
+
 	/** 
 	 * @return minimum vertical recovery distance in internal units [m].
 	 */
@@ -497,6 +710,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getMinVerticalRecovery());
 	}
 
+	/** 
+	 * Same as getMinVerticalRecovery(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getMinVerticalRecovery(double u) {
+		return Units.to(u,getMinVerticalRecovery());
+	}
+
 	/** 
 	 * Set lookahead time to value in seconds.
 	 */
@@ -840,6 +1060,27 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return setVerticalRate(Units.from(u,val));
 	}
 
+	/** 
+	 * @return number of steps of the coarse search of kinematic bands (see setBandsRefinement).
+	 */
+	public int getBandsRefinement() {
+		return bands_refinement_;
+	}
+
+	/** 
+	 * Set number of steps of the coarse search of kinematic track, ground speed, and vertical speed bands.
+	 * When val is 1, every step is checked for conflicts. When val is greater than 1, conflicts are first 
+	 * checked every val steps, and only the intervals where the conflict status changes are refined, by bisection, 
+	 * down to one step. In this case, bands narrower than val steps may be missed.
+	 */
+	public boolean setBandsRefinement(int val) {
+		if (error.isPositive("setBandsRefinement",val)) {
+			bands_refinement_ = val;
+			return true;
+		}
+		return false;
+	}
+
 	/** 
 	 * Set horizontal NMAC distance to value in internal units [m].
 	 */
@@ -1153,6 +1394,13 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		return Units.to(u,getHorizontalContourThreshold());
 	}
 
+	/** 
+	 * Same as getHorizontalContourThreshold(String), with units given as a conversion factor u (see Units.getFactor).
+	 */
+	public double getHorizontalContourThreshold(double u) {
+		return Units.to(u,getHorizontalContourThreshold());
+	}
+
 	/** 
 	 * Set horizontal contour threshold, specified in internal units [rad] [0 - pi] as an angle to 
 	 * the left/right of current aircraft direction. A value of 0 means only conflict contours. 
@@ -1253,6 +1501,8 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		s+="turn_rate = "+val_unit(turn_rate_,"deg/s")+"\n";
 		s+="bank_angle = "+val_unit(bank_angle_,"deg")+"\n";
 		s+="vertical_rate = "+val_unit(vertical_rate_,"fpm")+"\n";
+		s+="# If bands_refinement is greater than 1, kinematic bands are refined from a coarse search every bands_refinement steps\n";
+		s+="bands_refinement = "+bands_refinement_+"\n";
 		s+="horizontal_nmac = "+val_unit(horizontal_nmac_,"ft")+"\n";
 		s+="vertical_nmac = "+val_unit(vertical_nmac_,"ft")+"\n";
 		s+="# Recovery Bands Parameters\n";
@@ -1301,6 +1551,7 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		s+="turn_rate := "+f.FmPrecision(turn_rate_,prec)+", ";
 		s+="bank_angle := "+f.FmPrecision(bank_angle_,prec)+", ";
 		s+="vertical_rate := "+f.FmPrecision(vertical_rate_,prec)+", ";
+		s+="bands_refinement := "+bands_refinement_+", ";
 		s+="horizontal_nmac :="+f.FmPrecision(horizontal_nmac_,prec)+", ";
 		s+="vertical_nmac :="+f.FmPrecision(vertical_nmac_,prec)+", ";
 		s+="recovery_stability_time := "+f.FmPrecision(recovery_stability_time_,prec)+", ";
@@ -1348,6 +1599,7 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 		p.setInternal("turn_rate", turn_rate_, "deg/s");
 		p.setInternal("bank_angle", bank_angle_, "deg");
 		p.setInternal("vertical_rate", vertical_rate_, "fpm");
+		p.setInternal("bands_refinement", bands_refinement_, "unitless", 0);
 		p.setInternal("horizontal_nmac",horizontal_nmac_,"ft");
 		p.setInternal("vertical_nmac",vertical_nmac_,"ft");
 
@@ -1372,111 +1624,172 @@ final public class KinematicBandsParameters implements ParameterAcceptor, ErrorR
 	}
 
 	public void setParameters(ParameterData p) {
+		setParameterSnapshot(SNAPSHOT_LAYOUT.compile(p));
+		// Alertor
+		alertor.setParameters(p);
+	} 
+
+	/**
+	 * Returns an immutable snapshot of the bands parameters. Alert levels are not part of the snapshot.
+	 */
+	public ParameterSnapshot getParameterSnapshot() {
+		double[] values = new double[SNAPSHOT_LAYOUT.size()];
+		boolean[] bools = new boolean[SNAPSHOT_LAYOUT.size()];
 		// Bands
-		if (p.contains("lookahead_time")) {
-			setLookaheadTime(p.getValue("lookahead_time"));    
+		values[lookahead_time_idx] = lookahead_time_;
+		values[left_trk_idx] = left_trk_;
+		values[right_trk_idx] = right_trk_;
+		values[min_gs_idx] = min_gs_;
+		values[max_gs_idx] = max_gs_;
+		values[min_vs_idx] = min_vs_;
+		values[max_vs_idx] = max_vs_;
+		values[min_alt_idx] = min_alt_;
+		values[max_alt_idx] = max_alt_;
+		// Kinematic bands
+		values[trk_step_idx] = trk_step_;
+		values[gs_step_idx] = gs_step_;
+		values[vs_step_idx] = vs_step_;
+		values[alt_step_idx] = alt_step_;
+		values[horizontal_accel_idx] = horizontal_accel_;
+		values[vertical_accel_idx] = vertical_accel_;
+		values[turn_rate_idx] = turn_rate_;
+		values[bank_angle_idx] = bank_angle_;
+		values[vertical_rate_idx] = vertical_rate_;
+		values[bands_refinement_idx] = bands_refinement_;
+		values[horizontal_nmac_idx] = horizontal_nmac_;
+		values[vertical_nmac_idx] = vertical_nmac_;
+		// Recovery bands
+		values[recovery_stability_time_idx] = recovery_stability_time_;
+		values[min_horizontal_recovery_idx] = min_horizontal_recovery_;
+		values[min_vertical_recovery_idx] = min_vertical_recovery_;
+		// Criteria parameters
+		bools[conflict_crit_idx] = conflict_crit_;
+		bools[recovery_crit_idx] = recovery_crit_;
+		// Recovery parameters
+		bools[recovery_trk_idx] = recovery_trk_;
+		bools[recovery_gs_idx] = recovery_gs_;
+		bools[recovery_vs_idx] = recovery_vs_;
+		bools[recovery_alt_idx] = recovery_alt_;
+		bools[ca_bands_idx] = ca_bands_;
+		values[ca_factor_idx] = ca_factor_;
+		// Contours
+		values[contour_thr_idx] = contour_thr_;
+		return SNAPSHOT_LAYOUT.make(values,bools);
+	}
+
+	/**
+	 * Set the bands parameters that are defined in the snapshot s, which must have been built
+	 * with SNAPSHOT_LAYOUT (otherwise an IllegalArgumentException is thrown). Values are validated in the same way as the individual setters. 
+	 * Alert levels are not modified.
+	 */
+	public void setParameterSnapshot(ParameterSnapshot s) {
+		s.checkLayout(SNAPSHOT_LAYOUT,"KinematicBandsParameters.setParameterSnapshot");
+		// Bands
+		if (s.contains(lookahead_time_idx)) {
+			setLookaheadTime(s.getValue(lookahead_time_idx));
 		}
-		if (p.contains("left_trk")) {
-			setLeftTrack(p.getValue("left_trk"));
+		if (s.contains(left_trk_idx)) {
+			setLeftTrack(s.getValue(left_trk_idx));
 		}
-		if (p.contains("right_trk")) {
-			setRightTrack(p.getValue("right_trk"));    
+		if (s.contains(right_trk_idx)) {
+			setRightTrack(s.getValue(right_trk_idx));
 		}
-		if (p.contains("min_gs")) {
-			setMinGroundSpeed(p.getValue("min_gs"));    
+		if (s.contains(min_gs_idx)) {
+			setMinGroundSpeed(s.getValue(min_gs_idx));
 		}
-		if (p.contains("max_gs")) {
-			setMaxGroundSpeed(p.getValue("max_gs"));    
+		if (s.contains(max_gs_idx)) {
+			setMaxGroundSpeed(s.getValue(max_gs_idx));
 		}
-		if (p.contains("min_vs")) {
-			setMinVerticalSpeed(p.getValue("min_vs"));    
+		if (s.contains(min_vs_idx)) {
+			setMinVerticalSpeed(s.getValue(min_vs_idx));
 		}
-		if (p.contains("max_vs")) {
-			setMaxVerticalSpeed(p.getValue("max_vs"));    
+		if (s.contains(max_vs_idx)) {
+			setMaxVerticalSpeed(s.getValue(max_vs_idx));
 		}
-		if (p.contains("min_alt")) {
-			setMinAltitude(p.getValue("min_alt"));    
+		if (s.contains(min_alt_idx)) {
+			setMinAltitude(s.getValue(min_alt_idx));
 		}
-		if (p.contains("max_alt")) {
-			setMaxAltitude(p.getValue("max_alt"));    
+		if (s.contains(max_alt_idx)) {
+			setMaxAltitude(s.getValue(max_alt_idx));
 		}
 		// Kinematic bands
-		if (p.contains("trk_step")) {
-			setTrackStep(p.getValue("trk_step"));    
+		if (s.contains(trk_step_idx)) {
+			setTrackStep(s.getValue(trk_step_idx));
+		}
+		if (s.contains(gs_step_idx)) {
+			setGroundSpeedStep(s.getValue(gs_step_idx));
 		}
-		if (p.contains("gs_step")) {
-			setGroundSpeedStep(p.getValue("gs_step"));    
+		if (s.contains(vs_step_idx)) {
+			setVerticalSpeedStep(s.getValue(vs_step_idx));
 		}
-		if (p.contains("vs_step")) {
-			setVerticalSpeedStep(p.getValue("vs_step"));    
+		if (s.contains(alt_step_idx)) {
+			setAltitudeStep(s.getValue(alt_step_idx));
 		}
-		if (p.contains("alt_step")) {
-			setAltitudeStep(p.getValue("alt_step"));    
+		if (s.contains(horizontal_accel_idx)) {
+			setHorizontalAcceleration(s.getValue(horizontal_accel_idx));
 		}
-		if (p.contains("horizontal_accel")) {
-			setHorizontalAcceleration(p.getValue("horizontal_accel"));    
+		if (s.contains(vertical_accel_idx)) {
+			setVerticalAcceleration(s.getValue(vertical_accel_idx));
 		}
-		if (p.contains("vertical_accel")) {
-			setVerticalAcceleration(p.getValue("vertical_accel"));    
+		if (s.contains(turn_rate_idx)) {
+			set_turn_rate(s.getValue(turn_rate_idx));
 		}
-		if (p.contains("turn_rate")) {
-			set_turn_rate(p.getValue("turn_rate"));    
+		if (s.contains(bank_angle_idx)) {
+			set_bank_angle(s.getValue(bank_angle_idx));
 		}
-		if (p.contains("bank_angle")) {
-			set_bank_angle(p.getValue("bank_angle"));    
+		if (s.contains(vertical_rate_idx)) {
+			setVerticalRate(s.getValue(vertical_rate_idx));
 		}
-		if (p.contains("vertical_rate")) {
-			setVerticalRate(p.getValue("vertical_rate"));
+		if (s.contains(bands_refinement_idx)) {
+			setBandsRefinement((int)s.getValue(bands_refinement_idx));
 		}
-		if (p.contains("horizontal_nmac")) {
-			setHorizontalNMAC(p.getValue("horizontal_nmac"));
+		if (s.contains(horizontal_nmac_idx)) {
+			setHorizontalNMAC(s.getValue(horizontal_nmac_idx));
 		}
-		if (p.contains("vertical_nmac")) {
-			setVerticalNMAC(p.getValue("vertical_nmac"));
+		if (s.contains(vertical_nmac_idx)) {
+			setVerticalNMAC(s.getValue(vertical_nmac_idx));
 		}
 		// Recovery bands
-		if (p.contains("recovery_stability_time")) {
-			setRecoveryStabilityTime(p.getValue("recovery_stability_time"));    
+		if (s.contains(recovery_stability_time_idx)) {
+			setRecoveryStabilityTime(s.getValue(recovery_stability_time_idx));
 		}
-		if (p.contains("min_horizontal_recovery")) {
-			setMinHorizontalRecovery(p.getValue("min_horizontal_recovery"));    
+		if (s.contains(min_horizontal_recovery_idx)) {
+			setMinHorizontalRecovery(s.getValue(min_horizontal_recovery_idx));
 		}
-		if (p.contains("min_vertical_recovery")) {
-			setMinVerticalRecovery(p.getValue("min_vertical_recovery"));  
+		if (s.contains(min_vertical_recovery_idx)) {
+			setMinVerticalRecovery(s.getValue(min_vertical_recovery_idx));
 		}
 		// Criteria parameters
-		if (p.contains("conflict_crit")) {
-			conflict_crit_ = p.getBool("conflict_crit");
+		if (s.contains(conflict_crit_idx)) {
+			conflict_crit_ = s.getBool(conflict_crit_idx);
 		}
-		if (p.contains("recovery_crit")) {
-			recovery_crit_ = p.getBool("recovery_crit");
+		if (s.contains(recovery_crit_idx)) {
+			recovery_crit_ = s.getBool(recovery_crit_idx);
 		}
 		// Recovery parameters
-		if (p.contains("recovery_trk")) {
-			recovery_trk_ = p.getBool("recovery_trk");
+		if (s.contains(recovery_trk_idx)) {
+			recovery_trk_ = s.getBool(recovery_trk_idx);
 		}
-		if (p.contains("recovery_gs")) {
-			recovery_gs_ = p.getBool("recovery_gs");
+		if (s.contains(recovery_gs_idx)) {
+			recovery_gs_ = s.getBool(recovery_gs_idx);
 		}
-		if (p.contains("recovery_vs")) {
-			recovery_vs_ = p.getBool("recovery_vs");
+		if (s.contains(recovery_vs_idx)) {
+			recovery_vs_ = s.getBool(recovery_vs_idx);
 		}
-		if (p.contains("recovery_alt")) {
-			recovery_alt_ = p.getBool("recovery_alt");
+		if (s.contains(recovery_alt_idx)) {
+			recovery_alt_ = s.getBool(recovery_alt_idx);
 		}
-		if (p.contains("ca_bands")) {
-			ca_bands_ = p.getBool("ca_bands");
+		if (s.contains(ca_bands_idx)) {
+			ca_bands_ = s.getBool(ca_bands_idx);
 		}
-		if (p.contains("ca_factor")) {
-			setCollisionAvoidanceBandsFactor(p.getValue("ca_factor"));
+		if (s.contains(ca_factor_idx)) {
+			setCollisionAvoidanceBandsFactor(s.getValue(ca_factor_idx));
 		}
 		// Contours
-		if (p.contains("contour_thr")) {
-			setHorizontalContourThreshold(p.getValue("contour_thr"));
+		if (s.contains(contour_thr_idx)) {
+			setHorizontalContourThreshold(s.getValue(contour_thr_idx));
 		}
-		// Alertor
-		alertor.setParameters(p);
-	} 
+	}
 
 	public boolean hasError() {
 		return error.hasError();
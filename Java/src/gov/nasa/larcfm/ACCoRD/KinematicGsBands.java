@@ -22,6 +22,7 @@ public class KinematicGsBands extends KinematicRealBands {
 				parameters.getGroundSpeedStep(),
 				parameters.isEnabledRecoveryGroundSpeedBands());
 		horizontal_accel_ = parameters.getHorizontalAcceleration();
+		refinement_ = parameters.getBandsRefinement();
 	}
 
 	public KinematicGsBands(KinematicGsBands b) {
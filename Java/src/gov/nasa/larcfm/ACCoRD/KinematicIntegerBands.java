@@ -13,6 +13,7 @@ import gov.nasa.larcfm.Util.Vect3;
 import gov.nasa.larcfm.Util.Velocity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,12 @@ public abstract class KinematicIntegerBands {
 	/* Used in definition of kinematic trajectory */
 	protected int j_step_;
 
+	/* Number of steps of the coarse search in traj_conflict_only_bands. 1 means every step is checked */
+	protected int refinement_ = 1;
+
+	/* Scratch space of the detectors, reused by all calls to conflict */
+	private final MutableConflictData work_ = new MutableConflictData();
+
 	public abstract Pair<Vect3,Velocity> trajectory(TrafficState ownship, double time, boolean dir);
 
 	private int first_los_step(Detection3D det, double tstep,boolean trajdir,
@@ -76,6 +83,10 @@ public abstract class KinematicIntegerBands {
 	private void traj_conflict_only_bands(List<Integerval> l,
 			Detection3D conflict_det, Optional<Detection3D> recovery_det, double tstep, double B, double T, double B2, double T2,
 			boolean trajdir, int max, TrafficState ownship, List<TrafficState> traffic) {
+		if (refinement_ > 1 && max > refinement_) {
+			refined_traj_conflict_only_bands(l,conflict_det,recovery_det,tstep,B,T,B2,T2,trajdir,max,ownship,traffic);
+			return;
+		}
 		int d = -1; // Set to the first index with no conflict
 		for (int k = 0; k <= max; ++k) {
 			double tsk = tstep*k;
@@ -93,6 +104,57 @@ public abstract class KinematicIntegerBands {
 		}
 	}
 
+	/**
+	 * Same as traj_conflict_only_bands, but steps are first checked every refinement_ steps (and at max). 
+	 * Between two consecutive checked steps with different status, the first change of status is found 
+	 * by bisection. Steps between two checked steps with the same status are assumed to have that status.
+	 */
+	private void refined_traj_conflict_only_bands(List<Integerval> l,
+			Detection3D conflict_det, Optional<Detection3D> recovery_det, double tstep, double B, double T, double B2, double T2,
+			boolean trajdir, int max, TrafficState ownship, List<TrafficState> traffic) {
+		boolean[] green = new boolean[max+1];
+		int a = 0;
+		boolean ga = no_conflict(conflict_det,recovery_det,B,T,B2,T2,trajdir,0,ownship,traffic);
+		green[0] = ga;
+		while (a < max) {
+			int b = Math.min(a+refinement_,max);
+			boolean gb = no_conflict(conflict_det,recovery_det,B,T,B2,T2,trajdir,tstep*b,ownship,traffic);
+			refine(green,a,ga,b,gb,conflict_det,recovery_det,tstep,B,T,B2,T2,trajdir,ownship,traffic);
+			a = b;
+			ga = gb;
+		}
+		int d = -1; // Set to the first index with no conflict
+		for (int k = 0; k <= max; ++k) {
+			if (green[k] && d < 0) {
+				d = k;
+			} else if (!green[k] && d >= 0) {
+				l.add(new Integerval(d,k-1));
+				d = -1;
+			}
+		}
+		if (d >= 0) {
+			l.add(new Integerval(d,max));
+		}
+	}
+
+	// Sets green[k], for a < k <= b, knowing that the status of steps a and b are ga and gb, respectively
+	private void refine(boolean[] green, int a, boolean ga, int b, boolean gb, 
+			Detection3D conflict_det, Optional<Detection3D> recovery_det, double tstep, double B, double T, double B2, double T2,
+			boolean trajdir, TrafficState ownship, List<TrafficState> traffic) {
+		while (ga != gb && b-a > 1) {
+			int m = (a+b)/2;
+			boolean gm = no_conflict(conflict_det,recovery_det,B,T,B2,T2,trajdir,tstep*m,ownship,traffic);
+			if (gm == ga) {
+				Arrays.fill(green,a+1,m+1,ga);
+				a = m;
+			} else {
+				Arrays.fill(green,m+1,b+1,gb);
+				b = m;
+			}
+		}
+		Arrays.fill(green,a+1,b+1,gb);
+	}
+
 	private void kinematic_bands(List<Integerval> l, Detection3D conflict_det, Optional<Detection3D> recovery_det, double tstep, 
 			double B, double T, double B2, double T2, 
 			boolean trajdir, int max, TrafficState ownship, List<TrafficState> traffic, TrafficState repac,
@@ -303,14 +365,14 @@ public abstract class KinematicIntegerBands {
 		return -1;
 	}
 
-	private static boolean conflict(Detection3D det, Vect3 so, Velocity vo, Vect3 si, Velocity vi, 
+	private boolean conflict(Detection3D det, Vect3 so, Velocity vo, Vect3 si, Velocity vi, 
 			double B, double T) {
 	 if (Util.almost_equals(B,T)) {
 		 Vect3 sot = vo.ScalAdd(B,so);
 		 Vect3 sit = vi.ScalAdd(B,si);
 		 return det.violation(sot,vo,sit,vi);
 	 }
-	 return det.conflict(so,vo,si,vi,B,T);
+	 return det.conflict(so,vo,si,vi,B,T,work_);
 	}
 	
 	private boolean cd_future_traj(Detection3D det, double B, double T, boolean trajdir, double t, 
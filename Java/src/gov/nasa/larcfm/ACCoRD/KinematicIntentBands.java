@@ -34,6 +34,8 @@ import gov.nasa.larcfm.Util.Vect3;
 import gov.nasa.larcfm.Util.Velocity;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Objects of class "Bands" compute the conflict prevention 
@@ -118,6 +120,11 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
 
   private CDSICore cdsicore;
 
+  private boolean parallelMode = false;
+
+  // relative safety margin of the pruning distances, covers the error of the internal projections
+  private static final double PRUNE_MARGIN = 1.1;
+
   /** 
    * Construct a Bands object with default values for
    * configuration parameters.  These default values include: 5 nmi
@@ -231,6 +238,7 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
     gsAccel = b.gsAccel;
     vsAccel = b.vsAccel;
     losThreshold = b.losThreshold;
+    parallelMode = b.parallelMode;
     error = new ErrorLog("KinematicIntentBands");
   }
 
@@ -365,6 +373,22 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
     reset();
   }
 
+  /** Returns true if the candidate steps are computed in parallel mode */
+  public boolean isParallelMode() {
+    return parallelMode;
+  }
+
+  /**
+   * Sets the parallel mode. In this mode, traffic plans that cannot come close to the ownship
+   * within the lookahead time are discarded before the search, the vertex data of the remaining plans
+   * is computed once per search instead of once per candidate step, and the candidate track, ground
+   * speed, and vertical speed steps are checked concurrently. The resulting bands are the same in both modes.
+   */
+  public void setParallelMode(boolean flag) {
+    parallelMode = flag;
+    reset();
+  }
+
   public void clear() {
     super.clear();
     traffic.clear();
@@ -420,25 +444,24 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
 
   void boundedTrackCompute(double low, double high) {
     currentLosSet = new IntervalSet();
-    double turnStepTime = Kinematics.turnTime(vo.gs(), trkStep, bankAngle);
-    IntervalSet trkSet = new IntervalSet();
-    for (double a = low; a < high; a += trkStep) {
+    final double turnStepTime = Kinematics.turnTime(vo.gs(), trkStep, bankAngle);
+    IntervalSet trkSet = candidateSet(low, high, trkStep, (a, intent, losSet) -> {
       Interval in = Interval.EMPTY;
       if (a < vo.compassAngle() && vo.compassAngle() < a+trkStep) {
         boolean turnDir = Util.clockwise(vo.compassAngle(), a);
         double tst1 = Kinematics.turnTime(vo.gs(), Util.turnDelta(vo.compassAngle(), a), bankAngle);
         double tst2 = turnStepTime - tst1;
         // we do not want to shortcut the second check
-        boolean chk1 = conflictAfterTurn(so, vo, to, traffic, tst1, a, bankAngle, turnDir, low, high);
-        boolean chk2 = conflictAfterTurn(so, vo, to, traffic, tst2, vo.compassAngle(), bankAngle, !turnDir, low, high); 
+        boolean chk1 = conflictAfterTurn(so, vo, to, intent, losSet, tst1, a, bankAngle, turnDir, low, high);
+        boolean chk2 = conflictAfterTurn(so, vo, to, intent, losSet, tst2, vo.compassAngle(), bankAngle, !turnDir, low, high); 
         if ( chk1 || chk2 ) {
           in = new Interval(a-trkStep, a+trkStep);
         }		        
-      } else if ( conflictAfterTurn(so, vo, to, traffic, timeStep, a, bankAngle, Util.clockwise(vo.trk(), a), low, high) ) {
+      } else if ( conflictAfterTurn(so, vo, to, intent, losSet, timeStep, a, bankAngle, Util.clockwise(vo.trk(), a), low, high) ) {
         in = new Interval(a-trkStep, a+trkStep);				
       }
-      trkSet.union(in);
-    }
+      return in;
+    });
     trackArray = new ArrayList<Interval>();
     trackRegionArray = new ArrayList<BandsRegion>();
     // get any empty space before first NEAR interval
@@ -451,26 +474,25 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
 
   void boundedGroundCompute(double low, double high) {
     currentLosSet = new IntervalSet();
-    double gsStepTime = Kinematics.gsAccelTime(vo, vo.gs()+gsStep, gsAccel);
+    final double gsStepTime = Kinematics.gsAccelTime(vo, vo.gs()+gsStep, gsAccel);
     // re-do with kinematic info for track
-    IntervalSet gsSet = new IntervalSet();
-    for (double a = low; a < high; a += gsStep) {
+    IntervalSet gsSet = candidateSet(low, high, gsStep, (a, intent, losSet) -> {
       Interval in = Interval.EMPTY;
       if (a < vo.gs() && vo.gs() < a+gsStep) {
         double tst1 = Kinematics.gsAccelTime(vo, a, gsAccel);
         double tst2 = gsStepTime - tst1;
         // we do not want to shortcut the second check
-        boolean chk1 = conflictAfterGS(so, vo, to, traffic, tst1, a, gsAccel, low, high);
-        boolean chk2 = conflictAfterGS(so, vo, to, traffic, tst2, vo.gs(), gsAccel, low, high);
+        boolean chk1 = conflictAfterGS(so, vo, to, intent, losSet, tst1, a, gsAccel, low, high);
+        boolean chk2 = conflictAfterGS(so, vo, to, intent, losSet, tst2, vo.gs(), gsAccel, low, high);
         if ( chk1 || chk2 ) {
           in = new Interval(a-gsStep, a+gsStep);
         }        
         //general case
-      } else if ( conflictAfterGS(so, vo, to, traffic, timeStep, a, gsAccel, low, high) ) {
+      } else if ( conflictAfterGS(so, vo, to, intent, losSet, timeStep, a, gsAccel, low, high) ) {
         in = new Interval(a-gsStep, a+gsStep);				
       }
-      gsSet.union(in);
-    }
+      return in;
+    });
     groundArray = new ArrayList<Interval>();
     groundRegionArray = new ArrayList<BandsRegion>();
     // get any empty space before first NEAR interval
@@ -484,26 +506,25 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
 
   void boundedVerticalCompute(double low, double high) {
     currentLosSet = new IntervalSet();
-    double vsStepTime = Kinematics.vsAccelTime(vo, vo.vs()+vsStep, vsAccel);
+    final double vsStepTime = Kinematics.vsAccelTime(vo, vo.vs()+vsStep, vsAccel);
     // re-do with kinematic info for track
-    IntervalSet vsSet = new IntervalSet();
-    for (double a = low; a < high; a += vsStep) {
+    IntervalSet vsSet = candidateSet(low, high, vsStep, (a, intent, losSet) -> {
       Interval in = Interval.EMPTY;
       if (a < vo.vs() && vo.vs() < a+vsStep) {
         double tst1 = Kinematics.vsAccelTime(vo, a, vsAccel);
         double tst2 = vsStepTime - tst1;
         // we do not want to shortcut the second check
-        boolean chk1 = conflictAfterVS(so, vo, to, traffic, tst1, a, vsAccel, low, high);
-        boolean chk2 = conflictAfterVS(so, vo, to, traffic, tst2, vo.vs(), vsAccel, low, high); 
+        boolean chk1 = conflictAfterVS(so, vo, to, intent, losSet, tst1, a, vsAccel, low, high);
+        boolean chk2 = conflictAfterVS(so, vo, to, intent, losSet, tst2, vo.vs(), vsAccel, low, high); 
         if ( chk1 || chk2 ) {
           in = new Interval(a-vsStep, a+vsStep);
         }        
         //general case
-      } else if ( conflictAfterVS(so, vo, to, traffic, timeStep, a, vsAccel, low, high) ) {
+      } else if ( conflictAfterVS(so, vo, to, intent, losSet, timeStep, a, vsAccel, low, high) ) {
         in = new Interval(a-vsStep, a+vsStep);				
       }
-      vsSet.union(in);
-    }
+      return in;
+    });
     verticalArray = new ArrayList<Interval>();
     verticalRegionArray = new ArrayList<BandsRegion>();
     // get any empty space before first NEAR interval
@@ -544,82 +565,206 @@ public final class KinematicIntentBands extends IntentBands implements GenericIn
     return BandsRegion.NONE;
   }
 
+  /** Conflict check of one candidate value a of a bands search; intervals of immediate LoS are added to losSet */
+  private interface CandidateStep {
+    Interval eval(double a, TrafficIntent intent, IntervalSet losSet);
+  }
+
+  /**
+   * The traffic checked by the candidate steps of one bands computation: either all traffic plans,
+   * through conflictDetectionSI, or (in parallel mode) the prepared plans that can be reached within
+   * the lookahead time, checked with a CDSICore object owned by the current thread.
+   */
+  private final class TrafficIntent {
+    private final List<CDSICore.PreparedPlan> plans;
+    private final CDSICore core;
+
+    TrafficIntent() {
+      plans = null;
+      core = null;
+    }
+
+    TrafficIntent(List<CDSICore.PreparedPlan> plans, CDSICore core) {
+      this.plans = plans;
+      this.core = core;
+    }
+
+    /** Returns true if state (s,v) at time tm is in conflict with any traffic between B and T (relative to tm) */
+    boolean conflict(Position s, Velocity v, double tm, double B, double T) {
+      if (plans == null) {
+        for (int i = 0; i < traffic.size(); i++) {
+          if (conflictDetectionSI(s, v, tm, traffic.get(i), B, T)) {
+            return true;
+          }
+        }
+      } else {
+        for (int i = 0; i < plans.size(); i++) {
+          if (core.detection(s, v, tm, 10.0e+300, plans.get(i), B, T)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Union of the intervals returned by step for the candidate values low, low+step, ... (below high).
+   * Intervals of immediate LoS are added to currentLosSet. In parallel mode the candidates are 
+   * evaluated concurrently and the results are merged in order, so both modes compute the same sets.
+   */
+  private IntervalSet candidateSet(double low, double high, double step, final CandidateStep f) {
+    IntervalSet set = new IntervalSet();
+    if (!parallelMode) {
+      TrafficIntent intent = new TrafficIntent();
+      for (double a = low; a < high; a += step) {
+        set.union(f.eval(a, intent, currentLosSet));
+      }
+      return set;
+    }
+    ArrayList<Double> cand = new ArrayList<Double>();
+    for (double a = low; a < high; a += step) {
+      cand.add(a);
+    }
+    final List<CDSICore.PreparedPlan> plans = reachableTraffic();
+    final Detection3D cd = cdsicore.getCoreDetection();
+    final double filter = cdsicore.getFilterTime();
+    final ThreadLocal<TrafficIntent> local = ThreadLocal.withInitial(() -> {
+      CDSICore core = new CDSICore(cd);
+      core.setFilterTime(filter);
+      return new TrafficIntent(plans, core);
+    });
+    final Interval[] in = new Interval[cand.size()];
+    final IntervalSet[] los = new IntervalSet[cand.size()];
+    IntStream.range(0, cand.size()).parallel().forEach(i -> {
+      los[i] = new IntervalSet();
+      in[i] = f.eval(cand.get(i), local.get(), los[i]);
+    });
+    for (int i = 0; i < in.length; i++) {
+      set.union(in[i]);
+      currentLosSet.union(los[i]);
+    }
+    return set;
+  }
+
+  /**
+   * Prepared plans of the traffic that may come within the separation volume of the ownship
+   * within the lookahead time. When the core detection is not a cylinder, no traffic is pruned.
+   * A traffic plan is pruned when, for every segment that overlaps the lookahead interval, 
+   * a lower bound on its horizontal or vertical distance to the current ownship position exceeds
+   * the separation plus the farthest the ownship can move at its maximum speeds.
+   */
+  private List<CDSICore.PreparedPlan> reachableTraffic() {
+    ArrayList<CDSICore.PreparedPlan> plans = new ArrayList<CDSICore.PreparedPlan>(traffic.size());
+    Detection3D cd = cdsicore.getCoreDetection();
+    boolean prune = cd instanceof CDCylinder;
+    double T = red.getTime();
+    double DH = 0.0;
+    double DV = 0.0;
+    if (prune) {
+      double ownGs = Math.max(vo.gs(), red.getMaxGroundSpeed());
+      double ownVs = Math.max(Math.abs(vo.vs()), red.getMaxVerticalSpeed());
+      DH = PRUNE_MARGIN*(((CDCylinder)cd).getHorizontalSeparation() + ownGs*T);
+      DV = PRUNE_MARGIN*(((CDCylinder)cd).getVerticalSeparation() + ownVs*T);
+    }
+    for (int i = 0; i < traffic.size(); i++) {
+      CDSICore.PreparedPlan pp = new CDSICore.PreparedPlan(traffic.get(i));
+      if (!prune || reachable(pp, to, to+T, DH, DV)) {
+        plans.add(pp);
+      }
+    }
+    return plans;
+  }
+
+  private boolean reachable(CDSICore.PreparedPlan pp, double t1, double t2, double DH, double DV) {
+    if (pp.size() < 2 || pp.getLastTime() < t1 || pp.getFirstTime() > t2) {
+      return false; // the segment loop of CDSICore would not check any segment
+    }
+    int j = t1 < pp.getFirstTime() ? 0 : Math.max(0, pp.getSegment(t1));
+    for (; j < pp.size()-1 && pp.getTime(j) <= t2; j++) {
+      Position p1 = pp.position(j);
+      Position p2 = pp.position(j+1);
+      double dh = so.distanceH(p1) - p1.distanceH(p2);
+      double zlo = Math.min(p1.alt(), p2.alt());
+      double zhi = Math.max(p1.alt(), p2.alt());
+      double dv = Math.max(0.0, Math.max(zlo - so.alt(), so.alt() - zhi));
+      if (dh < DH && dv < DV) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /** All in internal Units, returns true if there is a LoS during a turn or a conflict following it */
-  private boolean conflictAfterTurn(Position so, Velocity vo, double to, ArrayList<Plan> intent, double stepSize, double trk, double bank, boolean turnRight, double low, double high) {
+  private boolean conflictAfterTurn(Position so, Velocity vo, double to, TrafficIntent intent, IntervalSet losSet, double stepSize, double trk, double bank, boolean turnRight, double low, double high) {
     double R = Kinematics.turnRadius(vo.gs(), bank);
     double dt = Kinematics.turnTime(vo, trk, bank, turnRight);
     if (dt > red.getTime()) return false;
     double endTime = to+dt;
     Pair<Position,Velocity> end = ProjectedKinematics.turn(so, vo, dt, R, turnRight);
-    for (int i = 0; i < intent.size(); i++) {
-      //          if (CDSICore.cdsicore(end.first, end.second, endTime, 10.0e+300, intent.get(i), red.getDistance(), red.getHeight(), 0.0, red.getTime()-dt)) {
-      if (conflictDetectionSI(end.first, end.second, endTime, intent.get(i), red.getStartTime()-dt, red.getTime()-dt)) {
-        //f.pln("INTENT "+Units.to("deg",end.second.compassAngle()));              
-        Interval nint;
-        double endpt;
-        if (turnRight) {
-          endpt = Util.to_2pi(vo.compassAngle()+Math.PI);
-          if (trk > endpt) {
-            nint = new Interval(trk,Math.PI*2);
-            currentLosSet.union(nint);                
-            nint = new Interval(0,endpt);
-            currentLosSet.union(nint);                
-          } else {
-            nint = new Interval(trk,endpt);
-            currentLosSet.union(nint);
-          }
+    //          if (CDSICore.cdsicore(end.first, end.second, endTime, 10.0e+300, intent.get(i), red.getDistance(), red.getHeight(), 0.0, red.getTime()-dt)) {
+    if (intent.conflict(end.first, end.second, endTime, red.getStartTime()-dt, red.getTime()-dt)) {
+      //f.pln("INTENT "+Units.to("deg",end.second.compassAngle()));              
+      Interval nint;
+      double endpt;
+      if (turnRight) {
+        endpt = Util.to_2pi(vo.compassAngle()+Math.PI);
+        if (trk > endpt) {
+          nint = new Interval(trk,Math.PI*2);
+          losSet.union(nint);                
+          nint = new Interval(0,endpt);
+          losSet.union(nint);                
         } else {
-          endpt = Util.to_2pi(vo.compassAngle()-Math.PI);
-          if (trk < endpt) {
-            nint = new Interval(endpt,Math.PI*2);
-            currentLosSet.union(nint);                
-            nint = new Interval(0,trk);
-            currentLosSet.union(nint);                
-          } else {
-            nint = new Interval(endpt,trk);
-            currentLosSet.union(nint);
-          }
+          nint = new Interval(trk,endpt);
+          losSet.union(nint);
+        }
+      } else {
+        endpt = Util.to_2pi(vo.compassAngle()-Math.PI);
+        if (trk < endpt) {
+          nint = new Interval(endpt,Math.PI*2);
+          losSet.union(nint);                
+          nint = new Interval(0,trk);
+          losSet.union(nint);                
+        } else {
+          nint = new Interval(endpt,trk);
+          losSet.union(nint);
         }
-        return true;
       }
+      return true;
     }
     return false;
   }
 
-  private boolean conflictAfterGS(Position so, Velocity vo, double to, ArrayList<Plan> intent, double stepSize, double goalGs, double gsAccel, double low, double high) {
+  private boolean conflictAfterGS(Position so, Velocity vo, double to, TrafficIntent intent, IntervalSet losSet, double stepSize, double goalGs, double gsAccel, double low, double high) {
     double dt = Kinematics.gsAccelTime(vo, goalGs, gsAccel);
     double endTime = to+dt;
     double accel = gsAccel;
     if (goalGs < vo.gs()) accel = -accel;
     Pair<Position,Velocity> end = ProjectedKinematics.gsAccel(so, vo, dt, accel);
-    for (int i = 0; i < intent.size(); i++) {
-      //          if (CDSICore.cdsicore(end.first, end.second, endTime, 10.0e+300, intent.get(i), red.getDistance(), red.getHeight(), 0.0, red.getTime()-dt)) {
-      if (conflictDetectionSI(end.first, end.second, endTime, intent.get(i), red.getStartTime()-dt, red.getTime()-dt)) {
-        Interval nint;
-        if (accel > 0) nint = new Interval(goalGs,high);
-        else nint = new Interval(low, goalGs);
-        currentLosSet.union(nint);
-        return true;
-      }
+    //          if (CDSICore.cdsicore(end.first, end.second, endTime, 10.0e+300, intent.get(i), red.getDistance(), red.getHeight(), 0.0, red.getTime()-dt)) {
+    if (intent.conflict(end.first, end.second, endTime, red.getStartTime()-dt, red.getTime()-dt)) {
+      Interval nint;
+      if (accel > 0) nint = new Interval(goalGs,high);
+      else nint = new Interval(low, goalGs);
+      losSet.union(nint);
+      return true;
     }
     return false;
   }
 
-  private boolean conflictAfterVS(Position so, Velocity vo, double to, ArrayList<Plan> intent, double stepSize, double goalVs, double vsAccel, double low, double high) {
+  private boolean conflictAfterVS(Position so, Velocity vo, double to, TrafficIntent intent, IntervalSet losSet, double stepSize, double goalVs, double vsAccel, double low, double high) {
     double dt = Kinematics.vsAccelTime(vo, goalVs, vsAccel);
     double endTime = to+dt;
     double accel = vsAccel;
     if (goalVs < vo.vs()) accel = -accel;
     Pair<Position,Velocity> end = ProjectedKinematics.vsAccel(so, vo, dt, accel);
-    for (int i = 0; i < intent.size(); i++) {
-      //          if (CDSICore.cdsicore(end.first, end.second, endTime, 10.0e+300, intent.get(i), red.getDistance(), red.getHeight(), 0.0, red.getTime()-dt)) {
-      if (conflictDetectionSI(end.first, end.second, endTime, intent.get(i), red.getStartTime()-dt, red.getTime()-dt)) {
-        Interval nint;
-        if (accel > 0) nint = new Interval(goalVs,high);
-        else nint = new Interval(low, goalVs);
-        currentLosSet.union(nint);
-        return true;
-      }
+    //          if (CDSICore.cdsicore(end.first, end.second, endTime, 10.0e+300, intent.get(i), red.getDistance(), red.getHeight(), 0.0, red.getTime()-dt)) {
+    if (intent.conflict(end.first, end.second, endTime, red.getStartTime()-dt, red.getTime()-dt)) {
+      Interval nint;
+      if (accel > 0) nint = new Interval(goalVs,high);
+      else nint = new Interval(low, goalVs);
+      losSet.union(nint);
+      return true;
     }
     return false;
   }
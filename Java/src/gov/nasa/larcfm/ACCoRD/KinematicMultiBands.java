@@ -16,10 +16,12 @@ import gov.nasa.larcfm.Util.ErrorLog;
 import gov.nasa.larcfm.Util.Position;
 import gov.nasa.larcfm.Util.Units;
 import gov.nasa.larcfm.Util.Interval;
+import gov.nasa.larcfm.Util.ParameterData;
 import gov.nasa.larcfm.Util.Vect3;
 import gov.nasa.larcfm.Util.Velocity;
 import gov.nasa.larcfm.Util.f;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -270,6 +272,11 @@ public class KinematicMultiBands implements GenericStateBands {
 		setMinAltitude(parameters.getMinAltitude());
 		setMaxAltitude(parameters.getMaxAltitude());
 
+		// Set refinement of kinematic bands
+		trk_band_.set_refinement(parameters.getBandsRefinement());
+		gs_band_.set_refinement(parameters.getBandsRefinement());
+		vs_band_.set_refinement(parameters.getBandsRefinement());
+
 		reset();
 	}
 
@@ -392,6 +399,26 @@ public class KinematicMultiBands implements GenericStateBands {
 		reset();
 	}
 
+	/** 
+	 * @return number of steps of the coarse search of kinematic bands (see KinematicBandsParameters.setBandsRefinement).
+	 */
+	public int getBandsRefinement() {
+		return core_.parameters.getBandsRefinement();
+	}
+
+	/** 
+	 * Set number of steps of the coarse search of kinematic track, ground speed, and vertical speed bands.
+	 * A value of 1 checks every step (see KinematicBandsParameters.setBandsRefinement).
+	 */
+	public void setBandsRefinement(int val) {
+		if (core_.parameters.setBandsRefinement(val)) {
+			trk_band_.set_refinement(val);
+			gs_band_.set_refinement(val);
+			vs_band_.set_refinement(val);
+			reset();
+		}
+	}
+
 	/**
 	 * @return most urgent aircraft.
 	 */
@@ -415,6 +442,21 @@ public class KinematicMultiBands implements GenericStateBands {
 		reset();
 	}
 
+	/**
+	 * Set the memo of conflict detections used by this object (null, the default, for no memo). The cache may
+	 * be shared with other objects that use the same ownship and traffic states.
+	 */
+	public void setDetectionCache(DetectionCache cache) {
+		core_.detection_cache = cache;
+	}
+
+	/**
+	 * Returns the memo of conflict detections used by this object, or null if there is none.
+	 */
+	public DetectionCache getDetectionCache() {
+		return core_.detection_cache;
+	}
+
 	/** 
 	 * @return true if repulsive criteria is enabled for conflict bands.
 	 */
@@ -1455,6 +1497,19 @@ public class KinematicMultiBands implements GenericStateBands {
 		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
 	}
 
+	/**
+	 * @return the i-th interval, in specified units [u], of the computed track bands.
+	 * @param i index
+	 * @param u conversion factor of the units (see Units.getFactor)
+	 */
+	public Interval track(int i, double u) {
+		Interval ia = trk_band_.interval(core_,i);
+		if (ia.isEmpty()) {
+			return ia;
+		}
+		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
+	}
+
 	/**
 	 * @return the i-th region of the computed track bands.
 	 * @param i index
@@ -1626,6 +1681,19 @@ public class KinematicMultiBands implements GenericStateBands {
 		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
 	}
 
+	/**
+	 * @return the i-th interval, in specified units [u], of the computed ground speed bands.
+	 * @param i index
+	 * @param u conversion factor of the units (see Units.getFactor)
+	 */
+	public Interval groundSpeed(int i, double u) {
+		Interval ia = gs_band_.interval(core_,i);
+		if (ia.isEmpty()) {
+			return ia;
+		}
+		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
+	}
+
 	/**
 	 * @return the i-th region of the computed ground speed bands.
 	 * @param i index
@@ -1797,6 +1865,19 @@ public class KinematicMultiBands implements GenericStateBands {
 		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
 	}
 
+	/**
+	 * @return the i-th interval, in specified units [u], of the computed vertical speed bands.
+	 * @param i index
+	 * @param u conversion factor of the units (see Units.getFactor)
+	 */
+	public Interval verticalSpeed(int i, double u) {
+		Interval ia = vs_band_.interval(core_,i);
+		if (ia.isEmpty()) {
+			return ia;
+		}
+		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
+	}
+
 	/**
 	 * @return the i-th region of the computed vertical speed bands.
 	 * @param i index
@@ -1968,6 +2049,19 @@ public class KinematicMultiBands implements GenericStateBands {
 		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
 	}
 
+	/**
+	 * @return the i-th interval, in specified units [u], of the computed altitude bands.
+	 * @param i index
+	 * @param u conversion factor of the units (see Units.getFactor)
+	 */
+	public Interval altitude(int i, double u) {
+		Interval ia = alt_band_.interval(core_,i);
+		if (ia.isEmpty()) {
+			return ia;
+		}
+		return new Interval(Units.to(u, ia.low), Units.to(u, ia.up));
+	}
+
 	/**
 	 * @return the i-th region of the computed altitude bands.
 	 * @param i index
@@ -2107,6 +2201,15 @@ public class KinematicMultiBands implements GenericStateBands {
 	 * Return true if and only if threshold values, defining an alerting level, are violated.
 	 */ 
 	private boolean check_thresholds(AlertThresholds athr, TrafficState ac, int turning, int accelerating, int climbing) {
+		return check_thresholds(athr,ac,turning,accelerating,climbing,null,0);
+	}
+
+	/** 
+	 * Same as check_thresholds, where violation and conflict detection are taken from shared, when it is not null,
+	 * for alert level alert_level.
+	 */ 
+	private boolean check_thresholds(AlertThresholds athr, TrafficState ac, int turning, int accelerating, int climbing,
+			SharedDetections shared, int alert_level) {
 		if (athr.isValid()) {
 			Vect3 so = core_.ownship.get_s();
 			Velocity vo = core_.ownship.get_v();
@@ -2115,10 +2218,11 @@ public class KinematicMultiBands implements GenericStateBands {
 			Detection3D detector = athr.getDetector();	
 			double alerting_time = athr.getAlertingTime();
 
-			if (detector.violation(so,vo,si,vi)) {
+			if (shared != null ? shared.violation(alert_level) : detector.violation(so,vo,si,vi)) {
 				return true;
 			}
-			ConflictData det = detector.conflictDetection(so,vo,si,vi,0,athr.getAlertingTime());
+			ConflictData det = shared != null ? shared.detection(alert_level,athr.getAlertingTime()) :
+				core_.conflictDetection(detector,ac,0,athr.getAlertingTime());
 			if (det.conflict()) {
 				return true;
 			}
@@ -2188,6 +2292,106 @@ public class KinematicMultiBands implements GenericStateBands {
 		return 0;
 	}
 
+	/**
+	 * Violation and conflict detections between ownship and one aircraft, computed on demand. Alert levels whose
+	 * detectors are identical, i.e., same class and same parameters, share the same computations.
+	 */
+	private final class SharedDetections {
+		private final TrafficState ac;
+		private final int[] first; // first[i]: first alert level whose detector is identical to the one of alert level i
+		private final Boolean[] violation;
+		private final List<Double> times = new ArrayList<Double>();
+		private final List<ConflictData> dets = new ArrayList<ConflictData>();
+		private final List<Integer> levels = new ArrayList<Integer>();
+
+		SharedDetections(TrafficState ac, int[] first) {
+			this.ac = ac;
+			this.first = first;
+			violation = new Boolean[first.length];
+		}
+
+		boolean violation(int alert_level) {
+			int level = first[alert_level];
+			if (violation[level] == null) {
+				Detection3D detector = core_.parameters.alertor.getLevel(level).getDetector();
+				violation[level] = detector.violation(core_.ownship.get_s(),core_.ownship.get_v(),ac.get_s(),ac.get_v());
+			}
+			return violation[level];
+		}
+
+		ConflictData detection(int alert_level, double T) {
+			int level = first[alert_level];
+			for (int i=0; i < levels.size(); ++i) {
+				if (levels.get(i) == level && times.get(i) == T) {
+					return dets.get(i);
+				}
+			}
+			ConflictData det = core_.conflictDetection(core_.parameters.alertor.getLevel(level).getDetector(),ac,0,T);
+			levels.add(level);
+			times.add(T);
+			dets.add(det);
+			return det;
+		}
+	}
+
+	/**
+	 * Returns an array first such that first[i] is the first alert level whose detector is identical to the one
+	 * of alert level i, i.e., it has the same class and the same parameters. 
+	 */
+	private int[] identical_detectors() {
+		int n = core_.parameters.alertor.mostSevereAlertLevel();
+		int[] first = new int[n+1];
+		List<ParameterData> params = new ArrayList<ParameterData>(n+1);
+		params.add(null);
+		for (int i=1; i <= n; ++i) {
+			Detection3D detector = core_.parameters.alertor.getLevel(i).getDetector();
+			params.add(detector == null ? null : detector.getParameters());
+			first[i] = i;
+			for (int j=1; j < i; ++j) {
+				Detection3D other = core_.parameters.alertor.getLevel(j).getDetector();
+				if (detector != null && other != null && first[j] == j && 
+						detector.getCanonicalClassName().equals(other.getCanonicalClassName()) && 
+						params.get(i).equals(params.get(j))) {
+					first[i] = j;
+					break;
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Computes alert levels (see alerting), conflict detections within lookahead time for all alert levels, 
+	 * and time to violation, between ownship and each traffic aircraft in traffic. The index of the i-th aircraft
+	 * in the returned list is first_idx+i. Alert levels with identical detectors share detections.
+	 */
+	List<TrafficAlert> trafficAlerts(List<TrafficState> traffic, int first_idx, int turning, int accelerating, int climbing) {
+		int[] first = identical_detectors();
+		int n = core_.parameters.alertor.mostSevereAlertLevel();
+		int conflict_level = core_.parameters.alertor.conflictAlertLevel();
+		double T = core_.parameters.getLookaheadTime();
+		List<TrafficAlert> alerts = new ArrayList<TrafficAlert>(traffic.size());
+		for (int i=0; i < traffic.size(); ++i) {
+			TrafficState ac = traffic.get(i);
+			SharedDetections shared = new SharedDetections(ac,first);
+			int alert = 0;
+			for (int alert_level=n; alert_level > 0; --alert_level) {
+				AlertThresholds athr = core_.parameters.alertor.getLevel(alert_level);
+				if (check_thresholds(athr,ac,turning,accelerating,climbing,shared,alert_level)) {
+					alert = alert_level;
+					break;
+				}
+			}
+			ConflictData[] dets = new ConflictData[n+1];
+			for (int alert_level=1; alert_level <= n; ++alert_level) {
+				dets[alert_level] = shared.detection(alert_level,T);
+			}
+			dets[0] = conflict_level > 0 ? dets[conflict_level] : new ConflictData();
+			alerts.add(new TrafficAlert(first_idx+i,ac,alert,dets));
+		}
+		return alerts;
+	}
+
 	public String toString() {
 		String s = "";
 		s+="## KinematicMultiBands\n"; 
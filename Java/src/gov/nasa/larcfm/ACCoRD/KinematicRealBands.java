@@ -73,6 +73,7 @@ abstract public class KinematicRealBands extends KinematicIntegerBands {
 
 	public KinematicRealBands(KinematicRealBands b) {
 		this(b.min_,b.max_,b.rel_,b.mod_,b.step_,b.recovery_);
+		refinement_ = b.refinement_;
 	}
 
 	abstract public double own_val(TrafficState ownship);
@@ -105,6 +106,10 @@ abstract public class KinematicRealBands extends KinematicIntegerBands {
 		return recovery_;
 	}
 
+	public int get_refinement() {
+		return refinement_;
+	}
+
 	public void set_min(double val) {
 		if (val != min_) {
 			min_ = val;
@@ -150,6 +155,13 @@ abstract public class KinematicRealBands extends KinematicIntegerBands {
 		}
 	}
 
+	public void set_refinement(int val) {
+		if (val > 0 && val != refinement_) {
+			refinement_ = val;
+			reset();
+		}
+	}
+
 	/** 
 	 * Return val modulo mod_, when mod_ > 0. Otherwise, returns val. 
 	 */
@@ -344,7 +356,7 @@ abstract public class KinematicRealBands extends KinematicIntegerBands {
 		double T = core.parameters.alertor.getLevel(alert_level).getAlertingTime();
 		for (int i = 0; i < core.traffic.size(); ++i) {
 			TrafficState ac = core.traffic.get(i);
-			ConflictData det = detector.conflictDetection(core.own_s(),core.own_v(),ac.get_s(),ac.get_v(),0,T);
+			ConflictData det = core.conflictDetection(detector,ac,0,T);
 			if (!det.conflict() && kinematic_conflict(core,ac,detector,T)) {
 				peripheral_acs_.get(alert_level-1).add(ac);
 			}
@@ -655,7 +667,7 @@ abstract public class KinematicRealBands extends KinematicIntegerBands {
 			int conflict_level = core.parameters.alertor.conflictAlertLevel();
 			Detection3D detector = core.parameters.alertor.getLevel(conflict_level).getDetector();
 			double T = core.parameters.alertor.getLevel(conflict_level).getEarlyAlertingTime();
-			ConflictData det = detector.conflictDetection(core.own_s(),core.own_v(),ac.get_s(),ac.get_v(),0,T);
+			ConflictData det = core.conflictDetection(detector,ac,0,T);
 			if (det.conflict()) {
 				double pivot_red = det.getTimeIn();
 				if (pivot_red == 0) {
@@ -27,6 +27,7 @@ public class KinematicTrkBands extends KinematicRealBands {
 				parameters.isEnabledRecoveryTrackBands());
 		turn_rate_ = parameters.getTurnRate();
 		bank_angle_ = parameters.getBankAngle();
+		refinement_ = parameters.getBandsRefinement();
 	}
 
 	public KinematicTrkBands(KinematicTrkBands b) {
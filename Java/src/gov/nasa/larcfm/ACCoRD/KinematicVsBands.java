@@ -22,6 +22,7 @@ public class KinematicVsBands extends KinematicRealBands {
 				parameters.getVerticalSpeedStep(),
 				parameters.isEnabledRecoveryVerticalSpeedBands());
 		vertical_accel_ = parameters.getVerticalAcceleration();
+		refinement_ = parameters.getBandsRefinement();
 	}
 
 	public KinematicVsBands(KinematicVsBands b) {
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import gov.nasa.larcfm.Util.LossData;
+import gov.nasa.larcfm.Util.Units;
+import gov.nasa.larcfm.Util.Util;
+import gov.nasa.larcfm.Util.Vect3;
+import gov.nasa.larcfm.Util.Velocity;
+import gov.nasa.larcfm.Util.f;
+
+/**
+ * A mutable version of ConflictData, to be owned by the caller of the out-parameter variants
+ * of the detectors (e.g., Detection3D.conflictDetection(so,vo,si,vi,B,T,out)).
+ * Reusing one object of this class across many detector calls avoids allocating a new
+ * ConflictData or LossData for every call. The relative position and velocity of the aircraft are
+ * only computed if requested. <p>
+ *
+ * Objects of this class are not thread safe.
+ */
+public final class MutableConflictData {
+
+  private double time_in;   // relative time to loss of separation
+  private double time_out;  // relative time to the exit from loss of separation
+  private double time_crit; // relative time to critical point
+  private double dist_crit; // distance or severity at critical point
+  // the relative position and velocity are either given (s_, v_) or computed on demand from the states
+  private Vect3 so_;
+  private Velocity vo_;
+  private Vect3 si_;
+  private Velocity vi_;
+  private Vect3 s_;
+  private Velocity v_;
+
+  public MutableConflictData() {
+    clear();
+  }
+
+  /** Sets this object to the values of an empty ConflictData (no conflict) */
+  public void clear() {
+    time_in = Double.POSITIVE_INFINITY;
+    time_out = Double.NEGATIVE_INFINITY;
+    time_crit = Double.POSITIVE_INFINITY;
+    dist_crit = Double.POSITIVE_INFINITY;
+    so_ = null;
+    vo_ = null;
+    si_ = null;
+    vi_ = null;
+    s_ = Vect3.INVALID;
+    v_ = Velocity.INVALID;
+  }
+
+  /** Sets only the time interval of loss of separation. */
+  public void setLoss(double t_in, double t_out) {
+    time_in = t_in;
+    time_out = t_out;
+  }
+
+  /** Sets all values. s and v are the relative position and velocity of the aircraft. */
+  public void set(double t_in, double t_out, double t_crit, double d_crit, Vect3 s, Velocity v) {
+    time_in = t_in;
+    time_out = t_out;
+    time_crit = t_crit;
+    dist_crit = d_crit;
+    so_ = null;
+    vo_ = null;
+    si_ = null;
+    vi_ = null;
+    s_ = s;
+    v_ = v;
+  }
+
+  /**
+   * Sets all values. The relative position and velocity of the aircraft, so-si and vo-vi,
+   * are computed only when get_s or get_v are called.
+   */
+  public void set(double t_in, double t_out, double t_crit, double d_crit, Vect3 so, Velocity vo, Vect3 si, Velocity vi) {
+    time_in = t_in;
+    time_out = t_out;
+    time_crit = t_crit;
+    dist_crit = d_crit;
+    so_ = so;
+    vo_ = vo;
+    si_ = si;
+    vi_ = vi;
+    s_ = null;
+    v_ = null;
+  }
+
+  /** Sets all values from cd */
+  public void set(ConflictData cd) {
+    set(cd.getTimeIn(),cd.getTimeOut(),cd.getCriticalTimeOfConflict(),cd.getDistanceAtCriticalTime(),cd.get_s(),Velocity.make(cd.get_v()));
+  }
+
+  /**
+   * Returns true if loss (same as LossData.conflict())
+   */
+  public boolean conflict() {
+    return time_in < time_out && !Util.almost_equals(time_in,time_out);
+  }
+
+  /**
+   * Returns true if loss last more than thr in seconds
+   */
+  public boolean conflict(double thr) {
+    return conflict() && (time_out - time_in >= thr);
+  }
+
+  /**
+   * Returns time to first loss in seconds.
+   */
+  public double getTimeIn() {
+    return time_in;
+  }
+
+  /**
+   * Returns time to last loss in seconds.
+   */
+  public double getTimeOut() {
+    return time_out;
+  }
+
+  public double getCriticalTimeOfConflict() {
+    return time_crit;
+  }
+
+  public double getDistanceAtCriticalTime() {
+    return dist_crit;
+  }
+
+  /**
+   * Returns internal vector representation of relative aircraft position.
+   */
+  public Vect3 get_s() {
+    if (s_ == null) {
+      s_ = so_.Sub(si_);
+    }
+    return s_;
+  }
+
+  /**
+   * Returns internal vector representation of relative aircraft velocity.
+   */
+  public Velocity get_v() {
+    if (v_ == null) {
+      v_ = vo_.Sub(vi_);
+    }
+    return v_;
+  }
+
+  /**
+   * Returns HMD, in internal units, within lookahead time t, in seconds, assuming straight line trajectory.
+   */
+  public double HMD(double T) {
+    return Horizontal.hmd(get_s().vect2(),get_v().vect2(),T);
+  }
+
+  /**
+   * Returns HMD, in specified units, within lookahead time t, in seconds, assuming straight line trajectory.
+   */
+  public double HMD(String u, double T) {
+    return Units.to(u,HMD(T));
+  }
+
+  /**
+   * Returns VMD, in internal units, within lookahead time t, in seconds, assuming straight line trajectory.
+   */
+  public double VMD(double T) {
+    return Vertical.vmd(get_s().z,get_v().z,T);
+  }
+
+  /**
+   * Returns VMD, in specified units, within lookahead time t, in seconds, assuming straight line trajectory.
+   */
+  public double VMD(String u, double T) {
+    return Units.to(u,VMD(T));
+  }
+
+  /** Returns a new (immutable) ConflictData with the values of this object */
+  public ConflictData toConflictData() {
+    return new ConflictData(time_in,time_out,time_crit,dist_crit,get_s(),get_v());
+  }
+
+  /** Returns a new LossData with the time interval of this object */
+  public LossData toLossData() {
+    return new LossData(time_in,time_out);
+  }
+
+  /**
+   * Same value as so.linear(vo,t).Sub(si.linear(vi,t)).cyl_norm(d,h), without temporary vectors.
+   */
+  static double cyl_norm_at(Vect3 so, Vect3 vo, Vect3 si, Vect3 vi, double t, double d, double h) {
+    double x = (so.x+vo.x*t)-(si.x+vi.x*t);
+    double y = (so.y+vo.y*t)-(si.y+vi.y*t);
+    double z = (so.z+vo.z*t)-(si.z+vi.z*t);
+    return Math.max((x*x+y*y)/Util.sq(d),Util.sq(z/h));
+  }
+
+  public String toString() {
+    return "[time_in: " + f.Fm2(time_in) + ", time_out: " + f.Fm2(time_out)+"]"+
+        " [time_crit: "+time_crit+", dist_crit: "+dist_crit+"]";
+  }
+
+}
@@ -8,6 +8,10 @@ package gov.nasa.larcfm.ACCoRD;
 
 import gov.nasa.larcfm.Util.ParameterData;
 import gov.nasa.larcfm.Util.ParameterAcceptor;
+import gov.nasa.larcfm.Util.ParameterSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public interface ParameterTable extends ParameterAcceptor {
   public ParameterTable copy();
@@ -15,6 +19,36 @@ public interface ParameterTable extends ParameterAcceptor {
   public ParameterData getParameters();
   public void updateParameterData(ParameterData p);
   public void setParameters(ParameterData p);
+
+  /** 
+   * Return an immutable snapshot of the numeric and boolean values of this table.  By default, the snapshot 
+   * is compiled from getParameters(), with a new layout on every call; tables with a fixed set of parameters
+   * should override this method with one that uses a shared layout.
+   */
+  public default ParameterSnapshot getParameterSnapshot() {
+    ParameterData p = getParameters();
+    List<String> keys = new ArrayList<String>();
+    List<String> units = new ArrayList<String>();
+    for (String key : p.getList()) {
+      if (p.isBoolean(key)) {
+        keys.add(key);
+        units.add(null);
+      } else if (p.isNumber(key)) {
+        keys.add(key);
+        units.add(p.getUnit(key));
+      }
+    }
+    return new ParameterSnapshot.Layout(keys.toArray(new String[keys.size()]),
+        units.toArray(new String[units.size()])).compile(p);
+  }
+
+  /** 
+   * Set the values of this table that are defined in the snapshot s (built with this table's layout).
+   * By default, the values are applied through setParameters().
+   */
+  public default void setParameterSnapshot(ParameterSnapshot s) {
+    setParameters(s.getParameters());
+  }
   
   public String toString();
 }
@@ -31,6 +31,28 @@ public class PolycarpEdgeProximity {
 		return false;
 	}
 
+	/**
+	 * Same as near_edge(segstart,segend,s,BUFF), with points given by their coordinates
+	 */
+	public static boolean near_edge(double ssx, double ssy, double sex, double sey, double sx, double sy, double BUFF) {
+		double vx = sex-ssx;
+		double vy = sey-ssy;
+		double wx = ssx-sx;
+		double wy = ssy-sy;
+		double ap = vx*vx+vy*vy;
+		double b = 2*(wx*vx + wy*vy);
+		double c = wx*wx+wy*wy;
+		double ex = sex-sx;
+		double ey = sey-sy;
+		if (c<Util.sq(BUFF) || (ex*ex+ey*ey<Util.sq(BUFF))) {
+			return true;
+		}
+		if (ap>0 && quad_min_le_D_int(ap,b,c,0,1,Util.sq(BUFF))){
+			return true;
+		}
+		return false;
+	}
+
 	public static boolean segments_2D_close(Vect2 segstart1,Vect2 segend1,Vect2 segstart2,Vect2 segend2,double BUFF) {
 		if (near_edge(segstart2,segend2,segstart1,BUFF)) return true; 
 		else if (near_edge(segstart2,segend2,segend1,BUFF)) return true;
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import gov.nasa.larcfm.Util.BoundingRectangle;
+import gov.nasa.larcfm.Util.ErrorLog;
+import gov.nasa.larcfm.Util.ErrorReporter;
+import gov.nasa.larcfm.Util.EuclideanProjection;
+import gov.nasa.larcfm.Util.Poly3D;
+import gov.nasa.larcfm.Util.SimplePoly;
+import gov.nasa.larcfm.Util.Vect2;
+import gov.nasa.larcfm.Util.Vect3;
+
+/**
+ * Containment of many vehicles with respect to many static geofences.<p>
+ *
+ * Fences are registered once with {@link #addFence}. Each fence is prepared for Polycarp
+ * (see {@link PolycarpPreparedPolygon}) and indexed by a uniform 2D grid over its bounding rectangle,
+ * expanded by the horizontal thresholds. A query for a vehicle position only runs the Polycarp
+ * containment tests on the fences whose expanded bounding rectangle contains the position. A vehicle
+ * outside the expanded bounding rectangle of a fence is definitely outside that fence and is
+ * not near any of its edges, so it is in violation of a keep-in fence and not in violation
+ * of a keep-out fence.<p>
+ *
+ * All positions and polygons are in the same Euclidean frame, e.g., projected with the same
+ * EuclideanProjection. Batches of positions are checked in parallel. Queries may be issued from
+ * several threads; fences should be added before queries are issued.<p>
+ *
+ * For each violated fence, a recovery point computed with PolycarpResolution is returned: the
+ * closest point inside a keep-in fence, or outside a keep-out fence, at horizontal distance
+ * from the fence edges given by the horizontal threshold.
+ */
+public class PolycarpGeofenceService implements ErrorReporter {
+
+	public enum FenceType {
+		KEEP_IN, KEEP_OUT
+	}
+
+	/**
+	 * Containment status of one vehicle position.  Fences are identified by the
+	 * value returned by addFence.
+	 */
+	public static final class Status {
+		private final Vect3 so;
+		private final List<Integer> violations;
+		private final List<Integer> near;
+		private final List<Vect2> recovery;
+
+		private Status(Vect3 so, List<Integer> violations, List<Integer> near, List<Vect2> recovery) {
+			this.so = so;
+			this.violations = Collections.unmodifiableList(violations);
+			this.near = Collections.unmodifiableList(near);
+			this.recovery = Collections.unmodifiableList(recovery);
+		}
+
+		/** Vehicle position */
+		public Vect3 getPosition() {
+			return so;
+		}
+
+		/** Returns true if the vehicle violates no fence */
+		public boolean isClear() {
+			return violations.isEmpty();
+		}
+
+		/** Fences violated by the vehicle, in increasing order */
+		public List<Integer> getViolations() {
+			return violations;
+		}
+
+		/** Fences whose edges (including top and bottom) are near the vehicle, in increasing order */
+		public List<Integer> getNearEdges() {
+			return near;
+		}
+
+		/**
+		 * Recovery points (horizontal coordinates) for the fences in getViolations(), in the same order.
+		 * This list is empty if recovery points are not being computed.
+		 */
+		public List<Vect2> getRecoveryPoints() {
+			return recovery;
+		}
+
+		/** Recovery point of fence id, or null if the fence is not violated or recovery points are not computed */
+		public Vect2 getRecoveryPoint(int id) {
+			int i = violations.indexOf(id);
+			return i < 0 || i >= recovery.size() ? null : recovery.get(i);
+		}
+
+		public String toString() {
+			return "violations: "+violations+" near: "+near+" recovery: "+recovery;
+		}
+	}
+
+	private static final class Fence {
+		final int id;
+		final FenceType type;
+		final PolycarpPreparedPolygon poly;
+		final ArrayList<Vect2> vertices; // counterclockwise order used by PolycarpResolution
+		final BoundingRectangle br;
+
+		Fence(int id, FenceType type, PolycarpPreparedPolygon poly, ArrayList<Vect2> vertices) {
+			this.id = id;
+			this.type = type;
+			this.poly = poly;
+			this.vertices = vertices;
+			br = poly.getBoundingRectangle();
+		}
+	}
+
+	/** Maximum number of grid cells covered by a fence, larger fences are checked for every query */
+	private static final int MAX_CELLS = 4096;
+
+	/** Grid over the expanded bounding rectangles of a fixed set of fences */
+	private static final class Index {
+		final Fence[] fences;
+		final double hthreshold; // horizontal threshold used to build this index
+		final double margin;
+		final double cell;
+		final HashMap<Long,int[]> cells = new HashMap<Long,int[]>();
+		final int[] always; // fences not in the grid (large ones and all keep-in fences)
+
+		Index(Fence[] fences, double hthreshold, double margin) {
+			this.fences = fences;
+			this.hthreshold = hthreshold;
+			this.margin = margin;
+			double sum = 0.0;
+			for (Fence fc : fences) {
+				sum += Math.max(fc.br.getMaxX()-fc.br.getMinX(),fc.br.getMaxY()-fc.br.getMinY())+2*margin;
+			}
+			cell = fences.length == 0 ? 1.0 : Math.max(1.0,sum/fences.length);
+			HashMap<Long,ArrayList<Integer>> grid = new HashMap<Long,ArrayList<Integer>>();
+			ArrayList<Integer> big = new ArrayList<Integer>();
+			for (int k = 0; k < fences.length; k++) {
+				Fence fc = fences[k];
+				long x0 = cellOf(fc.br.getMinX()-margin);
+				long x1 = cellOf(fc.br.getMaxX()+margin);
+				long y0 = cellOf(fc.br.getMinY()-margin);
+				long y1 = cellOf(fc.br.getMaxY()+margin);
+				if (fc.type == FenceType.KEEP_IN || (x1-x0+1)*(y1-y0+1) > MAX_CELLS) {
+					big.add(k);
+					continue;
+				}
+				for (long ix = x0; ix <= x1; ix++) {
+					for (long iy = y0; iy <= y1; iy++) {
+						Long key = key(ix,iy);
+						ArrayList<Integer> l = grid.get(key);
+						if (l == null) {
+							l = new ArrayList<Integer>(2);
+							grid.put(key,l);
+						}
+						l.add(k);
+					}
+				}
+			}
+			for (Long key : grid.keySet()) {
+				cells.put(key,toArray(grid.get(key)));
+			}
+			always = toArray(big);
+		}
+
+		long cellOf(double v) {
+			return (long)Math.floor(v/cell);
+		}
+
+		static Long key(long ix, long iy) {
+			return (ix << 32) ^ (iy & 0xffffffffL);
+		}
+
+		static int[] toArray(List<Integer> l) {
+			int[] a = new int[l.size()];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = l.get(i);
+			}
+			return a;
+		}
+
+		int[] candidates(Vect3 so) {
+			int[] c = cells.get(key(cellOf(so.x),cellOf(so.y)));
+			return c == null ? new int[0] : c;
+		}
+
+		boolean mayTouch(Fence fc, Vect3 so) {
+			return fc.br.getMinX()-margin <= so.x && so.x <= fc.br.getMaxX()+margin &&
+					fc.br.getMinY()-margin <= so.y && so.y <= fc.br.getMaxY()+margin;
+		}
+	}
+
+	private final ErrorLog error = new ErrorLog("PolycarpGeofenceService");
+	private final CDPolycarp cd;
+	// Written by setters and read by concurrent queries
+	private volatile double hthreshold;
+	private volatile double vthreshold;
+	private volatile boolean recovery;
+	private volatile int parallelThreshold;
+	private final ArrayList<Fence> fences = new ArrayList<Fence>();
+	private Index index = null; // null when it has to be rebuilt
+
+	/**
+	 * Create a service with a default CDPolycarp detector, and horizontal and vertical thresholds
+	 * (internal units) used to decide when a vehicle is near a fence edge.
+	 * The horizontal threshold is also the distance of the recovery points to the fence edges.
+	 */
+	public PolycarpGeofenceService(double hthreshold, double vthreshold) {
+		this(new CDPolycarp(), hthreshold, vthreshold);
+	}
+
+	/**
+	 * Create a service that uses the buffer and niceness check of the Polycarp detector cd.
+	 */
+	public PolycarpGeofenceService(CDPolycarp cd, double hthreshold, double vthreshold) {
+		this.cd = (CDPolycarp)cd.copy();
+		this.hthreshold = hthreshold;
+		this.vthreshold = vthreshold;
+		recovery = true;
+		parallelThreshold = 16;
+	}
+
+	public double getHorizontalThreshold() {
+		return hthreshold;
+	}
+
+	public synchronized void setHorizontalThreshold(double h) {
+		hthreshold = h;
+		index = null;
+	}
+
+	public double getVerticalThreshold() {
+		return vthreshold;
+	}
+
+	public void setVerticalThreshold(double v) {
+		vthreshold = v;
+	}
+
+	/** Returns true if recovery points are computed for violated fences */
+	public boolean isRecoveryEnabled() {
+		return recovery;
+	}
+
+	public void setRecoveryEnabled(boolean b) {
+		recovery = b;
+	}
+
+	/** Batches with at least this number of positions are checked in parallel */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	public void setParallelThreshold(int n) {
+		parallelThreshold = n;
+	}
+
+	/** Number of registered fences */
+	public synchronized int numberOfFences() {
+		return fences.size();
+	}
+
+	/**
+	 * Register a fence.
+	 * @param poly fence, in either clockwise or counterclockwise order, in the frame of the queries.
+	 * Clockwise polygons are stored in reverse (counterclockwise) order, as assumed by Polycarp.
+	 * @param type keep-in or keep-out
+	 * @return identifier of the fence, or -1 (and an error is logged) if the polygon is not nice
+	 */
+	public synchronized int addFence(Poly3D poly, FenceType type) {
+		if (poly.size() >= 3 && poly.poly2D().signedArea() < 0) {
+			poly = poly.reverseOrder();
+		}
+		PolycarpPreparedPolygon pp = cd.prepare(poly);
+		ArrayList<Vect2> vertices = pp.getVertices(cd.getBuff());
+		if (vertices == null || poly.getBottom() > poly.getTop()) {
+			error.addError("addFence: polygon is not nice: "+poly);
+			return -1;
+		}
+		int id = fences.size();
+		fences.add(new Fence(id,type,pp,vertices));
+		index = null;
+		return id;
+	}
+
+	/**
+	 * Register a fence given in geodetic or Euclidean coordinates.  proj is the projection of the queries.
+	 */
+	public int addFence(SimplePoly poly, EuclideanProjection proj, FenceType type) {
+		return addFence(poly.poly3D(proj),type);
+	}
+
+	/** Type of fence id */
+	public synchronized FenceType getFenceType(int id) {
+		return fences.get(id).type;
+	}
+
+	/** The (counterclockwise) vertices of fence id */
+	public synchronized ArrayList<Vect2> getFenceVertices(int id) {
+		return new ArrayList<Vect2>(fences.get(id).vertices);
+	}
+
+	/** Remove all fences */
+	public synchronized void clear() {
+		fences.clear();
+		index = null;
+	}
+
+	private synchronized Index index() {
+		if (index == null) {
+			double h = hthreshold;
+			double margin = 2*Math.max(Math.abs(h),Math.abs(cd.getBuff()));
+			double extent = 0.0;
+			for (Fence fc : fences) {
+				extent = Math.max(extent,Math.max(fc.br.getMaxX()-fc.br.getMinX(),fc.br.getMaxY()-fc.br.getMinY()));
+			}
+			index = new Index(fences.toArray(new Fence[fences.size()]),h,margin+1.0E-6*extent);
+		}
+		return index;
+	}
+
+	/**
+	 * Containment status of a vehicle at position so
+	 */
+	public Status check(Vect3 so) {
+		return check(index(),so);
+	}
+
+	/**
+	 * Containment status of vehicles at the given positions. The i-th element of the result
+	 * corresponds to the i-th position.
+	 */
+	public List<Status> check(final List<Vect3> positions) {
+		final Index idx = index();
+		final Status[] res = new Status[positions.size()];
+		IntStream range = IntStream.range(0,res.length);
+		if (res.length >= parallelThreshold) {
+			range = range.parallel();
+		}
+		range.forEach(i -> res[i] = check(idx,positions.get(i)));
+		List<Status> l = new ArrayList<Status>(res.length);
+		Collections.addAll(l,res);
+		return l;
+	}
+
+	private Status check(Index idx, Vect3 so) {
+		double h = idx.hthreshold; // consistent with the margin of the index
+		double v = vthreshold;
+		boolean rec = recovery;
+		boolean[] violated = new boolean[idx.fences.length];
+		boolean[] near = new boolean[idx.fences.length];
+		int[] cand = idx.candidates(so);
+		for (int k = 0; k < cand.length; k++) {
+			evaluate(idx,idx.fences[cand[k]],so,h,v,violated,near);
+		}
+		for (int k = 0; k < idx.always.length; k++) {
+			evaluate(idx,idx.fences[idx.always[k]],so,h,v,violated,near);
+		}
+		ArrayList<Integer> vl = new ArrayList<Integer>();
+		ArrayList<Integer> nl = new ArrayList<Integer>();
+		ArrayList<Vect2> rl = new ArrayList<Vect2>();
+		for (int k = 0; k < idx.fences.length; k++) {
+			Fence fc = idx.fences[k];
+			if (violated[k]) {
+				vl.add(fc.id);
+				if (rec) {
+					double buff = cd.getBuff();
+					if (fc.type == FenceType.KEEP_IN) {
+						rl.add(PolycarpResolution.inside_recovery_point(buff,h,fc.vertices,so.vect2()));
+					} else {
+						rl.add(PolycarpResolution.outside_recovery_point(buff,h,fc.vertices,so.vect2()));
+					}
+				}
+			}
+			if (near[k]) {
+				nl.add(fc.id);
+			}
+		}
+		return new Status(so,vl,nl,rl);
+	}
+
+	private void evaluate(Index idx, Fence fc, Vect3 so, double h, double v, boolean[] violated, boolean[] near) {
+		int k = fc.id;
+		if (!idx.mayTouch(fc,so)) {
+			violated[k] = fc.type == FenceType.KEEP_IN;
+			return;
+		}
+		if (fc.type == FenceType.KEEP_IN) {
+			violated[k] = !cd.definitelyInside(so,fc.poly);
+		} else {
+			violated[k] = cd.violation(so,null,fc.poly);
+		}
+		near[k] = cd.nearEdge(so,fc.poly,h,v);
+	}
+
+	public boolean hasError() {
+		return error.hasError();
+	}
+
+	public boolean hasMessage() {
+		return error.hasMessage();
+	}
+
+	public String getMessage() {
+		return error.getMessage();
+	}
+
+	public String getMessageNoClear() {
+		return error.getMessageNoClear();
+	}
+
+}
@@ -0,0 +1,579 @@
+/*
+ * PolycarpPreparedPolygon - containment for 3D polygons that are queried many times
+ *
+ * Copyright (c) 2015-2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gov.nasa.larcfm.Util.BoundingRectangle;
+import gov.nasa.larcfm.Util.Poly3D;
+import gov.nasa.larcfm.Util.Vect2;
+import gov.nasa.larcfm.Util.Vect3;
+import gov.nasa.larcfm.Util.f;
+
+import static gov.nasa.larcfm.ACCoRD.PolycarpDoubleQuadratic.ae;
+
+/**
+ * A static polygon prepared for repeated containment queries.<p>
+ *
+ * The methods of Polycarp3D copy the vertices of the polygon into a new list, and check that the
+ * polygon is "nice" (an O(n^2) operation), on every call. A prepared polygon stores its vertices in
+ * primitive arrays, checks niceness once per buffer value, and indexes its edges by vertical and
+ * horizontal slabs, so that the edge proximity, crossing, and winding number tests of
+ * PolycarpContain are only evaluated on the edges that can affect the answer.<p>
+ *
+ * The answers of nearEdge, definitely_inside and definitely_outside are identical to those of the
+ * corresponding methods of Polycarp3D on the original polygon with the same checkNice flag,
+ * except that the "not nice" warning is printed once per buffer value rather than on every call.<p>
+ *
+ * Prepared polygons are immutable and can be shared between threads.
+ */
+public final class PolycarpPreparedPolygon {
+
+	/** Maximum number of slabs in each direction */
+	private static final int MAX_SLABS = 512;
+
+	private final Poly3D poly;
+	private final boolean checkNice;
+	private final double bottom;
+	private final double top;
+	private final Ring fwd;
+	private volatile Ring rev = null;
+	private final ConcurrentHashMap<Double,Ring> nice = new ConcurrentHashMap<Double,Ring>();
+	private static final Ring NOT_NICE = new Ring(new double[0], new double[0]);
+
+	/**
+	 * Prepare polygon p.
+	 * @param p polygon, in either clockwise or counterclockwise order
+	 * @param checkNice if true, queries check that the polygon is nice for their buffer (reversing its order
+	 * if needed), as Polycarp3D does. The result of this check is computed once per buffer value.
+	 */
+	public PolycarpPreparedPolygon(Poly3D p, boolean checkNice) {
+		poly = new Poly3D(p);
+		this.checkNice = checkNice;
+		bottom = p.getBottom();
+		top = p.getTop();
+		int n = p.size();
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			Vect2 v = p.getVertex(i);
+			x[i] = v.x;
+			y[i] = v.y;
+		}
+		fwd = new Ring(x,y);
+	}
+
+	/** The original polygon (a copy) */
+	public Poly3D getPoly3D() {
+		return new Poly3D(poly);
+	}
+
+	/** Number of vertices */
+	public int size() {
+		return fwd.n;
+	}
+
+	public double getBottom() {
+		return bottom;
+	}
+
+	public double getTop() {
+		return top;
+	}
+
+	/** Bounding rectangle of the horizontal polygon */
+	public BoundingRectangle getBoundingRectangle() {
+		BoundingRectangle br = new BoundingRectangle();
+		for (int i = 0; i < fwd.n; i++) {
+			br.add(fwd.x[i],fwd.y[i]);
+		}
+		return br;
+	}
+
+	/**
+	 * Return true if this polygon (in its original or reversed order) is nice for the given buffer.
+	 * If checkNice is false, this always returns true.
+	 */
+	public boolean isNice(double BUFF) {
+		return ring(BUFF,null) != null;
+	}
+
+	/**
+	 * Vertices of the horizontal polygon in the order used by the queries with buffer BUFF
+	 * (reversed if the original order is not nice), or null if the polygon is not nice for BUFF.
+	 */
+	public ArrayList<Vect2> getVertices(double BUFF) {
+		Ring r = ring(BUFF,null);
+		return r == null ? null : r.vertices();
+	}
+
+	/**
+	 * Same as Polycarp3D.nearEdge(so,p,h,v,checkNice)
+	 */
+	public boolean nearEdge(Vect3 so, double h, double v) {
+		if (so.z() < bottom-v || so.z() > top+v) {
+			return false;
+		}
+		Ring r = ring(h,"Polycarp3D.violation");
+		if (r == null) {
+			return false;
+		}
+		Vect2 s = so.vect2();
+		if (r.near_any_edge(s,h)) {
+			return true;
+		}
+		if (r.definitely_inside(s,h) && (so.z() < bottom+v || so.z() > top-v)) {
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Same as Polycarp3D.definitely_inside(so,p,buff,checkNice)
+	 */
+	public boolean definitely_inside(Vect3 so, double buff) {
+		if (so.z() < bottom+buff || so.z() > top-buff) {
+			return false;
+		}
+		Ring r = ring(buff,"Polycarp3D.definitely_inside");
+		if (r == null) {
+			return false;
+		}
+		return r.definitely_inside(so.vect2(),buff);
+	}
+
+	/**
+	 * Same as Polycarp3D.definitely_outside(so,p,buff,checkNice)
+	 */
+	public boolean definitely_outside(Vect3 so, double buff) {
+		if (so.z() < bottom-buff || so.z() > top+buff) {
+			return true;
+		}
+		Ring r = ring(buff,"Polycarp3D.definitely_outside");
+		if (r == null) {
+			return false;
+		}
+		return r.definitely_outside(so.vect2(),buff);
+	}
+
+	/**
+	 * Same as PolycarpContain.near_any_edge on the vertices returned by getVertices(BUFF).
+	 * Returns false if the polygon is not nice for BUFF.
+	 */
+	public boolean near_any_edge(Vect2 s, double BUFF) {
+		Ring r = ring(BUFF,null);
+		return r != null && r.near_any_edge(s,BUFF);
+	}
+
+	private Ring ring(double BUFF, String caller) {
+		if (!checkNice) {
+			return fwd;
+		}
+		Ring r = nice.get(BUFF);
+		if (r == null) {
+			ArrayList<Vect2> ps = fwd.vertices();
+			if (PolycarpContain.nice_polygon_2D(ps,BUFF)) {
+				r = fwd;
+			} else if (PolycarpContain.nice_polygon_2D(reversed().vertices(),BUFF)) {
+				r = reversed();
+			} else {
+				r = NOT_NICE;
+				if (caller != null) {
+					f.pln("WARNING: "+caller+": NOT A NICE POLYGON!");
+				}
+			}
+			nice.putIfAbsent(BUFF,r);
+		}
+		return r == NOT_NICE ? null : r;
+	}
+
+	private Ring reversed() {
+		Ring r = rev;
+		if (r == null) {
+			int n = fwd.n;
+			double[] x = new double[n];
+			double[] y = new double[n];
+			for (int i = 0; i < n; i++) {
+				x[i] = fwd.x[n-1-i];
+				y[i] = fwd.y[n-1-i];
+			}
+			r = new Ring(x,y);
+			rev = r;
+		}
+		return r;
+	}
+
+	public String toString() {
+		return "PolycarpPreparedPolygon: "+poly.toString();
+	}
+
+	/**
+	 * The vertices of a horizontal polygon in a fixed order, with an index of its edges by
+	 * vertical slabs (columns) and horizontal slabs (rows). Edge i goes from vertex i to vertex i+1 (mod n).
+	 * The candidate edges of a query are always a superset of the edges whose exact test can succeed;
+	 * the exact tests themselves repeat the arithmetic of PolycarpContain and PolycarpAcceptablePolygon.
+	 */
+	private static final class Ring {
+		final int n;
+		final double[] x;
+		final double[] y;
+		final double extent;
+		final Slabs cols;
+		final Slabs rows;
+
+		Ring(double[] x, double[] y) {
+			n = x.length;
+			this.x = x;
+			this.y = y;
+			double[] eminx = new double[n];
+			double[] emaxx = new double[n];
+			double[] eminy = new double[n];
+			double[] emaxy = new double[n];
+			for (int i = 0; i < n; i++) {
+				int j = next(i);
+				eminx[i] = Math.min(x[i],x[j]);
+				emaxx[i] = Math.max(x[i],x[j]);
+				eminy[i] = Math.min(y[i],y[j]);
+				emaxy[i] = Math.max(y[i],y[j]);
+			}
+			cols = new Slabs(eminx,emaxx);
+			rows = new Slabs(eminy,emaxy);
+			extent = Math.max(cols.hi-cols.lo,rows.hi-rows.lo);
+		}
+
+		int next(int i) {
+			return i < n-1 ? i+1 : 0;
+		}
+
+		ArrayList<Vect2> vertices() {
+			ArrayList<Vect2> ps = new ArrayList<Vect2>(n);
+			for (int i = 0; i < n; i++) {
+				ps.add(new Vect2(x[i],y[i]));
+			}
+			return ps;
+		}
+
+		/**
+		 * Radius around a point beyond which no edge can be found near by PolycarpEdgeProximity.near_edge,
+		 * including a margin for round-off in its quadratic tests.
+		 */
+		double nearRadius(double BUFF) {
+			return 2*Math.abs(BUFF)+1.0E-6*extent;
+		}
+
+		// Same as PolycarpContain.near_any_edge, for the polygon with the moved vertices of fix
+		boolean near_any_edge(Vect2 s, double BUFF, Fix fix) {
+			double r = nearRadius(BUFF)+(fix == null ? 0.0 : 2*Math.abs(BUFF));
+			int[] cand = cols.query(s.x-r,s.x+r,false);
+			for (int k = 0; k < cand.length; k++) {
+				int i = cand[k];
+				if (rows.min[i] > s.y+r || rows.max[i] < s.y-r) continue;
+				int j = next(i);
+				if (PolycarpEdgeProximity.near_edge(xAt(i,fix),y[i],xAt(j,fix),y[j],s.x,s.y,BUFF)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean near_any_edge(Vect2 s, double BUFF) {
+			return near_any_edge(s,BUFF,null);
+		}
+
+		double xAt(int i, Fix fix) {
+			return fix != null && fix.moved(i) ? x[i]-2*fix.BUFF : x[i];
+		}
+
+		// Same as PolycarpContain.winding_number. Edges that do not meet the row or the column of s
+		// stay in one quadrant and do not contribute to the total.
+		int winding_number(Vect2 s) {
+			int total = 0;
+			int[] cand = cols.query(s.x,s.x,false);
+			for (int k = 0; k < cand.length; k++) {
+				int i = cand[k];
+				if (cols.min[i] <= s.x && s.x <= cols.max[i]) {
+					total += winding_step(s,i);
+				}
+			}
+			cand = rows.query(s.y,s.y,false);
+			for (int k = 0; k < cand.length; k++) {
+				int i = cand[k];
+				if (rows.min[i] <= s.y && s.y <= rows.max[i] && !(cols.min[i] <= s.x && s.x <= cols.max[i])) {
+					total += winding_step(s,i);
+				}
+			}
+			return (int)Math.floor(total/4.0+0.5);
+		}
+
+		private int winding_step(Vect2 s, int i) {
+			int j = next(i);
+			Vect2 thisv = new Vect2(x[i]-s.x,y[i]-s.y);
+			Vect2 nextv = new Vect2(x[j]-s.x,y[j]-s.y);
+			int k = PolycarpContain.quadrant(thisv);
+			int q = PolycarpContain.quadrant(nextv);
+			if (k==q) {
+				return 0;
+			} else if (q-1==(k % 4)) {
+				return 1;
+			} else if (k-1==(q % 4)) {
+				return -1;
+			} else if ((nextv.Sub(thisv)).det(thisv)<=0) {
+				return 2;
+			} else {
+				return -2;
+			}
+		}
+
+		// Same as PolycarpContain.fix_polygon, but only records the indices of the moved vertices
+		Fix fix_polygon(Vect2 s, double BUFF) {
+			int[] cand = cols.query(s.x-Math.abs(BUFF),s.x+Math.abs(BUFF),false);
+			int[] moved = new int[cand.length];
+			int m = 0;
+			for (int k = 0; k < cand.length; k++) {
+				int i = cand[k];
+				if (y[i]>=s.y-BUFF && Math.abs(x[i]-s.x)<BUFF) {
+					moved[m++] = i;
+				}
+			}
+			moved = Arrays.copyOf(moved,m);
+			Arrays.sort(moved);
+			return new Fix(moved,BUFF);
+		}
+
+		// Same as PolycarpContain.definitely_inside_prelim on the fixed polygon
+		boolean definitely_inside_prelim(Fix fix, Vect2 s, double BUFF) {
+			int[] cand = cols.query(s.x-2*Math.abs(BUFF),s.x+2*Math.abs(BUFF),true);
+			int index = min_cross_dist_index(cand,fix,s);
+			if (index<0) {
+				return false;
+			}
+			int[] nuc = number_upshot_crosses(cand,fix,s);
+			if (nuc[1] != 0) {
+				return false;
+			}
+			if (xAt(index,fix)<s.x) {
+				return false;
+			}
+			if (xAt(next(index),fix)>s.x) {
+				return false;
+			}
+			if ((nuc[0] % 2)==0) {
+				return false;
+			}
+			if (near_any_edge(s,BUFF,fix)) {
+				return false;
+			}
+			return true;
+		}
+
+		// Same as PolycarpContain.definitely_outside_prelim on the fixed polygon
+		boolean definitely_outside_prelim(Fix fix, Vect2 s, double BUFF) {
+			if (near_any_edge(s,BUFF,fix)) return false;
+			int[] cand = cols.query(s.x-2*Math.abs(BUFF),s.x+2*Math.abs(BUFF),true);
+			int[] nuc = number_upshot_crosses(cand,fix,s);
+			if (nuc[1] != 0) return false;
+			int index = min_cross_dist_index(cand,fix,s);
+			if (index<0) return true;
+			if (xAt(index,fix)>s.x) return false;
+			if (xAt(next(index),fix)<s.x) return false;
+			if ((nuc[0] % 2)!=0) return false;
+			return true;
+		}
+
+		// Same as PolycarpContain.definitely_inside
+		boolean definitely_inside(Vect2 s, double BUFF) {
+			if (near_any_edge(s,BUFF)) {
+				return false;
+			}
+			Fix fix = fix_polygon(s,BUFF);
+			if (!fix.isEmpty() && near_any_edge(s,BUFF,fix)) {
+				return false;
+			}
+			if (winding_number(s) != 1) {
+				return false;
+			}
+			return definitely_inside_prelim(fix,s,BUFF);
+		}
+
+		// Same as PolycarpContain.definitely_outside
+		boolean definitely_outside(Vect2 s, double BUFF) {
+			if (near_any_edge(s,BUFF)) {
+				return false;
+			}
+			Fix fix = fix_polygon(s,BUFF);
+			if (!fix.isEmpty() && near_any_edge(s,BUFF,fix)) {
+				return false;
+			}
+			if (winding_number(s) != 0) {
+				return false;
+			}
+			return definitely_outside_prelim(fix,s,BUFF);
+		}
+
+		// Same as PolycarpAcceptablePolygon.min_cross_dist_index, cand must be sorted.
+		// Edges that are not candidates do not cross the vertical line through s, and yield index -1.
+		int min_cross_dist_index(int[] cand, Fix fix, Vect2 s) {
+			int index = -1;
+			double num = 1;
+			double denom = 1;
+			for (int k = 0; k < cand.length; k++) {
+				int i = cand[k];
+				int j = next(i);
+				double xi = xAt(i,fix);
+				double xj = xAt(j,fix);
+				if ((xi>s.x && xj>s.x) || (xi<s.x && xj<s.x) || ae(xi,xj)) {
+					continue;
+				}
+				double newnum = (y[i]-s.y)*(xj-xi) + (s.x-xi)*(y[j]-y[i]);
+				double newdenom = xj-xi;
+				if (newnum*newdenom<0) {
+					continue;
+				}
+				if (index<0 || denom*denom*newnum*newdenom<num*denom*newdenom*newdenom) {
+					index = i;
+					num = newnum;
+					denom = newdenom;
+				}
+			}
+			return index;
+		}
+
+		// Same as PolycarpContain.number_upshot_crosses, returns {num, invalid ? 1 : 0}
+		int[] number_upshot_crosses(int[] cand, Fix fix, Vect2 s) {
+			int num = 0;
+			int invalid = 0;
+			for (int k = 0; k < cand.length; k++) {
+				int i = cand[k];
+				int j = next(i);
+				double xi = xAt(i,fix);
+				double xj = xAt(j,fix);
+				double tester = (xj-xi)*(xj-xi) * (y[i]-s.y) + (s.x-xi)*(y[j]-y[i])*(xj-xi);
+				if (xi>s.x && xj>s.x) continue;
+				else if (xi<s.x && xj<s.x) continue;
+				else if (ae(xi,xj) && (y[i]>=s.y || y[j]>=s.y)) {
+					num++;
+					invalid = 1;
+				}
+				else if (ae(xi,xj)) continue;
+				else if (tester>=0) num++;
+			}
+			return new int[] {num,invalid};
+		}
+	}
+
+	/** The vertices moved by PolycarpContain.fix_polygon for a given point (sorted indices) */
+	private static final class Fix {
+		final int[] moved;
+		final double BUFF;
+
+		Fix(int[] moved, double BUFF) {
+			this.moved = moved;
+			this.BUFF = BUFF;
+		}
+
+		boolean isEmpty() {
+			return moved.length == 0;
+		}
+
+		boolean moved(int i) {
+			return moved.length > 0 && Arrays.binarySearch(moved,i) >= 0;
+		}
+	}
+
+	/**
+	 * Edges bucketed by the slabs of a uniform partition of [lo,hi] that their [min,max] range overlaps.
+	 * Buckets are stored contiguously (offsets in start).
+	 */
+	private static final class Slabs {
+		final double[] min;
+		final double[] max;
+		final double lo;
+		final double hi;
+		final double width;
+		final int[] start;
+		final int[] edges;
+
+		Slabs(double[] min, double[] max) {
+			this.min = min;
+			this.max = max;
+			int n = min.length;
+			double l = Double.MAX_VALUE;
+			double h = -Double.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				l = Math.min(l,min[i]);
+				h = Math.max(h,max[i]);
+			}
+			if (n == 0) {
+				l = h = 0.0;
+			}
+			lo = l;
+			hi = h;
+			int ns = Math.max(1,Math.min(MAX_SLABS,n/2));
+			width = h > l ? (h-l)/ns : 0.0;
+			if (width <= 0.0 || Double.isInfinite(width) || Double.isNaN(width)) {
+				ns = 1;
+			}
+			start = new int[ns+1];
+			for (int i = 0; i < n; i++) {
+				for (int c = slab(min[i]); c <= slab(max[i]); c++) {
+					start[c+1]++;
+				}
+			}
+			for (int c = 0; c < ns; c++) {
+				start[c+1] += start[c];
+			}
+			edges = new int[start[ns]];
+			int[] fill = Arrays.copyOf(start,ns);
+			for (int i = 0; i < n; i++) {
+				for (int c = slab(min[i]); c <= slab(max[i]); c++) {
+					edges[fill[c]++] = i;
+				}
+			}
+		}
+
+		int slab(double v) {
+			int ns = start.length-1;
+			if (ns == 1 || !(v > lo)) return 0;
+			int c = (int)((v-lo)/width);
+			return c < ns ? c : ns-1;
+		}
+
+		/**
+		 * Indices of the edges that belong to a slab overlapping [a,b], each reported once,
+		 * in increasing order if sorted is true.
+		 */
+		int[] query(double a, double b, boolean sorted) {
+			int c0 = slab(a);
+			int c1 = slab(b);
+			if (c0 == c1) {
+				int[] res = Arrays.copyOfRange(edges,start[c0],start[c0+1]);
+				return res; // edges of a single slab are stored in increasing order
+			}
+			int m = 0;
+			int[] res = new int[start[c1+1]-start[c0]];
+			for (int c = c0; c <= c1; c++) {
+				for (int k = start[c]; k < start[c+1]; k++) {
+					int i = edges[k];
+					// report an edge only in the first slab of the query where it appears
+					if (c == c0 || slab(min[i]) == c) {
+						res[m++] = i;
+					}
+				}
+			}
+			res = Arrays.copyOf(res,m);
+			if (sorted) {
+				Arrays.sort(res);
+			}
+			return res;
+		}
+	}
+
+}
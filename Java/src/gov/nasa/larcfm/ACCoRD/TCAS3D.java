@@ -9,19 +9,24 @@ package gov.nasa.larcfm.ACCoRD;
 
 import gov.nasa.larcfm.Util.*;
 
+import java.util.List;
+
 public class TCAS3D implements Detection3D {
   String id = "";
 
   private TCASTable table;
+  private TCASTable.Thresholds thr; // compiled from table, rebuilt on every change to table
 
   /** Constructor that uses the default TCAS tables. */
   public TCAS3D() {
     table = new TCASTable();
+    thr = table.compile();
   }
 
   /** Constructor that specifies a particular instance of the TCAS tables. */
   public TCAS3D(TCASTable tables) {
     table = tables.copy();
+    thr = table.compile();
   }
 
   /** This gets a COPY of the internal TCAS table */
@@ -32,6 +37,7 @@ public class TCAS3D implements Detection3D {
   /** This set the internal table to a COPY of the supplied one */
   public void setTCASTable(TCASTable tables) {
     table = tables.copy();
+    thr = table.compile();
   }
 
   public boolean violation(Vect3 so, Velocity vo, Vect3 si, Velocity vi) {
@@ -46,6 +52,16 @@ public class TCAS3D implements Detection3D {
     return RA3D(so,vo,si,vi,B,T);
   }
 
+  public boolean conflict(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData work) {
+    return conflictDetection(so,vo,si,vi,B,T,work);
+  }
+
+  public boolean conflictDetection(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData out) {
+    TCASTable.Thresholds t = thr;
+    RA3D_interval(t,t.level(so.z),so,vo,si,vi,B,T,out);
+    return out.conflict();
+  }
+
   public TCAS3D make() {
     return new TCAS3D();
   }
@@ -57,6 +73,7 @@ public class TCAS3D implements Detection3D {
   public TCAS3D copy() {
     TCAS3D ret = new TCAS3D();
     ret.table = new TCASTable(table); 
+    ret.thr = thr;
     ret.id = id;
     return ret;
   }
@@ -89,13 +106,14 @@ public class TCAS3D implements Detection3D {
     Vect2 vo2 = vo.vect2();
     Vect2 vi2 = vi.vect2();
     Vect2 v2 = vo2.Sub(vi2);
-    int sl = TCASTable.getSensitivityLevel(so.z);
-    boolean usehmdf = table.getHMDFilter();
-    double TAU  = table.getTAU(sl);
-    double TCOA = table.getTCOA(sl);
-    double DMOD = table.getDMOD(sl);
-    double HMD  = table.getHMD(sl);
-    double ZTHR = table.getZTHR(sl);
+    TCASTable.Thresholds t = thr;
+    int sl = t.level(so.z);
+    boolean usehmdf = t.getHMDFilter();
+    double TAU  = t.getTAU(sl);
+    double TCOA = t.getTCOA(sl);
+    double DMOD = t.getDMOD(sl);
+    double HMD  = t.getHMD(sl);
+    double ZTHR = t.getZTHR(sl);
 
     return (!usehmdf || cd2d_TCAS(HMD,s2,vo2,vi2)) &&
         TCAS2D.horizontal_RA(DMOD,TAU,s2,v2) &&
@@ -109,37 +127,69 @@ public class TCAS3D implements Detection3D {
     return RA3D_interval(so,vo,si,vi,B,T);
   }
 
+  /**
+   * Batch version of RA3D for a list of intruders. The i-th element of the result is the 
+   * conflict data of the ownship against the aircraft at position si.get(i) with velocity vi.get(i).
+   * The sensitivity level and the thresholds of the ownship are resolved once for all intruders.
+   */
+  public ConflictData[] RA3D(Vect3 so, Velocity vo, List<Vect3> si, List<Velocity> vi, double B, double T) {
+    TCASTable.Thresholds t = thr;
+    int sl = t.level(so.z);
+    ConflictData[] cd = new ConflictData[si.size()];
+    for (int i=0; i < cd.length; i++) {
+      cd[i] = RA3D_interval(t,sl,so,vo,si.get(i),vi.get(i),B,T);
+    }
+    return cd;
+  }
+
+  /**
+   * Batch version of conflictDetection for a list of intruders (see RA3D).
+   */
+  public ConflictData[] conflictDetection(Vect3 so, Velocity vo, List<Vect3> si, List<Velocity> vi, double B, double T) {
+    return RA3D(so,vo,si,vi,B,T);
+  }
+
   // Assumes 0 <= B < T
   public ConflictData RA3D_interval(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T) {
+    TCASTable.Thresholds t = thr;
+    return RA3D_interval(t,t.level(so.z),so,vo,si,vi,B,T);
+  }
+
+  private static ConflictData RA3D_interval(TCASTable.Thresholds t, int sl, Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T) {
+    MutableConflictData out = new MutableConflictData();
+    RA3D_interval(t,sl,so,vo,si,vi,B,T,out);
+    return out.toConflictData();
+  }
+
+  private static void RA3D_interval(TCASTable.Thresholds t, int sl, Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData out) {
     double time_in     = T;
     double time_out    = B;
     double time_mintau = -1;
     double dist_mintau = -1;
 
-    Vect3 s = so.Sub(si);
-    Velocity v = vo.Sub(vi);
-    Vect2 s2 = s.vect2();
+    Vect2 s2 = new Vect2(so.x-si.x,so.y-si.y);
     Vect2 vo2 = vo.vect2();
     Vect2 vi2 = vi.vect2();
-    Vect2 v2 = v.vect2();
-    int sl = TCASTable.getSensitivityLevel(so.z);
-    boolean usehmdf = table.getHMDFilter();
-    double TAU  = table.getTAU(sl);
-    double TCOA = table.getTCOA(sl);
-    double DMOD = table.getDMOD(sl);
-    double HMD  = table.getHMD(sl);
-    double ZTHR = table.getZTHR(sl);
+    Vect2 v2 = new Vect2(vo.x-vi.x,vo.y-vi.y);
+    boolean usehmdf = t.getHMDFilter();
+    double TAU  = t.getTAU(sl);
+    double TCOA = t.getTCOA(sl);
+    double DMOD = t.getDMOD(sl);
+    double HMD  = t.getHMD(sl);
+    double ZTHR = t.getZTHR(sl);
 
     if (usehmdf && !cd2d_TCAS_after(HMD,s2,vo2,vi2,B)) {
       time_mintau = TCAS2D.time_of_min_tau(DMOD,B,T,s2,v2);
-      dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-      return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+      dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+      out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
+      return;
     }
     double sz = so.z-si.z;
     if (Util.almost_equals(vo.z, vi.z) && Math.abs(sz) > ZTHR) {
       time_mintau = TCAS2D.time_of_min_tau(DMOD,B,T,s2,v2);
-      dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-      return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+      dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+      out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
+      return;
     }
     double vz = vo.z-vi.z;
     double tentry = B;
@@ -154,8 +204,9 @@ public class TCAS3D implements Detection3D {
     boolean los_at_centry = ventry.sqv() <= Util.sq(HMD);
     if (texit < B || T < tentry) {
       time_mintau = TCAS2D.time_of_min_tau(DMOD,B,T,s2,v2);
-      dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-      return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+      dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+      out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
+      return;
     }
     double tin = Math.max(B,tentry);
     double tout = Math.min(T,texit);
@@ -168,8 +219,9 @@ public class TCAS3D implements Detection3D {
     if (RAin2D > RAout2D || RAout2D<tin || RAin2D > tout ||
     (usehmdf && HMD < DMOD && exit_at_centry && !los_at_centry)) { 
       time_mintau = TCAS2D.time_of_min_tau(DMOD,B,T,s2,v2);
-      dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-      return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+      dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+      out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
+      return;
     }
     if (usehmdf && HMD < DMOD) {
       double exitTheta = T;
@@ -180,18 +232,20 @@ public class TCAS3D implements Detection3D {
       time_out = minRAoutTheta;
       if (RAin2D_lookahead <= minRAoutTheta) {
         time_mintau = TCAS2D.time_of_min_tau(DMOD,RAin2D_lookahead,minRAoutTheta,s2,v2);
-        dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-        return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+        dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+        out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
+        return;
       }
       time_mintau = TCAS2D.time_of_min_tau(DMOD,B,T,s2,v2);
-      dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-      return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+      dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+      out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
+      return;
     }
     time_in = RAin2D_lookahead;
     time_out = RAout2D_lookahead;
     time_mintau = TCAS2D.time_of_min_tau(DMOD,RAin2D_lookahead,RAout2D_lookahead,s2,v2);
-    dist_mintau = so.linear(vo, time_mintau).Sub(si.linear(vi, time_mintau)).cyl_norm(table.getDMOD(8), table.getZTHR(8));
-    return new ConflictData(time_in,time_out,time_mintau,dist_mintau,s,v);
+    dist_mintau = MutableConflictData.cyl_norm_at(so,vo,si,vi,time_mintau,t.getDMOD(8),t.getZTHR(8));
+    out.set(time_in,time_out,time_mintau,dist_mintau,so,vo,si,vi);
   }
 
   /**
@@ -255,6 +309,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setTAU(int sl, double val) {
     table.setTAU(sl,val);
+    thr = table.compile();
   }
 
   /** 
@@ -262,6 +317,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setTAU(double val) {
     table.setTAU(val);
+    thr = table.compile();
   }
 
   /** Modify the value of TCOA Threshold for a given sensitivity level (2-8)
@@ -269,6 +325,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setTCOA(int sl, double val) {
     table.setTCOA(sl,val);
+    thr = table.compile();
   }
 
   /** 
@@ -276,6 +333,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setTCOA(double val) {
     table.setTCOA(val);
+    thr = table.compile();
   }
 
   /** Modify the value of DMOD for a given sensitivity level (2-8)
@@ -283,6 +341,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setDMOD(int sl, double val) { 
     table.setDMOD(sl, val);
+    thr = table.compile();
   }
 
   /** Modify the value of DMOD for a given sensitivity level (2-8)
@@ -290,6 +349,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setDMOD(int sl, double val, String u) { 
     table.setDMOD(sl,val,u);
+    thr = table.compile();
   }
 
   /** 
@@ -297,6 +357,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setDMOD(double val, String u) {
     table.setDMOD(val,u);
+    thr = table.compile();
   }
 
   /** Modify the value of ZTHR for a given sensitivity level (2-8)
@@ -304,6 +365,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setZTHR(int sl, double val) {
     table.setZTHR(sl,val);
+    thr = table.compile();
   }
 
   /** Modify the value of ZTHR for a given sensitivity level (2-8)
@@ -311,6 +373,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setZTHR(int sl, double val, String u) {
     table.setZTHR(sl,val,u);
+    thr = table.compile();
   }
 
   /** 
@@ -318,6 +381,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setZTHR(double val, String u) {
     table.setZTHR(val,u);
+    thr = table.compile();
   }
 
   /** 
@@ -326,6 +390,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setHMD(int sl, double val) {
     table.setHMD(sl,val);
+    thr = table.compile();
   }
 
   /** 
@@ -334,6 +399,7 @@ public class TCAS3D implements Detection3D {
    */
   public void setHMD(int sl, double val, String u) {
     table.setHMD(sl,val,u);
+    thr = table.compile();
   }
 
   /** 
@@ -341,10 +407,12 @@ public class TCAS3D implements Detection3D {
    */
   public void setHMD(double val, String u) {
     table.setHMD(val,u);
+    thr = table.compile();
   }
 
   public void setHMDFilter(boolean flag) {
     table.setHMDFilter(flag);
+    thr = table.compile();
   }
 
   public boolean getHMDFilter() {
@@ -372,11 +440,29 @@ public class TCAS3D implements Detection3D {
 
   public void setParameters(ParameterData p) {
     table.setParameters(p);
+    thr = table.compile();
     if (p.contains("id")) {
       id = p.getString("id");
     }
   }
 
+  /**
+   * Set the parameters of the internal table that are defined in the snapshot s. 
+   * The snapshot must have been built with the table's SNAPSHOT_LAYOUT, otherwise
+   * an IllegalArgumentException is thrown.
+   */
+  public void setParameterSnapshot(ParameterSnapshot s) {
+    table.setParameterSnapshot(s);
+    thr = table.compile();
+  }
+
+  /**
+   * Return an immutable snapshot of the parameters of the internal table.
+   */
+  public ParameterSnapshot getParameterSnapshot() {
+    return table.getParameterSnapshot();
+  }
+
   public String getSimpleClassName() {
     return getClass().getSimpleName();
   }
@@ -9,6 +9,7 @@ package gov.nasa.larcfm.ACCoRD;
 import java.util.Arrays;
 
 import gov.nasa.larcfm.Util.ParameterData;
+import gov.nasa.larcfm.Util.ParameterSnapshot;
 import gov.nasa.larcfm.Util.Units;
 import gov.nasa.larcfm.Util.f;
 
@@ -20,6 +21,34 @@ public class TCASTable implements ParameterTable {
   private double ZTHR[] = new double[7]; 
   private double HMD[]  = new double[7];
 
+  /** 
+   * Layout of the parameter snapshots of this table: TCAS_HMDFilter followed by 
+   * TCAS_TAU_i, TCAS_TCOA_i, TCAS_DMOD_i, TCAS_ZTHR_i, and TCAS_HMD_i, for sensitivity levels i = 2..8. 
+   */
+  public static final ParameterSnapshot.Layout SNAPSHOT_LAYOUT = makeSnapshotLayout();
+  private static final int HMDFilter_idx = 0;
+  private static final int TAU_idx  = 1;
+  private static final int TCOA_idx = TAU_idx+7;
+  private static final int DMOD_idx = TCOA_idx+7;
+  private static final int ZTHR_idx = DMOD_idx+7;
+  private static final int HMD_idx  = ZTHR_idx+7;
+
+  private static ParameterSnapshot.Layout makeSnapshotLayout() {
+    String[] names = {"TAU","TCOA","DMOD","ZTHR","HMD"};
+    String[] units = {"s","s","nmi","ft","ft"};
+    String[] keys = new String[1+5*7];
+    String[] keyunits = new String[1+5*7];
+    keys[0] = "TCAS_HMDFilter";
+    keyunits[0] = null;
+    for (int j = 0; j < 5; j++) {
+      for (int i = 0; i < 7; i++) {
+        keys[1+7*j+i] = "TCAS_"+names[j]+"_"+(i+2);
+        keyunits[1+7*j+i] = units[j];
+      }
+    }
+    return new ParameterSnapshot.Layout(keys,keyunits);
+  }
+
   public TCASTable() {
     setDefaultRAThresholds(true);
   }
@@ -62,6 +91,89 @@ public class TCASTable implements ParameterTable {
     return 8;
   }
 
+  /** Upper altitude bounds, in internal units, of sensitivity levels 2 to 7 (see getSensitivityLevel) */
+  static private final double[] SL_ALT = {
+    Units.from(Units.ft,1000),              // 2
+    Units.from(Units.ft,2350),              // 3
+    Units.from(Units.ft,5000),              // 4
+    Units.from(Units.ft,10000),             // 5
+    Units.from(Units.ft,20000),             // 6
+    Units.from(Units.ft,42000)};            // 7
+
+  /** 
+   * A precompiled, immutable view of the thresholds of a TCAS table. Thresholds are stored 
+   * in a flat array indexed by sensitivity level, so that a detector can resolve the sensitivity 
+   * level of an altitude and all its thresholds without going through the table getters.
+   * A Thresholds object does not change when the table it was compiled from is modified; 
+   * call TCASTable.compile() again after each change.
+   */
+  public static final class Thresholds {
+    private static final int TAU_k  = 0;
+    private static final int TCOA_k = 1;
+    private static final int DMOD_k = 2;
+    private static final int ZTHR_k = 3;
+    private static final int HMD_k  = 4;
+    private static final int STRIDE = 5;
+
+    private final boolean HMDFilter;
+    private final double[] th = new double[9*STRIDE]; // th[STRIDE*sl+k], sl = 2..8
+
+    private Thresholds(TCASTable t) {
+      HMDFilter = t.HMDFilter;
+      for (int i=0; i < 7; i++) {
+        int o = STRIDE*(i+2);
+        th[o+TAU_k]  = t.TAU[i];
+        th[o+TCOA_k] = t.TCOA[i];
+        th[o+DMOD_k] = t.DMOD[i];
+        th[o+ZTHR_k] = t.ZTHR[i];
+        th[o+HMD_k]  = t.HMD[i];
+      }
+    }
+
+    /** Same as TCASTable.getSensitivityLevel(alt), alt in internal units */
+    public int level(double alt) {
+      if (alt < SL_ALT[0]) return 2;
+      for (int i=1; i < SL_ALT.length; i++) {
+        if (alt <= SL_ALT[i]) return i+2;
+      }
+      return 8;
+    }
+
+    public boolean getHMDFilter() {
+      return HMDFilter;
+    }
+
+    /** TAU threshold for sensitivity level sl (2-8) in seconds */
+    public double getTAU(int sl) {
+      return th[STRIDE*sl+TAU_k];
+    }
+
+    /** TCOA threshold for sensitivity level sl (2-8) in seconds */
+    public double getTCOA(int sl) {
+      return th[STRIDE*sl+TCOA_k];
+    }
+
+    /** DMOD for sensitivity level sl (2-8) in internal units */
+    public double getDMOD(int sl) {
+      return th[STRIDE*sl+DMOD_k];
+    }
+
+    /** Z threshold for sensitivity level sl (2-8) in internal units */
+    public double getZTHR(int sl) {
+      return th[STRIDE*sl+ZTHR_k];
+    }
+
+    /** HMD for sensitivity level sl (2-8) in internal units */
+    public double getHMD(int sl) {
+      return th[STRIDE*sl+HMD_k];
+    }
+  }
+
+  /** Return a precompiled view of the current values of this table */
+  public Thresholds compile() {
+    return new Thresholds(this);
+  }
+
   /** Return sensitivity level from alt specified in u units */
   static public int getSensitivityLevel(double alt, String u) {
     return getSensitivityLevel(Units.from(u,alt));
@@ -418,32 +530,43 @@ public class TCASTable implements ParameterTable {
   }
 
   public void setParameters(ParameterData p) {
-    if (p.contains("TCAS_HMDFilter")) {
-      HMDFilter = p.getBool("TCAS_HMDFilter");
+    setParameterSnapshot(SNAPSHOT_LAYOUT.compile(p));
+  }
+
+  public ParameterSnapshot getParameterSnapshot() {
+    double[] values = new double[SNAPSHOT_LAYOUT.size()];
+    boolean[] bools = new boolean[SNAPSHOT_LAYOUT.size()];
+    bools[HMDFilter_idx] = HMDFilter;
+    for (int i = 0; i < 7; i++) {
+      values[TAU_idx+i] = TAU[i];
+      values[TCOA_idx+i] = TCOA[i];
+      values[DMOD_idx+i] = DMOD[i];
+      values[ZTHR_idx+i] = ZTHR[i];
+      values[HMD_idx+i] = HMD[i];
     }
-    for (int i = 0; i < TAU.length; i++) {
-      if (p.contains("TCAS_TAU_"+(i+2))) {
-        TAU[i] = p.getValue("TCAS_TAU_"+(i+2));
-      }
+    return SNAPSHOT_LAYOUT.make(values,bools);
+  }
+
+  public void setParameterSnapshot(ParameterSnapshot s) {
+    s.checkLayout(SNAPSHOT_LAYOUT,"TCASTable.setParameterSnapshot");
+    if (s.contains(HMDFilter_idx)) {
+      HMDFilter = s.getBool(HMDFilter_idx);
     }
-    for (int i = 0; i < TCOA.length; i++) {
-      if (p.contains("TCAS_TCOA_"+(i+2))) {
-        TCOA[i] = p.getValue("TCAS_TCOA_"+(i+2));
+    for (int i = 0; i < 7; i++) {
+      if (s.contains(TAU_idx+i)) {
+        TAU[i] = s.getValue(TAU_idx+i);
       }
-    }
-    for (int i = 0; i < DMOD.length; i++) {
-      if (p.contains("TCAS_DMOD_"+(i+2))) {
-        DMOD[i] = p.getValue("TCAS_DMOD_"+(i+2));
+      if (s.contains(TCOA_idx+i)) {
+        TCOA[i] = s.getValue(TCOA_idx+i);
       }
-    }
-    for (int i = 0; i < ZTHR.length; i++) {
-      if (p.contains("TCAS_ZTHR_"+(i+2))) {
-        ZTHR[i] = p.getValue("TCAS_ZTHR_"+(i+2));
+      if (s.contains(DMOD_idx+i)) {
+        DMOD[i] = s.getValue(DMOD_idx+i);
       }
-    }
-    for (int i = 0; i < HMD.length; i++) {
-      if (p.contains("TCAS_HMD_"+(i+2))) {
-        HMD[i] = p.getValue("TCAS_HMD_"+(i+2));
+      if (s.contains(ZTHR_idx+i)) {
+        ZTHR[i] = s.getValue(ZTHR_idx+i);
+      }
+      if (s.contains(HMD_idx+i)) {
+        HMD[i] = s.getValue(HMD_idx+i);
       }
     }
   }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.ACCoRD;
+
+/**
+ * Alerting information of one traffic aircraft, as computed by Daidalus.alertingAll: alert level,
+ * time to violation, and conflict detection for every alert level. Objects of this class are immutable.
+ */
+public final class TrafficAlert {
+
+	private final int ac_idx_;
+	private final TrafficState ac_;
+	private final int alert_level_;
+	private final ConflictData[] detections_; // Index 0: conflict alert level. Index i: alert level i.
+
+	TrafficAlert(int ac_idx, TrafficState ac, int alert_level, ConflictData[] detections) {
+		ac_idx_ = ac_idx;
+		ac_ = ac;
+		alert_level_ = alert_level;
+		detections_ = detections;
+	}
+
+	/**
+	 * @return index of the aircraft in the Daidalus object (1 is the first traffic aircraft)
+	 */
+	public int getIndex() {
+		return ac_idx_;
+	}
+
+	public TrafficState getAircraft() {
+		return ac_;
+	}
+
+	/**
+	 * @return alert level, see Daidalus.alerting. The number 0 means no alert.
+	 */
+	public int getAlertLevel() {
+		return alert_level_;
+	}
+
+	/**
+	 * @return conflict detection, within lookahead time, for given alert level, see Daidalus.detection.
+	 * The alert level 0 means conflict alert level. An empty conflict data is returned if the alert level
+	 * is not valid.
+	 */
+	public ConflictData getDetection(int alert_level) {
+		if (0 <= alert_level && alert_level < detections_.length) {
+			return detections_[alert_level];
+		}
+		return new ConflictData();
+	}
+
+	/**
+	 * @return conflict detection, within lookahead time, for conflict alert level
+	 */
+	public ConflictData getDetection() {
+		return detections_[0];
+	}
+
+	/**
+	 * @return time to violation, in seconds, for conflict alert level, see Daidalus.timeToViolation.
+	 * NaN means no conflict within lookahead time.
+	 */
+	public double getTimeToViolation() {
+		ConflictData det = detections_[0];
+		return det.conflict() ? det.getTimeIn() : Double.NaN;
+	}
+
+	public String toString() {
+		String s = ac_.getId()+": alert level "+alert_level_+", time to violation "+getTimeToViolation();
+		for (int alert_level=1; alert_level < detections_.length; ++alert_level) {
+			s += "\n  Alert level "+alert_level+": "+detections_[alert_level].toString();
+		}
+		return s;
+	}
+
+}
@@ -15,6 +15,15 @@ public interface UrgencyStrategy {
   
   public TrafficState mostUrgentAircraft(Detection3D detector, TrafficState ownship, List<TrafficState> traffic, 
       double T);
+
+  /**
+   * Same as mostUrgentAircraft(detector,ownship,traffic,T). Strategies that use conflict detection may get
+   * it from cache (which is null if there is none).
+   */
+  public default TrafficState mostUrgentAircraft(Detection3D detector, TrafficState ownship, List<TrafficState> traffic, 
+      double T, DetectionCache cache) {
+    return mostUrgentAircraft(detector,ownship,traffic,T);
+  }
   
   public UrgencyStrategy copy();
   
@@ -7,6 +7,7 @@
 package gov.nasa.larcfm.ACCoRD;
 
 import gov.nasa.larcfm.Util.ParameterData;
+import gov.nasa.larcfm.Util.ParameterSnapshot;
 import gov.nasa.larcfm.Util.Units;
 import gov.nasa.larcfm.Util.f;
 
@@ -16,6 +17,15 @@ public class WCVTable implements ParameterTable {
   protected double TTHR; // Time threshold
   protected double TCOA; // Time to co-altitude threshold
 
+  /** Layout of the parameter snapshots of this table */
+  public static final ParameterSnapshot.Layout SNAPSHOT_LAYOUT = 
+      new ParameterSnapshot.Layout(new String[] {"WCV_DTHR","WCV_ZTHR","WCV_TTHR","WCV_TCOA"}, 
+          new String[] {"nmi","ft","s","s"});
+  private static final int DTHR_idx = SNAPSHOT_LAYOUT.offset("WCV_DTHR");
+  private static final int ZTHR_idx = SNAPSHOT_LAYOUT.offset("WCV_ZTHR");
+  private static final int TTHR_idx = SNAPSHOT_LAYOUT.offset("WCV_TTHR");
+  private static final int TCOA_idx = SNAPSHOT_LAYOUT.offset("WCV_TCOA");
+
   /**
    * WCV table SARP concept
    */
@@ -185,17 +195,31 @@ public class WCVTable implements ParameterTable {
   }
 
   public void setParameters(ParameterData p) {
-    if (p.contains("WCV_DTHR")) {
-      DTHR = p.getValue("WCV_DTHR");
+    setParameterSnapshot(SNAPSHOT_LAYOUT.compile(p));
+  }
+
+  public ParameterSnapshot getParameterSnapshot() {
+    double[] values = new double[SNAPSHOT_LAYOUT.size()];
+    values[DTHR_idx] = DTHR;
+    values[ZTHR_idx] = ZTHR;
+    values[TTHR_idx] = TTHR;
+    values[TCOA_idx] = TCOA;
+    return SNAPSHOT_LAYOUT.make(values, new boolean[SNAPSHOT_LAYOUT.size()]);
+  }
+
+  public void setParameterSnapshot(ParameterSnapshot s) {
+    s.checkLayout(SNAPSHOT_LAYOUT,"WCVTable.setParameterSnapshot");
+    if (s.contains(DTHR_idx)) {
+      DTHR = s.getValue(DTHR_idx);
     }
-    if (p.contains("WCV_ZTHR")) {
-      ZTHR = p.getValue("WCV_ZTHR");
+    if (s.contains(ZTHR_idx)) {
+      ZTHR = s.getValue(ZTHR_idx);
     }
-    if (p.contains("WCV_TTHR")) {
-      TTHR = p.getValue("WCV_TTHR");
+    if (s.contains(TTHR_idx)) {
+      TTHR = s.getValue(TTHR_idx);
     }
-    if (p.contains("WCV_TCOA")) {
-      TCOA = p.getValue("WCV_TCOA");
+    if (s.contains(TCOA_idx)) {
+      TCOA = s.getValue(TCOA_idx);
     }
   }
   
@@ -33,6 +33,12 @@ public class WCV_TAUMOD extends WCV_tvar {
   }
   
   public LossData horizontal_WCV_interval(double T, Vect2 s, Vect2 v) {
+    MutableConflictData out = new MutableConflictData();
+    horizontal_WCV_interval(T,s,v,out);
+    return out.toLossData();
+  }
+
+  public void horizontal_WCV_interval(double T, Vect2 s, Vect2 v, MutableConflictData out) {
     double time_in = T;
     double time_out = 0;
     double sqs = s.sqv();
@@ -44,22 +50,26 @@ public class WCV_TAUMOD extends WCV_tvar {
     if (Util.almost_equals(a,0) && sqs <= sqD) { // [CAM] Changed from == to almost_equals to mitigate numerical problems 
       time_in = 0;
       time_out = T;
-      return new LossData(time_in, time_out);
+      out.setLoss(time_in,time_out);
+      return;
     }
     if (sqs <= sqD) {
       time_in = 0;
       time_out = Math.min(T,Horizontal.Theta_D(s,v,1,table.DTHR));
-      return new LossData(time_in, time_out);
+      out.setLoss(time_in,time_out);
+      return;
     }
     double discr = Util.sq(b)-4*a*c;
-    if (sdotv >= 0 || discr < 0) 
-      return new LossData(time_in, time_out);
+    if (sdotv >= 0 || discr < 0) {
+      out.setLoss(time_in,time_out);
+      return;
+    }
     double t = (-b - Math.sqrt(discr))/(2*a);
     if (Horizontal.Delta(s, v,table.DTHR) >= 0 && t <= T) {
       time_in = Math.max(0,t);
       time_out = Math.min(T, Horizontal.Theta_D(s,v,1,table.DTHR));
     }
-    return new LossData(time_in, time_out);
+    out.setLoss(time_in,time_out);
   } 
 
   public WCV_TAUMOD make() {
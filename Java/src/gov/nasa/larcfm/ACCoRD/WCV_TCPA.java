@@ -29,6 +29,12 @@ public class WCV_TCPA extends WCV_tvar {
   }
   
   public LossData horizontal_WCV_interval(double T, Vect2 s, Vect2 v) {
+    MutableConflictData out = new MutableConflictData();
+    horizontal_WCV_interval(T,s,v,out);
+    return out.toLossData();
+  }
+
+  public void horizontal_WCV_interval(double T, Vect2 s, Vect2 v, MutableConflictData out) {
     double time_in = T;
     double time_out = 0;
     double sqs = s.sqv();
@@ -38,34 +44,47 @@ public class WCV_TCPA extends WCV_tvar {
     if (Util.almost_equals(sqv,0) && sqs <= sqD) { // [CAM] Changed from == to almost_equals to mitigate numerical problems 
       time_in = 0;
       time_out = T;
-      return new LossData(time_in,time_out);
+      out.setLoss(time_in,time_out);
+      return;
+    }
+    if (Util.almost_equals(sqv,0)) { // [CAM] Changed from == to almost_equals to mitigate numerical problems
+      out.setLoss(time_in,time_out);
+      return;
     }
-    if (Util.almost_equals(sqv,0)) // [CAM] Changed from == to almost_equals to mitigate numerical problems
-      return new LossData(time_in,time_out);
     if (sqs <= sqD) { 
       time_in = 0;
       time_out = Math.min(T,Horizontal.Theta_D(s,v,1,table.DTHR));
-      return new LossData(time_in,time_out);
+      out.setLoss(time_in,time_out);
+      return;
+    }
+    if (sdotv > 0) {
+      out.setLoss(time_in,time_out);
+      return;
     }
-    if (sdotv > 0)
-      return new LossData(time_in,time_out);
     double tcpa = Horizontal.tcpa(s,v);
-    if (v.ScalAdd(tcpa, s).norm() > table.DTHR) 
-      return new LossData(time_in,time_out);
+    if (v.ScalAdd(tcpa, s).norm() > table.DTHR) {
+      out.setLoss(time_in,time_out);
+      return;
+    }
     double Delta = Horizontal.Delta(s,v,table.DTHR);
-    if (Delta < 0 && tcpa - table.TTHR > T) 
-      return new LossData(time_in,time_out);
+    if (Delta < 0 && tcpa - table.TTHR > T) {
+      out.setLoss(time_in,time_out);
+      return;
+    }
     if (Delta < 0) {
       time_in = Math.max(0,tcpa-table.TTHR);
       time_out = Math.min(T,tcpa);
-      return new LossData(time_in,time_out);
+      out.setLoss(time_in,time_out);
+      return;
     }
     double tmin = Math.min(Horizontal.Theta_D(s,v,-1,table.DTHR),tcpa-table.TTHR);
-    if (tmin > T) 
-      return new LossData(time_in,time_out);
+    if (tmin > T) {
+      out.setLoss(time_in,time_out);
+      return;
+    }
     time_in = Math.max(0,tmin);
     time_out = Math.min(T,Horizontal.Theta_D(s,v,1,table.DTHR));
-    return new LossData(time_in,time_out);
+    out.setLoss(time_in,time_out);
   }
 
   public WCV_TCPA make() {
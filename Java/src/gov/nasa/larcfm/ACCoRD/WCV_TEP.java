@@ -33,6 +33,12 @@ public class WCV_TEP extends WCV_tvar {
   }
 
   public LossData horizontal_WCV_interval(double T, Vect2 s, Vect2 v) {
+    MutableConflictData out = new MutableConflictData();
+    horizontal_WCV_interval(T,s,v,out);
+    return out.toLossData();
+  }
+
+  public void horizontal_WCV_interval(double T, Vect2 s, Vect2 v, MutableConflictData out) {
     double time_in = T;
     double time_out = 0;
     double sqs = s.sqv();
@@ -42,23 +48,31 @@ public class WCV_TEP extends WCV_tvar {
     if (Util.almost_equals(sqv,0) && sqs <= sqD) { // [CAM] Changed from == to almost_equals to mitigate numerical problems 
       time_in = 0;
       time_out = T;
-      return new LossData(time_in,time_out);
+      out.setLoss(time_in,time_out);
+      return;
+    }
+    if (Util.almost_equals(sqv,0)) { // [CAM] Changed from == to almost_equals to mitigate numerical problems
+      out.setLoss(time_in,time_out);
+      return;
     }
-    if (Util.almost_equals(sqv,0)) // [CAM] Changed from == to almost_equals to mitigate numerical problems
-      return new LossData(time_in,time_out);
     if (sqs <= sqD) {
       time_in = 0;
       time_out = Math.min(T,Horizontal.Theta_D(s,v,1,table.DTHR));
-      return new LossData(time_in,time_out);
+      out.setLoss(time_in,time_out);
+      return;
+    }
+    if (sdotv > 0 || Horizontal.Delta(s,v,table.DTHR) < 0) {
+      out.setLoss(time_in,time_out);
+      return;
     }
-    if (sdotv > 0 || Horizontal.Delta(s,v,table.DTHR) < 0) 
-      return new LossData(time_in,time_out);
     double tep = Horizontal.Theta_D(s,v,-1,table.DTHR);
-    if (tep-table.TTHR > T) 
-      return new LossData(time_in,time_out);
+    if (tep-table.TTHR > T) {
+      out.setLoss(time_in,time_out);
+      return;
+    }
     time_in = Math.max(0,tep-table.TTHR);
     time_out = Math.min(T,Horizontal.Theta_D(s,v,1,table.DTHR));
-    return new LossData(time_in,time_out);
+    out.setLoss(time_in,time_out);
   }
 
   public WCV_TEP make() {
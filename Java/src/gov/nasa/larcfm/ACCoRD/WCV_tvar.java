@@ -116,6 +116,16 @@ public abstract class WCV_tvar implements Detection3D {
 
   abstract public LossData horizontal_WCV_interval(double T, Vect2 s, Vect2 v);
 
+  /**
+   * Writes into out the horizontal time interval of well clear violation, within [0,T], for relative
+   * position s and relative velocity v. Only the time interval of out is set. Subclasses may override
+   * this method to avoid allocating a LossData object.
+   */
+  public void horizontal_WCV_interval(double T, Vect2 s, Vect2 v, MutableConflictData out) {
+    LossData ld = horizontal_WCV_interval(T,s,v);
+    out.setLoss(ld.getTimeIn(),ld.getTimeOut());
+  }
+
   public boolean horizontal_WCV(Vect2 s, Vect2 v) {
     if (s.norm() <= table.DTHR) return true;
     if (Horizontal.dcpa(s,v) <= table.DTHR) {
@@ -147,21 +157,42 @@ public abstract class WCV_tvar implements Detection3D {
     return new ConflictData(ld,t_tca,dist_tca,so.Sub(si),vo.Sub(vi));
   }
 
+  public boolean conflict(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData work) {
+    WCV_interval(so,vo,si,vi,B,T,work);
+    return work.conflict();
+  }
+
+  public boolean conflictDetection(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData out) {
+    WCV_interval(so,vo,si,vi,B,T,out);
+    double t_tca = (out.getTimeIn() + out.getTimeOut())/2;
+    double dist_tca = MutableConflictData.cyl_norm_at(so,vo,si,vi,t_tca,table.DTHR,table.ZTHR);
+    out.set(out.getTimeIn(),out.getTimeOut(),t_tca,dist_tca,so,vo,si,vi);
+    return out.conflict();
+  }
+
   public LossData WCV3D(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T) {
     return WCV_interval(so,vo,si,vi,B,T);
   }
 
   // Assumes 0 <= B < T
   public LossData WCV_interval(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T) {
+    MutableConflictData out = new MutableConflictData();
+    WCV_interval(so,vo,si,vi,B,T,out);
+    return out.toLossData();
+  }
+
+  /**
+   * Same as WCV_interval(so,vo,si,vi,B,T), but only the time interval of out is set.
+   * Assumes 0 <= B < T
+   */
+  public void WCV_interval(Vect3 so, Velocity vo, Vect3 si, Velocity vi, double B, double T, MutableConflictData out) {
     double time_in = T;
     double time_out = B;
 
-    Vect2 so2 = so.vect2();
-    Vect2 si2 = si.vect2();
-    Vect2 s2 = so2.Sub(si2);
-    Vect2 vo2 = vo.vect2();
-    Vect2 vi2 = vi.vect2();
-    Vect2 v2 = vo2.Sub(vi2);
+    double sx = so.x-si.x;
+    double sy = so.y-si.y;
+    double vx = vo.x-vi.x;
+    double vy = vo.y-vi.y;
     double sz = so.z-si.z;
     double vz = vo.z-vi.z;
 
@@ -169,20 +200,21 @@ public abstract class WCV_tvar implements Detection3D {
     wcvz.vertical_WCV_interval(table.ZTHR,table.TCOA,B,T,sz,vz);
 
     if (wcvz.time_in > wcvz.time_out) {
-      return new LossData(time_in, time_out);
+      out.setLoss(time_in, time_out);
+      return;
     }
-    Vect2 step = v2.ScalAdd(wcvz.time_in,s2);
+    Vect2 v2 = new Vect2(vx,vy);
+    Vect2 step = new Vect2(sx+wcvz.time_in*vx,sy+wcvz.time_in*vy);
     if (Util.almost_equals(wcvz.time_in,wcvz.time_out)) { // [CAM] Changed from == to almost_equals to mitigate numerical problems
       if (horizontal_WCV(step,v2)) {
         time_in = wcvz.time_in;
         time_out = wcvz.time_out;
       }
-      return new LossData(time_in, time_out);
+      out.setLoss(time_in, time_out);
+      return;
     }
-    LossData ld = horizontal_WCV_interval(wcvz.time_out-wcvz.time_in,step,v2);
-    time_in = ld.getTimeIn() + wcvz.time_in;
-    time_out = ld.getTimeOut() + wcvz.time_in;
-    return new LossData(time_in, time_out);
+    horizontal_WCV_interval(wcvz.time_out-wcvz.time_in,step,v2,out);
+    out.setLoss(out.getTimeIn() + wcvz.time_in, out.getTimeOut() + wcvz.time_in);
   }
 
   public String toString() {
@@ -219,6 +251,22 @@ public abstract class WCV_tvar implements Detection3D {
     }
   }
 
+  /**
+   * Set the parameters of the internal table that are defined in the snapshot s. 
+   * The snapshot must have been built with the table's SNAPSHOT_LAYOUT, otherwise
+   * an IllegalArgumentException is thrown.
+   */
+  public void setParameterSnapshot(ParameterSnapshot s) {
+    table.setParameterSnapshot(s);
+  }
+
+  /**
+   * Return an immutable snapshot of the parameters of the internal table.
+   */
+  public ParameterSnapshot getParameterSnapshot() {
+    return table.getParameterSnapshot();
+  }
+
   public String getSimpleClassName() {
     return getClass().getSimpleName();
   }
@@ -0,0 +1,185 @@
+/*
+ * AsyncOutput
+ *
+ * Copyright (c) 2011-2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+
+package gov.nasa.larcfm.IO;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the formatting and writing tasks of a writer (such as StateWriter or PlanWriter) on a background thread.<p>
+ *
+ * Tasks are stored in a bounded queue and executed in order, in batches, by a single thread.  When the queue is
+ * full, submit() blocks until there is room (backpressure).  Tasks must only use data that is not modified by
+ * the caller after submission.<p>
+ *
+ * Anything thrown by a task is recorded (see getFailure) and the thread goes on with the next task.  If the
+ * thread stops anyway, submit(), flush(), and close() do not wait for it and record a failure instead.
+ */
+final class AsyncOutput {
+	private final ArrayBlockingQueue<Runnable> queue;
+	private final Writer writer;
+	private final Thread thread;
+	private volatile String failure = null;
+	private boolean closed = false;
+
+	private static final Runnable STOP = () -> {};
+	private static final long WAIT_MS = 100; // how often waiting callers check that the thread is alive
+
+	/**
+	 * @param writer destination of the output, flushed by flush() and when the thread stops
+	 * @param capacity maximum number of pending tasks
+	 * @param name name of the background thread
+	 */
+	AsyncOutput(Writer writer, int capacity, String name) {
+		this.writer = writer;
+		queue = new ArrayBlockingQueue<Runnable>(Math.max(2,capacity));
+		thread = new Thread(() -> run(), name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void run() {
+		ArrayList<Runnable> batch = new ArrayList<Runnable>(queue.remainingCapacity());
+		while (true) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				continue; // only stopped by close()
+			}
+			queue.drainTo(batch);
+			for (Runnable task : batch) {
+				if (task == STOP) {
+					flushWriter();
+					return;
+				}
+				try {
+					task.run();
+				} catch (Throwable e) {
+					fail(e.toString());
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	private void flushWriter() {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			fail("Exception on flush(): "+e.getMessage());
+		}
+	}
+
+	private void fail(String msg) {
+		if (failure == null) {
+			failure = msg;
+		}
+	}
+
+	// true if the background thread has stopped without a call to close(), which is then recorded as a failure
+	private boolean stopped() {
+		if (thread.isAlive()) {
+			return false;
+		}
+		fail("AsyncOutput: background thread "+thread.getName()+" stopped");
+		return true;
+	}
+
+	/** Add a task to the queue, waiting for room if it is full.  Ignored after close(). */
+	void submit(Runnable task) {
+		if (closed) return;
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (queue.offer(task, WAIT_MS, TimeUnit.MILLISECONDS) || stopped()) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Number of tasks waiting in the queue */
+	int pending() {
+		return queue.size();
+	}
+
+	/** Wait until all tasks submitted so far have been executed and the writer has been flushed. */
+	void flush() {
+		if (closed) return;
+		CountDownLatch done = new CountDownLatch(1);
+		submit(() -> {
+			flushWriter();
+			done.countDown();
+		});
+		await(done);
+	}
+
+	/**
+	 * Wait until all tasks submitted so far have been executed, without flushing the writer.  Afterwards,
+	 * and until the next submit(), the caller may safely read data written by the tasks.
+	 */
+	void sync() {
+		if (closed) return;
+		CountDownLatch done = new CountDownLatch(1);
+		submit(() -> done.countDown());
+		await(done);
+	}
+
+	/** Execute all pending tasks, flush the writer, and stop the thread.  The writer is not closed. */
+	void close() {
+		if (closed) return;
+		submit(STOP);
+		closed = true;
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void await(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (latch.getCount() > 0) {
+			try {
+				if (latch.await(WAIT_MS, TimeUnit.MILLISECONDS) || stopped()) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Returns the first error raised by a task (or null if none), and clears it */
+	String getFailure() {
+		String s = failure;
+		failure = null;
+		return s;
+	}
+
+}
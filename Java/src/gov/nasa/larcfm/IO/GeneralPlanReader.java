@@ -30,14 +30,14 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Similar to the SequenceReader, this populates a list of GeneralPlans (that can be either a Plan or a PolyPath).
@@ -68,7 +68,7 @@ public class GeneralPlanReader implements ParameterProvider, ErrorReporter {
 	protected ErrorLog error;
 	protected SeparatedInput input;
 	
-	private Map< Double, Map<String, GeneralPlan > > sequenceTable = new HashMap< Double, Map<String, GeneralPlan > >();
+	private NavigableMap< Double, Map<String, GeneralPlan > > sequenceTable = new TreeMap< Double, Map<String, GeneralPlan > >(); // sorted by time
 	private ArrayList<String> nameIndex = new ArrayList<String>();
 	private Set<String> names = new HashSet<String>();
 
@@ -660,21 +660,20 @@ public class GeneralPlanReader implements ParameterProvider, ErrorReporter {
 	// we need to preserve the order of the aircraft as in the input file (because the first might be the only way we know which is the ownship)
 	// so we build an arraylist states to us as the subset of all possible inputs
 	private void buildActive(double tm, boolean single) {
-		ArrayList<Double> times;
+		List<Map<String, GeneralPlan>> entries; // entries in the window, in time order
 		if (single) {
-			times = new ArrayList<Double>();
-			times.add(tm);
+			entries = new ArrayList<Map<String, GeneralPlan>>(1);
+			entries.add(sequenceTable.get(tm));
 		} else {
-			 times = sequenceKeysUpTo(tm); // Note: this includes the last entry
+			entries = new ArrayList<Map<String, GeneralPlan>>(sequenceTable.headMap(tm,true).values()); // Note: this includes the last entry
 		}
  		Map<String, Boolean> included = new HashMap<String,Boolean>(10); // use to make sure there are no duplicates
 		g2plans.clear();
 		// build all AircraftStates that exist in these times
 		for (int i = 0; i < nameIndex.size(); i++) { // work through the names in order
 			String name = nameIndex.get(i);
-			for (int j = 0; j < times.size(); j++) { // for each name, work through the times in the window
-				double time = times.get(j);
-				Map<String, GeneralPlan> sequenceEntry = sequenceTable.get(time);
+			for (int j = 0; j < entries.size(); j++) { // for each name, work through the times in the window
+				Map<String, GeneralPlan> sequenceEntry = entries.get(j);
 				if (sequenceEntry != null && sequenceEntry.containsKey(name)) {	// name has an entry at this time
 					GeneralPlan p = sequenceEntry.get(name);	// get entry info
 					if (included.containsKey(name)) {  // name has not been added to the states list yet
@@ -715,9 +714,8 @@ public class GeneralPlanReader implements ParameterProvider, ErrorReporter {
 	 * Set only the first entry to be the active one.
 	 */
 	public void setFirstActive() {
-		ArrayList<Double> keys = sequenceKeys();
-		if (keys.size() > 0)
-			buildActive(keys.get(0), false);
+		if (!sequenceTable.isEmpty())
+			buildActive(sequenceTable.firstKey(), false);
 		else
 			g2plans = new ArrayList<GeneralPlan>();
 	}
@@ -726,9 +724,8 @@ public class GeneralPlanReader implements ParameterProvider, ErrorReporter {
 	 * Set all entries up to the last entry to be the active one.
 	 */
 	public void setLastActive() {
-		ArrayList<Double> keys = sequenceKeys();
-		if (keys.size() > 0)
-			buildActive(keys.get(keys.size()-1), false);
+		if (!sequenceTable.isEmpty())
+			buildActive(sequenceTable.lastKey(), false);
 		else
 			g2plans = new ArrayList<GeneralPlan>();
 	}
@@ -738,30 +735,12 @@ public class GeneralPlanReader implements ParameterProvider, ErrorReporter {
 	 *  Returns a sorted list of all sequence keys (times)
 	 */
 	public ArrayList<Double> sequenceKeys() {
-		ArrayList<Double> arl = new ArrayList<Double>();
-		for (Iterator<Double> e = sequenceTable.keySet().iterator(); e.hasNext();) {
-			arl.add(e.next());
-		}
-		Double[] ar = arl.toArray(new Double[0]);
-		Arrays.sort(ar);
-		arl = new ArrayList<Double>(Arrays.asList(ar));
-		return arl;
+		return new ArrayList<Double>(sequenceTable.keySet());
 	}
 
 	/** a list of n > 0 sequence keys, stopping at the given time (inclusive) */ 
 	public ArrayList<Double> sequenceKeysUpTo(double tm) {
-		ArrayList<Double> arl = new ArrayList<Double>();
-		for (Iterator<Double> e = sequenceTable.keySet().iterator(); e.hasNext();) {
-			Double elem = e.next();
-			if (elem <= tm) {
-				arl.add(elem);
-			}
-		}
-		Double[] ar = arl.toArray(new Double[0]);
-		Arrays.sort(ar);
-		ar = Arrays.copyOfRange(ar, 0, ar.length);
-		arl = new ArrayList<Double>(Arrays.asList(ar));
-		return arl;
+		return new ArrayList<Double>(sequenceTable.headMap(tm,true).keySet());
 	}
 
 	/** Return a list of aircraft names */
@@ -13,6 +13,7 @@ package gov.nasa.larcfm.IO;
 
 import gov.nasa.larcfm.Util.ErrorLog;
 import gov.nasa.larcfm.Util.ErrorReporter;
+import gov.nasa.larcfm.Util.NavPoint;
 import gov.nasa.larcfm.Util.ParameterData;
 import gov.nasa.larcfm.Util.Plan;
 
@@ -22,6 +23,13 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Closeable;
 
+/**
+ * Writes plans to a file, one point per line.<p>
+ * 
+ * In asynchronous mode (see setAsynchronous), plan points are formatted and written by a background thread, and writePlan 
+ * only waits when too many plans are pending.  The file contents are the same as in the default (synchronous) mode.  Errors 
+ * from the background thread are reported after flush() or close().
+ */
 public class PlanWriter implements ErrorReporter, Closeable {
 	private ErrorLog error;
 	private SeparatedOutput output;
@@ -33,6 +41,9 @@ public class PlanWriter implements ErrorReporter, Closeable {
 	private int lines;
 	private String fname;
 	private Writer fw;
+	private int async_capacity;
+	private AsyncOutput async;
+	private static final int ASYNC_BUFFER_SIZE = 1 << 16;
 
 	/** A new PlanWriter. */
 	public PlanWriter() {
@@ -51,7 +62,7 @@ public class PlanWriter implements ErrorReporter, Closeable {
 		}
 		close();
 		try { 
-			fw = new BufferedWriter(new FileWriter(filename));
+			fw = async_capacity > 0 ? new BufferedWriter(new FileWriter(filename), ASYNC_BUFFER_SIZE) : new BufferedWriter(new FileWriter(filename));
 		} catch (IOException e) {
 			error.addError("File "+fname+" read protected or not found");
 			return;
@@ -69,9 +80,61 @@ public class PlanWriter implements ErrorReporter, Closeable {
 		output = new SeparatedOutput(writer);
 		first_line = true;
 		lines = 0;
+		if (async_capacity > 0) {
+			async = new AsyncOutput(writer, async_capacity, "PlanWriter");
+		}
+	}
+
+	/**
+	 * Set the asynchronous mode for files opened after this call.  If capacity is positive, plans are queued 
+	 * (up to capacity plans) and written by a background thread.  If capacity is zero, plans are written
+	 * when writePlan is called.
+	 */
+	public void setAsynchronous(int capacity) {
+		async_capacity = Math.max(0, capacity);
+	}
+
+	/** Is the current file written asynchronously? */
+	public boolean isAsynchronous() {
+		return async != null;
+	}
+
+	/** Write all pending plans and flush the file */
+	public void flush() {
+		if (async != null) {
+			async.flush();
+			checkAsync();
+		} else if (fw != null) {
+			try {
+				fw.flush();
+			} catch (IOException e) {
+				error.addError("Exception on flush(): "+e.getMessage());
+			}
+		}
+	}
+
+	private void checkAsync() {
+		String msg = async.getFailure();
+		if (msg != null) {
+			error.addError(msg);
+		}
+	}
+
+	// run task now or, in asynchronous mode, on the background thread
+	private void submit(Runnable task) {
+		if (async != null) {
+			async.submit(task);
+		} else {
+			task.run();
+		}
 	}
 
 	public void close() {
+		if (async != null) {
+			async.close();
+			checkAsync();
+			async = null;
+		}
 		if (fw != null) {
 			try {
 				output.close();
@@ -97,7 +160,7 @@ public class PlanWriter implements ErrorReporter, Closeable {
 	 */
 	public void setColumnDelimiterTab() {
 		if (first_line) {
-			output.setColumnDelimiterTab();
+			submit(() -> output.setColumnDelimiterTab());
 		}
 	}
 
@@ -106,7 +169,7 @@ public class PlanWriter implements ErrorReporter, Closeable {
 	 */
 	public void setColumnDelimiterComma() {
 		if (first_line) {
-			output.setColumnDelimiterComma();
+			submit(() -> output.setColumnDelimiterComma());
 		}
 	}
 
@@ -115,8 +178,10 @@ public class PlanWriter implements ErrorReporter, Closeable {
 	 */
 	public void setColumnDelimiterSpace() {
 		if (first_line) {
-			output.setColumnDelimiterSpace();
-			output.setEmptyValue("0");
+			submit(() -> {
+				output.setColumnDelimiterSpace();
+				output.setEmptyValue("0");
+			});
 		}
 	}
 
@@ -124,78 +189,95 @@ public class PlanWriter implements ErrorReporter, Closeable {
 	 * Adds a comment line to the file.
 	 */
 	public void addComment(String comment) {
-		output.addComment(comment);
+		submit(() -> output.addComment(comment));
 	}
 
 	/** 
 	 * Set parameters.  Use all the parameters in the reader.
 	 */
 	public void setParameters(ParameterData pr) {
-		output.setParameters(pr);
+		ParameterData prc = async != null ? new ParameterData(pr) : pr;
+		submit(() -> output.setParameters(prc));
 	}
 
 	public void clearParameters() {
-		output.clearParameters();
+		submit(() -> output.clearParameters());
 	}
 
 	public void writeLn(String str) {
-		output.write(str+"\n");
+		submit(() -> output.write(str+"\n"));
 	}
 	
 	public void writePlan(Plan p, boolean tcpColumnsLocal) {
+		boolean heading = first_line;
 		if (first_line) {
 			tcpColumns = tcpColumnsLocal;
 			latlon = p.isLatLon();
-			output.setOutputUnits(display_units);
+			first_line = false;
+		}
+		lines += p.size();
+		// the points are copied (NavPoints are immutable), so that the plan may be modified after this call
+		String name = p.getName();
+		NavPoint[] points = new NavPoint[p.size()];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = p.point(i);
+		}
+		boolean display_units = this.display_units;
+		boolean tcpColumns = this.tcpColumns;
+		int precision = this.precision;
+		submit(() -> {
+			if (heading) {
+				writeHeading(display_units, tcpColumns);
+			}
+			for (int i = 0; i < points.length; i++) {
+				output.addColumn(name);
+				output.addColumn(points[i].toStringList(precision,tcpColumns));
+				output.writeLine();
+			}
+		});
+	}	
+
+	private void writeHeading(boolean display_units, boolean tcpColumns) {
+		output.setOutputUnits(display_units);
 
-			// Comments and parameters are handled by SeparatedOutput
+		// Comments and parameters are handled by SeparatedOutput
 
-			output.addHeading("name", "unitless");
+		output.addHeading("name", "unitless");
+		if (latlon) {
+			output.addHeading("lat",  "deg");
+			output.addHeading("lon",  "deg");
+			output.addHeading("alt",  "ft");
+		} else {
+			output.addHeading("sx",   "NM");
+			output.addHeading("sy",   "NM");
+			output.addHeading("sz",   "ft");
+		}
+		output.addHeading("time", "s");
+		if (tcpColumns) {
+			output.addHeading("type", "unitless");
+			output.addHeading("trk", "deg");
+			output.addHeading("gs",  "knot");
+			output.addHeading("vs",  "fpm");
+			output.addHeading("tcp_trk", "unitless");
+			output.addHeading("accel_trk", "deg/s");
+			output.addHeading("tcp_gs", "unitless");
+			output.addHeading("accel_gs", "m/s^2");
+			output.addHeading("tcp_vs", "unitless");
+			output.addHeading("accel_vs", "m/s^2");
+			output.addHeading("radius", "NM");
 			if (latlon) {
-				output.addHeading("lat",  "deg");
-				output.addHeading("lon",  "deg");
-				output.addHeading("alt",  "ft");
+				output.addHeading("src_lat", "deg");
+				output.addHeading("src_lon", "deg");
+				output.addHeading("src_alt",  "ft");
 			} else {
-				output.addHeading("sx",   "NM");
-				output.addHeading("sy",   "NM");
-				output.addHeading("sz",   "ft");
+				output.addHeading("src_x",   "NM");
+				output.addHeading("src_y",   "NM");
+				output.addHeading("src_z",   "ft");
 			}
-			output.addHeading("time", "s");
-			if (tcpColumns) {
-				output.addHeading("type", "unitless");
-				output.addHeading("trk", "deg");
-				output.addHeading("gs",  "knot");
-				output.addHeading("vs",  "fpm");
-				output.addHeading("tcp_trk", "unitless");
-				output.addHeading("accel_trk", "deg/s");
-				output.addHeading("tcp_gs", "unitless");
-				output.addHeading("accel_gs", "m/s^2");
-				output.addHeading("tcp_vs", "unitless");
-				output.addHeading("accel_vs", "m/s^2");
-				output.addHeading("radius", "NM");
-				if (latlon) {
-					output.addHeading("src_lat", "deg");
-					output.addHeading("src_lon", "deg");
-					output.addHeading("src_alt",  "ft");
-				} else {
-					output.addHeading("src_x",   "NM");
-					output.addHeading("src_y",   "NM");
-					output.addHeading("src_z",   "ft");
-				}
-				output.addHeading("src_time", "s");
-			} 
-			output.addHeading("label", "unitless");
-
-			first_line = false;
-		}
-
-		for (int i = 0; i < p.size(); i++) {
-			output.addColumn(p.getName());
-			output.addColumn(p.point(i).toStringList(precision,tcpColumns));
-			lines++;
-			output.writeLine();
-		}
-	}	
+			output.addHeading("src_time", "s");
+		} 
+		output.addHeading("label", "unitless");
+	}
 
 
 
@@ -211,16 +293,29 @@ public class PlanWriter implements ErrorReporter, Closeable {
 
 	// ErrorReporter Interface Methods
 
+	// In asynchronous mode, the error state of output is written by the background thread.
+	// Wait for pending tasks before it is read by the caller.
+	private void syncAsync() {
+		if (async != null) {
+			async.sync();
+			checkAsync();
+		}
+	}
+
 	public boolean hasError() {
+		syncAsync();
 		return error.hasError() || output.hasError();
 	}
 	public boolean hasMessage() {
+		syncAsync();
 		return error.hasMessage() || output.hasMessage();
 	}
 	public String getMessage() {
+		syncAsync();
 		return error.getMessage() + output.getMessage();
 	}
 	public String getMessageNoClear() {
+		syncAsync();
 		return error.getMessageNoClear() + output.getMessageNoClear();
 	}
 
@@ -47,6 +47,7 @@ public final class SeparatedOutput implements ErrorReporter {
 	private String empty;
 	private ArrayList<String> comments;
 	private ArrayList<String> params;
+	private final StringBuilder sb = new StringBuilder(256); // line being printed
 
 	private static final String nl = System.getProperty("line.separator");
 
@@ -427,11 +428,12 @@ public final class SeparatedOutput implements ErrorReporter {
     	if (vals.size() == 0) {
     		return;
     	}
-    	writer.print(vals.get(0));
+    	sb.setLength(0);
+    	sb.append(vals.get(0));
     	for (int i = 1; i < vals.size(); i++) {
-    		writer.print(delim+space+vals.get(i));
+    		sb.append(delim).append(space).append(vals.get(i));
     	}
-    	writer.println();
+    	writer.println(sb);
     	size++;
     }
 
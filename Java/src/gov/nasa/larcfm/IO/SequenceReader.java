@@ -22,13 +22,15 @@ import gov.nasa.larcfm.Util.Velocity;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * This reads in and stores a set of aircraft states, possibly over time, (and parameters) from a file
@@ -66,7 +68,7 @@ import java.util.Set;
  */
 public class SequenceReader extends StateReader {
  
-	private Map< Double, Map<String, Pair<Position, Velocity> > > sequenceTable = new Hashtable< Double, Map<String, Pair<Position, Velocity> > >();
+	private NavigableMap< Double, Map<String, Pair<Position, Velocity> > > sequenceTable = new TreeMap< Double, Map<String, Pair<Position, Velocity> > >(); // sorted by time
 	private ArrayList<String> nameIndex = new ArrayList<String>();
 	private Set<String> names = new HashSet<String>();
 	private int windowSize = AircraftState.DEFAULT_BUFFER_SIZE;
@@ -133,7 +135,7 @@ public class SequenceReader extends StateReader {
 		hasRead = false;
 		clock = true;
 		//interpretUnits = false;
-		sequenceTable = new Hashtable< Double, Map<String, Pair<Position, Velocity> > >();
+		sequenceTable = new TreeMap< Double, Map<String, Pair<Position, Velocity> > >();
 		states = new ArrayList<AircraftState>();
 		nameIndex = new ArrayList<String>();
 		names = new HashSet<String>();
@@ -296,11 +298,9 @@ public class SequenceReader extends StateReader {
 	
 	/** remove any time-point entries for which there is only one aircraft (and so no chance of conflict) */
 	public void clearSingletons() {
-		ArrayList<Double> keys = sequenceKeys();		
-		for (int i = 0; i < keys.size(); i++) {
-			if (sequenceTable.get(keys.get(i)).size() < 2) {
-//f.pln("removing singleton (only one aircraft present) at time "+keys.get(i));				
-				sequenceTable.remove(keys.get(i));
+		for (Iterator<Map<String, Pair<Position, Velocity> > > e = sequenceTable.values().iterator(); e.hasNext();) {
+			if (e.next().size() < 2) {
+				e.remove();
 			}
 		}
 	}
@@ -346,9 +346,8 @@ public class SequenceReader extends StateReader {
 	 * Set the first entry to be the active one.
 	 */
 	public void setFirstActive() {
-		ArrayList<Double> keys = sequenceKeys();
-		if (keys.size() > 0)
-			buildActive(keys.get(0));
+		if (!sequenceTable.isEmpty())
+			buildActive(sequenceTable.firstKey());
 		else
 			states = new ArrayList<AircraftState>();
 	}
@@ -357,9 +356,8 @@ public class SequenceReader extends StateReader {
 	 * Set the last entry to be the active one.
 	 */
 	public void setLastActive() {
-		ArrayList<Double> keys = sequenceKeys();
-		if (keys.size() > 0)
-			buildActive(keys.get(keys.size()-1));
+		if (!sequenceTable.isEmpty())
+			buildActive(sequenceTable.lastKey());
 		else
 			states = new ArrayList<AircraftState>();
 	}
@@ -369,29 +367,16 @@ public class SequenceReader extends StateReader {
 	 *  Returns a sorted list of all sequence keys (times)
 	 */
 	public ArrayList<Double> sequenceKeys() {
-		ArrayList<Double> arl = new ArrayList<Double>();
-		for (Iterator<Double> e = sequenceTable.keySet().iterator(); e.hasNext();) {
-			arl.add(e.next());
-		}
-		Double[] ar = arl.toArray(new Double[0]);
-		Arrays.sort(ar);
-		arl = new ArrayList<Double>(Arrays.asList(ar));
-		return arl;
+		return new ArrayList<Double>(sequenceTable.keySet());
 	}
 
 	/** a list of n > 0 sequence keys, stopping at the given time (inclusive) */ 
 	public ArrayList<Double> sequenceKeysUpTo(int n, double tm) {
-		ArrayList<Double> arl = new ArrayList<Double>();
-		for (Iterator<Double> e = sequenceTable.keySet().iterator(); e.hasNext();) {
-			Double elem = e.next();
-			if (elem <= tm) {
-				arl.add(elem);
-			}
+		ArrayList<Double> arl = new ArrayList<Double>(Math.max(n,0));
+		for (Iterator<Double> e = sequenceTable.headMap(tm,true).descendingKeySet().iterator(); e.hasNext() && arl.size() < n;) {
+			arl.add(e.next());
 		}
-		Double[] ar = arl.toArray(new Double[0]);
-		Arrays.sort(ar);
-		ar = Arrays.copyOfRange(ar, Math.max(ar.length-n,0), ar.length);
-		arl = new ArrayList<Double>(Arrays.asList(ar));
+		Collections.reverse(arl);
 		return arl;
 	}
 
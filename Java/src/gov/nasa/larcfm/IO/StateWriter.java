@@ -58,6 +58,9 @@ import java.io.Closeable;
  * If the optional parameter "filetype" is specified, its value must be "state" or "history" (no quotes) for this reader to accept the 
  * file without error.
  *
+ * In asynchronous mode (see setAsynchronous), states are formatted and written by a background thread, and writeState only 
+ * waits when too many states are pending.  The file contents are the same as in the default (synchronous) mode.  Errors from 
+ * the background thread are reported after flush() or close().
  */
 final public class StateWriter implements ErrorReporter, Closeable {
 	private ErrorLog error;
@@ -72,7 +75,10 @@ final public class StateWriter implements ErrorReporter, Closeable {
 	private int lines;
 	private String fname;
 	private final double default_time = 0.0;
+	private static final int ASYNC_BUFFER_SIZE = 1 << 16;
 	private Writer fw;
+	private int async_capacity;
+	private AsyncOutput async;
     
     /** A new StateWriter. */
 	public StateWriter() {
@@ -93,7 +99,7 @@ final public class StateWriter implements ErrorReporter, Closeable {
 		}
 		close();
 		try { 
-			fw = new BufferedWriter(new FileWriter(filename));
+			fw = async_capacity > 0 ? new BufferedWriter(new FileWriter(filename), ASYNC_BUFFER_SIZE) : new BufferedWriter(new FileWriter(filename));
 		} catch (IOException e) {
 			error.addError("File "+fname+" read protected or not found");
 			return;
@@ -111,9 +117,61 @@ final public class StateWriter implements ErrorReporter, Closeable {
         output = new SeparatedOutput(writer);
         first_line = true;
         lines = 0;
+        if (async_capacity > 0) {
+        	async = new AsyncOutput(writer, async_capacity, "StateWriter");
+        }
+	}
+
+	/**
+	 * Set the asynchronous mode for files opened after this call.  If capacity is positive, states are queued 
+	 * (up to capacity states) and written by a background thread.  If capacity is zero, states are written
+	 * when writeState is called.
+	 */
+	public void setAsynchronous(int capacity) {
+		async_capacity = Math.max(0, capacity);
+	}
+
+	/** Is the current file written asynchronously? */
+	public boolean isAsynchronous() {
+		return async != null;
+	}
+
+	/** Write all pending states and flush the file */
+	public void flush() {
+		if (async != null) {
+			async.flush();
+			checkAsync();
+		} else if (fw != null) {
+			try {
+				fw.flush();
+			} catch (IOException e) {
+				error.addError("Exception on flush(): "+e.getMessage());
+			}
+		}
+	}
+
+	private void checkAsync() {
+		String msg = async.getFailure();
+		if (msg != null) {
+			error.addError(msg);
+		}
+	}
+
+	// run task now or, in asynchronous mode, on the background thread
+	private void submit(Runnable task) {
+		if (async != null) {
+			async.submit(task);
+		} else {
+			task.run();
+		}
 	}
 
     public void close() {
+    	if (async != null) {
+    		async.close();
+    		checkAsync();
+    		async = null;
+    	}
     	if (fw != null) {
     		try {
     			output.close();
@@ -174,7 +232,7 @@ final public class StateWriter implements ErrorReporter, Closeable {
 	 */
 	public void setColumnDelimiterTab() {
 		if (first_line) {
-			output.setColumnDelimiterTab();
+			submit(() -> output.setColumnDelimiterTab());
 		}
 	}
 
@@ -183,7 +241,7 @@ final public class StateWriter implements ErrorReporter, Closeable {
 	 */
 	public void setColumnDelimiterComma() {
 		if (first_line) {
-			output.setColumnDelimiterComma();
+			submit(() -> output.setColumnDelimiterComma());
 		}
 	}
 
@@ -192,8 +250,10 @@ final public class StateWriter implements ErrorReporter, Closeable {
 	 */
 	public void setColumnDelimiterSpace() {
 		if (first_line) {
-			output.setColumnDelimiterSpace();
-			output.setEmptyValue("0");
+			submit(() -> {
+				output.setColumnDelimiterSpace();
+				output.setEmptyValue("0");
+			});
 		}
 	}
 
@@ -201,50 +261,72 @@ final public class StateWriter implements ErrorReporter, Closeable {
 	 * Adds a comment line to the file.
 	 */
 	public void addComment(String comment) {
-		output.addComment(comment);
+		submit(() -> output.addComment(comment));
 	}
 
 	/** 
 	 * Set parameters.  Use all the parameters in the reader.
 	 */
 	public void setParameters(ParameterData pr) {
-		output.setParameters(pr);
+		ParameterData prc = async != null ? new ParameterData(pr) : pr;
+		submit(() -> output.setParameters(prc));
 	}
 
 	public void writeState(String name, double time, Position p, Velocity v, String label) {
+		boolean heading = first_line;
 		if (first_line) {
 			latlon = p.isLatLon();
-			output.setOutputUnits(display_units);
-
-			// Comments and parameters are handled by SeparatedOutput
-			
-			output.addHeading("name", "unitless");
-			if (display_time) {
-				output.addHeading("time", "s");				
+			first_line = false;
+		}
+		lines++;
+		// settings are copied, so that they apply to this state even if it is written later
+		boolean display_units = this.display_units;
+		boolean display_time = this.display_time;
+		boolean velocity = this.velocity;
+		boolean trkgsvs = this.trkgsvs;
+		int precision = this.precision;
+		submit(() -> {
+			if (heading) {
+				writeHeading(display_units, display_time, velocity, trkgsvs);
 			}
-			if (latlon) {
-				output.addHeading("lat",  "deg");
-				output.addHeading("lon",  "deg");
-				output.addHeading("alt",  "ft");
+			writeRow(name, time, p, v, label, display_time, velocity, trkgsvs, precision);
+		});
+	}
+
+	private void writeHeading(boolean display_units, boolean display_time, boolean velocity, boolean trkgsvs) {
+		output.setOutputUnits(display_units);
+
+		// Comments and parameters are handled by SeparatedOutput
+		
+		output.addHeading("name", "unitless");
+		if (display_time) {
+			output.addHeading("time", "s");				
+		}
+		if (latlon) {
+			output.addHeading("lat",  "deg");
+			output.addHeading("lon",  "deg");
+			output.addHeading("alt",  "ft");
+		} else {
+			output.addHeading("sx",   "NM");
+			output.addHeading("sy",   "NM");
+			output.addHeading("sz",   "ft");
+		}
+		if (velocity) {
+			if (trkgsvs) {
+				output.addHeading("trk", "deg");
+				output.addHeading("gs",  "knot");
+				output.addHeading("vs",  "fpm");
 			} else {
-				output.addHeading("sx",   "NM");
-				output.addHeading("sy",   "NM");
-				output.addHeading("sz",   "ft");
-			}
-			if (velocity) {
-				if (trkgsvs) {
-					output.addHeading("trk", "deg");
-					output.addHeading("gs",  "knot");
-					output.addHeading("vs",  "fpm");
-				} else {
-					output.addHeading("vx",  "knot");
-					output.addHeading("vy",  "knot");
-					output.addHeading("vz",  "fpm");
-				}
+				output.addHeading("vx",  "knot");
+				output.addHeading("vy",  "knot");
+				output.addHeading("vz",  "fpm");
 			}
-			output.addHeading("label", "");
-			first_line = false;
 		}
+		output.addHeading("label", "");
+	}
+
+	private void writeRow(String name, double time, Position p, Velocity v, String label, 
+			boolean display_time, boolean velocity, boolean trkgsvs, int precision) {
 		output.addColumn(name);
 		if (display_time) {
 			output.addColumn(f.FmPrecision(time,precision));			
@@ -258,7 +340,6 @@ final public class StateWriter implements ErrorReporter, Closeable {
 			}
 		}
 		if (!label.equals("")) output.addColumn(label);
-		lines++;
 		output.writeLine();		
 	}	
 	
@@ -309,16 +390,29 @@ final public class StateWriter implements ErrorReporter, Closeable {
 	
 	// ErrorReporter Interface Methods
 
+	// In asynchronous mode, the error state of output is written by the background thread.
+	// Wait for pending tasks before it is read by the caller.
+	private void syncAsync() {
+		if (async != null) {
+			async.sync();
+			checkAsync();
+		}
+	}
+
 	public boolean hasError() {
+		syncAsync();
 		return error.hasError() || output.hasError();
 	}
 	public boolean hasMessage() {
+		syncAsync();
 		return error.hasMessage() || output.hasMessage();
 	}
 	public String getMessage() {
+		syncAsync();
 		return error.getMessage() + output.getMessage();
 	}
 	public String getMessageNoClear() {
+		syncAsync();
 		return error.getMessageNoClear() + output.getMessageNoClear();
 	}
 
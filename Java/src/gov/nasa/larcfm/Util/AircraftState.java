@@ -60,17 +60,34 @@ public final class AircraftState implements ErrorReporter {
     private Velocity[] v_list;
     private double[] t_list;
     
-    // Euclidean positions and velocities created by a projection function  
+    // Euclidean positions and velocities created by a projection function.
+    // These arrays use the same (internal) indices as s_list, v_list, t_list, so that only 
+    // the entries that are added or changed need to be projected again.
     private EuclideanProjection sp;
     private Vect2 [] projS2;
     private double [] projH;
     private Vect2 [] projV2;
     private double [] projVZ;
     private double [] projT;
+    private boolean [] proj_ok;     // true if the entry at this internal index has been projected
     private boolean projection_initialized;
-    private boolean projection_done;
+    private boolean projection_done; // true if all current entries have been projected
     private boolean regression_done;
     
+    // Running sums for the regression, relative to time rs_t0. These are updated when entries 
+    // are projected or dropped, and recomputed from scratch when rs_valid is false.
+    private boolean rs_valid;
+    private boolean [] in_sum;      // true if the entry at this internal index is part of the sums
+    private int    rs_updates;      // number of incremental removals since the last recomputation
+    private double rs_t0;
+    private int    rs_n;
+    private double rs_u;
+    private double rs_uu;
+    private double rs_v;
+    private double rs_vu;
+    private double rs_h;
+    private double rs_hu;
+    
     // Regression parameters
 	private int    recentInd;               // Index of most recent time from the aircraft
 	private double horizvelintercept;
@@ -110,10 +127,13 @@ public final class AircraftState implements ErrorReporter {
     	projV2 = new Vect2[bufferSize];
     	projVZ = new double[bufferSize];
     	projT = new double[bufferSize];
+    	proj_ok = new boolean[bufferSize];
+    	in_sum = new boolean[bufferSize];
     	sp = Projection.createProjection(0,0,0);
     	projection_initialized = false;
     	projection_done = false;
     	regression_done = false;
+    	rs_valid = false;
     	d_d = -1;
     	d_h = -1;
     	r_d = -1;
@@ -165,16 +185,31 @@ public final class AircraftState implements ErrorReporter {
     	a.oldest = oldest;
     	a.size = size;
     	a.sp = sp;
-    	if (projection_done) {
-    		System.arraycopy(projS2, 0, a.projS2, 0, a.size);
-    		System.arraycopy(projH, 0, a.projH, 0, a.size);
-    		System.arraycopy(projV2, 0, a.projV2, 0, a.size);
-    		System.arraycopy(projVZ, 0, a.projVZ, 0, a.size);
-    		System.arraycopy(projT, 0, a.projT, 0, a.size);
-    	}
+    	System.arraycopy(projS2, 0, a.projS2, 0, bufferSize);
+    	System.arraycopy(projH, 0, a.projH, 0, bufferSize);
+    	System.arraycopy(projV2, 0, a.projV2, 0, bufferSize);
+    	System.arraycopy(projVZ, 0, a.projVZ, 0, bufferSize);
+    	System.arraycopy(projT, 0, a.projT, 0, bufferSize);
+    	System.arraycopy(proj_ok, 0, a.proj_ok, 0, bufferSize);
+    	System.arraycopy(in_sum, 0, a.in_sum, 0, bufferSize);
     	a.projection_initialized = projection_initialized;
     	a.projection_done = projection_done;
     	a.regression_done = regression_done;
+    	a.recentInd = recentInd;
+    	a.horizvelintercept = horizvelintercept;
+    	a.horizvelslope = horizvelslope;
+    	a.vertvelintercept = vertvelintercept;
+    	a.vertvelslope = vertvelslope;
+    	a.rs_valid = rs_valid;
+    	a.rs_updates = rs_updates;
+    	a.rs_t0 = rs_t0;
+    	a.rs_n = rs_n;
+    	a.rs_u = rs_u;
+    	a.rs_uu = rs_uu;
+    	a.rs_v = rs_v;
+    	a.rs_vu = rs_vu;
+    	a.rs_h = rs_h;
+    	a.rs_hu = rs_hu;
     	a.d_d = d_d;
     	a.d_h = d_h;
     	a.r_d = r_d;
@@ -200,6 +235,10 @@ public final class AircraftState implements ErrorReporter {
     	size = 0;
     	oldest = 0;
     	ls_t = -1000000;
+    	Arrays.fill(proj_ok, false);
+    	Arrays.fill(in_sum, false);
+    	rs_valid = false;
+    	projection_done = false;
     }
     
     /** 
@@ -242,6 +281,7 @@ public final class AircraftState implements ErrorReporter {
 		if (size >= 1 && tm <= timeLast()) {
 			i = find(tm);
 			if (i >= 0 ) {
+				retire(ext2int(i));
 				s_list[ext2int(i)] = ss;
 				v_list[ext2int(i)] = vv;
 				//t_list[ext2int(i)] = tm;     // unneeded, times must be the same.
@@ -252,6 +292,7 @@ public final class AircraftState implements ErrorReporter {
 					insertAt(i, ss, vv, tm);
 			   	} else if (size < bufferSize) { // note i == -1 (insert before beginning)
 			   		oldest = ext2int(-1);
+			   		retire(oldest);
 					s_list[oldest] = ss;
 					v_list[oldest] = vv;
 					t_list[oldest] = tm;
@@ -262,6 +303,7 @@ public final class AircraftState implements ErrorReporter {
 				  // is precisely what I do, nothing.
 			}
 		} else { // the list is empty or we are adding to the end.
+			retire(ext2int(size)); // when the list is full, this is the oldest element
 			s_list[ext2int(size)] = ss;
 			v_list[ext2int(size)] = vv;
 			t_list[ext2int(size)] = tm;
@@ -272,6 +314,7 @@ public final class AircraftState implements ErrorReporter {
 			}
 		}
 		projection_done = false;
+		regression_done = false;
 	
 		// EXPERIMENTAL
 		if (size == 1) {
@@ -298,7 +341,8 @@ public final class AircraftState implements ErrorReporter {
 	public StateVector get(int i) {
 		if (i >= size || i < 0) return new StateVector(Vect3.ZERO, Velocity.ZERO,0.0);//null;
 		updateProjection();
-		return new StateVector(new Vect3(projS2[i], projH[i]), Velocity.mkVxyz(projV2[i].x(), projV2[i].y(), projVZ[i]), time(i));
+		int j = ext2int(i);
+		return new StateVector(new Vect3(projS2[j], projH[j]), Velocity.mkVxyz(projV2[j].x(), projV2[j].y(), projVZ[j]), time(i));
 	}
 	
 	/**
@@ -319,6 +363,10 @@ public final class AircraftState implements ErrorReporter {
 	// 2. i is the correct place to insert the data; time is correctly ordered: t(i) < tm < t(i+1)
 	// 3. the projection_done flag is set by somewhere else
 	private void insertAt(int i, Position ss, Velocity vv, double tm) {
+		// entries move between internal indices: project them all again
+		Arrays.fill(proj_ok, false);
+		Arrays.fill(in_sum, false);
+		rs_valid = false;
 		if (size < bufferSize) {
 			for(int j = 0; j <= i; j++) {
 				int first = ext2int(j);
@@ -406,9 +454,13 @@ public final class AircraftState implements ErrorReporter {
     public void remove(int n) {
     	if (n <= 0) return;
     	if (n > size) n = size;
+    	for (int i = 0; i < n; i++) {
+    		retire(ext2int(i));
+    	}
     	oldest = ext2int(n);
     	size = size - n;
     	projection_done = false;
+    	regression_done = false;
     }
     
     /** remove any data older than the given time */
@@ -425,7 +477,11 @@ public final class AircraftState implements ErrorReporter {
     
     /** remove the latest (i.e. newest) data point */
     public void removeLast() {
-    	if (size > 0) size = size - 1;
+    	if (size > 0) {
+    		retire(ext2int(size-1));
+    		size = size - 1;
+    		regression_done = false;
+    	}
     	// the projection_done flag does not need to be set to false, 
     	//   because we are removing from the end of the list.  Thus, 
     	//   the arrays that hold the projected values will not be
@@ -458,6 +514,9 @@ public final class AircraftState implements ErrorReporter {
     	sp = p;
     	projection_initialized = true;
     	projection_done = false;
+    	Arrays.fill(proj_ok, false);
+    	Arrays.fill(in_sum, false);
+    	rs_valid = false;
     }
 
 //    /**
@@ -470,11 +529,9 @@ public final class AircraftState implements ErrorReporter {
 //	}
 	
 	/**
-	 * Reproject all the points
+	 * Project the points that have been added or changed since the last projection
 	 */
 	private void updateProjection() {
-		// idea: have a dirty flag.  set it to true when setProjection is called.
-		// Only call this if the flag is true, and then make it false
 		if (projection_done || size == 0) {
 			return; // no need to do any work.
 		}
@@ -484,37 +541,87 @@ public final class AircraftState implements ErrorReporter {
 				sp = Projection.createProjection(LatLonAlt.ZERO);
 			}
 			//f.pln(" $$$ AircraftState.updateProjection RECOMPUTE! sp = "+sp);
-			for (int j = 0; j < size(); j++){                     // project all the points for aircraft id
-				Position s = position(j);
+			for (int i = 0; i < size(); i++){                     // project the new points for aircraft id
+				int j = ext2int(i);
+				if (proj_ok[j]) continue;
+				Position s = s_list[j];
 				projS2[j] = sp.project2(s.lla());
 				projH[j] = s.alt();
 				if (projectVelocity) {
-					Velocity v = sp.projectVelocity(s, velocity(j));
+					Velocity v = sp.projectVelocity(s, v_list[j]);
 					projV2[j] = v.vect2(); 
 					projVZ[j] = v.z();
 
 				} else {
-					Velocity v = velocity(j);
+					Velocity v = v_list[j];
 					projV2[j] = v.vect2();  
 					projVZ[j] = v.z();
 				}
-				projT[j] = time(j);
+				projT[j] = t_list[j];
+				proj_ok[j] = true;
+				addToSums(j);
 			}
 		} else {
-			for (int j = 0; j < size(); j++){                     // Euclidean coordinates, no projection done
-				Position s = position(j);
+			for (int i = 0; i < size(); i++){                     // Euclidean coordinates, no projection done
+				int j = ext2int(i);
+				if (proj_ok[j]) continue;
+				Position s = s_list[j];
 				projS2[j] = s.vect2();
 				projH[j] = s.alt();
-				Velocity v = velocity(j);
+				Velocity v = v_list[j];
 				projV2[j] = v.vect2();
 				projVZ[j] = v.z();
-				projT[j] = time(j);
+				projT[j] = t_list[j];
+				proj_ok[j] = true;
+				addToSums(j);
 			}
 		}
         projection_done = true;
         regression_done = false;
 	}
 
+	// The entry at internal index j is about to be overwritten or dropped
+	private void retire(int j) {
+		if (in_sum[j]) {
+			if (rs_valid) {
+				double u = projT[j] - rs_t0;
+				double vnorm = projV2[j].norm();
+				double vz = projVZ[j];
+				rs_n--;
+				rs_u -= u;
+				rs_uu -= u*u;
+				rs_v -= vnorm;
+				rs_vu -= vnorm*u;
+				rs_h -= vz;
+				rs_hu -= vz*u;
+				// limit the accumulation of round-off errors
+				if (++rs_updates > 4*bufferSize) {
+					rs_valid = false;
+				}
+			}
+			in_sum[j] = false;
+		}
+		proj_ok[j] = false;
+	}
+
+	// Add the (projected) entry at internal index j to the regression sums
+	private void addToSums(int j) {
+		if (!rs_valid || in_sum[j]) {
+			return;
+		}
+		double u = projT[j] - rs_t0;
+		double vnorm = projV2[j].norm();
+		double vz = projVZ[j];
+		rs_n++;
+		rs_u += u;
+		rs_uu += u*u;
+		rs_v += vnorm;
+		rs_vu += vnorm*u;
+		rs_h += vz;
+		rs_hu += vz*u;
+		in_sum[j] = true;
+	}
+
 	/**
 	 * Return the current projection used in this AircraftState
 	 * Be sure to note if the returned projection point has a zero altitude or not.
@@ -537,56 +644,50 @@ public final class AircraftState implements ErrorReporter {
 //		return new Pair<Vect3,Velocity>(new Vect3(projS2[i], projH[i]), Velocity.mkVxyz(projV2[i].x(), projV2[i].y(), projVZ[i]));
 //	}
 	
-	// assumes that all arrays are the same length and have at least "length" elements
-	// assumes the arrays are sorted in increasing time order.
-	private void calc(Vect2 pos2[], double posH[], Vect2 vel2[], double velZ[], double timevar[], int length) {
+	// Regression of the horizontal speed and vertical speed with respect to time, relative to the 
+	// time of the latest entry. Assumes that the projection is up to date.
+	private void calc() {
 		if (regression_done) {
 			return;
 		}
 		regression_done = true;
-		if (length == 1) {
-			horizvelintercept = vel2[0].norm();
-			vertvelintercept  = velZ[0];
+		recentInd = ext2int(size - 1);
+		if (size == 1) {
+			horizvelintercept = projV2[recentInd].norm();
+			vertvelintercept  = projVZ[recentInd];
 			horizvelslope     = 0;
 			vertvelslope      = 0;
-			recentInd		  = 0;
 			return;
 		}
 
-		double sumv = 0;
-		double sumt = 0;
-		double sumtsq = 0;
-		double sumvt = 0;
-		double hsumv = 0;
-		double hsumvt = 0;
-		double timediff = 0;
-		double vnorm = 0;
-		double vertvelz = 0;
-		double regdenom = 0;
-
-		recentInd = length - 1;
-// This search is not needed, currently, may be needed if data is out of order.
-//		for (int point = 0; point < length; point++) {
-//			if (timevar[point] > timevar[recentInd]) {
-//				recentInd = point;
-//			}
-//		}
-
-		for (int point = 0; point < length; point++) {
-			timediff = timevar[point] - timevar[recentInd];
-			vnorm = vel2[point].norm();
-			vertvelz = velZ[point];
-
-			sumv = sumv + vnorm;
-			sumt = sumt + timediff;
-			sumtsq = sumtsq + Math.pow(timediff, 2.0);
-			sumvt = sumvt + vnorm * timediff;
-			hsumv = hsumv + vertvelz;
-			hsumvt = hsumvt + vertvelz * timediff;
-			//f.pln("Inside Regression Loop: "+point+": sumv is "+sumv+" and sumt is "+sumt+" and sumtsq is "
-			// +sumtsq+" and sumvt is "+sumvt+" and timediff is "+timediff);
+		if (!rs_valid || rs_n != size) {
+			// recompute the sums relative to the latest time
+			rs_valid = true;
+			rs_updates = 0;
+			rs_t0 = projT[recentInd];
+			rs_n = 0;
+			rs_u = 0;
+			rs_uu = 0;
+			rs_v = 0;
+			rs_vu = 0;
+			rs_h = 0;
+			rs_hu = 0;
+			Arrays.fill(in_sum, false);
+			for (int point = 0; point < size; point++) {
+				addToSums(ext2int(point));
+			}
 		}
-		regdenom = length * sumtsq - sumt * sumt;
+
+		// shift the sums from rs_t0 to the latest time: timediff = u - ur
+		double ur = projT[recentInd] - rs_t0;
+		int length = rs_n;
+		double sumv = rs_v;
+		double sumt = rs_u - length * ur;
+		double sumtsq = rs_uu - 2 * ur * rs_u + length * ur * ur;
+		double sumvt = rs_vu - ur * rs_v;
+		double hsumv = rs_h;
+		double hsumvt = rs_hu - ur * rs_h;
+		double regdenom = length * sumtsq - sumt * sumt;
 		if (regdenom != 0) {
 			horizvelintercept = (sumv * sumtsq - sumt * sumvt) / regdenom;
 			horizvelslope = (length * sumvt - sumt * sumv) / regdenom;
@@ -602,7 +703,7 @@ public final class AircraftState implements ErrorReporter {
 
 	private Vect3 predS(double t) {
 		//f.pln("calling predS with time = "+t);
-		double trel = t - projT[size - 1];
+		double trel = t - projT[ext2int(size - 1)];
 		Vect2 predSxy = projS2[recentInd].AddScal(trel * (horizvelintercept + trel * horizvelslope / 2)
 								* (1 / projV2[recentInd].norm()),projV2[recentInd]);
 		double predAlt = projH[recentInd] + trel * (vertvelintercept + trel * vertvelslope / 2);
@@ -629,7 +730,7 @@ public final class AircraftState implements ErrorReporter {
 	 */
 	public StateVector pred(double t) {
 		updateProjection();
-		calc(projS2, projH, projV2, projVZ, projT, size());
+		calc();
 		return new StateVector(predS(t), predV(t),t);
 	}	
 
@@ -1056,6 +1157,10 @@ public final class AircraftState implements ErrorReporter {
 		}// for
 		//f.pln(" largestPruned = "+largestPruned);
 		if (largestPruned > 0) {
+		   for (int i = 0; i < largestPruned; i++) {
+			   retire(ext2int(i));
+		   }
+		   regression_done = false;
 		   oldest = ext2int(largestPruned); 
 		   size = size - largestPruned;
 		   System.out.println("prune: Deleted "+largestPruned+" from aircraft "+id+"; start = "+oldest+" size = " + size);
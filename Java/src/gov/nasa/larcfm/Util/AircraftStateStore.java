@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.Util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A compact store for the state histories of a large number of aircraft.<p>
+ *
+ * Each track holds up to bufferSize entries, like an {@link AircraftState}, but all tracks
+ * share a few primitive arrays (structure of arrays): positions are stored as x/y/z, or
+ * lat/lon/alt, in internal units, and velocities as vx/vy/vz. No objects are allocated when
+ * entries are added. Tracks are identified by an integer index returned by addTrack.<p>
+ *
+ * Entries are expected to arrive in increasing time order. An entry with the same time as the
+ * latest entry of the track replaces it; an entry older than the latest entry is ignored.
+ * When a track is full, adding an entry drops its oldest one.<p>
+ *
+ * Tracks can be converted to AircraftState objects (with their own projection and regression)
+ * with {@link #toAircraftState}.
+ */
+public final class AircraftStateStore {
+
+	private final int bufferSize;
+	private final boolean latlon;
+	private int ntracks;
+	private String[] ids;
+	private final HashMap<String,Integer> index = new HashMap<String,Integer>();
+	private int[] oldest;
+	private int[] size;
+	// entry k of track ac is stored at ac*bufferSize + (oldest[ac]+k) % bufferSize
+	private double[] sx;
+	private double[] sy;
+	private double[] sz;
+	private double[] vx;
+	private double[] vy;
+	private double[] vz;
+	private double[] tm;
+
+	/**
+	 * Create a store.
+	 * @param bufferSize maximum number of entries per track (at least 1)
+	 * @param latlon true if positions are geodetic, false if Euclidean
+	 * @param capacity initial number of tracks (the store grows as needed)
+	 */
+	public AircraftStateStore(int bufferSize, boolean latlon, int capacity) {
+		this.bufferSize = bufferSize < 1 ? AircraftState.DEFAULT_BUFFER_SIZE : bufferSize;
+		this.latlon = latlon;
+		ntracks = 0;
+		allocate(Math.max(1,capacity));
+	}
+
+	/** Create a store with the default buffer size */
+	public AircraftStateStore(boolean latlon) {
+		this(AircraftState.DEFAULT_BUFFER_SIZE,latlon,16);
+	}
+
+	private void allocate(int cap) {
+		ids = ids == null ? new String[cap] : Arrays.copyOf(ids,cap);
+		oldest = oldest == null ? new int[cap] : Arrays.copyOf(oldest,cap);
+		size = size == null ? new int[cap] : Arrays.copyOf(size,cap);
+		int n = cap*bufferSize;
+		sx = sx == null ? new double[n] : Arrays.copyOf(sx,n);
+		sy = sy == null ? new double[n] : Arrays.copyOf(sy,n);
+		sz = sz == null ? new double[n] : Arrays.copyOf(sz,n);
+		vx = vx == null ? new double[n] : Arrays.copyOf(vx,n);
+		vy = vy == null ? new double[n] : Arrays.copyOf(vy,n);
+		vz = vz == null ? new double[n] : Arrays.copyOf(vz,n);
+		tm = tm == null ? new double[n] : Arrays.copyOf(tm,n);
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public boolean isLatLon() {
+		return latlon;
+	}
+
+	/** Number of tracks */
+	public int numberOfTracks() {
+		return ntracks;
+	}
+
+	/**
+	 * Add a new (empty) track, or return the index of the existing track with the given id
+	 */
+	public int addTrack(String id) {
+		Integer ac = index.get(id);
+		if (ac != null) {
+			return ac;
+		}
+		if (ntracks == ids.length) {
+			allocate(2*ids.length);
+		}
+		ids[ntracks] = id;
+		oldest[ntracks] = 0;
+		size[ntracks] = 0;
+		index.put(id,ntracks);
+		return ntracks++;
+	}
+
+	/** Index of the track with the given id, or -1 if there is no such track */
+	public int indexOf(String id) {
+		Integer ac = index.get(id);
+		return ac == null ? -1 : ac;
+	}
+
+	/** Identifier of track ac */
+	public String getId(int ac) {
+		return ids[ac];
+	}
+
+	/** Number of entries of track ac */
+	public int size(int ac) {
+		return size[ac];
+	}
+
+	private int slot(int ac, int k) {
+		return ac*bufferSize + (oldest[ac]+k) % bufferSize;
+	}
+
+	/**
+	 * Add an entry to track ac. Positions must be geodetic if and only if this store is.
+	 * @return false if the entry was ignored (it is older than the latest entry of the track, or
+	 * its position does not match the coordinate system of this store)
+	 */
+	public boolean add(int ac, Position s, Velocity v, double t) {
+		if (s.isLatLon() != latlon) {
+			return false;
+		}
+		return add(ac, latlon ? s.lat() : s.x(), latlon ? s.lon() : s.y(), s.alt(), v.x, v.y, v.z, t);
+	}
+
+	/**
+	 * Add an entry to track ac, given in internal units: (x,y,z) or (lat,lon,alt) position and (vx,vy,vz) velocity.
+	 * @return false if the entry was ignored because it is older than the latest entry of the track
+	 */
+	public boolean add(int ac, double x, double y, double z, double vx0, double vy0, double vz0, double t) {
+		int n = size[ac];
+		int j;
+		if (n > 0 && t <= tm[slot(ac,n-1)]) {
+			j = slot(ac,n-1);
+			if (t != tm[j]) {
+				return false;
+			}
+		} else if (n < bufferSize) {
+			j = slot(ac,n);
+			size[ac] = n+1;
+		} else {
+			j = slot(ac,0); // replace the oldest entry
+			oldest[ac] = (oldest[ac]+1) % bufferSize;
+		}
+		sx[j] = x;
+		sy[j] = y;
+		sz[j] = z;
+		vx[j] = vx0;
+		vy[j] = vy0;
+		vz[j] = vz0;
+		tm[j] = t;
+		return true;
+	}
+
+	/** Time of entry k (0 is the oldest) of track ac, or -1 if out of bounds */
+	public double time(int ac, int k) {
+		if (k < 0 || k >= size[ac]) return -1.0;
+		return tm[slot(ac,k)];
+	}
+
+	/** Position of entry k (0 is the oldest) of track ac, or INVALID if out of bounds */
+	public Position position(int ac, int k) {
+		if (k < 0 || k >= size[ac]) return Position.INVALID;
+		int j = slot(ac,k);
+		return latlon ? Position.mkLatLonAlt(sx[j],sy[j],sz[j]) : Position.mkXYZ(sx[j],sy[j],sz[j]);
+	}
+
+	/** Velocity of entry k (0 is the oldest) of track ac, or INVALID if out of bounds */
+	public Velocity velocity(int ac, int k) {
+		if (k < 0 || k >= size[ac]) return Velocity.INVALID;
+		int j = slot(ac,k);
+		return Velocity.mkVxyz(vx[j],vy[j],vz[j]);
+	}
+
+	/** Time of the latest entry of track ac, or -1 if the track is empty */
+	public double timeLast(int ac) {
+		return time(ac,size[ac]-1);
+	}
+
+	// index of the most recent entry at or before t (within PRECISION13), or -1 if there is none
+	private int indexBefore(int ac, double t) {
+		int k = size[ac]-1;
+		while (k > 0 && Util.almost_greater(tm[slot(ac,k)],t,Util.PRECISION13)) {
+			k--;
+		}
+		if (k < 0 || tm[slot(ac,k)] > t) return -1;
+		return k;
+	}
+
+	/**
+	 * Position of track ac at time t, linearly projected from the most recent entry at or before t
+	 * (as AircraftState.positionLinear). Returns INVALID if there is no such entry.
+	 */
+	public Position positionLinear(int ac, double t) {
+		int k = indexBefore(ac,t);
+		if (k < 0) return Position.INVALID;
+		return position(ac,k).linear(velocity(ac,k), t-time(ac,k));
+	}
+
+	/**
+	 * Velocity of the most recent entry of track ac at or before t (as AircraftState.velocityAt).
+	 * Returns INVALID if there is no such entry.
+	 */
+	public Velocity velocityAt(int ac, double t) {
+		int k = indexBefore(ac,t);
+		if (k < 0) return Velocity.INVALID;
+		return velocity(ac,k);
+	}
+
+	/** Remove the entries of track ac older than the given time */
+	public void removeUpToTime(int ac, double t) {
+		while (size[ac] > 0 && tm[slot(ac,0)] < t) {
+			oldest[ac] = (oldest[ac]+1) % bufferSize;
+			size[ac]--;
+		}
+	}
+
+	/** Remove the entries of all tracks older than the given time */
+	public void removeUpToTime(double t) {
+		for (int ac = 0; ac < ntracks; ac++) {
+			removeUpToTime(ac,t);
+		}
+	}
+
+	/** Remove all entries of track ac (the track itself is kept) */
+	public void clear(int ac) {
+		oldest[ac] = 0;
+		size[ac] = 0;
+	}
+
+	/**
+	 * Return a new AircraftState with the entries of track ac, oldest first.
+	 * @param proj projection of the new object, ignored if null
+	 */
+	public AircraftState toAircraftState(int ac, EuclideanProjection proj) {
+		AircraftState a = new AircraftState(ids[ac],bufferSize);
+		if (proj != null) {
+			a.setProjection(proj);
+		}
+		for (int k = 0; k < size[ac]; k++) {
+			a.add(position(ac,k),velocity(ac,k),time(ac,k));
+		}
+		return a;
+	}
+
+	public String toString() {
+		return "AircraftStateStore: tracks = "+ntracks+" bufferSize = "+bufferSize+" latlon = "+latlon;
+	}
+
+}
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.Util;
+
+import java.util.Arrays;
+
+/**
+ * A compact, read-only representation of a Plan, for keeping a large number of plans in memory.<p>
+ *
+ * Points are stored in parallel primitive arrays: time, position (lat/lon/alt in internal units for latitude/longitude
+ * plans, x/y/z for Euclidean plans), and packed flags for the point type and the TCP types.  Labels are interned.  The
+ * remaining TCP metadata (turn radius, accelerations, velocity in, and source position and time) is only stored for points
+ * where it differs from the values of a plain NavPoint(p,t,label).  Conversion to and from Plan is lossless.<p>
+ *
+ * Positions and velocities at arbitrary times are the same as those of the Plan.  They are interpolated directly from
+ * the arrays; the acceleration zone that is active after each point is recorded in the flags, so no search over the plan
+ * is needed.  Detection can also read the arrays directly, see CDIICore.detection(CompactPlan,CompactPlan,double,double),
+ * CDII.detection(CompactPlan,CompactPlan,double,double), and CDSICore.PreparedPlan(CompactPlan).<p>
+ *
+ * Objects of this class are immutable.
+ */
+public final class CompactPlan {
+
+	// layout of flags
+	private static final int TY_SHIFT = 0;
+	private static final int TRK_SHIFT = 2;
+	private static final int GS_SHIFT = 4;
+	private static final int VS_SHIFT = 6;
+	private static final int MASK = 3;
+	private static final int LATLON = 1 << 8;
+	private static final int SOURCE_LATLON = 1 << 9;
+	private static final int IN_TRK = 1 << 10; // a turn is active after this point
+	private static final int IN_GS = 1 << 11;  // a ground speed acceleration is active after this point
+	private static final int IN_VS = 1 << 12;  // a vertical speed acceleration is active after this point
+	private static final int NOT_TCP = LATLON | SOURCE_LATLON | IN_TRK | IN_GS | IN_VS;
+
+	// layout of the metadata of a point
+	private static final int RADIUS = 0;
+	private static final int ACCEL_GS = 1;
+	private static final int ACCEL_VS = 2;
+	private static final int VIN = 3;     // x, y, z
+	private static final int SOURCE = 6;  // lat/x, lon/y, alt/z
+	private static final int SOURCE_TIME = 9;
+	private static final int STRIDE = 10;
+
+	private static final NavPoint.WayType[] WAY_TYPES = NavPoint.WayType.values();
+	private static final NavPoint.Trk_TCPType[] TRK_TYPES = NavPoint.Trk_TCPType.values();
+	private static final NavPoint.Gs_TCPType[] GS_TYPES = NavPoint.Gs_TCPType.values();
+	private static final NavPoint.Vs_TCPType[] VS_TYPES = NavPoint.Vs_TCPType.values();
+
+	private final String name;
+	private final String note;
+	private final double[] time;
+	private final double[] p1; // lat or x
+	private final double[] p2; // lon or y
+	private final double[] p3; // alt or z
+	private final int[] flags;
+	private final String[] labels;
+	private final int[] metaIndex; // index into meta of the metadata of a point, -1 if it has default values (null if no point has metadata)
+	private final double[] meta;
+
+	/** Create a compact copy of plan p. */
+	public CompactPlan(Plan p) {
+		int n = p.size();
+		name = p.getName();
+		note = p.getNote();
+		time = new double[n];
+		p1 = new double[n];
+		p2 = new double[n];
+		p3 = new double[n];
+		flags = new int[n];
+		labels = new String[n];
+		int[] idx = new int[n];
+		double[] m = new double[0];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			NavPoint np = p.point(i);
+			Position pos = np.position();
+			time[i] = np.time();
+			p1[i] = coord1(pos);
+			p2[i] = coord2(pos);
+			p3[i] = pos.alt();
+			labels[i] = np.label().intern();
+			flags[i] = (wayType(np).ordinal() << TY_SHIFT) | (trkType(np).ordinal() << TRK_SHIFT) |
+					(gsType(np).ordinal() << GS_SHIFT) | (vsType(np).ordinal() << VS_SHIFT) |
+					(pos.isLatLon() ? LATLON : 0) | (np.sourcePosition().isLatLon() ? SOURCE_LATLON : 0);
+			if (hasDefaultMetaData(np)) {
+				idx[i] = -1;
+			} else {
+				if ((count+1)*STRIDE > m.length) {
+					m = Arrays.copyOf(m, Math.max(STRIDE, 2*m.length));
+				}
+				int k = count*STRIDE;
+				Velocity vin = np.velocityIn();
+				Position src = np.sourcePosition();
+				m[k+RADIUS] = np.signedRadius();
+				m[k+ACCEL_GS] = np.gsAccel();
+				m[k+ACCEL_VS] = np.vsAccel();
+				m[k+VIN] = vin.x;
+				m[k+VIN+1] = vin.y;
+				m[k+VIN+2] = vin.z;
+				m[k+SOURCE] = coord1(src);
+				m[k+SOURCE+1] = coord2(src);
+				m[k+SOURCE+2] = src.alt();
+				m[k+SOURCE_TIME] = np.sourceTime();
+				idx[i] = count++;
+			}
+		}
+		int zones = 0;
+		for (int i = 0; i < n; i++) { // acceleration zones, as in Plan.inTrkChange, inGsChange, and inVsChange
+			zones = zone(flags[i], TRK_SHIFT, IN_TRK, zones);
+			zones = zone(flags[i], GS_SHIFT, IN_GS, zones);
+			zones = zone(flags[i], VS_SHIFT, IN_VS, zones);
+			flags[i] |= zones;
+		}
+		metaIndex = count > 0 ? idx : null;
+		meta = count > 0 ? Arrays.copyOf(m, count*STRIDE) : null;
+	}
+
+	// Active zones after a point with the given flags: a begin TCP opens the zone, any other TCP of that kind closes it
+	private static int zone(int flags, int shift, int bit, int zones) {
+		int ty = (flags >> shift) & MASK;
+		if (ty == 0) return zones;
+		return ty == 1 ? zones | bit : zones & ~bit;
+	}
+
+	private static double coord1(Position p) {
+		return p.isLatLon() ? p.lat() : p.x();
+	}
+
+	private static double coord2(Position p) {
+		return p.isLatLon() ? p.lon() : p.y();
+	}
+
+	private static Position position(boolean latlon, double a, double b, double c) {
+		return latlon ? Position.mkLatLonAlt(a, b, c) : Position.mkXYZ(a, b, c);
+	}
+
+	private static NavPoint.WayType wayType(NavPoint np) {
+		if (np.isVirtual()) return NavPoint.WayType.Virtual;
+		if (np.isAltPreserve()) return NavPoint.WayType.AltPreserve;
+		return NavPoint.WayType.Orig;
+	}
+
+	private static NavPoint.Trk_TCPType trkType(NavPoint np) {
+		if (np.isBOT() && np.isEOT()) return NavPoint.Trk_TCPType.EOTBOT;
+		if (np.isBOT()) return NavPoint.Trk_TCPType.BOT;
+		if (np.isEOT()) return NavPoint.Trk_TCPType.EOT;
+		return NavPoint.Trk_TCPType.NONE;
+	}
+
+	private static NavPoint.Gs_TCPType gsType(NavPoint np) {
+		if (np.isBGS() && np.isEGS()) return NavPoint.Gs_TCPType.EGSBGS;
+		if (np.isBGS()) return NavPoint.Gs_TCPType.BGS;
+		if (np.isEGS()) return NavPoint.Gs_TCPType.EGS;
+		return NavPoint.Gs_TCPType.NONE;
+	}
+
+	private static NavPoint.Vs_TCPType vsType(NavPoint np) {
+		if (np.isBVS() && np.isEVS()) return NavPoint.Vs_TCPType.EVSBVS;
+		if (np.isBVS()) return NavPoint.Vs_TCPType.BVS;
+		if (np.isEVS()) return NavPoint.Vs_TCPType.EVS;
+		return NavPoint.Vs_TCPType.NONE;
+	}
+
+	// true if the metadata of np is the same as for new NavPoint(np.position(),np.time(),np.label())
+	private static boolean hasDefaultMetaData(NavPoint np) {
+		Position p = np.position();
+		Position src = np.sourcePosition();
+		return np.signedRadius() == 0.0 && np.gsAccel() == 0.0 && np.vsAccel() == 0.0 && np.velocityIn() == Velocity.INVALID &&
+				same(np.sourceTime(), np.time()) && src.isLatLon() == p.isLatLon() &&
+				same(coord1(src), coord1(p)) && same(coord2(src), coord2(p)) && same(src.alt(), p.alt());
+	}
+
+	private static boolean same(double a, double b) {
+		return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+	}
+
+	/** Returns a new Plan with the same points as this compact plan */
+	public Plan toPlan() {
+		Plan p = new Plan(name, note);
+		for (int i = 0; i < size(); i++) {
+			p.add(point(i));
+		}
+		return p;
+	}
+
+	/** Returns the NavPoint at index i */
+	public NavPoint point(int i) {
+		Position pos = position(i);
+		if (metaIndex == null || metaIndex[i] < 0) {
+			if (flags[i] == (flags[i] & NOT_TCP)) { // Orig, no TCP
+				return new NavPoint(pos, time[i], labels[i]);
+			}
+			return NavPoint.makeFull(pos, time[i], wayType(i), labels[i], trkType(i), gsType(i), vsType(i),
+					0.0, 0.0, 0.0, Velocity.INVALID, pos, time[i]);
+		}
+		int k = metaIndex[i]*STRIDE;
+		Velocity vin = Velocity.mkVxyz(meta[k+VIN], meta[k+VIN+1], meta[k+VIN+2]);
+		if (vin.isInvalid()) {
+			vin = Velocity.INVALID;
+		}
+		Position src = position((flags[i] & SOURCE_LATLON) != 0, meta[k+SOURCE], meta[k+SOURCE+1], meta[k+SOURCE+2]);
+		return NavPoint.makeFull(pos, time[i], wayType(i), labels[i], trkType(i), gsType(i), vsType(i),
+				meta[k+RADIUS], meta[k+ACCEL_GS], meta[k+ACCEL_VS], vin, src, meta[k+SOURCE_TIME]);
+	}
+
+	private NavPoint.WayType wayType(int i) {
+		return WAY_TYPES[(flags[i] >> TY_SHIFT) & MASK];
+	}
+
+	private NavPoint.Trk_TCPType trkType(int i) {
+		return TRK_TYPES[(flags[i] >> TRK_SHIFT) & MASK];
+	}
+
+	private NavPoint.Gs_TCPType gsType(int i) {
+		return GS_TYPES[(flags[i] >> GS_SHIFT) & MASK];
+	}
+
+	private NavPoint.Vs_TCPType vsType(int i) {
+		return VS_TYPES[(flags[i] >> VS_SHIFT) & MASK];
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getNote() {
+		return note;
+	}
+
+	public int size() {
+		return time.length;
+	}
+
+	public boolean isLatLon() {
+		return size() > 0 && (flags[0] & LATLON) != 0;
+	}
+
+	/** Time of point i */
+	public double getTime(int i) {
+		return time[i];
+	}
+
+	/** Position of point i */
+	public Position position(int i) {
+		return position((flags[i] & LATLON) != 0, p1[i], p2[i], p3[i]);
+	}
+
+	/** Label of point i */
+	public String label(int i) {
+		return labels[i];
+	}
+
+	public double getFirstTime() {
+		return size() > 0 ? time[0] : 0.0;
+	}
+
+	public double getLastTime() {
+		return size() > 0 ? time[size()-1] : 0.0;
+	}
+
+	/** True if point i is a TCP */
+	public boolean isTCP(int i) {
+		return (flags[i] & ~(MASK << TY_SHIFT | NOT_TCP)) != 0;
+	}
+
+	/**
+	 * Return the segment number that contains 'time' in [s].  If the
+	 * time is not contained in the flight plan then -1 is returned (see Plan.getSegment).
+	 */
+	public int getSegment(double t) {
+		int i = Arrays.binarySearch(time, t);
+		if (i >= 0) {
+			while (i > 0 && time[i-1] == t) i--; // first of equal times
+			return i;
+		}
+		i = -i-2; // last point before t
+		if (i < 0 || i >= size()-1) return -1;
+		return i;
+	}
+
+	/**
+	 * Position and velocity at time t, same as toPlan().positionVelocity(t,linear).
+	 */
+	public Pair<Position,Velocity> positionVelocity(double t, boolean linear) {
+		if (t < getFirstTime() || Double.isNaN(t) || size() == 0) {
+			return new Pair<Position,Velocity>(Position.INVALID, Velocity.ZERO);
+		}
+		int seg = getSegment(t);
+		if (seg < 0) {
+			return toPlan().positionVelocity(t, linear); // past the end of the plan, where Plan reports an error
+		}
+		if (seg == size()-1) { // at the last point
+			Velocity v = seg == 0 ? Velocity.ZERO : positionVelocity(time[seg]-2.0*Plan.minDt, false).second;
+			return new Pair<Position,Velocity>(position(seg), v);
+		}
+		// Values of the motion along segment seg, see Plan.SegmentMotion
+		double gs0 = gsAtSeg(seg, linear);
+		boolean inGs = !linear && inZone(seg, IN_GS);
+		double gsAccel = inGs ? gsAccel(prevBegin(seg, GS_SHIFT)) : 0.0;
+		boolean inTrk = !linear && inZone(seg, IN_TRK);
+		int ixVs = !linear && inZone(seg, IN_VS) ? prevBegin(seg, VS_SHIFT) : -1;
+		// Motion at time t, see Plan.positionVelocity
+		double dt = t-time[seg];
+		double gsAt_d = inGs ? gs0 + dt*gsAccel : gs0;
+		double distFromSo = inGs ? gs0*dt + 0.5*gsAccel*dt*dt : gs0*dt;
+		Position so = position(seg);
+		Position sNew;
+		Velocity vNew;
+		if (inTrk) {
+			NavPoint bot = point(prevBegin(seg, TRK_SHIFT));
+			int dir = Util.sign(bot.signedRadius());
+			Pair<Position,Velocity> tAtd = KinematicsPosition.turnByDist(so, bot.turnCenter(), dir*distFromSo, gsAt_d);
+			sNew = tAtd.first;
+			vNew = tAtd.second;
+		} else {
+			Pair<Position,Velocity> pv = so.linearDist(initialVelocity(seg, seg+1), distFromSo);
+			sNew = pv.first;
+			vNew = pv.second.mkGs(gsAt_d);
+		}
+		if (ixVs >= 0) {
+			Pair<Position,Velocity> pv = KinematicsPosition.vsAccel(position(ixVs), velocityIn(ixVs), t-time[ixVs], vsAccel(ixVs));
+			sNew = sNew.mkAlt(pv.first.alt());
+			vNew = vNew.mkVs(pv.second.vs());
+		} else {
+			double vZ = (p3[seg+1] - p3[seg])/(time[seg+1]-time[seg]);
+			sNew = sNew.mkAlt(p3[seg] + vZ*dt);
+			vNew = vNew.mkVs(vZ);
+		}
+		return new Pair<Position,Velocity>(sNew, vNew);
+	}
+
+	public Pair<Position,Velocity> positionVelocity(double t) {
+		return positionVelocity(t, false);
+	}
+
+	public Position position(double t) {
+		return positionVelocity(t, false).first;
+	}
+
+	public Velocity velocity(double t) {
+		return positionVelocity(t, false).second;
+	}
+
+	/**
+	 * Initial velocity of point i, same as toPlan().initialVelocity(i,linear).
+	 */
+	public Velocity initialVelocity(int i, boolean linear) {
+		if (i < 0 || i > size()-1 || size() == 1) {
+			return Velocity.ZERO;
+		}
+		if (linear) {
+			return dtVelocity(i);
+		}
+		if (isBegin(i, TRK_SHIFT) || isBegin(i, GS_SHIFT) || isBegin(i, VS_SHIFT)) {
+			return velocityIn(i);
+		}
+		if (inZone(getSegment(time[i]), IN_TRK | IN_GS | IN_VS) || (isTCP(i) && i == size()-1)) {
+			return velocity(time[i]);
+		}
+		return dtVelocity(i);
+	}
+
+	// Ground speed at the beginning of segment seg, see Plan.gsAtSeg
+	private double gsAtSeg(int seg, boolean linear) {
+		if (!linear && (isBegin(seg, TRK_SHIFT) || isBegin(seg, GS_SHIFT)) && !isBegin(seg, VS_SHIFT)) {
+			return velocityIn(seg).gs();
+		}
+		if (seg == 0) {
+			return dtVelocity(0).gs();
+		}
+		if (!linear && inZone(getSegment(time[seg]), IN_GS)) {
+			int ixBGS = prevBegin(seg, GS_SHIFT);
+			double dist = 0.0;
+			for (int j = ixBGS; j < seg; j++) {
+				dist += pathDistance(j);
+			}
+			double dt = time[seg] - time[ixBGS];
+			return dist/dt + 0.5*gsAccel(ixBGS)*dt;
+		}
+		return (linear ? position(seg).distanceH(position(seg+1)) : pathDistance(seg)) / (time[seg+1] - time[seg]);
+	}
+
+	// Horizontal (curved) distance between points i and i+1, see Plan.pathDistance
+	private double pathDistance(int i) {
+		if (inZone(getSegment(time[i]), IN_TRK)) {
+			NavPoint bot = point(prevBegin(i, TRK_SHIFT));
+			double theta = PositionUtil.angle_between(position(i), bot.turnCenter(), position(i+1));
+			return Math.abs(theta*bot.turnRadius());
+		}
+		return position(i).distanceH(position(i+1));
+	}
+
+	// Velocity from point i to the next point at least Plan.minDt later, see Plan.getDtVelocity
+	private Velocity dtVelocity(int i) {
+		int j = i+1;
+		while (j < size() && time[j]-time[i] < Plan.minDt) {
+			j++;
+		}
+		if (j >= size()) {
+			int last = size()-1;
+			while (i > 0 && time[last] - time[i] < Plan.minDt) {
+				i--;
+			}
+			return point(i).finalVelocity(point(last));
+		}
+		return initialVelocity(i, j);
+	}
+
+	// Same as point(i).initialVelocity(point(j)), for i < j
+	private Velocity initialVelocity(int i, int j) {
+		double dt = time[j] - time[i];
+		if (dt == 0) {
+			return Velocity.ZERO;
+		}
+		if ((flags[j] & LATLON) != 0) {
+			return GreatCircle.velocity_initial(position(i).lla(), position(j).lla(), dt);
+		}
+		return Velocity.make(position(j).point().Sub(position(i).point()).Scal(1.0/dt));
+	}
+
+	// true if seg >= 0 and an acceleration zone of one of the given kinds is active after point seg
+	private boolean inZone(int seg, int zones) {
+		return seg >= 0 && (flags[seg] & zones) != 0;
+	}
+
+	// true if point i is a begin TCP of the given kind (BOT/BGS/BVS or EOTBOT/EGSBGS/EVSBVS)
+	private boolean isBegin(int i, int shift) {
+		return (((flags[i] >> shift) & MASK) & 1) != 0;
+	}
+
+	// Index of the last begin TCP of the given kind at or before i (the beginning of the active acceleration zone)
+	private int prevBegin(int i, int shift) {
+		while (i > 0 && !isBegin(i, shift)) {
+			i--;
+		}
+		return i;
+	}
+
+	private Velocity velocityIn(int i) {
+		return point(i).velocityIn();
+	}
+
+	private double gsAccel(int i) {
+		return metaIndex == null || metaIndex[i] < 0 ? 0.0 : meta[metaIndex[i]*STRIDE+ACCEL_GS];
+	}
+
+	private double vsAccel(int i) {
+		return metaIndex == null || metaIndex[i] < 0 ? 0.0 : meta[metaIndex[i]*STRIDE+ACCEL_VS];
+	}
+
+	public String toString() {
+		return "CompactPlan "+name+" size = "+size();
+	}
+
+}
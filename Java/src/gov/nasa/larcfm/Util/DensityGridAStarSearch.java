@@ -123,6 +123,7 @@ public class DensityGridAStarSearch implements DensityGridSearch, DensityGridTim
 
 	ArrayList<Pair<Integer,Integer>> astar(DensityGrid dg, int endx, int endy, ArrayList<FringeEntry> fringe, ArrayList<Pair<Integer,Integer>> searched) {
 		while (fringe.size() > 0) {
+			if (Thread.currentThread().isInterrupted()) return null; // search abandoned by the caller
 			Collections.sort(fringe, comp);
 			FringeEntry c = fringe.remove(0);
 			if (Double.isFinite(c.cost)) { // ignore infinite cost entries
@@ -156,6 +157,7 @@ public class DensityGridAStarSearch implements DensityGridSearch, DensityGridTim
 		double basedt =  dg.center(0,0).distanceH(dg.center(0,1))/gs; // base time to move one square n/s
 		int cnt = 0;
 		while (fringe.size() > 0) {
+			if (Thread.currentThread().isInterrupted()) return null; // search abandoned by the caller
 			Collections.sort(fringe, comp);
 			FringeEntry c = fringe.remove(0);
 			cnt++;
@@ -6,13 +6,111 @@
  */
 package gov.nasa.larcfm.Util;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
+/**
+ * A timed density grid where cells covered by moving polygons (paths), or outside all containment
+ * polygons (contains), have infinite weight.<p>
+ *
+ * To speed up getWeight, static polygons are rasterized into a per-cell mask, and each cell keeps the list of
+ * moving polygons whose swept bounds (over the whole path) cover the cell. Only these polygons are tested
+ * at a given time. This information is computed the first time a cell is queried. If paths or contains are modified
+ * after the first call to getWeight, call reset().
+ */
 public class DensityGridMovingPolys extends DensityGridTimed {
 
 	protected List<PolyPath> paths;
 	protected List<PolyPath> contains;
 
+	// Swept bounds of moving polygons are computed up to this time after the last step of continuing paths
+	private static final double SWEEP_TIME = 72000; // 20 hours, as in PolyPath.getBoundingRectangle()
+
+	private HashMap<Pair<Integer,Integer>,CellPolys> cellPolys = null;
+	private Sweep[] pathSweeps;
+	private Sweep[] containSweeps;
+
+	/** Swept bounds of a moving PolyPath */
+	private static final class Sweep {
+		final BoundingRectangle br;
+		final double marginX; // in the units of br
+		final double marginY;
+		final double endTime; // the bounds are only valid up to this time
+
+		Sweep(PolyPath pp, double squareSize) {
+			double start = pp.getFirstTime();
+			double end = pp.getLastTime();
+			if (end == Double.POSITIVE_INFINITY) {
+				end = pp.getTime(pp.size()-1)+SWEEP_TIME;
+			}
+			// Within each step, vertices move linearly, so the bounds of the polygons at the step times cover the path
+			ArrayList<Double> ts = new ArrayList<Double>();
+			ts.add(start);
+			for (int i = 0; i < pp.size(); i++) {
+				if (pp.getTime(i) > start && pp.getTime(i) < end) {
+					ts.add(pp.getTime(i));
+				}
+			}
+			ts.add(end);
+			br = new BoundingRectangle();
+			for (int i = 0; i < ts.size()-1; i++) {
+				add(br, pp.position(ts.get(i)));
+				add(br, pp.position(Math.nextDown(ts.get(i+1))));
+			}
+			add(br, pp.position(end));
+			if (pp.isLatLon()) {
+				// Great circle edges of lat/lon polygons may bulge out of the bounds of their vertices
+				double extent = 0.1*Math.max(br.getMaxX()-br.getMinX(),br.getMaxY()-br.getMinY());
+				double lat = Math.max(Math.abs(br.getMinY()),Math.abs(br.getMaxY()))+extent;
+				double a = GreatCircle.angle_from_distance(squareSize,0.0);
+				marginY = a + extent;
+				marginX = (lat < Math.PI/2-0.01 ? a/Math.cos(lat) : Math.PI) + extent;
+			} else {
+				marginX = squareSize;
+				marginY = squareSize;
+			}
+			endTime = end;
+		}
+
+		private static void add(BoundingRectangle br, SimplePoly poly) {
+			for (int i = 0; i < poly.size(); i++) {
+				br.add(poly.getVertex(i));
+			}
+		}
+
+		boolean covers(Position p) {
+			if (p.isInvalid()) return true;
+			double x,y;
+			if (p.isLatLon()) {
+				Position q = br.denormalize(p);
+				x = q.lon();
+				y = q.lat();
+			} else {
+				x = p.x();
+				y = p.y();
+			}
+			return x >= br.getMinX()-marginX && x <= br.getMaxX()+marginX && y >= br.getMinY()-marginY && y <= br.getMaxY()+marginY;
+		}
+	}
+
+	/** Polygon information of a cell */
+	private static final class CellPolys {
+		final Position center;
+		final boolean staticBlocked; // center is in a static polygon of paths (for t >= 0)
+		final boolean staticWithin;  // center is in a static polygon of contains (for t >= 0)
+		final int[] pathCandidates;  // moving polygons of paths that may cover the center
+		final int[] containCandidates; // moving polygons of contains that may cover the center
+
+		CellPolys(Position center, boolean staticBlocked, boolean staticWithin, int[] pathCandidates, int[] containCandidates) {
+			this.center = center;
+			this.staticBlocked = staticBlocked;
+			this.staticWithin = staticWithin;
+			this.pathCandidates = pathCandidates;
+			this.containCandidates = containCandidates;
+		}
+	}
+
 	public DensityGridMovingPolys(Plan p, int buffer, double squareSize, double gs, List<PolyPath> ps, List<PolyPath> cs) {
 		super(p, buffer, squareSize);
 		paths = ps;
@@ -22,6 +120,85 @@ public class DensityGridMovingPolys extends DensityGridTimed {
 		this.gs = gs;
 	}
 
+	/**
+	 * Clear the precomputed polygon information of the cells. This must be called if paths or contains are modified.
+	 */
+	public void reset() {
+		cellPolys = null;
+	}
+
+	public void snapToStart() {
+		super.snapToStart();
+		reset();
+	}
+
+	private static Sweep[] sweeps(List<PolyPath> pps, double squareSize) {
+		if (pps == null) return new Sweep[0];
+		Sweep[] sw = new Sweep[pps.size()];
+		for (int i = 0; i < pps.size(); i++) {
+			if (!pps.get(i).isStatic()) {
+				sw[i] = new Sweep(pps.get(i),squareSize);
+			}
+		}
+		return sw;
+	}
+
+	// true if any static polygon of pps contains p (valid for t >= 0), and candidates gets the moving polygons that may contain p
+	private static boolean rasterize(List<PolyPath> pps, Sweep[] sw, Position p, ArrayList<Integer> candidates) {
+		boolean in = false;
+		for (int i = 0; i < sw.length; i++) {
+			if (sw[i] == null) {
+				in = in || pps.get(i).contains2D(p, 0.0);
+			} else if (sw[i].covers(p)) {
+				candidates.add(i);
+			}
+		}
+		return in;
+	}
+
+	private static int[] toArray(ArrayList<Integer> l) {
+		int[] a = new int[l.size()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = l.get(i);
+		}
+		return a;
+	}
+
+	private CellPolys cellPolys(int x, int y) {
+		if (cellPolys == null) {
+			cellPolys = new HashMap<Pair<Integer,Integer>,CellPolys>();
+			pathSweeps = sweeps(paths,squareSize);
+			containSweeps = sweeps(contains,squareSize);
+		}
+		Pair<Integer,Integer> xy = Pair.make(x,y);
+		CellPolys cp = cellPolys.get(xy);
+		if (cp == null) {
+			Position cent = center(x,y);
+			ArrayList<Integer> pc = new ArrayList<Integer>();
+			ArrayList<Integer> cc = new ArrayList<Integer>();
+			boolean blocked = rasterize(paths,pathSweeps,cent,pc);
+			boolean within = rasterize(contains,containSweeps,cent,cc);
+			cp = new CellPolys(cent,blocked,within,toArray(pc),toArray(cc));
+			cellPolys.put(xy,cp);
+		}
+		return cp;
+	}
+
+	// true if a moving polygon of pps contains p at time t. Only candidates, and polygons whose swept bounds do not reach t, are tested. 
+	private static boolean movingContains(List<PolyPath> pps, Sweep[] sw, int[] candidates, Position p, double t) {
+		for (int k = 0; k < candidates.length; k++) {
+			if (pps.get(candidates[k]).contains2D(p, t)) {
+				return true;
+			}
+		}
+		for (int i = 0; i < sw.length; i++) {
+			if (sw[i] != null && t > sw[i].endTime && !sw[i].covers(p) && pps.get(i).contains2D(p, t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	//	double getWeight(int x, int y, double t) {
 	//		if (!weights.containsKey(Pair.make(x,y))) return Double.POSITIVE_INFINITY;
 	//		double w = weights.get(Pair.make(x,y));
@@ -84,22 +261,13 @@ public class DensityGridMovingPolys extends DensityGridTimed {
 		}
 		double w = weights.get(Pair.make(x,y));
 		double cost = 0;
-		Position cent = center(x,y);
-		for (int i = 0; i < paths.size(); i++) {
-			if (paths.get(i).contains2D(cent, t)) {
-				cost = Double.POSITIVE_INFINITY;
-//				f.pln("--DensityGridMovingPoly getWeight hit polygon "+i+" = INF");
-				break;
-			}
+		CellPolys cp = cellPolys(x,y);
+		if ((t >= 0 && cp.staticBlocked) || movingContains(paths,pathSweeps,cp.pathCandidates,cp.center,t)) {
+			cost = Double.POSITIVE_INFINITY;
 		}
 		if (contains != null) {
-			boolean within = (contains.size() == 0); // no containment is vacuously fulfilled
-			for (int i = 0; i < contains.size(); i++) {
-				if (contains.get(i).contains2D(cent, t)) {
-					within = true;
-					break;
-				}
-			}
+			boolean within = (contains.size() == 0) || // no containment is vacuously fulfilled
+					(t >= 0 && cp.staticWithin) || movingContains(contains,containSweeps,cp.containCandidates,cp.center,t);
 			if (!within) {
 				cost = Double.POSITIVE_INFINITY;
 //				f.pln("--DensityGridMovingPoly getWeight failed contaiment = INF");
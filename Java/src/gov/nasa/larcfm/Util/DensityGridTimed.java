@@ -103,5 +103,9 @@ public class DensityGridTimed extends DensityGrid {
 		return dgs.search(this, this.startPoint, this.endPoint, this.startTime, gs);
 	}
 
+	public List<Pair<Integer,Integer>> optimalPath(DensityGridTimedSearch dgs) {
+		return dgs.search(this, this.startPoint, this.endPoint, this.startTime, this.gs);
+	}
+
 
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A space-time A* search on a timed density grid (for example, DensityGridMovingPolys).<p>
+ *
+ * Unlike DensityGridAStarSearch, a cell may be visited more than once, at different times.
+ * This allows paths that loop around moving polygons until they clear. Since the aircraft flies
+ * at constant ground speed, there is no waiting in place: delays are obtained by revisiting cells.
+ * The returned path may therefore contain the same cell more than once.<p>
+ *
+ * Search states are a cell and the arrival time at that cell, discretized in bins of timeBin seconds.
+ * Only the cheapest entry of each state is kept (dominance pruning) and each state is expanded at most once.
+ * After the horizon, cells are not revisited, as in DensityGridAStarSearch, which bounds the number of states.
+ * The horizon is the lookahead end time of the grid, when set, since weights do not change after it.<p>
+ *
+ * The cost of a step is the weight of the new cell at arrival time, plus distWeight times the length
+ * of the step in cells, plus dirWeight times the change of direction (see DensityGridAStarSearch). The heuristic
+ * is distWeight times the straight-line distance to the goal, in cells, which is consistent when weights are
+ * non-negative. The change of direction is not part of the search state, so paths are optimal only up to the
+ * direction cost.<p>
+ *
+ * This class is not thread safe.
+ */
+public class DensityGridTimedAStarSearch implements DensityGridTimedSearch {
+
+	public double dirWeight = 1.0;
+	public double distWeight = 1.0;
+
+	/**
+	 * Size of the time bins of the search states [s]. If not positive, the time to fly
+	 * across one cell is used.
+	 */
+	public double timeBin = -1.0;
+
+	/**
+	 * Time after the start of the search, in seconds, after which cells are not revisited. If not positive, the lookahead
+	 * end time of the grid is used or, if that is not set either, the time to fly twice around the grid.
+	 */
+	public double horizon = -1.0;
+
+	private int expanded = 0;
+
+	class Node {
+		final int x;
+		final int y;
+		final int dx; // direction of the step into this cell
+		final int dy;
+		final double t;
+		final double g; // cost from start
+		final double f; // g plus heuristic
+		final Node parent;
+
+		Node(int x, int y, int dx, int dy, double t, double g, double h, Node parent) {
+			this.x = x;
+			this.y = y;
+			this.dx = dx;
+			this.dy = dy;
+			this.t = t;
+			this.g = g;
+			this.f = g + h;
+			this.parent = parent;
+		}
+
+		ArrayList<Pair<Integer,Integer>> getPath() {
+			ArrayList<Pair<Integer,Integer>> path = new ArrayList<Pair<Integer,Integer>>();
+			for (Node n = this; n != null; n = n.parent) {
+				path.add(Pair.make(n.x, n.y));
+			}
+			Collections.reverse(path);
+			return path;
+		}
+
+		public String toString() {
+			return "("+x+","+y+","+t+") = "+g+" + "+(f-g);
+		}
+	}
+
+	class NodeCompare implements Comparator<Node> {
+		@Override
+		public int compare(Node c1, Node c2) {
+			return Double.compare(c1.f, c2.f);
+		}
+	}
+
+	/**
+	 * Number of states expanded by the last search.
+	 */
+	public int getExpandedStates() {
+		return expanded;
+	}
+
+	private double heuristic(int x, int y, int endx, int endy) {
+		return Math.sqrt(Util.sq(endx-x)+Util.sq(endy-y))*distWeight;
+	}
+
+	ArrayList<Pair<Integer,Integer>> astarT(DensityGridTimed dg, Pair<Integer,Integer> start, int endx, int endy, double startTime, double gs) {
+		expanded = 0;
+		double basedt = dg.getSquareDist()/gs; // time to fly across one cell
+		double bin = timeBin > 0 ? timeBin : basedt;
+		double endTime;
+		if (horizon > 0) {
+			endTime = startTime + horizon;
+		} else if (dg.getLookaheadEndTime() > 0) {
+			endTime = dg.getLookaheadEndTime();
+		} else {
+			endTime = startTime + 2*(dg.sizeX()+dg.sizeY())*basedt;
+		}
+		if (!(bin > 0)) return null; // invalid ground speed or grid
+
+		PriorityQueue<Node> fringe = new PriorityQueue<Node>(64, new NodeCompare());
+		HashMap<Triple<Integer,Integer,Integer>,Double> best = new HashMap<Triple<Integer,Integer,Integer>,Double>();
+		HashSet<Triple<Integer,Integer,Integer>> closed = new HashSet<Triple<Integer,Integer,Integer>>();
+		Node root = new Node(start.first, start.second, 0, 0, startTime, 0.0, heuristic(start.first,start.second,endx,endy), null);
+		fringe.add(root);
+		best.put(Triple.make(root.x, root.y, 0), 0.0);
+		while (!fringe.isEmpty()) {
+			if (Thread.currentThread().isInterrupted()) return null; // search abandoned by the caller
+			Node c = fringe.poll();
+			Triple<Integer,Integer,Integer> key = Triple.make(c.x, c.y, timeKey(c.t,startTime,endTime,bin));
+			if (closed.contains(key)) continue; // dominated entry
+			closed.add(key);
+			expanded++;
+			if (c.x == endx && c.y == endy) {
+				return c.getPath();
+			}
+			Position pos1 = dg.center(c.x,c.y);
+			for (int x = -1; x <= 1; x++) {
+				for (int y = -1; y <= 1 ; y++) {
+					if (x == 0 && y == 0) continue;
+					int x2 = c.x+x;
+					int y2 = c.y+y;
+					Pair<Integer,Integer> cell2 = Pair.make(x2, y2);
+					if (!dg.containsCell(cell2)) continue;
+					double dist = pos1.distanceH(dg.center(cell2));
+					if (Double.isNaN(dist)) continue; // dist == NaN if either position is invalid (i.e. center cannot be calculated)
+					double t = c.t + dist/gs;
+					Triple<Integer,Integer,Integer> key2 = Triple.make(x2, y2, timeKey(t,startTime,endTime,bin));
+					if (closed.contains(key2)) continue;
+					double w = dg.getWeight(x2, y2, t);
+					if (!Double.isFinite(w)) continue;
+					double dir = c.parent == null ? 0.0 : (Math.abs(x-c.dx)+Math.abs(y-c.dy))*dirWeight;
+					double g2 = c.g + w + Math.sqrt(x*x+y*y)*distWeight + dir;
+					Double g0 = best.get(key2);
+					if (g0 != null && g0 <= g2) continue; // dominated
+					best.put(key2, g2);
+					Node c2 = new Node(x2, y2, x, y, t, g2, heuristic(x2,y2,endx,endy), c);
+					if (!dg.searchedWeights.containsKey(cell2)) {
+						dg.setSearchedWeight(x2, y2, c2.f);
+					}
+					fringe.add(c2);
+				}
+			}
+		}
+		return null;
+	}
+
+	// Time bin of time t. All times after endTime share the same bin.
+	private static int timeKey(double t, double startTime, double endTime, double bin) {
+		if (t > endTime) return -1;
+		return (int)Math.floor((t-startTime)/bin);
+	}
+
+	/**
+	 * Perform a space-time search on the given timed density grid, assuming a constant groundspeed.  Polygons may be static or moving.
+	 * This has the side effect of setting the searchedWeights values in the DensityGrid for display or analysis purposes.
+	 * @param dg Timed density grid with polygon and initial weight information.  Polygons may be moving or static.
+	 * @param startPos Start position for search.
+	 * @param endPos Ending Position for search.
+	 * @param startTime Absolute time to start the search at startPos
+	 * @param gs ground speed of aircraft
+	 * @return List of grid coordinates for a successful path, or null if no path found.
+	 */
+	public List<Pair<Integer, Integer>> search(DensityGridTimed dg, Position startPos, Position endPos, double startTime, double gs) {
+		Pair<Integer,Integer> start = dg.gridPosition(startPos);
+		Pair<Integer,Integer> end = dg.gridPosition(endPos);
+		double firstWeight = dg.getWeight(start.first, start.second, startTime);
+		dg.setSearchedWeight(start.first, start.second, firstWeight);
+		if (Double.isInfinite(firstWeight)) return null; // first cell is invalid, abort search
+		return astarT(dg, start, end.first, end.second, startTime, gs);
+	}
+
+}
@@ -12,6 +12,8 @@
 
 package gov.nasa.larcfm.Util;
 
+import java.util.Arrays;
+
 /**
  * This class contains common formulas used for Great Circle calculations. All
  * of these calculations assume a spherical earth. Much of this is based on the
@@ -1538,4 +1540,181 @@ f.pln("GreatCircle.closest_point_circle INVALID: weird triangle");
 		return ret;
 	}
 
+	// ----------------------------------------------------------------------
+	// Bulk (array) versions.  These produce the same values as the 
+	// corresponding scalar functions, but compute the trigonometric terms 
+	// that are shared by all elements only once and do not allocate 
+	// intermediate LatLonAlt objects.  Output arrays are provided by the caller 
+	// and must be at least as long as the input arrays.
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Compute the great circle distances in radians from the point (lat1,lon1) 
+	 * to each of the points (lat2[i],lon2[i]), see angular_distance().
+	 * 
+	 * @param lat1 latitude of the reference point [rad]
+	 * @param lon1 longitude of the reference point [rad]
+	 * @param lat2 latitudes [rad]
+	 * @param lon2 longitudes [rad]
+	 * @param result angular distances [rad], result[i] is the distance to (lat2[i],lon2[i])
+	 */
+	public static void angular_distance(double lat1, double lon1, double[] lat2, double[] lon2, double[] result) {
+		double coslat1 = Math.cos(lat1);
+		for (int i = 0; i < lat2.length; i++) {
+			result[i] = Util.asin_safe(Util.sqrt_safe(Util.sq(Math.sin((lat1 - lat2[i]) / 2))
+					+ coslat1
+					* Math.cos(lat2[i])
+					* Util.sq(Math.sin((lon1-lon2[i]) / 2)))) * 2.0;
+		}
+	}
+
+	/**
+	 * Compute the great circle distances from the point (lat1,lon1) to each of the 
+	 * points (lat2[i],lon2[i]), see distance().
+	 * 
+	 * @param lat1 latitude of the reference point [rad]
+	 * @param lon1 longitude of the reference point [rad]
+	 * @param lat2 latitudes [rad]
+	 * @param lon2 longitudes [rad]
+	 * @param result distances [m], result[i] is the distance to (lat2[i],lon2[i])
+	 */
+	public static void distance(double lat1, double lon1, double[] lat2, double[] lon2, double[] result) {
+		angular_distance(lat1, lon1, lat2, lon2, result);
+		for (int i = 0; i < lat2.length; i++) {
+			result[i] = distance_from_angle(result[i], 0.0);
+		}
+	}
+
+	/**
+	 * Compute the great circle distances of the legs of the path (lat[0],lon[0]), (lat[1],lon[1]), ...
+	 * 
+	 * @param lat latitudes [rad]
+	 * @param lon longitudes [rad]
+	 * @param result distances [m], result[i] is the distance from point i to point i+1 (its length 
+	 * must be at least lat.length-1)
+	 */
+	public static void leg_distances(double[] lat, double[] lon, double[] result) {
+		if (lat.length == 0) return;
+		double coslat1 = Math.cos(lat[0]);
+		for (int i = 0; i+1 < lat.length; i++) {
+			double coslat2 = Math.cos(lat[i+1]);
+			double d = Util.asin_safe(Util.sqrt_safe(Util.sq(Math.sin((lat[i] - lat[i+1]) / 2))
+					+ coslat1
+					* coslat2
+					* Util.sq(Math.sin((lon[i]-lon[i+1]) / 2)))) * 2.0;
+			result[i] = distance_from_angle(d, 0.0);
+			coslat1 = coslat2;
+		}
+	}
+
+	/**
+	 * Compute the initial true courses at the point (lat1,lon1) on the great circle routes 
+	 * to each of the points (lat2[i],lon2[i]), see initial_course().
+	 * 
+	 * @param lat1 latitude of the reference point [rad]
+	 * @param lon1 longitude of the reference point [rad]
+	 * @param lat2 latitudes [rad]
+	 * @param lon2 longitudes [rad]
+	 * @param result compass angles [rad], result[i] is the course to (lat2[i],lon2[i])
+	 */
+	public static void initial_course(double lat1, double lon1, double[] lat2, double[] lon2, double[] result) {
+		double coslat1 = Math.cos(lat1);
+		if (coslat1 < EPS) { 
+			// see initial_course_impl
+			Arrays.fill(result, 0, lat2.length, lat1 > 0 ? pi : 2.0 * pi);
+			return;
+		}
+		double sinlat1 = Math.sin(lat1);
+		for (int i = 0; i < lat2.length; i++) {
+			double d = Util.asin_safe(Util.sqrt_safe(Util.sq(Math.sin((lat1 - lat2[i]) / 2))
+					+ coslat1
+					* Math.cos(lat2[i])
+					* Util.sq(Math.sin((lon1-lon2[i]) / 2)))) * 2.0;
+			if (Constants.almost_equals_radian(d)) {
+				result[i] = 0.0;
+				continue;
+			}
+			double acos1 = (Math.sin(lat2[i]) - sinlat1 * Math.cos(d))
+					/ (Math.sin(d) * coslat1);
+			if (Util.almost_equals(lon2[i], lon1, Util.PRECISION13) || Math.sin(lon2[i] - lon1) > 0) {
+				result[i] = Util.acos_safe(acos1);
+			} else {
+				result[i] = 2 * pi - Util.acos_safe(acos1);
+			}
+		}
+	}
+
+	/**
+	 * Find the points from the given lat/lon with initial angles track[i] at distances dist[i], 
+	 * following the great circle, see linear_initial(). Altitudes are not computed.
+	 * 
+	 * @param lat    latitude of the starting point [rad]
+	 * @param lon    longitude of the starting point [rad]
+	 * @param track  initial tracks [rad]
+	 * @param dist   distances from the starting point [m]
+	 * @param latOut latitudes of the resulting points [rad]
+	 * @param lonOut longitudes of the resulting points [rad]
+	 */
+	public static void linear_initial(double lat, double lon, double[] track, double[] dist, double[] latOut, double[] lonOut) {
+		double sinslat = Math.sin(lat);
+		double cosslat = Math.cos(lat);
+		for (int i = 0; i < dist.length; i++) {
+			double d = angle_from_distance(dist[i]);
+			double cosd = Math.cos(d);
+			double sind = Math.sin(d);
+			double lat2 = Util.asin_safe(sinslat * cosd + cosslat * sind * Math.cos(track[i]));
+			double dlon = Util.atan2_safe(Math.sin(track[i]) * sind * cosslat, cosd - sinslat * Math.sin(lat2));
+			latOut[i] = lat2;
+			lonOut[i] = Util.to_pi(lon + dlon);
+		}
+	}
+
+	/**
+	 * Find the points from the given lat/lon with initial angle track at distances dist[i], 
+	 * following the great circle, see linear_initial(). Altitudes are not computed.
+	 * 
+	 * @param lat    latitude of the starting point [rad]
+	 * @param lon    longitude of the starting point [rad]
+	 * @param track  initial track [rad]
+	 * @param dist   distances from the starting point [m]
+	 * @param latOut latitudes of the resulting points [rad]
+	 * @param lonOut longitudes of the resulting points [rad]
+	 */
+	public static void linear_initial(double lat, double lon, double track, double[] dist, double[] latOut, double[] lonOut) {
+		double sinslat = Math.sin(lat);
+		double cosslat = Math.cos(lat);
+		double costrk = Math.cos(track);
+		double sintrk = Math.sin(track);
+		for (int i = 0; i < dist.length; i++) {
+			double d = angle_from_distance(dist[i]);
+			double cosd = Math.cos(d);
+			double sind = Math.sin(d);
+			double lat2 = Util.asin_safe(sinslat * cosd + cosslat * sind * costrk);
+			double dlon = Util.atan2_safe(sintrk * sind * cosslat, cosd - sinslat * Math.sin(lat2));
+			latOut[i] = lat2;
+			lonOut[i] = Util.to_pi(lon + dlon);
+		}
+	}
+
+	/**
+	 * Transforms the lat/lon positions (lat[i],lon[i]) into ECEF coordinates, see spherical2xyz().
+	 * 
+	 * @param lat latitudes [rad]
+	 * @param lon longitudes [rad]
+	 * @param x   x coordinates [m]
+	 * @param y   y coordinates [m]
+	 * @param z   z coordinates [m]
+	 */
+	public static void spherical2xyz(double[] lat, double[] lon, double[] x, double[] y, double[] z) {
+		double r = GreatCircle.spherical_earth_radius;
+		for (int i = 0; i < lat.length; i++) {
+			double theta = Math.PI/2 - lat[i];
+			double phi = Math.PI - lon[i];
+			double rsintheta = r*Math.sin(theta);
+			x[i] = rsintheta*Math.cos(phi);
+			y[i] = rsintheta*Math.sin(phi);
+			z[i] = r*Math.cos(theta);
+		}
+	}
+
 }
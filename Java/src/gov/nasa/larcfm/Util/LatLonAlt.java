@@ -63,9 +63,9 @@ public final class LatLonAlt {
 	 * @param alt altitude [ft]
 	 */
 	public static LatLonAlt make(double lat, double lon, double alt) {
-		return new LatLonAlt(Units.from("deg", lat),
-				Units.from("deg", lon),
-				Units.from("ft", alt));
+		return new LatLonAlt(Units.from(Units.deg, lat),
+				Units.from(Units.deg, lon),
+				Units.from(Units.ft, alt));
 	}
 
 	/**
@@ -84,6 +84,24 @@ public final class LatLonAlt {
 				Units.from(alt_unit, alt));
 	}
 
+	/**
+	 * Creates a new position with coordinates (<code>lat</code>,<code>lon</code>,<code>alt</code>).
+	 * The units are given as conversion factors (see Units.getFactor), which avoids looking up
+	 * unit names when many positions are created.
+	 * 
+	 * @param lat latitude [lat_unit north latitude]
+	 * @param lat_unit conversion factor of latitude
+	 * @param lon longitude [lon_unit east longitude]
+	 * @param lon_unit conversion factor of longitude
+	 * @param alt altitude [alt_unit]
+	 * @param alt_unit conversion factor of altitude
+	 */
+	public static LatLonAlt make(double lat, double lat_unit, double lon, double lon_unit, double alt, double alt_unit) {
+		return new LatLonAlt(Units.from(lat_unit, lat),
+				Units.from(lon_unit, lon),
+				Units.from(alt_unit, alt));
+	}
+
 	/**
 	 * Creates a new position with given values
 	 * 
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2016 United States Government as represented by
+ * the National Aeronautics and Space Administration.  No copyright
+ * is claimed in the United States under Title 17, U.S.Code. All Other
+ * Rights Reserved.
+ */
+package gov.nasa.larcfm.Util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable, compiled view of a fixed set of parameters.<p>
+ *
+ * A ParameterData object stores parameters by (case insensitive) name and keeps
+ * their string representation and units.  A ParameterSnapshot instead stores the
+ * values of a fixed, ordered list of keys (its {@link Layout}) in primitive arrays,
+ * in internal units.  Keys are resolved to integer offsets once, when the layout is
+ * built, so that reading or applying a snapshot does not involve any string lookups
+ * or unit parsing.<p>
+ *
+ * Snapshots are never modified.  The "set" methods return a new snapshot that shares
+ * the layout with this one (copy-on-write), so a snapshot can be freely shared
+ * between threads and objects.
+ */
+public final class ParameterSnapshot {
+
+	/**
+	 * An ordered list of parameter keys, with their typical units.
+	 * The offset of a key is its position in the list.
+	 */
+	public static final class Layout {
+		private final String[] keys;
+		private final String[] units;
+		private final Map<String,Integer> offsets;
+		private final ParameterSnapshot empty;
+
+		/**
+		 * Build a layout.
+		 * @param keys  parameter keys, in the order that defines their offsets
+		 * @param units typical units of each key (used only when converting back to ParameterData).
+		 *              Use "unitless" for numbers without units and null for boolean parameters.
+		 */
+		public Layout(String[] keys, String[] units) {
+			if (keys.length != units.length) {
+				throw new IllegalArgumentException("ParameterSnapshot.Layout: keys and units have different lengths");
+			}
+			this.keys = keys.clone();
+			this.units = units.clone();
+			offsets = new TreeMap<String,Integer>(String.CASE_INSENSITIVE_ORDER);
+			for (int i = 0; i < keys.length; i++) {
+				offsets.put(keys[i], i);
+			}
+			empty = new ParameterSnapshot(this, new double[keys.length], new boolean[keys.length], new boolean[keys.length]);
+		}
+
+		/** Number of keys in this layout */
+		public int size() {
+			return keys.length;
+		}
+
+		/** Key at the given offset */
+		public String key(int i) {
+			return keys[i];
+		}
+
+		/** Typical units of the key at the given offset, null for boolean parameters */
+		public String unit(int i) {
+			return units[i];
+		}
+
+		/**
+		 * Offset of the given key (case insensitive), or -1 if the key is not part of this layout.
+		 * Callers are expected to resolve offsets once and keep them.
+		 */
+		public int offset(String key) {
+			Integer i = offsets.get(key);
+			return i == null ? -1 : i;
+		}
+
+		/** A snapshot with no parameters defined */
+		public ParameterSnapshot empty() {
+			return empty;
+		}
+
+		/**
+		 * A snapshot where every key of this layout is defined.
+		 * @param values values in internal units, indexed by offset (ignored for boolean parameters)
+		 * @param bools  boolean values, indexed by offset (ignored for numeric parameters)
+		 */
+		public ParameterSnapshot make(double[] values, boolean[] bools) {
+			if (values.length != keys.length || bools.length != keys.length) {
+				throw new IllegalArgumentException("ParameterSnapshot.Layout: arrays do not match layout size");
+			}
+			boolean[] present = new boolean[keys.length];
+			Arrays.fill(present,true);
+			return new ParameterSnapshot(this,values.clone(),bools.clone(),present);
+		}
+
+		/**
+		 * Compile the keys of this layout that are present in p into a snapshot.
+		 * Keys of p that are not part of this layout are ignored.
+		 */
+		public ParameterSnapshot compile(ParameterData p) {
+			double[] values = new double[keys.length];
+			boolean[] bools = new boolean[keys.length];
+			boolean[] present = new boolean[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				if (p.contains(keys[i])) {
+					present[i] = true;
+					values[i] = p.getValue(keys[i]);
+					bools[i] = p.getBool(keys[i]);
+				}
+			}
+			return new ParameterSnapshot(this,values,bools,present);
+		}
+	}
+
+	private final Layout layout;
+	private final double[] values;  // internal units
+	private final boolean[] bools;
+	private final boolean[] present;
+
+	private ParameterSnapshot(Layout layout, double[] values, boolean[] bools, boolean[] present) {
+		this.layout = layout;
+		this.values = values;
+		this.bools = bools;
+		this.present = present;
+	}
+
+	/** The layout of this snapshot */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Throws IllegalArgumentException, naming the calling method where, if this snapshot was not built with
+	 * the given layout.  Offsets resolved in one layout are meaningless in another one.
+	 */
+	public void checkLayout(Layout layout, String where) {
+		if (this.layout != layout) {
+			throw new IllegalArgumentException(where+": snapshot was not built with the expected layout");
+		}
+	}
+
+	/** Returns true if the parameter at offset i is defined in this snapshot */
+	public boolean contains(int i) {
+		return present[i];
+	}
+
+	/** Returns the value, in internal units, of the parameter at offset i, or 0 if it is not defined */
+	public double getValue(int i) {
+		return values[i];
+	}
+
+	/** Returns the boolean value of the parameter at offset i, or false if it is not defined */
+	public boolean getBool(int i) {
+		return bools[i];
+	}
+
+	/**
+	 * Returns a new snapshot where the parameter at offset i is set to val (in internal units).
+	 * This snapshot is not modified.
+	 */
+	public ParameterSnapshot set(int i, double val) {
+		ParameterSnapshot s = copy();
+		s.values[i] = val;
+		s.bools[i] = false;
+		s.present[i] = true;
+		return s;
+	}
+
+	/**
+	 * Returns a new snapshot where the parameter at offset i is set to the boolean val.
+	 * This snapshot is not modified.
+	 */
+	public ParameterSnapshot set(int i, boolean val) {
+		ParameterSnapshot s = copy();
+		s.values[i] = 0.0;
+		s.bools[i] = val;
+		s.present[i] = true;
+		return s;
+	}
+
+	/**
+	 * Returns a new snapshot where the parameter at offset i is not defined.
+	 * This snapshot is not modified.
+	 */
+	public ParameterSnapshot remove(int i) {
+		if (!present[i]) return this;
+		ParameterSnapshot s = copy();
+		s.values[i] = 0.0;
+		s.bools[i] = false;
+		s.present[i] = false;
+		return s;
+	}
+
+	/**
+	 * Returns a new snapshot with the parameters of this snapshot overwritten by those defined in s.
+	 * Both snapshots must share the same layout.  Neither snapshot is modified.
+	 */
+	public ParameterSnapshot merge(ParameterSnapshot s) {
+		if (s.layout != layout) {
+			throw new IllegalArgumentException("ParameterSnapshot.merge: snapshots have different layouts");
+		}
+		ParameterSnapshot r = copy();
+		for (int i = 0; i < present.length; i++) {
+			if (s.present[i]) {
+				r.values[i] = s.values[i];
+				r.bools[i] = s.bools[i];
+				r.present[i] = true;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Write the parameters defined in this snapshot into p, using the typical units of the layout.
+	 */
+	public void updateParameterData(ParameterData p) {
+		for (int i = 0; i < present.length; i++) {
+			if (present[i]) {
+				if (layout.units[i] == null) {
+					p.set(layout.keys[i],bools[i]);
+				} else {
+					p.setInternal(layout.keys[i],values[i],layout.units[i]);
+				}
+			}
+		}
+	}
+
+	/** Returns a ParameterData object with the parameters defined in this snapshot */
+	public ParameterData getParameters() {
+		ParameterData p = new ParameterData();
+		updateParameterData(p);
+		return p;
+	}
+
+	private ParameterSnapshot copy() {
+		return new ParameterSnapshot(layout,values.clone(),bools.clone(),present.clone());
+	}
+
+	public String toString() {
+		String s = "";
+		for (int i = 0; i < present.length; i++) {
+			if (present[i]) {
+				s += layout.keys[i]+" = "+(layout.units[i] == null ? bools[i] : Units.str(layout.units[i],values[i]))+"\n";
+			}
+		}
+		return s;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + layout.hashCode();
+		result = prime * result + Arrays.hashCode(values);
+		result = prime * result + Arrays.hashCode(bools);
+		result = prime * result + Arrays.hashCode(present);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ParameterSnapshot other = (ParameterSnapshot) obj;
+		return layout == other.layout && Arrays.equals(values, other.values) &&
+				Arrays.equals(bools, other.bools) && Arrays.equals(present, other.present);
+	}
+
+}
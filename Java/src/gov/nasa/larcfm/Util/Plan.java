@@ -1735,76 +1735,156 @@ public class Plan implements ErrorReporter, Cloneable {
 			//f.pln("\n -----size = "+size()+" seg = "+seg+"\n $$$ accelZone: np1 = "+np1+" v = "+v);
 			return new Pair<Position,Velocity>(np1.position(),v);
 		}
-		NavPoint np2 = point(seg+1);
-		//f.pln("\n ----------- seg = "+seg+"\n $$$ positionVelocity: np1 = "+np1);
-		//f.pln(" $$$ positionVelocity: np2 = "+np2);
-		double gs0 = gsAtSeg(seg,linear);
-		//double gsAt_d = gsAtTime(t,linear);    // TODO; improve speed by passing in gs0 into gsAtTime
-		double gsAt_d = gsAtTime(seg, gs0, t, linear);			
-		//f.pln(" $$$ positionVelocity: seg = "+seg+" gs0 = "+Units.str("kn",gs0,4)+" gsAt_d = "+Units.str("kn",gsAt_d,4)); ;
+		return positionVelocity(new SegmentMotion(seg,linear,t), t);
+	}
+	
+	public Pair<Position,Velocity> positionVelocity(double t) {
+	   return positionVelocity(t,false);
+	}
+
+	/**
+	 * Compute positions and velocities at the given times, in one pass over the plan.  This gives the same values 
+	 * as positionVelocity(times[i],linear), but the values that only depend on the segment are computed once per 
+	 * segment, so it is faster when consecutive times are on the same segment (e.g., increasing times).<p>
+	 * 
+	 * Values are written in internal units at index i of the arrays.  Positions are lat, lon, alt for 
+	 * latitude/longitude plans and x, y, z for Euclidean plans.  Velocities are trk, gs, vs.  Any array 
+	 * may be null if those values are not needed.  Arrays must have at least times.length elements.
+	 * 
+	 * @param times times of interest
+	 * @param linear if true, interpret the plan in a linear manner
+	 */
+	public void positionVelocity(double[] times, boolean linear, double[] p1, double[] p2, double[] p3, double[] trk, double[] gs, double[] vs) {
+		SegmentMotion sm = null;
+		for (int i = 0; i < times.length; i++) {
+			double t = times[i];
+			Pair<Position,Velocity> pv;
+			if (sm != null && sm.contains(t)) {
+				pv = positionVelocity(sm, t);
+			} else if (sm != null && sm.seg+2 < size() && point(sm.seg+2).time() > t && sm.np2.time() <= t) {
+				sm = new SegmentMotion(sm.seg+1,linear,t);
+				pv = positionVelocity(sm, t);
+			} else if (t >= getFirstTime() && t < getLastTime()) {
+				sm = new SegmentMotion(getSegment(t),linear,t);
+				pv = positionVelocity(sm, t);
+			} else {
+				pv = positionVelocity(t, linear); // outside of the plan, or last point
+			}
+			Position p = pv.first;
+			Velocity v = pv.second;
+			if (p1 != null) p1[i] = p.isLatLon() ? p.lat() : p.x();
+			if (p2 != null) p2[i] = p.isLatLon() ? p.lon() : p.y();
+			if (p3 != null) p3[i] = p.alt();
+			if (trk != null) trk[i] = v.trk();
+			if (gs != null) gs[i] = v.gs();
+			if (vs != null) vs[i] = v.vs();
+		}
+	}
+
+	/**
+	 * Compute positions and velocities at times start, start+step, ..., start+(count-1)*step.  
+	 * See positionVelocity(double[],boolean,double[],double[],double[],double[],double[],double[]).
+	 */
+	public void positionVelocity(double start, double step, int count, boolean linear, double[] p1, double[] p2, double[] p3, double[] trk, double[] gs, double[] vs) {
+		double[] times = new double[count];
+		for (int i = 0; i < count; i++) {
+			times[i] = start + i*step;
+		}
+		positionVelocity(times, linear, p1, p2, p3, trk, gs, vs);
+	}
+
+	/**
+	 * Values of the motion along segment seg (from point seg to point seg+1) that do not depend on the time 
+	 * within the segment, computed once by positionVelocity when several times are on the same segment.
+	 * Time t is any time in the segment.
+	 */
+	private final class SegmentMotion {
+		final int seg;
+		final boolean linear;
+		final NavPoint np1;
+		final NavPoint np2;
+		final double gs0;
+		final boolean inGs;
+		final double gsAccel;
+		final boolean inTrk;
+		final Position center;
+		final double signedRadius;
+		final Velocity vo;
+		final NavPoint nVs;
+
+		SegmentMotion(int seg, boolean linear, double t) {
+			this.seg = seg;
+			this.linear = linear;
+			np1 = point(seg);
+			np2 = point(seg+1);
+			gs0 = gsAtSeg(seg,linear);
+			inGs = inGsChange(t) && !linear;
+			gsAccel = inGs ? point(prevBGS(seg)).gsAccel() : 0.0;
+			inTrk = inTrkChange(t) && !linear;
+			if (inTrk) {
+				int ixPrevBOT = prevBOT(seg);
+				center = point(ixPrevBOT).turnCenter();
+				signedRadius = point(ixPrevBOT).signedRadius();
+				vo = null;
+			} else {
+				center = null;
+				signedRadius = 0.0;
+				vo = np1.initialVelocity(np2);
+			}
+			nVs = inVsChange(t) && !linear ? points.get(prevBVS(seg)) : null;
+		}
+
+		/** Time t is in the segment */
+		boolean contains(double t) {
+			return np1.time() <= t && t < np2.time();
+		}
+	}
+
+	// position and velocity at time t, where t is in segment sm.seg
+	private Pair<Position,Velocity> positionVelocity(SegmentMotion sm, double t) {
+		NavPoint np1 = sm.np1;
+		NavPoint np2 = sm.np2;
+		double gs0 = sm.gs0;
+		double gsAt_d = sm.inGs ? gs0 + (t - np1.time())*sm.gsAccel : gs0;
 		Position so = np1.position();
-		//f.pln(t+" $$$ positionVelocity: seg = "+seg+" t = "+f.Fm2(t)+" positionVelocity: so = "+so+" gs0 = "+Units.str("kn",gs0));
+		Position sNew;
+		Velocity vNew;
 		double distFromSo = 0;
 		double dt = t-np1.time();		
-		if (inGsChange(t) && ! linear) {
-			double gsAccel = point(prevBGS(seg)).gsAccel();
-			distFromSo = gs0*dt + 0.5*gsAccel*dt*dt;
-            //f.pln(" $$$ positionVelocity(inGsChange A): dt = "+f.Fm2(dt)+" vo.gs() = "+Units.str("kn",gs0)+" distFromSo = "+Units.str("ft",distFromSo));
+		if (sm.inGs) {
+			distFromSo = gs0*dt + 0.5*sm.gsAccel*dt*dt;
 		} else {
 			distFromSo = gs0*dt;
-            //f.pln(" $$$ positionVelocity(! inGsChange B): dt = "+f.Fm4(dt)+" gs0 = "+Units.str("kn",gs0)+" distFromSo = "+Units.str("ft",distFromSo));
-		}
-		if (inTrkChange(t) & !linear) {
-			int ixPrevBOT = prevBOT(seg);
-			Position center = point(ixPrevBOT).turnCenter();
-			double signedRadius = point(ixPrevBOT).signedRadius();
-			//f.pln(t+" $$$ positionVelocity: signedRadius = "+Units.str("ft",signedRadius,4));
-			int dir = Util.sign(signedRadius);			
-			Pair<Position,Velocity> tAtd = KinematicsPosition.turnByDist(so, center, dir*distFromSo, gsAt_d);
+		}
+		if (sm.inTrk) {
+			int dir = Util.sign(sm.signedRadius);			
+			Pair<Position,Velocity> tAtd = KinematicsPosition.turnByDist(so, sm.center, dir*distFromSo, gsAt_d);
 			sNew = tAtd.first;
 			vNew = tAtd.second;
-            //f.pln(" $$ %%%% positionVelocity A: vNew("+f.Fm2(t)+") = "+vNew);
-            //f.pln(" $$ %%%% positionVelocity A: sNew("+f.Fm2(t)+") = "+sNew);
 		} else {
-			Velocity vo = np1.initialVelocity(np2);  
-			//f.pln(" $$ %%%% positionVelocity B1: t = "+t+" seg = "+seg+"  distFromSo = "+Units.str("ft",distFromSo)+" np1 = "+np1);
-			Pair<Position,Velocity> pv = so.linearDist(vo, distFromSo);
+			Pair<Position,Velocity> pv = so.linearDist(sm.vo, distFromSo);
 			sNew = pv.first;				
 			vNew = pv.second.mkGs(gsAt_d);
-            //f.pln(" $$ %%%% positionVelocity B2: vNew("+f.Fm2(t)+") = "+vNew);
-            //f.pln(" $$ %%%% positionVelocity B: seg = "+seg+" sNew("+f.Fm2(t)+") = "+sNew);
 		}
-		if (inVsChange(t) & !linear) {
-			NavPoint n1 = points.get(prevBVS(seg));
+		if (sm.nVs != null) {
+			NavPoint n1 = sm.nVs;
 			Position soP = n1.position();
 			Velocity voP = n1.velocityIn();
 			Pair<Position,Velocity> pv =  KinematicsPosition.vsAccel(soP, voP, t-n1.time(), n1.vsAccel());
 			sNew = sNew.mkAlt(pv.first.alt());
 			vNew = vNew.mkVs(pv.second.vs());                   // merge Vertical VS with horizontal components
-			//f.pln(t+" $$$ positionVelocity(inVsChange) C: vNew = "+vNew);
 		} else {
-			if (seg < size()-1) {   // otherwise np2 is not a valid future point
-				double s1z = np1.z();
-				double s2z = np2.z();
-				double t1 = np1.time();
-				double t2 = np2.time();
-				double vZ = (s2z - s1z)/(t2-t1);
-				double sZ = s1z + vZ*dt;
-				//f.pln(" $$$$$$$$ seg = "+seg+" dt = "+f.Fm2(dt)+" vZ = "+Units.str("fpm",vZ)+" sZ = "+Units.str("ft",sZ));
-				sNew = sNew.mkAlt(sZ);
-				vNew = vNew.mkVs(vZ);
-			}
-			//f.pln(t+" $$$ positionVelocity(NOT inVsChange): vNew = "+vNew);
-		}
-//f.pln(" $$ %%%% positionVelocity RETURN: sNew("+f.Fm2(t)+") = "+sNew);
-//f.pln(" $$ %%%% positionVelocity RETURN: vNew("+f.Fm2(t)+") = "+vNew);
-		//		}
+			double s1z = np1.z();
+			double s2z = np2.z();
+			double t1 = np1.time();
+			double t2 = np2.time();
+			double vZ = (s2z - s1z)/(t2-t1);
+			double sZ = s1z + vZ*dt;
+			sNew = sNew.mkAlt(sZ);
+			vNew = vNew.mkVs(vZ);
+		}
 		return new Pair<Position,Velocity>(sNew,vNew);  
 	}
-	
-	public Pair<Position,Velocity> positionVelocity(double t) {
-	   return positionVelocity(t,false);
-	}
 
 	//	// v_linear is the linear (estimate) velocity from point i (before t1) to point i+1 (after t1)
 	//	//     Note: in a horizontal acceleration zone, only the vs component of v_linear (i.e. v_linear.vs()) is used
@@ -14,6 +14,7 @@ import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
 
 public class PolyUtil {
 
@@ -645,6 +646,14 @@ public class PolyUtil {
 	}
 	
 	public static Plan reducePlanAgainstPolys(Plan plan, double gs, ArrayList<PolyPath> paths, double incr) {
+		return reducePlanAgainstPolys(plan,gs,paths,incr,false);
+	}
+
+	/**
+	 * As reducePlanAgainstPolys(), but if cancellable is true and the current thread is interrupted, 
+	 * throws a CancellationException instead of finishing the reduction (see WeatherUtil.reRouteWxParallel()).
+	 */
+	static Plan reducePlanAgainstPolys(Plan plan, double gs, ArrayList<PolyPath> paths, double incr, boolean cancellable) {
 		if (incr <= 0) return null;
 		Plan curr = plan.copy();
 		Plan tmp;
@@ -654,6 +663,9 @@ public class PolyUtil {
 			lastsz = curr.size();
 			int i = 1;
 			while (i < curr.size()-1) {
+				if (cancellable && Thread.currentThread().isInterrupted()) {
+					throw new CancellationException("reducePlanAgainstPolys interrupted");
+				}
 				tmp = curr.copy();
 				double start = tmp.getTime(i-1);
 				double end = tmp.getTime(i+1);
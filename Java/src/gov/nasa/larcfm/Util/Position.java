@@ -118,6 +118,20 @@ public final class Position implements OutputList {
     return new Position(LatLonAlt.make(lat, lat_unit, lon, lon_unit, alt, alt_unit));
   }
 
+  /**
+   * Creates a new lat/lon position with coordinates (<code>lat</code>,<code>lon</code>,<code>alt</code>).
+   * 
+   * @param lat latitude [lat_unit north latitude]
+   * @param lat_unit conversion factor of latitude (see Units.getFactor)
+   * @param lon longitude [lon_unit east longitude]
+   * @param lon_unit conversion factor of longitude
+   * @param alt altitude [alt_unit]
+   * @param alt_unit conversion factor of altitude
+   */
+  public static Position makeLatLonAlt(double lat, double lat_unit, double lon, double lon_unit, double alt, double alt_unit) {
+    return new Position(LatLonAlt.make(lat, lat_unit, lon, lon_unit, alt, alt_unit));
+  }
+
   /**
    * Creates a new Euclidean position with coordinates (<code>x</code>,<code>y</code>,<code>z</code>).
    * 
@@ -14,7 +14,7 @@
 package gov.nasa.larcfm.Util;
 
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.SortedSet;
@@ -767,7 +767,8 @@ public final class Units {
   private final static double C_OFFSET = 273.15;
   private final static double F_OFFSET = 273.15 * 1.8 - 32.0;
 
-  // Setup a table for string names for all supported units
+  // Setup a table for string names for all supported units. Lookups are
+  // not synchronized, additions are (see addUnitPair).
   private static Map<String, UnitPair> unitTable;
 
   // the compatible units for the "unspecified" unit
@@ -793,7 +794,7 @@ public final class Units {
 
     // Create the table of unit names
 
-    unitTable = new HashMap<String, UnitPair>(150); // A good default size
+    unitTable = new ConcurrentHashMap<String, UnitPair>(150); // A good default size
     unspecifiedUnits = new TreeSet<String>();
 
     try {
@@ -1065,9 +1066,13 @@ public final class Units {
   /**
    * Get the UnitPair for a given string unit.
    */
-  private static synchronized UnitPair getUnitPairInternal(String unit) {
+  private static UnitPair getUnitPairInternal(String unit) {
     UnitPair pair;
 
+    if (unit == null) {
+      return null;
+    }
+
     // if (unit.charAt(0) == '[' && unit.charAt(unit.length() - 1) == ']') {
     // unit = unit.substring(1, unit.length() - 1);
     // }
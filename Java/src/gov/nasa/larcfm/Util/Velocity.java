@@ -90,7 +90,7 @@ public final class Velocity extends Vect3 implements OutputList {
    * @return the velocity
    */
   public static Velocity makeVxyz(double vx, double vy, double vz) {
-    return new Velocity(Units.from("knot",vx),Units.from("knot",vy),Units.from("fpm",vz));
+    return new Velocity(Units.from(Units.knot,vx),Units.from(Units.knot,vy),Units.from(Units.fpm,vz));
   }     
 
 
@@ -112,6 +112,24 @@ public final class Velocity extends Vect3 implements OutputList {
     return new Velocity(Units.from(uvxy,vx), Units.from(uvxy, vy), Units.from(uvz,vz));
   }     
 
+  /**
+   * New velocity from Euclidean coordinates in explicit units, given as conversion
+   * factors (see Units.getFactor).
+   * 
+   * @param vx the x-velocity [uvxy]
+   * @param vy the y-velocity [uvzy]
+   * @param uvxy the conversion factor of vx and vy
+   * @param vz the z-velocity [uvz]
+   * @param uvz the conversion factor of vz
+   * 
+   * @return the velocity
+   */
+  public static Velocity makeVxyz(
+      double vx, double vy, double uvxy,
+      double vz, double uvz) {
+    return new Velocity(Units.from(uvxy,vx), Units.from(uvxy, vy), Units.from(uvz,vz));
+  }
+
   /**
    * New velocity from Track, Ground Speed, and Vertical speed in internal units.
    * Note that this uses trigonometric functions, and may introduce numeric instability.
@@ -138,7 +156,7 @@ public final class Velocity extends Vect3 implements OutputList {
    * @return the velocity
    */
   public static Velocity makeTrkGsVs(double trk,double gs, double vs) {
-    return mkTrkGsVs(Units.from("deg",trk), Units.from("knot",gs), Units.from("fpm",vs));
+    return mkTrkGsVs(Units.from(Units.deg,trk), Units.from(Units.knot,gs), Units.from(Units.fpm,vs));
   }
 
 
@@ -162,6 +180,28 @@ public final class Velocity extends Vect3 implements OutputList {
     return mkTrkGsVs(Units.from(utrk,trk), Units.from(ugs,gs), Units.from(uvs,vs));
   }
 
+  /**
+   * New velocity from Track, Ground Speed, and Vertical speed in explicit units.
+   * The units are given as conversion factors (see Units.getFactor), which avoids looking up
+   * unit names when many velocities are created.
+   * Note that this uses trigonometric functions, and may introduce numeric instability.
+   * 
+   * @param trk the track angle [utrk]
+   * @param utrk the conversion factor of trk
+   * @param gs the ground speed [ugs]
+   * @param ugs the conversion factor of gs
+   * @param vs the vertical speed [uvs]
+   * @param uvs the conversion factor of vs
+   * 
+   * @return the velocity
+   */
+  public static Velocity makeTrkGsVs(
+      double trk, double utrk,
+      double gs, double ugs,
+      double vs, double uvs) {
+    return mkTrkGsVs(Units.from(utrk,trk), Units.from(ugs,gs), Units.from(uvs,vs));
+  }
+
   /**
    * Return the velocity along the line from p1 to p2 at the given speed
    * @param p1 first point
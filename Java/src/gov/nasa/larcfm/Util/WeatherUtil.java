@@ -8,6 +8,13 @@ package gov.nasa.larcfm.Util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 
 public class WeatherUtil {
@@ -39,7 +46,15 @@ public class WeatherUtil {
 	 */
 	static public Pair<Plan,DensityGrid> reRouteWx(Plan own, ArrayList<PolyPath> paths, double gridSize, double buffer, 
 			double factor, double T_p, ArrayList<PolyPath> containment,	boolean fastPolygonReroute, boolean reduceGridPath, 
-			double timeOfCurrentPosition, double reRouteLeadIn) {				
+			double timeOfCurrentPosition, double reRouteLeadIn) {
+		return reRouteWx(own, paths, gridSize, buffer, factor, T_p, containment, fastPolygonReroute, reduceGridPath, 
+				timeOfCurrentPosition, reRouteLeadIn, false);
+	}
+
+	// if cancellable is true, throws a CancellationException when the current thread is interrupted, see checkCancelled()
+	static private Pair<Plan,DensityGrid> reRouteWx(Plan own, ArrayList<PolyPath> paths, double gridSize, double buffer, 
+			double factor, double T_p, ArrayList<PolyPath> containment,	boolean fastPolygonReroute, boolean reduceGridPath, 
+			double timeOfCurrentPosition, double reRouteLeadIn, boolean cancellable) {				
 //f.pln("WeatherUtil.reRouteWx 1");
 //f.pln("WeatherUtil.reRouteWx own="+own+" paths="+paths+" gridsize="+gridSize+" buffer="+buffer+" factor="+factor+" Tp="+T_p+" containment="+containment.size()+" fast="+fastPolygonReroute+" red="+reduceGridPath+" timeOfCurrentPosition="+timeOfCurrentPosition+" reRouteLeadIn="+reRouteLeadIn);
 		//Plan p = plans.getPlan(0);	
@@ -88,7 +103,7 @@ public class WeatherUtil {
 				endT = timeOfCurrentPosition + T_p;
 			}
 			Pair<Plan,DensityGrid> rr = reRouteWithAstar(paths, nPlan, gridSize, buffer, factor, gs, containment, endT,
-					fastPolygonReroute, reduceGridPath);
+					fastPolygonReroute, reduceGridPath, cancellable);
 			Plan rrPlan = rr.first; 	
 			dg = rr.second;
 //f.pln(" $$$$ reRouteWx: rr.first = "+rr.first);
@@ -152,6 +167,14 @@ public class WeatherUtil {
 			double factor, double T_p, ArrayList<PolyPath> containment, boolean fastPolygonReroute, boolean reduceGridPath,
 			double timeOfCurrentPosition, double reRouteLeadIn, boolean expandPolygons, double timeBefore, double timeAfter,
 			boolean reRouteReduction) {
+		return reRouteWx(own, paths, gridSize, buffer, factor, T_p, containment, fastPolygonReroute, reduceGridPath, 
+				timeOfCurrentPosition, reRouteLeadIn, expandPolygons, timeBefore, timeAfter, reRouteReduction, false);
+	}
+
+	static private Pair<Plan,DensityGrid> reRouteWx(Plan own, ArrayList<PolyPath> paths, double gridSize, double buffer, 
+			double factor, double T_p, ArrayList<PolyPath> containment, boolean fastPolygonReroute, boolean reduceGridPath,
+			double timeOfCurrentPosition, double reRouteLeadIn, boolean expandPolygons, double timeBefore, double timeAfter,
+			boolean reRouteReduction, boolean cancellable) {
 		ArrayList<PolyPath> npaths = new ArrayList<PolyPath>();
 		for (int i = 0; i < paths.size(); i++) {
 			PolyPath exp = PolyUtil.stretchOverTime(paths.get(i), timeBefore, timeAfter);
@@ -161,12 +184,12 @@ public class WeatherUtil {
 			}
 			npaths.add(exp);
 		}
-		Pair<Plan,DensityGrid> pr = reRouteWx(own, npaths, gridSize, buffer, factor, T_p, containment, fastPolygonReroute, reduceGridPath, timeOfCurrentPosition, reRouteLeadIn);
+		Pair<Plan,DensityGrid> pr = reRouteWx(own, npaths, gridSize, buffer, factor, T_p, containment, fastPolygonReroute, reduceGridPath, timeOfCurrentPosition, reRouteLeadIn, cancellable);
 		Plan ret = pr.first;
 		if (reRouteReduction && ret != null) {
 			double incr = 10.0;
 			double gs = own.initialVelocity(0).gs();
-			Plan ret2 = PolyUtil.reducePlanAgainstPolys(ret, gs, npaths, incr);
+			Plan ret2 = PolyUtil.reducePlanAgainstPolys(ret, gs, npaths, incr, cancellable);
 			if (ret2 != null) {
 				ret = ret2;
 			}
@@ -175,10 +198,261 @@ public class WeatherUtil {
 		return Pair.make(ret, pr.second);
 	}
 
-	
+	/**
+	 * One set of grid parameters to be tried by reRouteWxParallel(), and its outcome.
+	 */
+	public static class ReRouteCandidate {
+		public final double gridSize;
+		public final double buffer;
+		public final double factor;
+		private Plan plan = null;
+		private DensityGrid grid = null;
+		private boolean valid = false;
+		private double time = -1.0;
+		private String status = "not run";
+
+		/**
+		 * @param gridSize size of grid square (m)
+		 * @param buffer size of extended grid area (m)
+		 * @param factor weighting for closeness to original path
+		 */
+		public ReRouteCandidate(double gridSize, double buffer, double factor) {
+			this.gridSize = gridSize;
+			this.buffer = buffer;
+			this.factor = factor;
+		}
+
+		/** Plan found by this candidate, or null if none (or if it did not finish) */
+		public Plan getPlan() {
+			return plan;
+		}
+
+		/** Density grid used by this candidate (for visualization), or null if it did not finish */
+		public DensityGrid getDensityGrid() {
+			return grid;
+		}
+
+		/** True if this candidate found a plan that is free of polygons */
+		public boolean isValid() {
+			return valid;
+		}
+
+		/** Computation time of this candidate [s], or -1 if it did not finish */
+		public double getTime() {
+			return time;
+		}
+
+		/** 
+		 * One of "not run", "valid", "in conflict", "no solution", "cancelled" (stopped before finishing), 
+		 * or "error: " followed by a message 
+		 */
+		public String getStatus() {
+			return status;
+		}
+
+		public String toString() {
+			return "gridSize="+Units.str("nmi",gridSize)+" buffer="+Units.str("nmi",buffer)+" factor="+f.Fm2(factor)+
+					" status="+status+" time="+f.Fm3(time);
+		}
+	}
+
+	private static class ReRouteOutcome {
+		final Pair<Plan,DensityGrid> result; // null if stopped or failed
+		final boolean valid;
+		final double time;
+		final String error;
+		ReRouteOutcome(Pair<Plan,DensityGrid> result, boolean valid, double time, String error) {
+			this.result = result;
+			this.valid = valid;
+			this.time = time;
+			this.error = error;
+		}
+	}
+
+	private static ArrayList<PolyPath> copyPaths(ArrayList<PolyPath> paths) {
+		if (paths == null) return null;
+		ArrayList<PolyPath> ret = new ArrayList<PolyPath>(paths.size());
+		for (int i = 0; i < paths.size(); i++) {
+			ret.add(paths.get(i).copy());
+		}
+		return ret;
+	}
+
+	private static ReRouteOutcome reRouteCandidate(Plan own, ArrayList<PolyPath> paths, ReRouteCandidate c, 
+			double T_p, ArrayList<PolyPath> containment, boolean fastPolygonReroute, boolean reduceGridPath, 
+			double timeOfCurrentPosition, double reRouteLeadIn, boolean expandPolygons, double timeBefore, double timeAfter,
+			boolean reRouteReduction) {
+		long t0 = System.nanoTime();
+		try {
+			// each candidate works on its own copies, since plans and paths log errors
+			Plan ownc = own.copy();
+			ArrayList<PolyPath> pathsc = copyPaths(paths);
+			Pair<Plan,DensityGrid> rr = reRouteWx(ownc, pathsc, c.gridSize, c.buffer, c.factor, T_p, copyPaths(containment), 
+					fastPolygonReroute, reduceGridPath, timeOfCurrentPosition, reRouteLeadIn, expandPolygons, timeBefore, timeAfter, 
+					reRouteReduction, true);
+			boolean valid = false;
+			Plan sol = rr.first;
+			if (sol != null && sol.size() > 1 && !Thread.currentThread().isInterrupted()) {
+				// sample at least twice per grid square
+				double gs = own.initialVelocity(0).gs();
+				double incr = gs > 0 ? Math.min(0.5*c.gridSize/gs, 10.0) : 10.0;
+				valid = PolyUtil.isPlanInConflictWx(sol, pathsc, incr).first < 0;
+			}
+			if (Thread.currentThread().isInterrupted()) {
+				return new ReRouteOutcome(null, false, -1.0, null); // stopped before finishing
+			}
+			return new ReRouteOutcome(rr, valid, (System.nanoTime()-t0)/1.0e9, null);
+		} catch (CancellationException e) {
+			return new ReRouteOutcome(null, false, -1.0, null); // stopped before finishing
+		} catch (RuntimeException e) {
+			return new ReRouteOutcome(null, false, (System.nanoTime()-t0)/1.0e9, e.toString());
+		}
+	}
+
+	/**
+	 * As reRouteWx() (with polygon expansion and path reduction), but several grid parameters (grid size, buffer and factor) are 
+	 * tried concurrently.  As soon as one of them produces a plan that is free of the given polygons (as checked by 
+	 * PolyUtil.isPlanInConflictWx(), sampling at least twice per grid square), or when the latency budget expires, the remaining 
+	 * candidates are stopped (between the steps of grid construction, during the search, or during path reduction).  Since reRouteWx() solutions may intrude into polygons by up to one grid square, expandPolygons 
+	 * should usually be set.<p>
+	 * 
+	 * The outcome of each candidate (plan, validity, status and computation time) is stored in the candidate itself.  Candidates are not 
+	 * modified by this method after it returns.
+	 * 
+	 * @param own ownship plan (not modified, except for an error message if no solution is found)
+	 * @param paths polypath collection of polygons to be routed around
+	 * @param candidates grid parameters to try
+	 * @param T_p lookahead time, relative to timeOfCurrentPosition (see reRouteWx())
+	 * @param containment list of polygons to remain within
+	 * @param fastPolygonReroute if set to true, use a less exact (greater over-approximation) but much faster search
+	 * @param reduceGridPath if set to true, attempt to smooth resulting path
+	 * @param timeOfCurrentPosition  location of aircraft in its plan
+	 * @param reRouteLeadIn          leadin time from current position
+	 * @param expandPolygons if set to true, internally over-approximate the polygons to mitigate missed conflicts
+	 * @param timeBefore if greater than zero, ensure the final path is continuously clear for this amount of time before the given solution 
+	 * @param timeAfter if greater than zero, ensure the final path is continuously clear for this amount of time after the given solution
+	 * @param reRouteReduction if true, perform more aggressive simplification of resulting path.
+	 * @param latencyBudget maximum (wall clock) time to wait for a solution [s].  If not positive, there is no limit.
+	 * @param threads maximum number of concurrent candidates.  If not positive, the number of available processors is used.
+	 * @return the valid plan with the earliest arrival time among the candidates that finished, and its density grid.  
+	 * If no candidate produced a valid plan within the budget, the plan is null.
+	 */
+	static public Pair<Plan,DensityGrid> reRouteWxParallel(final Plan own, final ArrayList<PolyPath> paths, List<ReRouteCandidate> candidates, 
+			final double T_p, final ArrayList<PolyPath> containment, final boolean fastPolygonReroute, final boolean reduceGridPath, 
+			final double timeOfCurrentPosition, final double reRouteLeadIn, final boolean expandPolygons, final double timeBefore, 
+			final double timeAfter, final boolean reRouteReduction, double latencyBudget, int threads) {
+		Plan solution = null;
+		DensityGrid dg = null;
+		int n = candidates.size();
+		if (n == 0) {
+			own.addError("reRouteWxParallel: no candidates");
+			return Pair.make(solution,dg);
+		}
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(n,threads), r -> {
+			Thread t = new Thread(r,"reRouteWxParallel");
+			t.setDaemon(true);
+			return t;
+		});
+		ExecutorCompletionService<ReRouteOutcome> ecs = new ExecutorCompletionService<ReRouteOutcome>(pool);
+		final Plan ownc = own.copy(); // shared read-only source of the per-candidate copies
+		final ArrayList<PolyPath> pathsc = copyPaths(paths);
+		final ArrayList<PolyPath> containmentc = copyPaths(containment);
+		ArrayList<Future<ReRouteOutcome>> futures = new ArrayList<Future<ReRouteOutcome>>(n);
+		for (int i = 0; i < n; i++) {
+			final ReRouteCandidate c = candidates.get(i);
+			futures.add(ecs.submit(() -> reRouteCandidate(ownc, pathsc, c, T_p, containmentc, fastPolygonReroute, reduceGridPath, 
+					timeOfCurrentPosition, reRouteLeadIn, expandPolygons, timeBefore, timeAfter, reRouteReduction)));
+		}
+		long deadline = System.nanoTime() + (long)(latencyBudget*1.0e9);
+		boolean found = false;
+		int done = 0;
+		try {
+			while (done < n && !found) {
+				Future<ReRouteOutcome> fut;
+				if (latencyBudget > 0) {
+					fut = ecs.poll(deadline-System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (fut == null) break; // out of time
+				} else {
+					fut = ecs.take();
+				}
+				done++;
+				found = record(fut, candidates.get(futures.indexOf(fut)));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		pool.shutdownNow(); // interrupts the searches still running
+		for (int i = 0; i < n; i++) {
+			Future<ReRouteOutcome> fut = futures.get(i);
+			ReRouteCandidate c = candidates.get(i);
+			if (c.status.equals("not run")) {
+				if (fut.isDone() && !fut.isCancelled()) {
+					record(fut, c); // finished while we were stopping
+				} else {
+					fut.cancel(true);
+					c.status = "cancelled";
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			ReRouteCandidate c = candidates.get(i);
+			if (c.valid && (solution == null || c.plan.getLastTime() < solution.getLastTime())) {
+				solution = c.plan;
+				dg = c.grid;
+			}
+		}
+		if (solution == null) {
+			own.addError("reRouteWxParallel failed to find solution");
+		}
+		return Pair.make(solution,dg);
+	}
+
+	// store the outcome of a finished candidate, returns true if it is valid
+	private static boolean record(Future<ReRouteOutcome> fut, ReRouteCandidate c) {
+		ReRouteOutcome o;
+		try {
+			o = fut.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			o = new ReRouteOutcome(null, false, -1.0, e.getCause().toString());
+		}
+		if (o.result == null && o.error == null) {
+			c.status = "cancelled";
+			return false;
+		}
+		c.time = o.time;
+		if (o.error != null) {
+			c.status = "error: "+o.error;
+			return false;
+		}
+		c.plan = o.result.first;
+		c.grid = o.result.second;
+		c.valid = o.valid;
+		if (o.valid) {
+			c.status = "valid";
+		} else if (c.plan == null || c.plan.size() < 2) {
+			c.status = "no solution";
+		} else {
+			c.status = "in conflict";
+		}
+		return o.valid;
+	}
+
+	// stops a reRouteWxParallel() candidate between the steps of its computation
+	private static void checkCancelled(boolean cancellable) {
+		if (cancellable && Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("reRouteWx interrupted");
+		}
+	}
+
 	static private Pair<Plan,DensityGrid> reRouteWithAstar(ArrayList<PolyPath> paths, Plan ownship, double gridSize, double buffer, 
 			double factor, double gs, ArrayList<PolyPath> containment, double endT,
-			boolean fastPolygonReroute, boolean reduceGridPath) {
+			boolean fastPolygonReroute, boolean reduceGridPath, boolean cancellable) {
 //f.pln("WeatherUtil.reRouteWithAstar");
 		boolean markPath = true; // mark all cells in the grid that are in the original optimal path
 		int b = (int)Math.ceil(buffer/gridSize);
@@ -188,16 +462,19 @@ public class WeatherUtil {
 		} else {
 			dg = new DensityGridMovingPolys(ownship, b, gridSize, gs, paths, containment);
 		}
+		checkCancelled(cancellable);
 		dg.setLookaheadEndTime(endT);
 		dg.snapToStart();
 		// only set the search time range if it makes sense
 		//		dg.resetWeights(1.0);
 		List<Pair<Integer,Integer>> origpath = dg.gridPath(ownship);
+		checkCancelled(cancellable);
 		boolean noContainment = true;
 		if (containment != null && containment.size() > 0) {
 			for (int i = 0; i < containment.size(); i++) {
 				if (containment.get(i).isStatic()) {
 					dg.setWeightsInside(containment.get(i).getPoly(0), 1.0);
+					checkCancelled(cancellable);
 					noContainment = false;
 				}
 			}
@@ -208,6 +485,7 @@ public class WeatherUtil {
 		if (factor > 0.0) {
 			dg.setProximityWeights(origpath, factor, false);
 			//	dg.setProximityWeights(ownship, factor, false);
+			checkCancelled(cancellable);
 		} 
 		//dg.setProximityWeights(ownship, factor);
 		List<Pair<Integer,Integer>> gPath = dg.optimalPath();
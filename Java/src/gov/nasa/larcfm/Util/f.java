@@ -15,6 +15,7 @@ package gov.nasa.larcfm.Util;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.List;
@@ -192,32 +193,38 @@ final public class f {
 		return v+0.0; // This removes actual negative zeros
 	}
 
-	private static DecimalFormat Frm0 = new DecimalFormat("0");
-	private static DecimalFormat Frm1 = new DecimalFormat("0.0");
-	private static DecimalFormat Frm2 = new DecimalFormat("0.00");
-	private static DecimalFormat Frm3 = new DecimalFormat("0.000");
-	private static DecimalFormat Frm4 = new DecimalFormat("0.0000");
-	private static DecimalFormat Frm5 = new DecimalFormat("0.00000");
-	private static DecimalFormat Frm6 = new DecimalFormat("0.000000");
-	private static DecimalFormat Frm7 = new DecimalFormat("0.0000000");
-	private static DecimalFormat Frm8 = new DecimalFormat("0.00000000");
-	private static DecimalFormat Frm9 = new DecimalFormat("0.000000000");
-	private static DecimalFormat Frm10 = new DecimalFormat("0.0000000000");
-	private static DecimalFormat Frm11 = new DecimalFormat("0.00000000000");
-	private static DecimalFormat Frm12 = new DecimalFormat("0.000000000000");
-	private static DecimalFormat Frm13 = new DecimalFormat("0.0000000000000");
-	private static DecimalFormat Frm14 = new DecimalFormat("0.00000000000000");
-	private static DecimalFormat Frm15 = new DecimalFormat("0.000000000000000");
-	private static DecimalFormat Frm16 = new DecimalFormat("0.0000000000000000");
-
-	private static DecimalFormat Frm_2 = new DecimalFormat("00");
-	private static DecimalFormat Frm_3 = new DecimalFormat("000");
-	private static DecimalFormat Frm_4 = new DecimalFormat("0000");
-	private static DecimalFormat Frm_5 = new DecimalFormat("00000");
-	private static DecimalFormat Frm_6 = new DecimalFormat("000000");
-	private static DecimalFormat Frm_7 = new DecimalFormat("0000000");
-	private static DecimalFormat Frm_8 = new DecimalFormat("00000000");
-	private static DecimalFormat Frm_9 = new DecimalFormat("000000000");
+	// Numbers are formatted by FmPrecision(StringBuilder,double,int), which gives the same result as DecimalFormat("0.00...") 
+	// with the default locale, but does not use shared (non thread safe) formatters.  DecimalFormat is only used in the 
+	// rare cases this cannot be done exactly with long arithmetic (values near a rounding tie or too large), with one instance
+	// per thread.
+	private static final char DECIMAL_SEPARATOR = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+	private static final char MINUS_SIGN = DecimalFormatSymbols.getInstance().getMinusSign();
+	private static final char ZERO_DIGIT = DecimalFormatSymbols.getInstance().getZeroDigit();
+	private static final int MAX_PRECISION = 16;
+	private static final double[] POW10 = new double[MAX_PRECISION+1];
+	private static final long[] LPOW10 = new long[MAX_PRECISION+1];
+	static {
+		long p = 1;
+		for (int i = 0; i <= MAX_PRECISION; i++) {
+			LPOW10[i] = p;
+			POW10[i] = p;
+			p *= 10;
+		}
+	}
+	// scaled values below this bound are rounded with long arithmetic: their rounding error is small enough to detect ties
+	private static final double FAST_BOUND = 1.0e14;
+
+	private static final ThreadLocal<DecimalFormat[]> Frm = ThreadLocal.withInitial(() -> {
+		DecimalFormat[] frm = new DecimalFormat[MAX_PRECISION+1];
+		String pattern = "0.";
+		frm[0] = new DecimalFormat("0");
+		for (int i = 1; i <= MAX_PRECISION; i++) {
+			pattern += "0";
+			frm[i] = new DecimalFormat(pattern);
+		}
+		return frm;
+	});
+	private static final ThreadLocal<StringBuilder> scratch = ThreadLocal.withInitial(() -> new StringBuilder(32));
 
 	/**
 	 * Add leading zeros to a string representation of an integer.  If the integer
@@ -234,16 +241,30 @@ final public class f {
 	 * @return
 	 */
 	public static String FmLead(int v, int minLength) {
-		switch(minLength) {
-		case 2 : return Frm_2.format(v);
-		case 3 : return Frm_3.format(v);
-		case 4 : return Frm_4.format(v);
-		case 5 : return Frm_5.format(v);
-		case 6 : return Frm_6.format(v);
-		case 7 : return Frm_7.format(v);
-		case 8 : return Frm_8.format(v);
-		case 9 : return Frm_9.format(v);
-		default : return Frm0.format(v);
+		StringBuilder sb = new StringBuilder(12);
+		long a = v;
+		if (a < 0) {
+			sb.append(MINUS_SIGN);
+			a = -a;
+		}
+		if (minLength > 9) minLength = 1; // as before, only lengths up to 9 are supported
+		appendDigits(sb, a, minLength);
+		return sb.toString();
+	}
+
+	// append the decimal digits of a (>= 0), with leading zeros up to minLength digits
+	private static void appendDigits(StringBuilder sb, long a, int minLength) {
+		int n = 1;
+		long d = 1;
+		while (a/d >= 10) {
+			n++;
+			d *= 10;
+		}
+		for (int i = n; i < minLength; i++) {
+			sb.append(ZERO_DIGIT);
+		}
+		for (; d > 0; d /= 10) {
+			sb.append((char)(ZERO_DIGIT + (a/d) % 10));
 		}
 	}
 
@@ -252,34 +273,62 @@ final public class f {
 	}
 
 	public static String FmPrecision(double v, int precision) {
+		return FmPrecision(new StringBuilder(24), v, precision).toString();
+	}
+
+	/**
+	 * Append v, with the given number of decimal places, to sb.  The result is the same as FmPrecision(v,precision), 
+	 * but no intermediate objects are created in most cases.  This method is thread safe.  Precisions outside of 
+	 * the range 1..16 are treated as 0.
+	 * @return sb
+	 */
+	public static StringBuilder FmPrecision(StringBuilder sb, double v, int precision) {
 		if (Double.isNaN(v)) {
-			return "NaN";
+			return sb.append("NaN");
 		}
 		if (Double.isInfinite(v)) {
-			String s="infty";
-			if (v < 0) return "-"+s;
-			return s;
+			if (v < 0) sb.append('-');
+			return sb.append("infty");
 		} 
 		v = fm_nz(v,precision+1);
-		switch(precision) {
-		case 1 : return Frm1.format(v);
-		case 2 : return Frm2.format(v);
-		case 3 : return Frm3.format(v);
-		case 4 : return Frm4.format(v);
-		case 5 : return Frm5.format(v);
-		case 6 : return Frm6.format(v);
-		case 7 : return Frm7.format(v);
-		case 8 : return Frm8.format(v);
-		case 9 : return Frm9.format(v);
-		case 10: return Frm10.format(v);
-		case 11: return Frm11.format(v);
-		case 12: return Frm12.format(v);
-		case 13: return Frm13.format(v);
-		case 14: return Frm14.format(v);
-		case 15: return Frm15.format(v);
-		case 16: return Frm16.format(v);
-		default : return Frm0.format(v);
+		if (precision < 1 || precision > MAX_PRECISION) {
+			precision = 0;
+		}
+		double a = Math.abs(v);
+		double scaled = a*POW10[precision]; // a single rounding, so it is within half an ulp of the exact value
+		long n = (long)scaled;
+		double frac = scaled-n; // exact, as scaled < 2^52
+		if (!(scaled < FAST_BOUND) || Math.abs(frac-0.5) <= 2*Math.ulp(scaled)) {
+			// large value or (near) tie: DecimalFormat knows how to round these 
+			return sb.append(Frm.get()[precision].format(v));
+		}
+		if (frac > 0.5) {
+			n++;
+		}
+		if (v < 0) {
+			sb.append(MINUS_SIGN); // as DecimalFormat, this includes negative values rounded to zero
 		}
+		appendDigits(sb, n/LPOW10[precision], 1);
+		if (precision > 0) {
+			sb.append(DECIMAL_SEPARATOR);
+			appendDigits(sb, n%LPOW10[precision], precision);
+		}
+		return sb;
+	}
+
+	/**
+	 * Write v, with the given number of decimal places, into buf starting at index off.  The characters are 
+	 * the same as FmPrecision(v,precision).  This method is thread safe. 
+	 * @return the index following the last character written
+	 * @throws IndexOutOfBoundsException if buf is not large enough
+	 */
+	public static int FmPrecision(char[] buf, int off, double v, int precision) {
+		StringBuilder sb = scratch.get();
+		sb.setLength(0);
+		FmPrecision(sb, v, precision);
+		int len = sb.length();
+		sb.getChars(0, len, buf, off);
+		return off+len;
 	}
 
 	public static String Fmi(int v) {
@@ -370,11 +419,11 @@ final public class f {
 
 
 
-	private static DecimalFormat Frm_e4 = new DecimalFormat("0.0000E00");// new DecimalFormat("0.0000");
+	private static final ThreadLocal<DecimalFormat> Frm_e4 = ThreadLocal.withInitial(() -> new DecimalFormat("0.0000E00"));// new DecimalFormat("0.0000");
 
 	/** Format a double in exponential notation with 4 decimal places */
 	public static String Fme4(double v) {
-		return Frm_e4.format(v);
+		return Frm_e4.get().format(v);
 	}
 
 